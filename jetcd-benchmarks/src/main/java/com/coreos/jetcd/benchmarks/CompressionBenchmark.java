@@ -0,0 +1,138 @@
+package com.coreos.jetcd.benchmarks;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.ClientBuilder;
+import com.coreos.jetcd.KV;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.CompressionOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CPU cost against bytes saved of value compression, for JSON values at each deflate level and
+ * without compression.
+ *
+ * <p>Puts and gets run against the in-process server, so the time per op is mostly client and
+ * codec cost. The {@code valueBytes} and {@code storedBytes} counters add up the plain and stored
+ * sizes of the values put; their ratio is what compression saves in db quota and bandwidth.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar CompressionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+  static final ByteString KEY = ByteString.copyFromUtf8("compression");
+
+  @Param({"off", "1", "6", "9"})
+  String level;
+
+  @Param({"4096", "131072"})
+  int valueSize;
+
+  EtcdInProcessServer server;
+  Client client;
+  KV kv;
+  ByteString value;
+  long storedSize;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withAutoCompaction(1024)
+        .withMaxRequestBytes(4 * 1024 * 1024)
+        .build()
+        .start();
+    ClientBuilder builder = ClientBuilder.newBuilder();
+    if (!level.equals("off")) {
+      builder.setCompressionOption(CompressionOption.newBuilder()
+          .withLevel(Integer.parseInt(level))
+          .build());
+    }
+    client = server.newClient(builder);
+    kv = client.getKVClient();
+    value = json(valueSize);
+
+    kv.put(KEY, value).get();
+    Client plainClient = server.newClient();
+    try {
+      storedSize = plainClient.getKVClient().get(KEY).get().getKvs(0).getValue().size();
+    } finally {
+      plainClient.close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  /**
+   * JSON records with varying numbers, which deflate about 10 to 1 like typical config blobs.
+   */
+  static ByteString json(int size) {
+    Random random = new Random(0);
+    StringBuilder json = new StringBuilder(size + 128).append('[');
+    while (json.length() < size) {
+      json.append("{\"id\":").append(random.nextInt(100000))
+          .append(",\"name\":\"service-").append(random.nextInt(100))
+          .append("\",\"enabled\":").append(random.nextBoolean())
+          .append(",\"tags\":[\"prod\",\"eu-west\"]},");
+    }
+    return ByteString.copyFromUtf8(json.substring(0, size));
+  }
+
+  /**
+   * The plain and stored bytes of the values put by one thread.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Bytes {
+
+    public long valueBytes;
+    public long storedBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      valueBytes = 0;
+      storedBytes = 0;
+    }
+  }
+
+  @Benchmark
+  public PutResponse put(Bytes bytes) throws Exception {
+    PutResponse response = kv.put(KEY, value).get();
+    bytes.valueBytes += value.size();
+    bytes.storedBytes += storedSize;
+    return response;
+  }
+
+  @Benchmark
+  public RangeResponse get() throws Exception {
+    return kv.get(KEY).get();
+  }
+}
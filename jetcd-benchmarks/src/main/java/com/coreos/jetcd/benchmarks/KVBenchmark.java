@@ -0,0 +1,149 @@
+package com.coreos.jetcd.benchmarks;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.KV;
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.op.Cmp;
+import com.coreos.jetcd.op.CmpTarget;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * KV hot path benchmarks: every op is a blocking round trip through {@code KVImpl} to the
+ * in-process server, so the numbers are client plus gRPC cost without any network.
+ *
+ * <p>Throughput and sample time (for p99) are reported together, run with {@code -prof gc} for
+ * the bytes allocated per op. {@link KVBenchmarkRunner} sweeps the thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KVBenchmark {
+
+  static final int KEYS_PER_THREAD = 1024;
+
+  @Param({"16", "1024", "65536"})
+  int valueSize;
+
+  EtcdInProcessServer server;
+  Client client;
+  KV kv;
+  ByteString value;
+
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withAutoCompaction(KEYS_PER_THREAD)
+        .build()
+        .start();
+    client = server.newClient();
+    kv = client.getKVClient();
+
+    byte[] bytes = new byte[valueSize];
+    new Random(0).nextBytes(bytes);
+    value = ByteString.copyFrom(bytes);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  /**
+   * The keys one benchmark thread cycles through, populated up front so gets always hit.
+   */
+  @State(Scope.Thread)
+  public static class ThreadKeys {
+
+    ByteString[] keys;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp(KVBenchmark benchmark) throws Exception {
+      int thread = benchmark.threads.getAndIncrement();
+      keys = new ByteString[KEYS_PER_THREAD];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = ByteString.copyFromUtf8(String.format("bench/%04d/%06d", thread, i));
+        benchmark.kv.put(keys[i], benchmark.value).get();
+      }
+    }
+
+    ByteString nextKey() {
+      ByteString key = keys[next];
+      next = (next + 1) % keys.length;
+      return key;
+    }
+  }
+
+  /**
+   * Re-creates the key before each delete so every measured delete removes a live key.
+   */
+  @State(Scope.Thread)
+  public static class DeleteKey {
+
+    ByteString key;
+
+    @Setup(Level.Invocation)
+    public void setUp(KVBenchmark benchmark, ThreadKeys keys) throws Exception {
+      key = keys.nextKey();
+      benchmark.kv.put(key, benchmark.value).get();
+    }
+  }
+
+  @Benchmark
+  public PutResponse put(ThreadKeys keys) throws Exception {
+    return kv.put(keys.nextKey(), value).get();
+  }
+
+  @Benchmark
+  public RangeResponse get(ThreadKeys keys) throws Exception {
+    return kv.get(keys.nextKey()).get();
+  }
+
+  @Benchmark
+  public DeleteRangeResponse delete(DeleteKey key) throws Exception {
+    return kv.delete(key.key).get();
+  }
+
+  /**
+   * A compare-and-swap shaped txn: one value compare, one put on either branch.
+   */
+  @Benchmark
+  public TxnResponse commit(ThreadKeys keys) throws Exception {
+    ByteString key = keys.nextKey();
+    Txn txn = Txn.newBuilder()
+        .If(new Cmp(key, Cmp.Op.EQUAL, CmpTarget.value(value)))
+        .Then(Op.put(key, value, PutOption.DEFAULT))
+        .Else(Op.put(key, value, PutOption.DEFAULT))
+        .build();
+    return kv.commit(txn).get();
+  }
+}
@@ -0,0 +1,41 @@
+package com.coreos.jetcd.benchmarks;
+
+import java.util.Arrays;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link KVBenchmark} once per concurrency level with the gc profiler attached.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.coreos.jetcd.benchmarks.KVBenchmarkRunner [threads...]
+ * </pre>
+ */
+public final class KVBenchmarkRunner {
+
+  private static final int[] DEFAULT_THREADS = {1, 8, 32};
+
+  private KVBenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    int[] threads = args.length == 0
+        ? DEFAULT_THREADS
+        : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+    for (int t : threads) {
+      Options options = new OptionsBuilder()
+          .include(KVBenchmark.class.getSimpleName())
+          .threads(t)
+          .addProfiler(GCProfiler.class)
+          .result("kv-" + t + "-threads.json")
+          .resultFormat(ResultFormatType.JSON)
+          .build();
+      new Runner(options).run();
+    }
+  }
+}
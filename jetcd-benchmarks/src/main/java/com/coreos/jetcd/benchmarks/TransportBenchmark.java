@@ -0,0 +1,135 @@
+package com.coreos.jetcd.benchmarks;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.ClientBuilder;
+import com.coreos.jetcd.KV;
+import com.coreos.jetcd.Maintenance;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.TransportOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Large range and snapshot throughput over TCP for each setting of {@link TransportOption}, one
+ * at a time and all together, against the defaults of gRPC.
+ *
+ * <p>The server is the in-process stand-in also listening on a loopback port, so the numbers
+ * include the Netty transport on both sides but no real network. Run with {@code -prof gc} to see
+ * the effect of the pooled allocator on allocations.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar TransportBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+  static final int KEYS = 1024;
+  static final int VALUE_SIZE = 2048;
+  static final ByteString PREFIX = ByteString.copyFromUtf8("transport/");
+
+  @Param({"default", "nativeTransport", "eventLoopGroup", "pooledAllocator",
+      "flowControlWindow", "keepAlive", "all"})
+  String transport;
+
+  EtcdInProcessServer server;
+  EventLoopGroup eventLoopGroup;
+  Client client;
+  KV kv;
+  Maintenance maintenance;
+  GetOption range;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().withPort(0).build().start();
+
+    ClientBuilder builder = ClientBuilder.newBuilder().endpoints(server.getEndpoint());
+    if (!transport.equals("default")) {
+      builder.setTransportOption(transportOption());
+    }
+    client = builder.build();
+    kv = client.getKVClient();
+    maintenance = client.getMaintenanceClient();
+    range = GetOption.newBuilder().withPrefix(PREFIX).build();
+
+    byte[] bytes = new byte[VALUE_SIZE];
+    new Random(0).nextBytes(bytes);
+    ByteString value = ByteString.copyFrom(bytes);
+    for (int i = 0; i < KEYS; i++) {
+      kv.put(PREFIX.concat(ByteString.copyFromUtf8(String.format("%06d", i))), value).get();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    server.close();
+    if (eventLoopGroup != null) {
+      eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+  }
+
+  private TransportOption transportOption() {
+    TransportOption.Builder option = TransportOption.newBuilder();
+    boolean all = transport.equals("all");
+    if (all || transport.equals("nativeTransport")) {
+      option.withNativeTransport(true);
+    }
+    if (transport.equals("eventLoopGroup")) {
+      eventLoopGroup = new NioEventLoopGroup(Runtime.getRuntime().availableProcessors());
+      option.withEventLoopGroup(eventLoopGroup);
+    }
+    if (all || transport.equals("pooledAllocator")) {
+      option.withPooledAllocator(true);
+    }
+    if (all || transport.equals("flowControlWindow")) {
+      option.withFlowControlWindow(16 * 1024 * 1024);
+    }
+    if (all || transport.equals("keepAlive")) {
+      option.withKeepAlive(30, 10, TimeUnit.SECONDS);
+    }
+    return option.build();
+  }
+
+  /**
+   * A range of {@value #KEYS} keys of {@value #VALUE_SIZE} bytes, about 2 MiB in one response.
+   */
+  @Benchmark
+  public RangeResponse largeRange() throws Exception {
+    return kv.get(PREFIX, range).get();
+  }
+
+  /**
+   * A snapshot of the same keyspace, streamed in chunks.
+   */
+  @Benchmark
+  public void snapshot() throws Exception {
+    try (Maintenance.Snapshot snapshot = maintenance.snapshot()) {
+      snapshot.write(ByteStreams.nullOutputStream());
+    }
+  }
+}
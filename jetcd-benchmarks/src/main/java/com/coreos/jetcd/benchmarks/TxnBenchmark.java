@@ -0,0 +1,119 @@
+package com.coreos.jetcd.benchmarks;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.KV;
+import com.coreos.jetcd.api.TxnRequest;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.op.Cmp;
+import com.coreos.jetcd.op.CmpTarget;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.PreparedTxn;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of a CAS txn built with {@link Txn} against the same txn bound from a
+ * {@link PreparedTxn}, the request alone and as a commit to the in-process server.
+ *
+ * <p>The CAS compares the mod revision of a counter key, then puts the next value and a marker
+ * key, else gets the counter. Run with {@code -prof gc} for the bytes allocated per request.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar TxnBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TxnBenchmark {
+
+  static final ByteString KEY = ByteString.copyFromUtf8("counter");
+  static final ByteString MARKER = ByteString.copyFromUtf8("counter/updated");
+  static final ByteString VALUE = ByteString.copyFromUtf8("0123456789abcdef");
+
+  EtcdInProcessServer server;
+  Client client;
+  KV kv;
+  PreparedTxn prepared;
+  long revision;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withAutoCompaction(1024)
+        .build()
+        .start();
+    client = server.newClient();
+    kv = client.getKVClient();
+    prepared = PreparedTxn.newBuilder(cas(0, ByteString.EMPTY))
+        .withCompareTarget(0)
+        .withSuccessValue(0)
+        .build();
+  }
+
+  @Setup(Level.Iteration)
+  public void reset() throws Exception {
+    revision = kv.put(KEY, VALUE).get().getHeader().getRevision();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  static Txn cas(long revision, ByteString value) {
+    return Txn.newBuilder()
+        .If(new Cmp(KEY, Cmp.Op.EQUAL, CmpTarget.modRevision(revision)))
+        .Then(Op.put(KEY, value, PutOption.DEFAULT), Op.put(MARKER, VALUE, PutOption.DEFAULT))
+        .Else(Op.get(KEY, GetOption.DEFAULT))
+        .build();
+  }
+
+  @Benchmark
+  public TxnRequest buildRequest() {
+    return cas(revision, VALUE).toTxnRequest();
+  }
+
+  @Benchmark
+  public TxnRequest bindRequest() {
+    return prepared.bind().set(0, revision).set(1, VALUE).toTxn().toTxnRequest();
+  }
+
+  /**
+   * Commits run one at a time, each compare holding against the revision of the last commit.
+   */
+  @Benchmark
+  public TxnResponse commitBuilt() throws Exception {
+    TxnResponse response = kv.commit(cas(revision, VALUE)).get();
+    revision = response.getHeader().getRevision();
+    return response;
+  }
+
+  @Benchmark
+  public TxnResponse commitBound() throws Exception {
+    TxnResponse response = kv.commit(
+        prepared.bind().set(0, revision).set(1, VALUE).toTxn()).get();
+    revision = response.getHeader().getRevision();
+    return response;
+  }
+}
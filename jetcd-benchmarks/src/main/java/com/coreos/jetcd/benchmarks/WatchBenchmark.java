@@ -0,0 +1,125 @@
+package com.coreos.jetcd.benchmarks;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.ClientBuilder;
+import com.coreos.jetcd.KV;
+import com.coreos.jetcd.Watch;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.TransportOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.options.WatchStreamOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.protobuf.ByteString;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Watch event throughput as the number of watch streams and of event loop threads grows.
+ *
+ * <p>{@value #WATCHERS} watchers watch one key and each put fans out to all of them, so the
+ * score is events delivered per second. The watchers are spread evenly over the streams, each on
+ * a connection of its own to the in-process server listening on a loopback port.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar WatchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WatchBenchmark {
+
+  static final int WATCHERS = 1024;
+  static final ByteSequence KEY = ByteSequence.fromString("watched");
+  static final ByteString VALUE = ByteString.copyFromUtf8("0123456789abcdef");
+
+  @Param({"1", "2", "4", "8"})
+  int streams;
+
+  @Param({"1", "2", "4", "8"})
+  int eventLoopThreads;
+
+  EtcdInProcessServer server;
+  EventLoopGroup eventLoopGroup;
+  Client client;
+  KV kv;
+  final Semaphore events = new Semaphore(0);
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withPort(0)
+        .withAutoCompaction(1024)
+        .build()
+        .start();
+    eventLoopGroup = new NioEventLoopGroup(eventLoopThreads);
+    client = ClientBuilder.newBuilder()
+        .endpoints(server.getEndpoint())
+        .setChannelPoolSize(2)
+        .setTransportOption(TransportOption.newBuilder()
+            .withEventLoopGroup(eventLoopGroup)
+            .build())
+        .setWatchStreamOption(WatchStreamOption.newBuilder()
+            .withStreams(streams)
+            .withAssignment(WatchStreamOption.Assignment.LEAST_LOADED)
+            .build())
+        .build();
+    kv = client.getKVClient();
+
+    Watch.WatchCallback callback = new Watch.WatchCallback() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> watchEvents) {
+        events.release(watchEvents.size());
+      }
+
+      @Override
+      public void onResuming() {
+      }
+    };
+    Watch watch = client.getWatchClient();
+    for (int i = 0; i < WATCHERS; i++) {
+      watch.watch(KEY, WatchOption.DEFAULT, callback).get();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    server.close();
+    eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+  }
+
+  /**
+   * One put, then wait for its event to reach every watcher.
+   */
+  @Benchmark
+  @OperationsPerInvocation(WATCHERS)
+  public void fanOut() throws Exception {
+    kv.put(KEY.getByteString(), VALUE).get();
+    if (!events.tryAcquire(WATCHERS, 10, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("events lost");
+    }
+  }
+}
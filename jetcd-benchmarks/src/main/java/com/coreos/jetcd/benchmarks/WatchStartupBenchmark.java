@@ -0,0 +1,118 @@
+package com.coreos.jetcd.benchmarks;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.ClientBuilder;
+import com.coreos.jetcd.Watch;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchCreateResult;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to register {@value #WATCHES} watches at startup, one at a time waiting for each watcher
+ * as before, against all at once with {@link Watch#watchAll(List)}.
+ *
+ * <p>Each iteration creates the watches on a new client, to the in-process server listening on
+ * a loopback port.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar WatchStartupBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WatchStartupBenchmark {
+
+  static final int WATCHES = 10_000;
+
+  static final Watch.WatchCallback CALLBACK = new Watch.WatchCallback() {
+    @Override
+    public void onWatch(Header header, List<WatchEvent> events) {
+    }
+
+    @Override
+    public void onResuming() {
+    }
+  };
+
+  EtcdInProcessServer server;
+  Client client;
+  List<WatchSpec> specs;
+
+  @Setup(Level.Trial)
+  public void startServer() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withPort(0)
+        .build()
+        .start();
+    specs = new ArrayList<>(WATCHES);
+    for (int i = 0; i < WATCHES; i++) {
+      specs.add(new WatchSpec(ByteSequence.fromString("startup/" + i), WatchOption.DEFAULT,
+          CALLBACK));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopServer() {
+    server.close();
+  }
+
+  @Setup(Level.Iteration)
+  public void setUp() throws Exception {
+    client = ClientBuilder.newBuilder()
+        .endpoints(server.getEndpoint())
+        .build();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    client.close();
+  }
+
+  /**
+   * Each watch waits for the previous one to be created.
+   */
+  @Benchmark
+  public void watchOneByOne() throws Exception {
+    Watch watch = client.getWatchClient();
+    for (WatchSpec spec : specs) {
+      watch.watch(spec.getKey(), spec.getWatchOption(), spec.getCallback()).get();
+    }
+  }
+
+  /**
+   * All create requests sent back to back.
+   */
+  @Benchmark
+  public List<WatchCreateResult> watchAll() throws Exception {
+    List<WatchCreateResult> results = client.getWatchClient().watchAll(specs).get();
+    for (WatchCreateResult result : results) {
+      if (!result.isCreated()) {
+        throw new IllegalStateException("watch not created", result.getError().get());
+      }
+    }
+    return results;
+  }
+}
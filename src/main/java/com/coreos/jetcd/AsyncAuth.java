@@ -0,0 +1,131 @@
+package com.coreos.jetcd;
+
+import static com.coreos.jetcd.ClientUtil.toCompletableFuture;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.AuthDisableResponse;
+import com.coreos.jetcd.api.AuthEnableResponse;
+import com.coreos.jetcd.api.AuthRoleAddResponse;
+import com.coreos.jetcd.api.AuthRoleDeleteResponse;
+import com.coreos.jetcd.api.AuthRoleGetResponse;
+import com.coreos.jetcd.api.AuthRoleGrantPermissionResponse;
+import com.coreos.jetcd.api.AuthRoleListResponse;
+import com.coreos.jetcd.api.AuthRoleRevokePermissionResponse;
+import com.coreos.jetcd.api.AuthUserAddResponse;
+import com.coreos.jetcd.api.AuthUserChangePasswordResponse;
+import com.coreos.jetcd.api.AuthUserDeleteResponse;
+import com.coreos.jetcd.api.AuthUserGetResponse;
+import com.coreos.jetcd.api.AuthUserGrantRoleResponse;
+import com.coreos.jetcd.api.AuthUserListResponse;
+import com.coreos.jetcd.api.AuthUserRevokeRoleResponse;
+import com.coreos.jetcd.api.Permission;
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Auth} returning CompletableFuture.
+ *
+ * <p>The returned futures are completed by <i>executor</i>, by default on the gRPC thread
+ * delivering the response, in which case dependent stages must not block. Cancelling a future
+ * cancels its request.
+ */
+@Beta
+public final class AsyncAuth {
+
+  private final Auth auth;
+  private final Executor executor;
+
+  private AsyncAuth(Auth auth, Executor executor) {
+    this.auth = checkNotNull(auth, "auth should not be null");
+    this.executor = checkNotNull(executor, "executor should not be null");
+  }
+
+  /**
+   * wrap a Auth client, completing futures on the gRPC callback thread.
+   *
+   * @param auth the client to issue the requests
+   * @return AsyncAuth over the client
+   */
+  public static AsyncAuth of(Auth auth) {
+    return new AsyncAuth(auth, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * wrap a Auth client, completing futures on the given executor.
+   *
+   * @param auth the client to issue the requests
+   * @param executor executor completing the futures
+   * @return AsyncAuth over the client
+   */
+  public static AsyncAuth of(Auth auth, Executor executor) {
+    return new AsyncAuth(auth, executor);
+  }
+
+  public CompletableFuture<AuthEnableResponse> authEnable() {
+    return toCompletableFuture(auth.authEnable(), executor);
+  }
+
+  public CompletableFuture<AuthDisableResponse> authDisable() {
+    return toCompletableFuture(auth.authDisable(), executor);
+  }
+
+  public CompletableFuture<AuthUserAddResponse> userAdd(ByteString name, ByteString password) {
+    return toCompletableFuture(auth.userAdd(name, password), executor);
+  }
+
+  public CompletableFuture<AuthUserDeleteResponse> userDelete(ByteString name) {
+    return toCompletableFuture(auth.userDelete(name), executor);
+  }
+
+  public CompletableFuture<AuthUserChangePasswordResponse> userChangePassword(ByteString name,
+      ByteString password) {
+    return toCompletableFuture(auth.userChangePassword(name, password), executor);
+  }
+
+  public CompletableFuture<AuthUserGetResponse> userGet(ByteString name) {
+    return toCompletableFuture(auth.userGet(name), executor);
+  }
+
+  public CompletableFuture<AuthUserListResponse> userList() {
+    return toCompletableFuture(auth.userList(), executor);
+  }
+
+  public CompletableFuture<AuthUserGrantRoleResponse> userGrantRole(ByteString name,
+      ByteString role) {
+    return toCompletableFuture(auth.userGrantRole(name, role), executor);
+  }
+
+  public CompletableFuture<AuthUserRevokeRoleResponse> userRevokeRole(ByteString name,
+      ByteString role) {
+    return toCompletableFuture(auth.userRevokeRole(name, role), executor);
+  }
+
+  public CompletableFuture<AuthRoleAddResponse> roleAdd(ByteString name) {
+    return toCompletableFuture(auth.roleAdd(name), executor);
+  }
+
+  public CompletableFuture<AuthRoleGrantPermissionResponse> roleGrantPermission(ByteString role,
+      ByteString key, ByteString rangeEnd, Permission.Type permType) {
+    return toCompletableFuture(auth.roleGrantPermission(role, key, rangeEnd, permType), executor);
+  }
+
+  public CompletableFuture<AuthRoleGetResponse> roleGet(ByteString role) {
+    return toCompletableFuture(auth.roleGet(role), executor);
+  }
+
+  public CompletableFuture<AuthRoleListResponse> roleList() {
+    return toCompletableFuture(auth.roleList(), executor);
+  }
+
+  public CompletableFuture<AuthRoleRevokePermissionResponse> roleRevokePermission(ByteString role,
+      ByteString key, ByteString rangeEnd) {
+    return toCompletableFuture(auth.roleRevokePermission(role, key, rangeEnd), executor);
+  }
+
+  public CompletableFuture<AuthRoleDeleteResponse> roleDelete(ByteString role) {
+    return toCompletableFuture(auth.roleDelete(role), executor);
+  }
+}
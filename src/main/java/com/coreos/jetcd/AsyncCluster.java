@@ -0,0 +1,71 @@
+package com.coreos.jetcd;
+
+import static com.coreos.jetcd.ClientUtil.toCompletableFuture;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.MemberAddResponse;
+import com.coreos.jetcd.api.MemberListResponse;
+import com.coreos.jetcd.api.MemberRemoveResponse;
+import com.coreos.jetcd.api.MemberUpdateResponse;
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Cluster} returning CompletableFuture.
+ *
+ * <p>The returned futures are completed by <i>executor</i>, by default on the gRPC thread
+ * delivering the response, in which case dependent stages must not block. Cancelling a future
+ * cancels its request.
+ */
+@Beta
+public final class AsyncCluster {
+
+  private final Cluster cluster;
+  private final Executor executor;
+
+  private AsyncCluster(Cluster cluster, Executor executor) {
+    this.cluster = checkNotNull(cluster, "cluster should not be null");
+    this.executor = checkNotNull(executor, "executor should not be null");
+  }
+
+  /**
+   * wrap a Cluster client, completing futures on the gRPC callback thread.
+   *
+   * @param cluster the client to issue the requests
+   * @return AsyncCluster over the client
+   */
+  public static AsyncCluster of(Cluster cluster) {
+    return new AsyncCluster(cluster, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * wrap a Cluster client, completing futures on the given executor.
+   *
+   * @param cluster the client to issue the requests
+   * @param executor executor completing the futures
+   * @return AsyncCluster over the client
+   */
+  public static AsyncCluster of(Cluster cluster, Executor executor) {
+    return new AsyncCluster(cluster, executor);
+  }
+
+  public CompletableFuture<MemberListResponse> listMember() {
+    return toCompletableFuture(cluster.listMember(), executor);
+  }
+
+  public CompletableFuture<MemberAddResponse> addMember(List<String> endpoints) {
+    return toCompletableFuture(cluster.addMember(endpoints), executor);
+  }
+
+  public CompletableFuture<MemberRemoveResponse> removeMember(long memberID) {
+    return toCompletableFuture(cluster.removeMember(memberID), executor);
+  }
+
+  public CompletableFuture<MemberUpdateResponse> updateMember(long memberID,
+      List<String> endpoints) {
+    return toCompletableFuture(cluster.updateMember(memberID, endpoints), executor);
+  }
+}
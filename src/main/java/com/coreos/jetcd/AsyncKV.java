@@ -0,0 +1,97 @@
+package com.coreos.jetcd;
+
+import static com.coreos.jetcd.ClientUtil.toCompletableFuture;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.CompactionResponse;
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.DeleteOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link KV} returning CompletableFuture.
+ *
+ * <p>Each call is issued through the wrapped KV, so put batching, single-flight gets and caching
+ * apply as they do there. The returned future is completed by <i>executor</i>, by default on the
+ * gRPC thread delivering the response, in which case dependent stages must not block. Cancelling
+ * it cancels the request.
+ */
+@Beta
+public final class AsyncKV {
+
+  private final KV kv;
+  private final Executor executor;
+
+  private AsyncKV(KV kv, Executor executor) {
+    this.kv = checkNotNull(kv, "kv should not be null");
+    this.executor = checkNotNull(executor, "executor should not be null");
+  }
+
+  /**
+   * wrap a KV, completing futures on the gRPC callback thread.
+   *
+   * @param kv the KV to issue the requests
+   * @return AsyncKV over the KV
+   */
+  public static AsyncKV of(KV kv) {
+    return new AsyncKV(kv, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * wrap a KV, completing futures on the given executor.
+   *
+   * @param kv the KV to issue the requests
+   * @param executor executor completing the futures
+   * @return AsyncKV over the KV
+   */
+  public static AsyncKV of(KV kv, Executor executor) {
+    return new AsyncKV(kv, executor);
+  }
+
+  public CompletableFuture<PutResponse> put(ByteString key, ByteString value) {
+    return toCompletableFuture(kv.put(key, value), executor);
+  }
+
+  public CompletableFuture<PutResponse> put(ByteString key, ByteString value, PutOption option) {
+    return toCompletableFuture(kv.put(key, value, option), executor);
+  }
+
+  public CompletableFuture<RangeResponse> get(ByteString key) {
+    return toCompletableFuture(kv.get(key), executor);
+  }
+
+  public CompletableFuture<RangeResponse> get(ByteString key, GetOption option) {
+    return toCompletableFuture(kv.get(key, option), executor);
+  }
+
+  public CompletableFuture<DeleteRangeResponse> delete(ByteString key) {
+    return toCompletableFuture(kv.delete(key), executor);
+  }
+
+  public CompletableFuture<DeleteRangeResponse> delete(ByteString key, DeleteOption option) {
+    return toCompletableFuture(kv.delete(key, option), executor);
+  }
+
+  public CompletableFuture<CompactionResponse> compact() {
+    return toCompletableFuture(kv.compact(), executor);
+  }
+
+  public CompletableFuture<CompactionResponse> compact(CompactOption option) {
+    return toCompletableFuture(kv.compact(option), executor);
+  }
+
+  public CompletableFuture<TxnResponse> commit(Txn txn) {
+    return toCompletableFuture(kv.commit(txn), executor);
+  }
+}
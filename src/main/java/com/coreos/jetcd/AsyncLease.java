@@ -0,0 +1,67 @@
+package com.coreos.jetcd;
+
+import static com.coreos.jetcd.ClientUtil.toCompletableFuture;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.LeaseGrantResponse;
+import com.coreos.jetcd.api.LeaseKeepAliveResponse;
+import com.coreos.jetcd.api.LeaseRevokeResponse;
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Lease} returning CompletableFuture.
+ *
+ * <p>The returned futures are completed by <i>executor</i>, by default on the gRPC thread
+ * delivering the response, in which case dependent stages must not block. Cancelling a future
+ * cancels its request.
+ *
+ * <p>Only the requests answered by a single response are covered, keep alive streams are still
+ * managed through the {@link Lease} client.
+ */
+@Beta
+public final class AsyncLease {
+
+  private final Lease lease;
+  private final Executor executor;
+
+  private AsyncLease(Lease lease, Executor executor) {
+    this.lease = checkNotNull(lease, "lease should not be null");
+    this.executor = checkNotNull(executor, "executor should not be null");
+  }
+
+  /**
+   * wrap a Lease client, completing futures on the gRPC callback thread.
+   *
+   * @param lease the client to issue the requests
+   * @return AsyncLease over the client
+   */
+  public static AsyncLease of(Lease lease) {
+    return new AsyncLease(lease, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * wrap a Lease client, completing futures on the given executor.
+   *
+   * @param lease the client to issue the requests
+   * @param executor executor completing the futures
+   * @return AsyncLease over the client
+   */
+  public static AsyncLease of(Lease lease, Executor executor) {
+    return new AsyncLease(lease, executor);
+  }
+
+  public CompletableFuture<LeaseGrantResponse> grant(long ttl) {
+    return toCompletableFuture(lease.grant(ttl), executor);
+  }
+
+  public CompletableFuture<LeaseRevokeResponse> revoke(long leaseId) {
+    return toCompletableFuture(lease.revoke(leaseId), executor);
+  }
+
+  public CompletableFuture<LeaseKeepAliveResponse> keepAliveOnce(long leaseId) {
+    return toCompletableFuture(lease.keepAliveOnce(leaseId), executor);
+  }
+}
@@ -0,0 +1,71 @@
+package com.coreos.jetcd;
+
+import static com.coreos.jetcd.ClientUtil.toCompletableFuture;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.AlarmMember;
+import com.coreos.jetcd.api.AlarmResponse;
+import com.coreos.jetcd.api.DefragmentResponse;
+import com.coreos.jetcd.api.StatusResponse;
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Maintenance} returning CompletableFuture.
+ *
+ * <p>The returned futures are completed by <i>executor</i>, by default on the gRPC thread
+ * delivering the response, in which case dependent stages must not block. Cancelling a future
+ * cancels its request.
+ *
+ * <p>Snapshots are streamed and are still taken through the {@link Maintenance} client.
+ */
+@Beta
+public final class AsyncMaintenance {
+
+  private final Maintenance maintenance;
+  private final Executor executor;
+
+  private AsyncMaintenance(Maintenance maintenance, Executor executor) {
+    this.maintenance = checkNotNull(maintenance, "maintenance should not be null");
+    this.executor = checkNotNull(executor, "executor should not be null");
+  }
+
+  /**
+   * wrap a Maintenance client, completing futures on the gRPC callback thread.
+   *
+   * @param maintenance the client to issue the requests
+   * @return AsyncMaintenance over the client
+   */
+  public static AsyncMaintenance of(Maintenance maintenance) {
+    return new AsyncMaintenance(maintenance, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * wrap a Maintenance client, completing futures on the given executor.
+   *
+   * @param maintenance the client to issue the requests
+   * @param executor executor completing the futures
+   * @return AsyncMaintenance over the client
+   */
+  public static AsyncMaintenance of(Maintenance maintenance, Executor executor) {
+    return new AsyncMaintenance(maintenance, executor);
+  }
+
+  public CompletableFuture<AlarmResponse> listAlarms() {
+    return toCompletableFuture(maintenance.listAlarms(), executor);
+  }
+
+  public CompletableFuture<AlarmResponse> alarmDisarm(AlarmMember member) {
+    return toCompletableFuture(maintenance.alarmDisarm(member), executor);
+  }
+
+  public CompletableFuture<DefragmentResponse> defragmentMember() {
+    return toCompletableFuture(maintenance.defragmentMember(), executor);
+  }
+
+  public CompletableFuture<StatusResponse> statusMember() {
+    return toCompletableFuture(maintenance.statusMember(), executor);
+  }
+}
@@ -0,0 +1,293 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.ResponseOp;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.op.TxnSplitter;
+import com.coreos.jetcd.options.DeleteOption;
+import com.coreos.jetcd.options.GetOption;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Deletes the keys of a range a batch at a time, instead of one delete range request that holds
+ * the server up while it removes them all.
+ *
+ * <p>The range is paged through with keys only range requests, and the keys of each page are
+ * deleted by txns split by a {@link TxnSplitter}, optionally throttled to a number of keys per
+ * second. Only the keys found by the pages are deleted: keys put behind the page being deleted
+ * while the delete runs are left in place.
+ *
+ * <pre>
+ * {@code
+ * BulkDelete.newBuilder(client.getKVClient())
+ *     .withPrefix(ByteString.copyFromUtf8("sessions/"))
+ *     .withRate(5000)
+ *     .withProgress(deleted -> log.info("deleted {} sessions", deleted))
+ *     .build()
+ *     .run()
+ *     .get();
+ * }
+ * </pre>
+ */
+public final class BulkDelete {
+
+  private static final ByteString ZERO_BYTE = ByteString.copyFrom(new byte[]{0});
+
+  /**
+   * timer for throttling, shared by all bulk deletes as it only starts the next page.
+   */
+  private static final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("jetcd-bulk-delete-%d")
+          .setDaemon(true)
+          .build());
+
+  /**
+   * Create a builder to construct a bulk delete through the given KV client.
+   *
+   * @param kv kv client to send the range and txn requests with
+   * @return builder
+   */
+  public static Builder newBuilder(KV kv) {
+    checkNotNull(kv, "kv should not be null");
+    return new Builder(kv);
+  }
+
+  public static class Builder {
+
+    private final KV kv;
+    private ByteString key;
+    private ByteString endKey;
+    private int pageSize = 1000;
+    private double rate = 0;
+    private TxnSplitter splitter = TxnSplitter.newBuilder().build();
+    private LongConsumer progress = deleted -> {
+    };
+
+    private Builder(KV kv) {
+      this.kv = kv;
+    }
+
+    /**
+     * Delete the keys from <i>key</i> to <i>endKey</i> (exclusive), an end key of '\0' deletes
+     * all keys >= key.
+     *
+     * @param key first key of the range
+     * @param endKey end key of the range
+     * @return builder
+     */
+    public Builder withRange(ByteString key, ByteString endKey) {
+      this.key = checkNotNull(key, "key should not be null");
+      this.endKey = checkNotNull(endKey, "endKey should not be null");
+      return this;
+    }
+
+    /**
+     * Delete all the keys with the given prefix.
+     *
+     * @param prefix the common prefix of the deleted keys
+     * @return builder
+     */
+    public Builder withPrefix(ByteString prefix) {
+      checkNotNull(prefix, "prefix should not be null");
+      return withRange(prefix, GetOption.newBuilder().withPrefix(prefix).build().getEndKey().get());
+    }
+
+    /**
+     * Limit the number of keys per range request. By default is 1000.
+     *
+     * @param pageSize the maximum number of keys of a page
+     * @return builder
+     * @throws IllegalArgumentException if pageSize is not positive
+     */
+    public Builder withPageSize(int pageSize) {
+      checkArgument(pageSize > 0, "pageSize should be positive: pageSize=%s", pageSize);
+      this.pageSize = pageSize;
+      return this;
+    }
+
+    /**
+     * Limit the number of keys deleted per second. By default is unlimited.
+     *
+     * @param rate keys per second, 0 for unlimited
+     * @return builder
+     * @throws IllegalArgumentException if rate is negative
+     */
+    public Builder withRate(double rate) {
+      checkArgument(rate >= 0, "rate should not be negative: rate=%s", rate);
+      this.rate = rate;
+      return this;
+    }
+
+    /**
+     * Set the splitter of the deletes of a page into txns. By default txns hold up to 128
+     * deletes.
+     *
+     * @param splitter txn splitter
+     * @return builder
+     */
+    public Builder withSplitter(TxnSplitter splitter) {
+      this.splitter = checkNotNull(splitter, "splitter should not be null");
+      return this;
+    }
+
+    /**
+     * Set a callback given the number of keys deleted so far after each txn.
+     *
+     * @param progress progress callback
+     * @return builder
+     */
+    public Builder withProgress(LongConsumer progress) {
+      this.progress = checkNotNull(progress, "progress should not be null");
+      return this;
+    }
+
+    public BulkDelete build() {
+      checkArgument(key != null, "please configure the range to delete");
+      return new BulkDelete(this);
+    }
+  }
+
+  private final KV kv;
+  private final ByteString key;
+  private final ByteString endKey;
+  private final int pageSize;
+  private final double rate;
+  private final TxnSplitter splitter;
+  private final LongConsumer progress;
+
+  private BulkDelete(Builder builder) {
+    this.kv = builder.kv;
+    this.key = builder.key;
+    this.endKey = builder.endKey;
+    this.pageSize = builder.pageSize;
+    this.rate = builder.rate;
+    this.splitter = builder.splitter;
+    this.progress = builder.progress;
+  }
+
+  /**
+   * Delete the keys of the range. Cancelling the future stops the delete after the txn in
+   * flight.
+   *
+   * @return future completing with the number of keys deleted
+   */
+  public ListenableFuture<Long> run() {
+    Run run = new Run();
+    run.page(key);
+    return run.result;
+  }
+
+  /**
+   * one run through the range.
+   */
+  private final class Run {
+
+    private final SettableFuture<Long> result = SettableFuture.create();
+    private final long start = System.nanoTime();
+    private long deleted = 0;
+    private long attempted = 0;
+
+    private void page(ByteString from) {
+      GetOption option = GetOption.newBuilder()
+          .withRange(endKey)
+          .withLimit(pageSize)
+          .withKeysOnly(true)
+          .build();
+      Futures.addCallback(kv.get(from, option), new FutureCallback<RangeResponse>() {
+        @Override
+        public void onSuccess(RangeResponse response) {
+          if (response.getKvsCount() == 0) {
+            result.set(deleted);
+            return;
+          }
+          List<Op> deletes = new ArrayList<>(response.getKvsCount());
+          for (KeyValue keyValue : response.getKvsList()) {
+            deletes.add(Op.delete(keyValue.getKey(), DeleteOption.DEFAULT));
+          }
+          ByteString next = response.getMore()
+              ? response.getKvs(response.getKvsCount() - 1).getKey().concat(ZERO_BYTE) : null;
+          commit(splitter.split(deletes).iterator(), next);
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          result.setException(throwable);
+        }
+      }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * commit the txns of a page one by one, then go on with the next page.
+     */
+    private void commit(Iterator<Txn> txns, ByteString next) {
+      if (result.isDone()) {
+        return;
+      }
+      if (!txns.hasNext()) {
+        if (next == null) {
+          result.set(deleted);
+        } else {
+          throttle(() -> page(next));
+        }
+        return;
+      }
+
+      Txn txn = txns.next();
+      int size = txn.toTxnRequest().getSuccessCount();
+      Futures.addCallback(kv.commit(txn), new FutureCallback<TxnResponse>() {
+        @Override
+        public void onSuccess(TxnResponse response) {
+          for (ResponseOp op : response.getResponsesList()) {
+            deleted += op.getResponseDeleteRange().getDeleted();
+          }
+          attempted += size;
+          try {
+            progress.accept(deleted);
+          } catch (RuntimeException e) {
+            result.setException(e);
+            return;
+          }
+          throttle(() -> commit(txns, next));
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          result.setException(throwable);
+        }
+      }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * run the task once the keys attempted so far are within the rate.
+     */
+    private void throttle(Runnable task) {
+      long delay = rate == 0 ? 0
+          : start + (long) (attempted * TimeUnit.SECONDS.toNanos(1) / rate) - System.nanoTime();
+      if (delay <= 0) {
+        task.run();
+      } else {
+        scheduler.schedule(task, delay, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
@@ -0,0 +1,455 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.CompactionResponse;
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.DeleteOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.ByteString;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link KV} serving single key gets under configured prefixes from local memory.
+ *
+ * <p>{@link #start()} loads each prefix with one range request and keeps it up to date with a
+ * watch starting right after the revision of that load, so the cache follows the store revision
+ * by revision. Once the cache holds its maximum size the least recently used keys are evicted.
+ * Gets missing the cache are sent to the server and their results cached; range gets, gets at a
+ * revision, gets outside the prefixes and all other operations always go to the server.
+ *
+ * <p>A cached get is as fresh as the watch, like a serializable get. Single key puts and deletes
+ * issued through this KV invalidate the key before they complete, so they are visible to the
+ * next get; other writes become visible once the watch delivers them.
+ *
+ * <p>When the server cancels the watch of a prefix, such as when it resumes from a revision that
+ * has been compacted, the events missed can't be recovered: the prefix is dropped and loaded
+ * again at the current revision, its gets going to the server meanwhile.
+ *
+ * <pre>
+ * {@code
+ * CachingKV kv = CachingKV.newBuilder(client)
+ *     .withPrefix(ByteString.copyFromUtf8("config/"))
+ *     .withMaximumSize(10000)
+ *     .build();
+ * kv.start().get();
+ * }
+ * </pre>
+ */
+public final class CachingKV implements KV, Closeable {
+
+  /**
+   * Create a builder to construct a caching KV over the KV and Watch clients of the client.
+   *
+   * @param client the client to read through and watch with
+   * @return builder
+   */
+  public static Builder newBuilder(Client client) {
+    checkNotNull(client, "client should not be null");
+    return newBuilder(client.getKVClient(), client.getWatchClient());
+  }
+
+  /**
+   * Create a builder to construct a caching KV over the given KV and Watch clients.
+   *
+   * @param kv the KV client to read through
+   * @param watch the Watch client to watch with
+   * @return builder
+   */
+  static Builder newBuilder(KV kv, Watch watch) {
+    checkNotNull(kv, "kv should not be null");
+    checkNotNull(watch, "watch should not be null");
+    return new Builder(kv, watch);
+  }
+
+  public static class Builder {
+
+    private final KV kv;
+    private final Watch watch;
+    private final List<ByteString> prefixes = new ArrayList<>();
+    private long maximumSize = 10000;
+
+    private Builder(KV kv, Watch watch) {
+      this.kv = kv;
+      this.watch = watch;
+    }
+
+    /**
+     * Cache the keys with the given prefix.
+     *
+     * @param prefix the common prefix of the cached keys
+     * @return builder
+     */
+    public Builder withPrefix(ByteString prefix) {
+      checkNotNull(prefix, "prefix should not be null");
+      this.prefixes.add(prefix);
+      return this;
+    }
+
+    /**
+     * Limit the number of cached keys. By default is 10000.
+     *
+     * @param maximumSize the maximum number of cached keys
+     * @return builder
+     * @throws IllegalArgumentException if maximumSize is not positive
+     */
+    public Builder withMaximumSize(long maximumSize) {
+      checkArgument(maximumSize > 0, "maximumSize should be positive: maximumSize=%s",
+          maximumSize);
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    public CachingKV build() {
+      checkArgument(!prefixes.isEmpty(), "please configure at least one prefix");
+      return new CachingKV(this);
+    }
+  }
+
+  private final KV kv;
+  private final Watch watch;
+  private final List<CachedPrefix> prefixes = new ArrayList<>();
+  private final Cache<ByteString, Entry> cache;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private volatile boolean closed = false;
+
+  private CachingKV(Builder builder) {
+    this.kv = builder.kv;
+    this.watch = builder.watch;
+    for (ByteString prefix : builder.prefixes) {
+      this.prefixes.add(new CachedPrefix(prefix));
+    }
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(builder.maximumSize)
+        .build();
+  }
+
+  /**
+   * Load the prefixes and start watching them. Gets go to the server until their prefix is
+   * loaded.
+   *
+   * @return future completing once every prefix is loaded and watched
+   */
+  public ListenableFuture<Void> start() {
+    List<ListenableFuture<Void>> loads = new ArrayList<>();
+    for (CachedPrefix prefix : prefixes) {
+      loads.add(prefix.load());
+    }
+    Function<List<Void>, Void> done = loaded -> null;
+    return Futures.transform(Futures.allAsList(loads), done, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Get the revision the cache is current to, the lowest revision of all prefixes.
+   *
+   * @return cache revision, 0 if some prefix is not loaded or its watch is resuming
+   */
+  public long getRevision() {
+    long revision = Long.MAX_VALUE;
+    for (CachedPrefix prefix : prefixes) {
+      revision = Math.min(revision, prefix.live ? prefix.revision : 0);
+    }
+    return revision;
+  }
+
+  /**
+   * Get the number of gets served from the cache.
+   *
+   * @return number of cache hits
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Get the number of cacheable gets that went to the server.
+   *
+   * @return number of cache misses
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  // ***************
+  // Op.PUT
+  // ***************
+
+  @Override
+  public ListenableFuture<PutResponse> put(ByteString key, ByteString value) {
+    return put(key, value, PutOption.DEFAULT);
+  }
+
+  @Override
+  public ListenableFuture<PutResponse> put(ByteString key, ByteString value, PutOption option) {
+    ListenableFuture<PutResponse> future = kv.put(key, value, option);
+    if (prefixOf(key) == null) {
+      return future;
+    }
+    return Futures.transform(future, (PutResponse response) -> {
+      invalidate(key, response.getHeader().getRevision());
+      return response;
+    }, MoreExecutors.directExecutor());
+  }
+
+  // ***************
+  // Op.GET
+  // ***************
+
+  @Override
+  public ListenableFuture<RangeResponse> get(ByteString key) {
+    return get(key, GetOption.DEFAULT);
+  }
+
+  @Override
+  public ListenableFuture<RangeResponse> get(ByteString key, GetOption option) {
+    checkNotNull(key, "key should not be null");
+    checkNotNull(option, "option should not be null");
+
+    CachedPrefix prefix = prefixOf(key);
+    if (prefix == null || !prefix.live || option.getEndKey().isPresent()
+        || option.getRevision() > 0) {
+      return kv.get(key, option);
+    }
+
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null && entry.known) {
+      hits.increment();
+      ResponseHeader header = prefix.header.toBuilder().setRevision(prefix.revision).build();
+      return Futures.immediateFuture(toResponse(header, entry.keyValue, option));
+    }
+
+    misses.increment();
+    GetOption fetch = GetOption.newBuilder()
+        .withSerializable(option.isSerializable())
+        .withSingleFlight(option.getSingleFlight().orElse(false))
+        .build();
+    return Futures.transform(kv.get(key, fetch), (RangeResponse response) -> {
+      KeyValue keyValue = response.getKvsCount() == 0 ? null : response.getKvs(0);
+      if (prefix.live) {
+        merge(key, new Entry(response.getHeader().getRevision(), keyValue, true));
+      }
+      return toResponse(response.getHeader(), keyValue, option);
+    }, MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public Scanner scan(ByteString key, GetOption option) {
+    return kv.scan(key, option);
+  }
+
+  // ***************
+  // Op.DELETE
+  // ***************
+
+  @Override
+  public ListenableFuture<DeleteRangeResponse> delete(ByteString key) {
+    return delete(key, DeleteOption.DEFAULT);
+  }
+
+  @Override
+  public ListenableFuture<DeleteRangeResponse> delete(ByteString key, DeleteOption option) {
+    ListenableFuture<DeleteRangeResponse> future = kv.delete(key, option);
+    if (prefixOf(key) == null || option.getEndKey().isPresent()) {
+      return future;
+    }
+    return Futures.transform(future, (DeleteRangeResponse response) -> {
+      invalidate(key, response.getHeader().getRevision());
+      return response;
+    }, MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ListenableFuture<CompactionResponse> compact() {
+    return kv.compact();
+  }
+
+  @Override
+  public ListenableFuture<CompactionResponse> compact(CompactOption option) {
+    return kv.compact(option);
+  }
+
+  @Override
+  public ListenableFuture<TxnResponse> commit(Txn txn) {
+    return kv.commit(txn);
+  }
+
+  /**
+   * Stop watching the prefixes and drop the cache, gets go to the server afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    for (CachedPrefix prefix : prefixes) {
+      prefix.live = false;
+      if (prefix.watcher != null) {
+        prefix.watcher.close();
+      }
+    }
+    cache.invalidateAll();
+  }
+
+  private CachedPrefix prefixOf(ByteString key) {
+    for (CachedPrefix prefix : prefixes) {
+      if (key.startsWith(prefix.prefix)) {
+        return prefix;
+      }
+    }
+    return null;
+  }
+
+  private void invalidate(ByteString key, long revision) {
+    merge(key, new Entry(revision, null, false));
+  }
+
+  /**
+   * keep whichever entry reflects the later revision, so late responses never roll a key back.
+   */
+  private void merge(ByteString key, Entry entry) {
+    cache.asMap().merge(key, entry, (current, update) ->
+        update.revision > current.revision
+            || (update.revision == current.revision && update.known) ? update : current);
+  }
+
+  private static RangeResponse toResponse(ResponseHeader header, KeyValue keyValue,
+      GetOption option) {
+    RangeResponse.Builder builder = RangeResponse.newBuilder().setHeader(header);
+    if (keyValue != null) {
+      builder.setCount(1);
+      if (!option.isCountOnly()) {
+        builder.addKvs(option.isKeysOnly() ? keyValue.toBuilder().clearValue().build() : keyValue);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * the state of a key as of a revision, the key value being null if the key doesn't exist. An
+   * entry which isn't known only records a write at that revision, the key has to be read again.
+   */
+  private static final class Entry {
+
+    private final long revision;
+    private final KeyValue keyValue;
+    private final boolean known;
+
+    private Entry(long revision, KeyValue keyValue, boolean known) {
+      this.revision = revision;
+      this.keyValue = keyValue;
+      this.known = known;
+    }
+  }
+
+  private final class CachedPrefix implements Watch.WatchCallback {
+
+    private final ByteString prefix;
+    private volatile boolean live = false;
+    private volatile long revision = 0;
+    private volatile ResponseHeader header;
+    private volatile Watch.Watcher watcher;
+
+    private CachedPrefix(ByteString prefix) {
+      this.prefix = prefix;
+    }
+
+    private ListenableFuture<Void> load() {
+      GetOption option = GetOption.newBuilder().withPrefix(prefix).build();
+      return Futures.transformAsync(kv.get(prefix, option), (RangeResponse response) -> {
+        long loaded = response.getHeader().getRevision();
+        for (KeyValue keyValue : response.getKvsList()) {
+          merge(keyValue.getKey(), new Entry(loaded, keyValue, true));
+        }
+        this.header = response.getHeader();
+        this.revision = loaded;
+
+        WatchOption watchOption = WatchOption.newBuilder()
+            .withRange(Util.byteSequenceFromByteString(option.getEndKey().get()))
+            .withRevision(loaded + 1)
+            .build();
+        SettableFuture<Void> watching = SettableFuture.create();
+        watch.watch(Util.byteSequenceFromByteString(prefix), watchOption, this)
+            .whenComplete((watcher, throwable) -> {
+              if (throwable != null) {
+                watching.setException(throwable);
+              } else if (closed) {
+                watcher.cancel();
+                watching.set(null);
+              } else {
+                this.watcher = watcher;
+                this.live = true;
+                watching.set(null);
+              }
+            });
+        return watching;
+      }, MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public void onWatch(Header header, List<WatchEvent> events) {
+      for (WatchEvent event : events) {
+        ByteSequence key = event.getKeyValue().getKey();
+        long modRevision = event.getKeyValue().getModRevision();
+        KeyValue keyValue = event.getEventType() == WatchEvent.EventType.PUT
+            ? Util.clientToApiKV(event.getKeyValue()) : null;
+        merge(Util.byteStringFromByteSequence(key), new Entry(modRevision, keyValue, true));
+      }
+      this.revision = Math.max(this.revision, header.getRevision());
+      this.live = true;
+    }
+
+    /**
+     * events may be missed until the watch is back, serve from the server meanwhile.
+     */
+    @Override
+    public void onResuming() {
+      this.live = false;
+    }
+
+    /**
+     * the watch is back from the revision after the last one delivered, so the cache is as fresh
+     * as the watch again even if the prefix stays quiet.
+     */
+    @Override
+    public void onResumed(Header header) {
+      this.live = true;
+    }
+
+    /**
+     * the watch is gone and the events after its last revision may have been compacted, so
+     * drop the prefix and load it again at the current revision with a new watch. If the load
+     * fails, the gets of the prefix keep going to the server.
+     */
+    @Override
+    public void onCanceled(Header header) {
+      this.live = false;
+      cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+      if (!closed) {
+        load();
+      }
+    }
+  }
+}
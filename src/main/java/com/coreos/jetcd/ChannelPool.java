@@ -0,0 +1,191 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Channel spreading calls over several channels built from the same builder, each with its own
+ * connection.
+ *
+ * <p>Unary calls go to the pooled channel with the least outstanding calls, so a burst of calls
+ * isn't held back by the max-concurrent-streams limit or the flow control window of a single
+ * connection. Streaming calls of a service, watch or lease keep alive, all go to a channel of
+ * their own, built on the first one, so bulk unary traffic can't stall them. Streaming calls
+ * carrying a {@link #STREAM} index get a channel per service and index.
+ */
+class ChannelPool extends ManagedChannel {
+
+  /**
+   * the index of the stream of a streaming call, so several streams of a service are spread over
+   * as many channels.
+   */
+  static final CallOptions.Key<Integer> STREAM = CallOptions.Key.of("jetcd.stream", 0);
+
+  private final ManagedChannelBuilder<?> builder;
+  private final List<PooledChannel> channels;
+  private final Map<String, ManagedChannel> streamChannels = new HashMap<>();
+  private final AtomicInteger next = new AtomicInteger();
+  private boolean shutdown = false;
+
+  /**
+   * build the pooled channels.
+   *
+   * @param builder builds every channel of the pool
+   * @param size number of channels for unary calls
+   */
+  ChannelPool(ManagedChannelBuilder<?> builder, int size) {
+    checkArgument(size > 0, "size should be positive: size=%s", size);
+    this.builder = builder;
+    this.channels = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      channels.add(new PooledChannel(builder.build()));
+    }
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
+    if (methodDescriptor.getType() != MethodDescriptor.MethodType.UNARY) {
+      return streamChannel(methodDescriptor, callOptions.getOption(STREAM))
+          .newCall(methodDescriptor, callOptions);
+    }
+    PooledChannel channel = leastOutstanding();
+    return new PooledCall<>(channel, channel.channel.newCall(methodDescriptor, callOptions));
+  }
+
+  @Override
+  public String authority() {
+    return channels.get(0).channel.authority();
+  }
+
+  @Override
+  public synchronized ManagedChannel shutdown() {
+    shutdown = true;
+    allChannels().forEach(ManagedChannel::shutdown);
+    return this;
+  }
+
+  @Override
+  public synchronized ManagedChannel shutdownNow() {
+    shutdown = true;
+    allChannels().forEach(ManagedChannel::shutdownNow);
+    return this;
+  }
+
+  @Override
+  public synchronized boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return allChannels().stream().allMatch(ManagedChannel::isTerminated);
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (ManagedChannel channel : allChannels()) {
+      if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * get the number of channels, the pooled ones and those of the streaming services.
+   *
+   * @return number of channels
+   */
+  synchronized int size() {
+    return channels.size() + streamChannels.size();
+  }
+
+  private synchronized List<ManagedChannel> allChannels() {
+    List<ManagedChannel> all = new ArrayList<>(channels.size() + streamChannels.size());
+    channels.forEach(channel -> all.add(channel.channel));
+    all.addAll(streamChannels.values());
+    return all;
+  }
+
+  private synchronized ManagedChannel streamChannel(MethodDescriptor<?, ?> methodDescriptor,
+      int stream) {
+    if (shutdown) {
+      // a shut down channel fails the call.
+      return channels.get(0).channel;
+    }
+    String service = MethodDescriptor.extractFullServiceName(methodDescriptor.getFullMethodName());
+    return streamChannels.computeIfAbsent(stream == 0 ? service : service + "#" + stream,
+        name -> builder.build());
+  }
+
+  /**
+   * pick the channel with the least outstanding calls, starting the search at the next channel
+   * on every call so ties are spread.
+   */
+  private PooledChannel leastOutstanding() {
+    int start = Math.floorMod(next.getAndIncrement(), channels.size());
+    PooledChannel best = channels.get(start);
+    for (int i = 1; i < channels.size(); i++) {
+      PooledChannel channel = channels.get((start + i) % channels.size());
+      if (channel.outstanding.get() < best.outstanding.get()) {
+        best = channel;
+      }
+    }
+    return best;
+  }
+
+  private static final class PooledChannel {
+
+    private final ManagedChannel channel;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private PooledChannel(ManagedChannel channel) {
+      this.channel = channel;
+    }
+  }
+
+  /**
+   * Call counting itself as outstanding on its channel.
+   */
+  private static final class PooledCall<ReqT, RespT>
+      extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+    private final PooledChannel channel;
+
+    private PooledCall(PooledChannel channel, ClientCall<ReqT, RespT> call) {
+      super(call);
+      this.channel = channel;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      channel.outstanding.incrementAndGet();
+      super.start(
+          new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+              responseListener) {
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+              channel.outstanding.decrementAndGet();
+              super.onClose(status, trailers);
+            }
+          }, headers);
+    }
+  }
+}
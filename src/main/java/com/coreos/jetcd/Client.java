@@ -1,6 +1,7 @@
 package com.coreos.jetcd;
 
 import static com.coreos.jetcd.ClientUtil.defaultChannelBuilder;
+import static com.coreos.jetcd.ClientUtil.nettyChannelBuilder;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -9,17 +10,24 @@ import com.coreos.jetcd.api.AuthenticateRequest;
 import com.coreos.jetcd.api.AuthenticateResponse;
 import com.coreos.jetcd.exception.AuthFailedException;
 import com.coreos.jetcd.exception.ConnectException;
+import com.coreos.jetcd.options.PutBatchOption;
+import com.coreos.jetcd.options.TransportOption;
+import com.coreos.jetcd.options.WatchDispatchOption;
+import com.coreos.jetcd.options.WatchStreamOption;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.ByteString;
+import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.NameResolver;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 /**
  * Etcd Client.
@@ -28,13 +36,17 @@ public class Client {
 
   private final List<String> endpoints;
   private final ManagedChannel channel;
+  private final Optional<MemberRouter> memberRouter;
   private final NameResolver.Factory nameResolverFactory;
+  private final SingleFlightStats singleFlightStats;
+  private final HedgeStats hedgeStats;
+  private final WatchDispatchStats watchDispatchStats;
   private final Supplier<KV> kvClient;
   private final Supplier<Auth> authClient;
   private final Supplier<Maintenance> maintenanceClient;
   private final Supplier<Cluster> clusterClient;
   private final Supplier<Lease> leaseClient;
-  private final Supplier<Watch> watchClient;
+  private final Supplier<WatchImpl> watchClient;
 
   public Client(ClientBuilder builder) throws ConnectException, AuthFailedException {
     this(Optional.empty(), builder);
@@ -56,23 +68,95 @@ public class Client {
       this.nameResolverFactory = ClientUtil.simpleNameResolveFactory(this.endpoints);
     }
 
-    this.channel = channelBuilder.orElseGet(() -> defaultChannelBuilder(nameResolverFactory))
-        .build();
+    int channelPoolSize = clientBuilder.getChannelPoolSize();
+    Optional<TransportOption> transportOption = Optional.ofNullable(
+        clientBuilder.getTransportOption());
+    checkArgument(!channelBuilder.isPresent() || !transportOption.isPresent(),
+        "the transport option doesn't apply to a given channel builder");
+    this.channel = buildChannel(
+        channelBuilder.orElseGet(() -> newChannelBuilder(nameResolverFactory, transportOption)),
+        channelPoolSize);
 
     Optional<String> token = getToken(channel, clientBuilder);
 
-    this.kvClient = Suppliers.memoize(() -> new KVImpl(channel, token));
+    Optional<PutBatchOption> putBatchOption = Optional.ofNullable(
+        clientBuilder.getPutBatchOption());
+    boolean getSingleFlight = clientBuilder.isGetSingleFlight();
+    this.singleFlightStats = new SingleFlightStats();
+    this.hedgeStats = new HedgeStats();
+    Optional<Hedger> hedger = Optional.ofNullable(clientBuilder.getHedgeOption())
+        .map(option -> new Hedger(option, hedgeStats));
+    Optional<ConcurrencyLimiter> readLimiter = Optional
+        .ofNullable(clientBuilder.getReadLimitOption()).map(ConcurrencyLimiter::new);
+    Optional<ConcurrencyLimiter> writeLimiter = Optional
+        .ofNullable(clientBuilder.getWriteLimitOption()).map(ConcurrencyLimiter::new);
+    Optional<ConcurrencyLimiter> txnLimiter = Optional
+        .ofNullable(clientBuilder.getTxnLimitOption()).map(ConcurrencyLimiter::new);
+    Optional<ValueCodec> codec = Optional.ofNullable(clientBuilder.getCompressionOption())
+        .map(ValueCodec::new);
+
+    if (clientBuilder.isMemberRouting()) {
+      checkArgument(this.endpoints != null && !channelBuilder.isPresent(),
+          "member routing needs the endpoints of the members");
+      this.memberRouter = Optional.of(new MemberRouter(this.endpoints.stream()
+          .map(endpoint -> buildChannel(newChannelBuilder(
+              ClientUtil.simpleNameResolveFactory(Collections.singletonList(endpoint)),
+              transportOption), channelPoolSize))
+          .collect(Collectors.toList()), token));
+    } else {
+      this.memberRouter = Optional.empty();
+    }
+    Channel kvChannel = this.memberRouter.<Channel>map(router -> router).orElse(channel);
+
+    this.kvClient = Suppliers.memoize(() -> new KVImpl(kvChannel, token, putBatchOption,
+        getSingleFlight, singleFlightStats, hedger, readLimiter, writeLimiter, txnLimiter,
+        codec));
     this.authClient = Suppliers.memoize(() -> new AuthImpl(channel, token));
     this.maintenanceClient = Suppliers.memoize(() -> new MaintenanceImpl(channel, token));
     this.clusterClient = Suppliers.memoize(() -> new ClusterImpl(channel, token));
     this.leaseClient = Suppliers.memoize(() -> new LeaseImpl(channel, token));
-    this.watchClient = Suppliers.memoize(() -> new WatchImpl(channel, token));
+    Optional<WatchStreamOption> watchStreamOption = Optional.ofNullable(
+        clientBuilder.getWatchStreamOption());
+    boolean watchSharing = clientBuilder.isWatchSharing();
+    this.watchDispatchStats = new WatchDispatchStats();
+    Optional<WatchDispatchOption> watchDispatchOption = Optional.ofNullable(
+        clientBuilder.getWatchDispatchOption());
+    this.watchClient = Suppliers.memoize(() -> new WatchImpl(channel, token, codec,
+        watchStreamOption, watchSharing,
+        watchDispatchOption.map(option -> new WatchDispatcher(option, watchDispatchStats))));
   }
 
   // ************************
   //
   // ************************
 
+  /**
+   * get the counters of the single-flight gets of this client.
+   *
+   * @return single-flight counters
+   */
+  public SingleFlightStats getSingleFlightStats() {
+    return singleFlightStats;
+  }
+
+  /**
+   * get the counters of the hedged gets of this client.
+   *
+   * @return hedging counters
+   */
+  public HedgeStats getHedgeStats() {
+    return hedgeStats;
+  }
+
+  /**
+   * get the counters of the watch callbacks of this client.
+   *
+   * @return watch dispatch counters, without watchers unless the callbacks are dispatched
+   */
+  public WatchDispatchStats getWatchDispatchStats() {
+    return watchDispatchStats;
+  }
+
   public Auth getAuthClient() {
     return authClient.get();
   }
@@ -98,6 +182,9 @@ public class Client {
   }
 
   public void close() {
+    memberRouter.ifPresent(MemberRouter::close);
+    // before the channel fails the watch streams, so that they aren't resumed.
+    watchClient.get().close();
     channel.shutdownNow();
   }
 
@@ -105,6 +192,20 @@ public class Client {
   //
   // ************************
 
+  private static ManagedChannelBuilder<?> newChannelBuilder(NameResolver.Factory factory,
+      Optional<TransportOption> transportOption) {
+    return transportOption
+        .<ManagedChannelBuilder<?>>map(option -> nettyChannelBuilder(factory, option))
+        .orElseGet(() -> defaultChannelBuilder(factory));
+  }
+
+  /**
+   * build a channel, a pool of channels if more than one connection is asked for.
+   */
+  private static ManagedChannel buildChannel(ManagedChannelBuilder<?> builder, int poolSize) {
+    return poolSize > 1 ? new ChannelPool(builder, poolSize) : builder.build();
+  }
+
   /**
    * get token from etcd with name and password.
    *
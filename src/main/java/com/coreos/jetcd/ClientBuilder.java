@@ -6,6 +6,13 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.coreos.jetcd.exception.AuthFailedException;
 import com.coreos.jetcd.exception.ConnectException;
+import com.coreos.jetcd.options.CompressionOption;
+import com.coreos.jetcd.options.ConcurrencyLimitOption;
+import com.coreos.jetcd.options.HedgeOption;
+import com.coreos.jetcd.options.PutBatchOption;
+import com.coreos.jetcd.options.TransportOption;
+import com.coreos.jetcd.options.WatchDispatchOption;
+import com.coreos.jetcd.options.WatchStreamOption;
 import com.coreos.jetcd.resolver.AbstractEtcdNameResolverFactory;
 import com.google.common.collect.Lists;
 import com.google.protobuf.ByteString;
@@ -20,6 +27,19 @@ public class ClientBuilder {
   private ByteString name;
   private ByteString password;
   private AbstractEtcdNameResolverFactory nameResolverFactory;
+  private PutBatchOption putBatchOption;
+  private HedgeOption hedgeOption;
+  private ConcurrencyLimitOption readLimitOption;
+  private ConcurrencyLimitOption writeLimitOption;
+  private ConcurrencyLimitOption txnLimitOption;
+  private boolean getSingleFlight = false;
+  private boolean memberRouting = false;
+  private int channelPoolSize = 1;
+  private TransportOption transportOption;
+  private CompressionOption compressionOption;
+  private WatchStreamOption watchStreamOption;
+  private WatchDispatchOption watchDispatchOption;
+  private boolean watchSharing = false;
 
   private ClientBuilder() {
   }
@@ -117,6 +137,283 @@ public class ClientBuilder {
     return nameResolverFactory;
   }
 
+  /**
+   * enable coalescing of concurrent puts into txn batches, off by default.
+   *
+   * @param putBatchOption batch size and window of the put batches
+   * @return this builder
+   * @throws NullPointerException if putBatchOption is null
+   */
+  public ClientBuilder setPutBatchOption(PutBatchOption putBatchOption) {
+    checkNotNull(putBatchOption, "putBatchOption can't be null");
+    this.putBatchOption = putBatchOption;
+    return this;
+  }
+
+  /**
+   * get the put batching option, null if puts are not batched.
+   *
+   * @return putBatchOption
+   */
+  public PutBatchOption getPutBatchOption() {
+    return putBatchOption;
+  }
+
+  /**
+   * let concurrent identical gets share one request and its result, off by default. Gets can
+   * override it with {@link com.coreos.jetcd.options.GetOption.Builder#withSingleFlight(boolean)}.
+   *
+   * @param getSingleFlight whether gets share an identical in-flight get
+   * @return this builder
+   */
+  public ClientBuilder setGetSingleFlight(boolean getSingleFlight) {
+    this.getSingleFlight = getSingleFlight;
+    return this;
+  }
+
+  public boolean isGetSingleFlight() {
+    return getSingleFlight;
+  }
+
+  /**
+   * enable hedging of serializable gets, off by default. A get slow to answer is sent a second
+   * time, to another member when combined with {@link #setMemberRouting(boolean)}, and the first
+   * answer wins. Gets can override it with
+   * {@link com.coreos.jetcd.options.GetOption.Builder#withHedge(boolean)}.
+   *
+   * @param hedgeOption delay and budget of the hedges
+   * @return this builder
+   * @throws NullPointerException if hedgeOption is null
+   */
+  public ClientBuilder setHedgeOption(HedgeOption hedgeOption) {
+    checkNotNull(hedgeOption, "hedgeOption can't be null");
+    this.hedgeOption = hedgeOption;
+    return this;
+  }
+
+  /**
+   * get the hedging option, null if gets are not hedged.
+   *
+   * @return hedgeOption
+   */
+  public HedgeOption getHedgeOption() {
+    return hedgeOption;
+  }
+
+  /**
+   * limit the outstanding gets and scan pages, off by default. Each class of KV calls has its
+   * own limit so writes and txns can't take the slots of reads.
+   *
+   * @param readLimitOption bounds and queue of the read limit
+   * @return this builder
+   * @throws NullPointerException if readLimitOption is null
+   */
+  public ClientBuilder setReadLimitOption(ConcurrencyLimitOption readLimitOption) {
+    checkNotNull(readLimitOption, "readLimitOption can't be null");
+    this.readLimitOption = readLimitOption;
+    return this;
+  }
+
+  /**
+   * get the read limit option, null if reads are not limited.
+   *
+   * @return readLimitOption
+   */
+  public ConcurrencyLimitOption getReadLimitOption() {
+    return readLimitOption;
+  }
+
+  /**
+   * limit the outstanding puts, deletes and compactions, off by default.
+   *
+   * @param writeLimitOption bounds and queue of the write limit
+   * @return this builder
+   * @throws NullPointerException if writeLimitOption is null
+   */
+  public ClientBuilder setWriteLimitOption(ConcurrencyLimitOption writeLimitOption) {
+    checkNotNull(writeLimitOption, "writeLimitOption can't be null");
+    this.writeLimitOption = writeLimitOption;
+    return this;
+  }
+
+  /**
+   * get the write limit option, null if writes are not limited.
+   *
+   * @return writeLimitOption
+   */
+  public ConcurrencyLimitOption getWriteLimitOption() {
+    return writeLimitOption;
+  }
+
+  /**
+   * limit the outstanding txns, off by default.
+   *
+   * @param txnLimitOption bounds and queue of the txn limit
+   * @return this builder
+   * @throws NullPointerException if txnLimitOption is null
+   */
+  public ClientBuilder setTxnLimitOption(ConcurrencyLimitOption txnLimitOption) {
+    checkNotNull(txnLimitOption, "txnLimitOption can't be null");
+    this.txnLimitOption = txnLimitOption;
+    return this;
+  }
+
+  /**
+   * get the txn limit option, null if txns are not limited.
+   *
+   * @return txnLimitOption
+   */
+  public ConcurrencyLimitOption getTxnLimitOption() {
+    return txnLimitOption;
+  }
+
+  /**
+   * connect to every endpoint and route KV calls by member, off by default. Serializable gets go
+   * to the member with the least outstanding calls, every other KV call to the leader. It needs
+   * the endpoints of the members, not a nameResolverFactory.
+   *
+   * @param memberRouting whether KV calls are routed by member
+   * @return this builder
+   */
+  public ClientBuilder setMemberRouting(boolean memberRouting) {
+    this.memberRouting = memberRouting;
+    return this;
+  }
+
+  public boolean isMemberRouting() {
+    return memberRouting;
+  }
+
+  /**
+   * open several connections to each endpoint, one by default. Unary calls go to the connection
+   * with the least outstanding calls and the streams of watch and lease keep alive get a
+   * connection of their own, so a busy client isn't held back by the max-concurrent-streams limit
+   * or flow control of a single connection.
+   *
+   * @param channelPoolSize number of connections for unary calls
+   * @return this builder
+   * @throws IllegalArgumentException if channelPoolSize is not positive
+   */
+  public ClientBuilder setChannelPoolSize(int channelPoolSize) {
+    checkArgument(channelPoolSize > 0, "channelPoolSize should be positive: channelPoolSize=%s",
+        channelPoolSize);
+    this.channelPoolSize = channelPoolSize;
+    return this;
+  }
+
+  public int getChannelPoolSize() {
+    return channelPoolSize;
+  }
+
+  /**
+   * tune the Netty transport of the connections, the defaults of gRPC are used otherwise. It
+   * doesn't apply to a client built with its own ManagedChannelBuilder.
+   *
+   * @param transportOption transport settings
+   * @return this builder
+   * @throws NullPointerException if transportOption is null
+   */
+  public ClientBuilder setTransportOption(TransportOption transportOption) {
+    checkNotNull(transportOption, "transportOption can't be null");
+    this.transportOption = transportOption;
+    return this;
+  }
+
+  /**
+   * get the transport option, null to use the defaults of gRPC.
+   *
+   * @return transportOption
+   */
+  public TransportOption getTransportOption() {
+    return transportOption;
+  }
+
+  /**
+   * enable compression of large values, off by default. Values of puts reaching the threshold
+   * are compressed and values read by gets, scans, txns and watches are inflated when they were.
+   *
+   * @param compressionOption threshold and level of the compression
+   * @return this builder
+   * @throws NullPointerException if compressionOption is null
+   */
+  public ClientBuilder setCompressionOption(CompressionOption compressionOption) {
+    checkNotNull(compressionOption, "compressionOption can't be null");
+    this.compressionOption = compressionOption;
+    return this;
+  }
+
+  /**
+   * get the compression option, null if values are not compressed.
+   *
+   * @return compressionOption
+   */
+  public CompressionOption getCompressionOption() {
+    return compressionOption;
+  }
+
+  /**
+   * spread watchers over several watch streams, all watchers share one stream by default. With
+   * a channel pool, each stream gets a connection of its own.
+   *
+   * @param watchStreamOption number of streams and assignment of the watchers
+   * @return this builder
+   * @throws NullPointerException if watchStreamOption is null
+   */
+  public ClientBuilder setWatchStreamOption(WatchStreamOption watchStreamOption) {
+    checkNotNull(watchStreamOption, "watchStreamOption can't be null");
+    this.watchStreamOption = watchStreamOption;
+    return this;
+  }
+
+  /**
+   * get the watch stream option, null if all watchers share one stream.
+   *
+   * @return watchStreamOption
+   */
+  public WatchStreamOption getWatchStreamOption() {
+    return watchStreamOption;
+  }
+
+  /**
+   * share one server watch between the watchers of the same key, range end, filters and prevKv,
+   * off by default. Events are handed to every watcher of the shared watch, and a watcher
+   * starting at an older revision first catches up with a watch of its own.
+   *
+   * @param watchSharing whether identical watches share a server watch
+   * @return this builder
+   */
+  public ClientBuilder setWatchSharing(boolean watchSharing) {
+    this.watchSharing = watchSharing;
+    return this;
+  }
+
+  public boolean isWatchSharing() {
+    return watchSharing;
+  }
+
+  /**
+   * run the watch callbacks on an executor, in order for each watcher, instead of on the gRPC
+   * threads, where a slow callback holds up the other watchers of its stream.
+   *
+   * @param watchDispatchOption executor and queue bound of the callbacks
+   * @return this builder
+   * @throws NullPointerException if watchDispatchOption is null
+   */
+  public ClientBuilder setWatchDispatchOption(WatchDispatchOption watchDispatchOption) {
+    checkNotNull(watchDispatchOption, "watchDispatchOption can't be null");
+    this.watchDispatchOption = watchDispatchOption;
+    return this;
+  }
+
+  /**
+   * get the watch dispatch option, null if the callbacks run on the gRPC threads.
+   *
+   * @return watchDispatchOption
+   */
+  public WatchDispatchOption getWatchDispatchOption() {
+    return watchDispatchOption;
+  }
+
   /**
    * build a new Client.
    *
@@ -1,15 +1,36 @@
 package com.coreos.jetcd;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.options.TransportOption;
 import com.coreos.jetcd.resolver.SimpleEtcdNameResolverFactory;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import io.grpc.CallCredentials;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.Metadata;
 import io.grpc.NameResolver;
+import io.grpc.netty.NettyChannelBuilder;
 import io.grpc.stub.AbstractStub;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public final class ClientUtil {
@@ -62,4 +83,153 @@ public final class ClientUtil {
         .nameResolverFactory(factory)
         .usePlaintext(true);
   }
+
+  /**
+   * create a Netty channel builder tuned by a transport option.
+   *
+   * @param factory resolves the endpoints
+   * @param option transport settings
+   * @return channel builder
+   */
+  static ManagedChannelBuilder<?> nettyChannelBuilder(NameResolver.Factory factory,
+      TransportOption option) {
+    NettyChannelBuilder builder = NettyChannelBuilder.forTarget("etcd")
+        .nameResolverFactory(factory)
+        .usePlaintext(true)
+        .flowControlWindow(option.getFlowControlWindow())
+        .maxInboundMessageSize(option.getMaxInboundMessageSize());
+
+    if (option.getEventLoopGroup().isPresent()) {
+      // the channel type has to match the group, whatever the native transport setting.
+      EventLoopGroup group = option.getEventLoopGroup().get();
+      builder.eventLoopGroup(group).channelType(NativeTransport.isNative(group)
+          ? NativeTransport.channelType() : NioSocketChannel.class);
+    } else if (option.isNativeTransport() && NativeTransport.isAvailable()) {
+      // gRPC shares a NIO group between channels, not an epoll one.
+      builder.eventLoopGroup(NativeTransport.sharedGroup())
+          .channelType(NativeTransport.channelType());
+    }
+    if (option.isPooledAllocator()) {
+      builder.withOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+    }
+    if (option.getKeepAliveTimeNanos() > 0) {
+      builder.enableKeepAlive(true, option.getKeepAliveTimeNanos(), TimeUnit.NANOSECONDS,
+          option.getKeepAliveTimeoutNanos(), TimeUnit.NANOSECONDS);
+    }
+    return builder;
+  }
+
+  /**
+   * The epoll transport, netty-transport-native-epoll is an optional dependency so its classes
+   * are only touched once they are known to be on the classpath. The shared group is in a holder
+   * of its own, only initialized when a channel needs it, as checking whether epoll is available
+   * must not start one.
+   */
+  private static final class NativeTransport {
+
+    private static final boolean ON_CLASSPATH = isOnClasspath();
+
+    private NativeTransport() {
+    }
+
+    static boolean isAvailable() {
+      if (!ON_CLASSPATH) {
+        return false;
+      }
+      try {
+        return Epolls.isAvailable();
+      } catch (LinkageError e) {
+        // the jar is there but doesn't fit this platform.
+        return false;
+      }
+    }
+
+    static boolean isNative(EventLoopGroup group) {
+      return ON_CLASSPATH && Epolls.isNative(group);
+    }
+
+    static Class<? extends io.netty.channel.Channel> channelType() {
+      return Epolls.channelType();
+    }
+
+    static EventLoopGroup sharedGroup() {
+      return SharedGroup.GROUP;
+    }
+
+    private static boolean isOnClasspath() {
+      try {
+        Class.forName("io.netty.channel.epoll.Epoll", false, ClientUtil.class.getClassLoader());
+        return true;
+      } catch (ClassNotFoundException e) {
+        return false;
+      }
+    }
+
+    private static final class Epolls {
+
+      private static boolean isAvailable() {
+        return Epoll.isAvailable();
+      }
+
+      private static boolean isNative(EventLoopGroup group) {
+        return group instanceof EpollEventLoopGroup;
+      }
+
+      private static Class<? extends io.netty.channel.Channel> channelType() {
+        return EpollSocketChannel.class;
+      }
+    }
+
+    private static final class SharedGroup {
+
+      private static final EventLoopGroup GROUP = new EpollEventLoopGroup(0,
+          new DefaultThreadFactory("jetcd-epoll", true));
+    }
+  }
+
+  /**
+   * complete a CompletableFuture with the outcome of a ListenableFuture.
+   *
+   * <p>The CompletableFuture is completed by a listener running on <i>executor</i>, with a
+   * direct executor it is completed on the thread completing the source, for a gRPC call the
+   * thread delivering the response. If <i>executor</i> rejects the completion the future fails
+   * with the RejectedExecutionException. Cancelling the CompletableFuture cancels the source and
+   * with it the call.
+   *
+   * @param source the future to adapt
+   * @param executor executor running the completion
+   * @param <T> the type of result
+   * @return CompletableFuture completed with the result or the failure cause of the source
+   */
+  static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> source,
+      Executor executor) {
+    checkNotNull(source, "source should not be null");
+    checkNotNull(executor, "executor should not be null");
+    CompletableFuture<T> future = new CompletableFuture<T>() {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        source.cancel(mayInterruptIfRunning);
+        return super.cancel(mayInterruptIfRunning);
+      }
+    };
+    Runnable complete = () -> {
+      try {
+        future.complete(Uninterruptibles.getUninterruptibly(source));
+      } catch (ExecutionException e) {
+        future.completeExceptionally(e.getCause());
+      } catch (CancellationException e) {
+        future.cancel(false);
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    };
+    source.addListener(() -> {
+      try {
+        executor.execute(complete);
+      } catch (RejectedExecutionException e) {
+        future.completeExceptionally(e);
+      }
+    }, MoreExecutors.directExecutor());
+    return future;
+  }
 }
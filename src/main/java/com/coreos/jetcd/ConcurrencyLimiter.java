@@ -0,0 +1,166 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.options.ConcurrencyLimitOption;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of outstanding calls of one class, adapting the bound to the cluster.
+ *
+ * <p>The limit follows additive increase, multiplicative decrease: every call answered within
+ * the tolerance of the lowest latency seen while the limit was at least half used raises it by
+ * one, every call failing with UNAVAILABLE or RESOURCE_EXHAUSTED or answered slower than that
+ * cuts it by the backoff ratio. The lowest latency is learned again every {@value #RTT_WINDOW}
+ * answers so it follows the cluster when it moves. Calls beyond the limit wait in a FIFO queue,
+ * calls beyond the queue fail with RESOURCE_EXHAUSTED without being sent.
+ */
+class ConcurrencyLimiter {
+
+  static final int RTT_WINDOW = 1000;
+
+  private final ConcurrencyLimitOption option;
+  private final Deque<PendingCall<?>> queue = new ArrayDeque<>();
+  private double limit;
+  private int inflight = 0;
+  private long minRttNanos = Long.MAX_VALUE;
+  private long windowMinRttNanos = Long.MAX_VALUE;
+  private int windowSamples = 0;
+
+  ConcurrencyLimiter(ConcurrencyLimitOption option) {
+    this.option = option;
+    this.limit = option.getInitialLimit();
+  }
+
+  /**
+   * send a call once the limit allows it.
+   *
+   * @param call sends the call
+   * @param <T> the type of response
+   * @return future of the answer, failed with RESOURCE_EXHAUSTED if the queue is full
+   */
+  <T> ListenableFuture<T> execute(Supplier<ListenableFuture<T>> call) {
+    PendingCall<T> pending = new PendingCall<>(call);
+    synchronized (this) {
+      if (inflight >= (int) limit) {
+        if (queue.size() >= option.getMaxQueueSize()) {
+          return Futures.immediateFailedFuture(Status.RESOURCE_EXHAUSTED
+              .withDescription("client concurrency limit reached: limit=" + (int) limit
+                  + ", queued=" + queue.size())
+              .asRuntimeException());
+        }
+        queue.add(pending);
+        pending.result.addListener(() -> {
+          if (pending.result.isCancelled()) {
+            dequeue(pending);
+          }
+        }, MoreExecutors.directExecutor());
+        return pending.result;
+      }
+      inflight++;
+    }
+    start(pending);
+    return pending.result;
+  }
+
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  synchronized int getInflight() {
+    return inflight;
+  }
+
+  synchronized int getQueued() {
+    return queue.size();
+  }
+
+  private synchronized void dequeue(PendingCall<?> pending) {
+    queue.remove(pending);
+  }
+
+  private <T> void start(PendingCall<T> pending) {
+    long start = System.nanoTime();
+    ListenableFuture<T> future;
+    try {
+      future = pending.call.get();
+    } catch (RuntimeException e) {
+      future = Futures.immediateFailedFuture(e);
+    }
+    pending.result.setFuture(future);
+    Futures.addCallback(future, new FutureCallback<T>() {
+      @Override
+      public void onSuccess(T value) {
+        release(System.nanoTime() - start, false);
+      }
+
+      @Override
+      public void onFailure(Throwable throwable) {
+        release(-1, isOverload(throwable));
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * account for an answered call and start the queued calls the limit now allows.
+   *
+   * @param rttNanos latency of a successful call, -1 for a failed one
+   * @param overload whether the call failed because the cluster is overloaded
+   */
+  private void release(long rttNanos, boolean overload) {
+    List<PendingCall<?>> ready = new ArrayList<>();
+    synchronized (this) {
+      int used = inflight;
+      inflight--;
+      if (overload || (rttNanos >= 0 && isSlow(rttNanos))) {
+        limit = Math.max(option.getMinLimit(), limit * option.getBackoffRatio());
+      } else if (rttNanos >= 0 && used * 2 >= (int) limit) {
+        limit = Math.min(option.getMaxLimit(), limit + 1);
+      }
+      while (inflight < (int) limit && !queue.isEmpty()) {
+        ready.add(queue.poll());
+        inflight++;
+      }
+    }
+    ready.forEach(this::start);
+  }
+
+  private boolean isSlow(long rttNanos) {
+    windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+    if (++windowSamples >= RTT_WINDOW) {
+      minRttNanos = windowMinRttNanos;
+      windowMinRttNanos = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+    minRttNanos = Math.min(minRttNanos, rttNanos);
+    return rttNanos > minRttNanos * option.getRttTolerance();
+  }
+
+  private static boolean isOverload(Throwable throwable) {
+    switch (Status.fromThrowable(throwable).getCode()) {
+      case UNAVAILABLE:
+      case RESOURCE_EXHAUSTED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static final class PendingCall<T> {
+
+    private final Supplier<ListenableFuture<T>> call;
+    private final SettableFuture<T> result = SettableFuture.create();
+
+    PendingCall(Supplier<ListenableFuture<T>> call) {
+      this.call = call;
+    }
+  }
+}
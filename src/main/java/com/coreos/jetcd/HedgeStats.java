@@ -0,0 +1,110 @@
+package com.coreos.jetcd;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the hedged gets of a client, see
+ * {@link ClientBuilder#setHedgeOption(com.coreos.jetcd.options.HedgeOption)}.
+ */
+public final class HedgeStats {
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder wins = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+  private volatile long delayNanos = -1;
+
+  HedgeStats() {
+  }
+
+  void recordRequest() {
+    requests.increment();
+  }
+
+  void recordHedge() {
+    hedges.increment();
+  }
+
+  void recordWin() {
+    wins.increment();
+  }
+
+  void recordThrottled() {
+    throttled.increment();
+  }
+
+  void setDelayNanos(long delayNanos) {
+    this.delayNanos = delayNanos;
+  }
+
+  /**
+   * Get the number of gets issued with hedging enabled.
+   *
+   * @return number of hedgeable gets
+   */
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /**
+   * Get the number of gets which were sent a second time.
+   *
+   * @return number of hedges fired
+   */
+  public long getHedges() {
+    return hedges.sum();
+  }
+
+  /**
+   * Get the number of hedged gets answered by the second request first.
+   *
+   * @return number of hedges won
+   */
+  public long getWins() {
+    return wins.sum();
+  }
+
+  /**
+   * Get the number of gets which were due for a hedge when the budget was spent.
+   *
+   * @return number of hedges not sent for lack of budget
+   */
+  public long getThrottled() {
+    return throttled.sum();
+  }
+
+  /**
+   * Get the current hedge delay.
+   *
+   * @return delay in nanoseconds, -1 until enough latencies have been observed
+   */
+  public long getDelayNanos() {
+    return delayNanos;
+  }
+
+  /**
+   * Get the share of gets which were sent a second time.
+   *
+   * @return hedges over gets, 0 if there was none
+   */
+  public double getHedgeRatio() {
+    long total = getRequests();
+    return total == 0 ? 0 : (double) getHedges() / total;
+  }
+
+  /**
+   * Get the share of hedges which answered first.
+   *
+   * @return wins over hedges, 0 if there was none
+   */
+  public double getWinRatio() {
+    long total = getHedges();
+    return total == 0 ? 0 : (double) getWins() / total;
+  }
+
+  @Override
+  public String toString() {
+    return "HedgeStats{requests=" + getRequests() + ", hedges=" + getHedges() + ", wins="
+        + getWins() + ", throttled=" + getThrottled() + ", delayNanos=" + getDelayNanos() + "}";
+  }
+}
@@ -0,0 +1,195 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.options.HedgeOption;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends a request a second time if the first attempt is slow, taking the first answer.
+ *
+ * <p>The hedge delay is the configured percentile of the latencies of the last
+ * {@value #WINDOW} answers, recomputed every {@value #RECOMPUTE_EVERY} of them. Only the first
+ * attempt of a request is sampled, from when it was issued, so neither the hedge delay nor time
+ * spent queued before the request goes out count. When a hedge wins, the time the first attempt
+ * has taken so far is sampled. Requests are not hedged until {@value #MIN_SAMPLES} latencies have
+ * been seen. Every request earns a share of a
+ * hedge and every hedge spends a whole one, so hedges stay within the budget of the
+ * {@link HedgeOption}. Once a request is answered the other attempt is cancelled. It fails only
+ * when every attempt sent has failed.
+ */
+class Hedger {
+
+  static final int WINDOW = 256;
+  static final int RECOMPUTE_EVERY = 32;
+  static final int MIN_SAMPLES = 32;
+
+  private static final long TOKENS_PER_HEDGE = 1000;
+  private static final long MAX_TOKENS = 10 * TOKENS_PER_HEDGE;
+
+  /**
+   * timer for hedge delays, shared by all hedgers as it only hands requests over to gRPC.
+   */
+  private static final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("jetcd-hedger-%d")
+          .setDaemon(true)
+          .build());
+
+  private final HedgeOption option;
+  private final HedgeStats stats;
+  private final long tokensPerRequest;
+  private final AtomicLong tokens = new AtomicLong();
+  private final AtomicLongArray latencies = new AtomicLongArray(WINDOW);
+  private final AtomicLong samples = new AtomicLong();
+  private volatile long delayNanos = -1;
+
+  Hedger(HedgeOption option, HedgeStats stats) {
+    this.option = option;
+    this.stats = stats;
+    this.tokensPerRequest = Math.round(option.getBudget() * TOKENS_PER_HEDGE);
+  }
+
+  /**
+   * send a request, hedging it if it is slow to answer.
+   *
+   * @param attempt sends the request once more on every call
+   * @param <T> the type of response
+   * @return future of the first answer
+   */
+  <T> ListenableFuture<T> execute(Supplier<ListenableFuture<T>> attempt) {
+    return execute(attempt, () -> 0);
+  }
+
+  /**
+   * send a request, hedging it if it is slow to answer.
+   *
+   * @param attempt sends the request once more on every call
+   * @param issued gets when the first attempt was actually issued, 0 for when it was sent
+   * @param <T> the type of response
+   * @return future of the first answer
+   */
+  <T> ListenableFuture<T> execute(Supplier<ListenableFuture<T>> attempt, LongSupplier issued) {
+    stats.recordRequest();
+    tokens.getAndUpdate(t -> Math.min(MAX_TOKENS, t + tokensPerRequest));
+
+    HedgedCall<T> call = new HedgedCall<>(attempt, issued);
+    call.launch(false);
+    long delay = delayNanos;
+    if (delay >= 0 && !call.result.isDone()) {
+      ScheduledFuture<?> timer = scheduler.schedule(call::hedge, delay, TimeUnit.NANOSECONDS);
+      call.result.addListener(() -> timer.cancel(false), MoreExecutors.directExecutor());
+    }
+    call.result.addListener(call::cancelAttempts, MoreExecutors.directExecutor());
+    return call.result;
+  }
+
+  private boolean tryAcquire() {
+    long current;
+    do {
+      current = tokens.get();
+      if (current < TOKENS_PER_HEDGE) {
+        return false;
+      }
+    } while (!tokens.compareAndSet(current, current - TOKENS_PER_HEDGE));
+    return true;
+  }
+
+  private void recordLatency(long nanos) {
+    long count = samples.getAndIncrement() + 1;
+    latencies.set((int) ((count - 1) % WINDOW), nanos);
+    if (count >= MIN_SAMPLES && count % RECOMPUTE_EVERY == 0) {
+      long[] sorted = new long[(int) Math.min(count, WINDOW)];
+      for (int i = 0; i < sorted.length; i++) {
+        sorted[i] = latencies.get(i);
+      }
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(option.getPercentile() / 100 * sorted.length) - 1;
+      delayNanos = Math.max(option.getMinDelayNanos(), sorted[Math.max(0, index)]);
+      stats.setDelayNanos(delayNanos);
+    }
+  }
+
+  /**
+   * The attempts of one request.
+   */
+  private final class HedgedCall<T> {
+
+    private final Supplier<ListenableFuture<T>> attempt;
+    private final SettableFuture<T> result = SettableFuture.create();
+    private final List<ListenableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongSupplier issued;
+    // when the first attempt was sent, set before any hedge is scheduled.
+    private volatile long sent;
+
+    private HedgedCall(Supplier<ListenableFuture<T>> attempt, LongSupplier issued) {
+      this.attempt = attempt;
+      this.issued = issued;
+    }
+
+    private void hedge() {
+      if (result.isDone()) {
+        return;
+      }
+      if (!tryAcquire()) {
+        stats.recordThrottled();
+        return;
+      }
+      stats.recordHedge();
+      launch(true);
+    }
+
+    private void launch(boolean hedge) {
+      pending.incrementAndGet();
+      if (!hedge) {
+        sent = System.nanoTime();
+      }
+      ListenableFuture<T> future = attempt.get();
+      attempts.add(future);
+      if (result.isDone()) {
+        future.cancel(true);
+      }
+      Futures.addCallback(future, new FutureCallback<T>() {
+        @Override
+        public void onSuccess(T value) {
+          if (result.set(value)) {
+            long issuedNanos = issued.getAsLong();
+            recordLatency(System.nanoTime() - (issuedNanos != 0 ? issuedNanos : sent));
+            if (hedge) {
+              stats.recordWin();
+            }
+          }
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          if (pending.decrementAndGet() == 0) {
+            result.setException(throwable);
+          }
+        }
+      }, MoreExecutors.directExecutor());
+    }
+
+    private void cancelAttempts() {
+      for (ListenableFuture<T> future : attempts) {
+        future.cancel(true);
+      }
+    }
+  }
+}
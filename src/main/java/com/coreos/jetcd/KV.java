@@ -13,6 +13,8 @@ import com.coreos.jetcd.options.PutOption;
 import com.google.common.annotations.Beta;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.ByteString;
+import java.io.Closeable;
+import java.util.Iterator;
 
 /**
  * Interface of kv client talking to etcd.
@@ -36,6 +38,30 @@ public interface KV {
 
   ListenableFuture<RangeResponse> get(ByteString key, GetOption option);
 
+  // ***************
+  // Op.SCAN
+  // ***************
+
+  /**
+   * Scan the range given by <i>key</i> and the end key of <i>option</i> page by page, instead of
+   * returning it in a single response.
+   *
+   * <p>The limit of the option is the page size, 1000 if not set. Every page is read at the
+   * revision of the option or, if it is not set, at the revision of the first page, so the scan
+   * sees one consistent snapshot. The next page is fetched while the current one is consumed and
+   * no further, so memory stays bounded whatever the size of the range.
+   *
+   * <p>By default, the pages are read through {@link #get(ByteString, GetOption)}.
+   *
+   * @param key the first key of the range
+   * @param option the get option, it can't sort other than ascending by key or count only
+   * @return scanner over the pages of the range
+   * @throws IllegalArgumentException if the option sorts the range or only counts it
+   */
+  default Scanner scan(ByteString key, GetOption option) {
+    return RangeScanner.scan(this, key, option);
+  }
+
   // ***************
   // Op.DELETE
   // ***************
@@ -58,4 +84,27 @@ public interface KV {
    * @param txn txn to commit
    */
   ListenableFuture<TxnResponse> commit(Txn txn);
+
+  /**
+   * Iterator over the pages of a {@link #scan(ByteString, GetOption) scan}.
+   *
+   * <p>{@link #next()} blocks until the page has arrived and rethrows the failure of its
+   * request, e.g. a {@link io.grpc.StatusRuntimeException} with OUT_OF_RANGE once the pinned
+   * revision has been compacted.
+   */
+  interface Scanner extends Iterator<RangeResponse>, Closeable {
+
+    /**
+     * get the revision the range is scanned at.
+     *
+     * @return revision, 0 until the first page has been returned if no revision was given
+     */
+    long getRevision();
+
+    /**
+     * stop scanning, dropping the page read ahead.
+     */
+    @Override
+    void close();
+  }
 }
@@ -11,16 +11,23 @@ import com.coreos.jetcd.api.PutRequest;
 import com.coreos.jetcd.api.PutResponse;
 import com.coreos.jetcd.api.RangeRequest;
 import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.TxnRequest;
 import com.coreos.jetcd.api.TxnResponse;
 import com.coreos.jetcd.op.Txn;
 import com.coreos.jetcd.options.CompactOption;
 import com.coreos.jetcd.options.DeleteOption;
 import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutBatchOption;
 import com.coreos.jetcd.options.PutOption;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
-import io.grpc.ManagedChannel;
+import io.grpc.Channel;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Implementation of etcd kv client.
@@ -28,9 +35,40 @@ import java.util.Optional;
 class KVImpl implements KV {
 
   private final KVGrpc.KVFutureStub stub;
+  private final KVGrpc.KVFutureStub serializableStub;
+  private final Optional<PutBatcher> putBatcher;
+  private final boolean getSingleFlight;
+  private final SingleFlight<RangeRequest, RangeResponse> rangeSingleFlight;
+  private final Optional<Hedger> hedger;
+  private final Optional<ConcurrencyLimiter> readLimiter;
+  private final Optional<ConcurrencyLimiter> writeLimiter;
+  private final Optional<ConcurrencyLimiter> txnLimiter;
+  private final Optional<ValueCodec> codec;
+
+  KVImpl(Channel channel, Optional<String> token) {
+    this(channel, token, Optional.empty(), false, new SingleFlightStats(), Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+  }
 
-  KVImpl(ManagedChannel channel, Optional<String> token) {
-    this.stub = ClientUtil.configureStub(KVGrpc.newFutureStub(channel), token);
+  KVImpl(Channel channel, Optional<String> token, Optional<PutBatchOption> putBatchOption,
+      boolean getSingleFlight, SingleFlightStats singleFlightStats, Optional<Hedger> hedger,
+      Optional<ConcurrencyLimiter> readLimiter, Optional<ConcurrencyLimiter> writeLimiter,
+      Optional<ConcurrencyLimiter> txnLimiter, Optional<ValueCodec> codec) {
+    KVGrpc.KVFutureStub stub = ClientUtil.configureStub(KVGrpc.newFutureStub(channel), token);
+    if (codec.isPresent() && codec.get().isMessageCompression()) {
+      stub = stub.withCompression("gzip");
+    }
+    this.stub = stub;
+    // lets a MemberRouter send serializable reads to any member.
+    this.serializableStub = this.stub.withOption(MemberRouter.SERIALIZABLE, Boolean.TRUE);
+    this.putBatcher = putBatchOption.map(option -> new PutBatcher(stub, option));
+    this.getSingleFlight = getSingleFlight;
+    this.rangeSingleFlight = new SingleFlight<>(singleFlightStats);
+    this.hedger = hedger;
+    this.readLimiter = readLimiter;
+    this.writeLimiter = writeLimiter;
+    this.txnLimiter = txnLimiter;
+    this.codec = codec;
   }
 
   // ***************
@@ -48,14 +86,18 @@ class KVImpl implements KV {
     checkNotNull(value, "value should not be null");
     checkNotNull(option, "option should not be null");
 
-    PutRequest request = PutRequest.newBuilder()
+    PutRequest request = encode(PutRequest.newBuilder()
         .setKey(key)
         .setValue(value)
         .setLease(option.getLeaseId())
         .setPrevKv(option.getPrevKV())
-        .build();
+        .build(), ValueCodec::encode);
 
-    return this.stub.put(request);
+    if (this.putBatcher.isPresent()) {
+      return decode(limit(this.writeLimiter, () -> this.putBatcher.get().submit(request)),
+          ValueCodec::decode);
+    }
+    return decode(limit(this.writeLimiter, () -> this.stub.put(request)), ValueCodec::decode);
   }
 
   // ***************
@@ -72,6 +114,53 @@ class KVImpl implements KV {
     checkNotNull(key, "key should not be null");
     checkNotNull(option, "option should not be null");
 
+    RangeRequest request = toRangeRequest(key, option);
+    Function<RangeRequest, ListenableFuture<RangeResponse>> range;
+    if (!option.isSerializable()) {
+      range = this.stub::range;
+    } else if (this.hedger.isPresent() && option.getHedge().orElse(true)) {
+      range = this::hedgedRange;
+    } else {
+      range = this.serializableStub::range;
+    }
+    // gets joining an in-flight get don't take another slot of the limit.
+    Function<RangeRequest, ListenableFuture<RangeResponse>> limitedRange =
+        r -> decode(limit(this.readLimiter, () -> range.apply(r)), ValueCodec::decode);
+    if (option.getSingleFlight().orElse(this.getSingleFlight)) {
+      return this.rangeSingleFlight.execute(request, limitedRange);
+    }
+    return limitedRange.apply(request);
+  }
+
+  private ListenableFuture<RangeResponse> hedgedRange(RangeRequest request) {
+    MemberRouter.Attempts attempts = new MemberRouter.Attempts();
+    KVGrpc.KVFutureStub attemptStub = this.serializableStub
+        .withOption(MemberRouter.ATTEMPTS, attempts);
+    // sampled from when the first attempt left the channel of its member.
+    return this.hedger.get().execute(() -> attemptStub.range(request),
+        attempts::getFirstIssuedNanos);
+  }
+
+  // ***************
+  // Op.SCAN
+  // ***************
+
+  @Override
+  public Scanner scan(ByteString key, GetOption option) {
+    RangeScanner.checkOption(key, option);
+
+    RangeRequest.Builder request = toRangeRequest(key, option).toBuilder();
+    if (request.getLimit() <= 0) {
+      request.setLimit(RangeScanner.DEFAULT_PAGE_SIZE);
+    }
+    // pages are read at the revision of the first one, which another member may not have
+    // reached yet, so they all go to the same member.
+    return new RangeScanner(
+        r -> decode(limit(this.readLimiter, () -> this.stub.range(r)), ValueCodec::decode),
+        request.build());
+  }
+
+  private static RangeRequest toRangeRequest(ByteString key, GetOption option) {
     RangeRequest.Builder builder = RangeRequest.newBuilder()
         .setKey(key)
         .setCountOnly(option.isCountOnly())
@@ -85,8 +174,7 @@ class KVImpl implements KV {
     if (option.getEndKey().isPresent()) {
       builder.setRangeEnd(option.getEndKey().get());
     }
-
-    return this.stub.range(builder.build());
+    return builder.build();
   }
 
   // ***************
@@ -110,7 +198,9 @@ class KVImpl implements KV {
     if (option.getEndKey().isPresent()) {
       builder.setRangeEnd(option.getEndKey().get());
     }
-    return this.stub.deleteRange(builder.build());
+    DeleteRangeRequest request = builder.build();
+    return decode(limit(this.writeLimiter, () -> this.stub.deleteRange(request)),
+        ValueCodec::decode);
   }
 
   @Override
@@ -127,12 +217,33 @@ class KVImpl implements KV {
         .setPhysical(option.isPhysical())
         .build();
 
-    return this.stub.compact(request);
+    return limit(this.writeLimiter, () -> this.stub.compact(request));
   }
 
   @Override
   public ListenableFuture<TxnResponse> commit(Txn txn) {
     checkNotNull(txn, "txn should not be null");
-    return this.stub.txn(txn.toTxnRequest());
+    TxnRequest request = encode(txn.toTxnRequest(), ValueCodec::encode);
+    return decode(limit(this.txnLimiter, () -> this.stub.txn(request)), ValueCodec::decode);
+  }
+
+  private static <T> ListenableFuture<T> limit(Optional<ConcurrencyLimiter> limiter,
+      Supplier<ListenableFuture<T>> call) {
+    return limiter.isPresent() ? limiter.get().execute(call) : call.get();
+  }
+
+  private <T> T encode(T request, BiFunction<ValueCodec, T, T> encode) {
+    return this.codec.isPresent() ? encode.apply(this.codec.get(), request) : request;
+  }
+
+  private <T> ListenableFuture<T> decode(ListenableFuture<T> future,
+      BiFunction<ValueCodec, T, T> decode) {
+    if (!this.codec.isPresent()) {
+      return future;
+    }
+    ValueCodec codec = this.codec.get();
+    com.google.common.base.Function<T, T> decodeResponse =
+        response -> decode.apply(codec, response);
+    return Futures.transform(future, decodeResponse, MoreExecutors.directExecutor());
   }
 }
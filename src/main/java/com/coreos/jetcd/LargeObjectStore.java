@@ -0,0 +1,399 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.op.Cmp;
+import com.coreos.jetcd.op.CmpTarget;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.DeleteOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnsafeByteOperations;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stores values larger than etcd accepts in one request, split over chunk keys.
+ *
+ * <p>A put writes the chunks of the value under keys unique to that put, several at a time, then
+ * commits a small manifest at the key itself with a txn, which also deletes the chunks of the
+ * value it replaces. Readers see either the old or the new value, never a mix. A get reads the
+ * manifest, then fetches the chunks at the revision of the manifest and streams them out in
+ * order, so only a few chunks are in memory at once whatever the size of the value.
+ *
+ * <p>The chunk keys are the key followed by {@code '\0'}, a random put id and the chunk index, so
+ * a prefix range over manifest keys also returns their chunks unless a separate chunk prefix is
+ * configured. A put failing before its commit deletes its chunks, but chunks of a client dying
+ * midway are left behind.
+ *
+ * <pre>
+ * {@code
+ * LargeObjectStore store = LargeObjectStore.newBuilder(client.getKVClient())
+ *     .withChunkPrefix(ByteString.copyFromUtf8("chunks/"))
+ *     .build();
+ * try (InputStream in = new FileInputStream(model)) {
+ *   store.put(ByteString.copyFromUtf8("models/ranker"), in);
+ * }
+ * store.get(ByteString.copyFromUtf8("models/ranker"), out);
+ * }
+ * </pre>
+ */
+public final class LargeObjectStore {
+
+  private static final byte[] MAGIC = {0x00, 'j', 'l'};
+  private static final byte VERSION = 1;
+
+  /**
+   * Create a builder to construct a large object store over the given KV client.
+   *
+   * @param kv kv client to store the manifests and chunks with
+   * @return builder
+   */
+  public static Builder newBuilder(KV kv) {
+    checkNotNull(kv, "kv should not be null");
+    return new Builder(kv);
+  }
+
+  public static class Builder {
+
+    private final KV kv;
+    private int chunkSize = 512 * 1024;
+    private int parallelism = 4;
+    private ByteString chunkPrefix = ByteString.EMPTY;
+
+    private Builder(KV kv) {
+      this.kv = kv;
+    }
+
+    /**
+     * Set the size of the chunks, which has to stay below the request limit of the server,
+     * 1.5 MiB by default. By default is 512 KiB.
+     *
+     * @param chunkSize the size in bytes of a chunk
+     * @return builder
+     * @throws IllegalArgumentException if chunkSize is not positive
+     */
+    public Builder withChunkSize(int chunkSize) {
+      checkArgument(chunkSize > 0, "chunkSize should be positive: chunkSize=%s", chunkSize);
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Set the number of chunks written or read at once. Puts and gets hold up to that many
+     * chunks in memory. By default is 4.
+     *
+     * @param parallelism number of concurrent chunk requests
+     * @return builder
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public Builder withParallelism(int parallelism) {
+      checkArgument(parallelism > 0, "parallelism should be positive: parallelism=%s",
+          parallelism);
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Put the chunk keys under the given prefix, out of the way of ranges over the manifests.
+     * By default the chunks are next to their manifest.
+     *
+     * @param chunkPrefix the prefix of the chunk keys
+     * @return builder
+     */
+    public Builder withChunkPrefix(ByteString chunkPrefix) {
+      this.chunkPrefix = checkNotNull(chunkPrefix, "chunkPrefix should not be null");
+      return this;
+    }
+
+    public LargeObjectStore build() {
+      return new LargeObjectStore(this);
+    }
+  }
+
+  private final KV kv;
+  private final int chunkSize;
+  private final int parallelism;
+  private final ByteString chunkPrefix;
+
+  private LargeObjectStore(Builder builder) {
+    this.kv = builder.kv;
+    this.chunkSize = builder.chunkSize;
+    this.parallelism = builder.parallelism;
+    this.chunkPrefix = builder.chunkPrefix;
+  }
+
+  /**
+   * Store the content of a stream at the given key, replacing any value there. The stream is
+   * read to its end but not closed.
+   *
+   * @param key key to store the value at
+   * @param in stream of the value
+   * @return the revision the value was committed at
+   * @throws IOException if the stream can't be read or a request fails
+   */
+  public long put(ByteString key, InputStream in) throws IOException {
+    checkNotNull(key, "key should not be null");
+    checkNotNull(in, "in should not be null");
+
+    Manifest manifest = new Manifest(
+        String.format("%016x", ThreadLocalRandom.current().nextLong()), 0, chunkSize, 0);
+    ByteString prefix = chunkPrefix(key, manifest.id);
+    Deque<ListenableFuture<?>> inflight = new ArrayDeque<>();
+    boolean committed = false;
+    try {
+      while (true) {
+        byte[] chunk = new byte[chunkSize];
+        int read = ByteStreams.read(in, chunk, 0, chunkSize);
+        if (read == 0) {
+          break;
+        }
+        if (inflight.size() == parallelism) {
+          await(inflight.poll());
+        }
+        inflight.add(kv.put(chunkKey(prefix, manifest.chunkCount),
+            UnsafeByteOperations.unsafeWrap(chunk, 0, read)));
+        manifest.chunkCount++;
+        manifest.size += read;
+        if (read < chunkSize) {
+          break;
+        }
+      }
+      while (!inflight.isEmpty()) {
+        await(inflight.poll());
+      }
+
+      long revision = commit(key, manifest);
+      committed = true;
+      return revision;
+    } finally {
+      if (!committed) {
+        inflight.forEach(future -> future.cancel(true));
+        kv.delete(prefix, DeleteOption.newBuilder().withPrefix(prefix).build());
+      }
+    }
+  }
+
+  /**
+   * commit the manifest unless another put or delete of the key came in between, in which case
+   * it is tried again over the new value.
+   */
+  private long commit(ByteString key, Manifest manifest) throws IOException {
+    while (true) {
+      KeyValue current = current(key);
+      List<Op> ops = new ArrayList<>();
+      ops.add(Op.put(key, manifest.encode(), PutOption.DEFAULT));
+      Manifest replaced = current != null ? Manifest.decode(current.getValue()) : null;
+      if (replaced != null) {
+        ByteString prefix = chunkPrefix(key, replaced.id);
+        ops.add(Op.delete(prefix, DeleteOption.newBuilder().withPrefix(prefix).build()));
+      }
+
+      TxnResponse response = await(kv.commit(Txn.newBuilder()
+          .If(unchanged(key, current))
+          .Then(ops)
+          .build()));
+      if (response.getSucceeded()) {
+        return response.getHeader().getRevision();
+      }
+    }
+  }
+
+  /**
+   * Write the value stored at the given key to a stream. The stream is neither flushed nor
+   * closed.
+   *
+   * @param key key the value is stored at
+   * @param out stream to write the value to
+   * @return true if the value was written, false if there is no value at the key
+   * @throws IOException if the value at the key wasn't put by a large object store, its chunks
+   *     are gone, a request fails or the stream can't be written
+   */
+  public boolean get(ByteString key, OutputStream out) throws IOException {
+    checkNotNull(key, "key should not be null");
+    checkNotNull(out, "out should not be null");
+
+    RangeResponse response = await(kv.get(key));
+    if (response.getKvsCount() == 0) {
+      return false;
+    }
+    Manifest manifest = Manifest.decode(response.getKvs(0).getValue());
+    if (manifest == null) {
+      throw new IOException("not a large object: key=" + key.toStringUtf8());
+    }
+
+    GetOption option = GetOption.newBuilder()
+        .withRevision(response.getHeader().getRevision())
+        .build();
+    ByteString prefix = chunkPrefix(key, manifest.id);
+    Deque<ListenableFuture<RangeResponse>> inflight = new ArrayDeque<>();
+    int requested = 0;
+    long written = 0;
+    try {
+      for (int i = 0; i < manifest.chunkCount; i++) {
+        while (requested < manifest.chunkCount && inflight.size() < parallelism) {
+          inflight.add(kv.get(chunkKey(prefix, requested++), option));
+        }
+        RangeResponse chunk = await(inflight.poll());
+        long expected = Math.min(manifest.chunkSize, manifest.size - written);
+        if (chunk.getKvsCount() == 0 || chunk.getKvs(0).getValue().size() != expected) {
+          throw new IOException("missing or broken chunk " + i + " of large object: key="
+              + key.toStringUtf8());
+        }
+        chunk.getKvs(0).getValue().writeTo(out);
+        written += expected;
+      }
+    } finally {
+      inflight.forEach(future -> future.cancel(true));
+    }
+    if (written != manifest.size) {
+      throw new IOException("truncated large object: key=" + key.toStringUtf8());
+    }
+    return true;
+  }
+
+  /**
+   * Delete the value stored at the given key along with its chunks.
+   *
+   * @param key key the value is stored at
+   * @return true if there was a value at the key
+   * @throws IOException if a request fails
+   */
+  public boolean delete(ByteString key) throws IOException {
+    checkNotNull(key, "key should not be null");
+
+    while (true) {
+      KeyValue current = current(key);
+      if (current == null) {
+        return false;
+      }
+      List<Op> ops = new ArrayList<>();
+      ops.add(Op.delete(key, DeleteOption.DEFAULT));
+      Manifest manifest = Manifest.decode(current.getValue());
+      if (manifest != null) {
+        ByteString prefix = chunkPrefix(key, manifest.id);
+        ops.add(Op.delete(prefix, DeleteOption.newBuilder().withPrefix(prefix).build()));
+      }
+
+      TxnResponse response = await(kv.commit(Txn.newBuilder()
+          .If(unchanged(key, current))
+          .Then(ops)
+          .build()));
+      if (response.getSucceeded()) {
+        return true;
+      }
+    }
+  }
+
+  private KeyValue current(ByteString key) throws IOException {
+    RangeResponse response = await(kv.get(key));
+    return response.getKvsCount() == 0 ? null : response.getKvs(0);
+  }
+
+  /**
+   * compare holding while the key is still at the given key value, or still absent.
+   */
+  private static Cmp unchanged(ByteString key, KeyValue current) {
+    return new Cmp(key, Cmp.Op.EQUAL,
+        CmpTarget.modRevision(current != null ? current.getModRevision() : 0));
+  }
+
+  private ByteString chunkPrefix(ByteString key, String id) {
+    return chunkPrefix.concat(key).concat(ByteString.copyFromUtf8("\0" + id + "/"));
+  }
+
+  private static ByteString chunkKey(ByteString prefix, int index) {
+    return prefix.concat(ByteString.copyFromUtf8(String.format("%08x", index)));
+  }
+
+  private static <T> T await(ListenableFuture<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted waiting on etcd");
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * what a get needs to find and check the chunks of a value: the magic bytes
+   * {@code 0x00 'j' 'l'}, a version, then the put id, size, chunk size and chunk count.
+   */
+  private static final class Manifest {
+
+    private final String id;
+    private long size;
+    private final int chunkSize;
+    private int chunkCount;
+
+    private Manifest(String id, long size, int chunkSize, int chunkCount) {
+      this.id = id;
+      this.size = size;
+      this.chunkSize = chunkSize;
+      this.chunkCount = chunkCount;
+    }
+
+    private ByteString encode() {
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        bytes.write(MAGIC);
+        bytes.write(VERSION);
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        out.writeStringNoTag(id);
+        out.writeUInt64NoTag(size);
+        out.writeUInt32NoTag(chunkSize);
+        out.writeUInt32NoTag(chunkCount);
+        out.flush();
+        return UnsafeByteOperations.unsafeWrap(bytes.toByteArray());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    /**
+     * decode a manifest.
+     *
+     * @return the manifest, null if the value isn't one
+     */
+    private static Manifest decode(ByteString value) {
+      if (value.size() <= MAGIC.length + 1 || value.byteAt(0) != MAGIC[0]
+          || value.byteAt(1) != MAGIC[1] || value.byteAt(2) != MAGIC[2]
+          || value.byteAt(3) != VERSION) {
+        return null;
+      }
+      try {
+        CodedInputStream in = value.substring(MAGIC.length + 1).newCodedInput();
+        Manifest manifest = new Manifest(in.readString(), in.readUInt64(), in.readUInt32(),
+            in.readUInt32());
+        if (!in.isAtEnd() || manifest.size < 0 || manifest.chunkSize <= 0
+            || manifest.chunkCount < 0) {
+          return null;
+        }
+        return manifest;
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+}
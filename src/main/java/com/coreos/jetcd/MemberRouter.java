@@ -0,0 +1,315 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.coreos.jetcd.api.CompactionResponse;
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.MaintenanceGrpc;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.api.StatusRequest;
+import com.coreos.jetcd.api.StatusResponse;
+import com.coreos.jetcd.api.TxnResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Channel routing calls to the members of the cluster, one channel per member.
+ *
+ * <p>Calls made with the {@link #SERIALIZABLE} option go to the available member with the least
+ * outstanding calls, spreading serializable reads across the cluster. Every other call goes to
+ * the leader, so linearizable reads, puts and txns skip the hop from a follower to the leader.
+ *
+ * <p>The leader is found from the status of every member, asked again whenever a response
+ * carries a newer raft term or the leader becomes unavailable. While it is unknown, calls are
+ * spread as serializable reads are. A member answering UNAVAILABLE is left out for a second.
+ *
+ * <p>The attempts of a hedged read share an {@link Attempts} so they go to different members.
+ */
+class MemberRouter extends Channel implements Closeable {
+
+  /**
+   * call option marking a call any member can serve.
+   */
+  static final CallOptions.Key<Boolean> SERIALIZABLE =
+      CallOptions.Key.of("jetcd.serializable", Boolean.FALSE);
+
+  /**
+   * call option sharing the members the attempts of a hedged call went to, an attempt goes to
+   * another member than the previous ones while there is one available.
+   */
+  static final CallOptions.Key<Attempts> ATTEMPTS = CallOptions.Key.of("jetcd.attempts", null);
+
+  private static final long UNAVAILABLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final List<Member> members;
+  private final AtomicInteger next = new AtomicInteger();
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private volatile Member leader;
+  private volatile long raftTerm = -1;
+
+  MemberRouter(List<ManagedChannel> channels, Optional<String> token) {
+    checkArgument(!channels.isEmpty(), "channels should not be empty");
+    this.members = channels.stream()
+        .map(channel -> new Member(channel, token))
+        .collect(Collectors.toList());
+    refresh();
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
+    Member member;
+    Attempts first = null;
+    if (callOptions.getOption(SERIALIZABLE)) {
+      Attempts attempts = callOptions.getOption(ATTEMPTS);
+      member = leastOutstanding(attempts);
+      if (attempts != null) {
+        first = attempts.members.isEmpty() ? attempts : null;
+        attempts.members.add(member);
+      }
+    } else {
+      member = leader();
+    }
+    return new RoutedCall<>(member, first,
+        member.channel.newCall(methodDescriptor, callOptions));
+  }
+
+  @Override
+  public String authority() {
+    return members.get(0).channel.authority();
+  }
+
+  @Override
+  public void close() {
+    members.forEach(member -> member.channel.shutdownNow());
+  }
+
+  /**
+   * get the id of the member known as the leader.
+   *
+   * @return member id, empty until the leader has been found
+   */
+  Optional<Long> getLeaderId() {
+    return Optional.ofNullable(leader).map(member -> member.memberId);
+  }
+
+  private Member leader() {
+    Member current = leader;
+    if (current != null && current.isAvailable(System.nanoTime())) {
+      return current;
+    }
+    return leastOutstanding(null);
+  }
+
+  /**
+   * pick the available member with the least outstanding calls, preferring the members no
+   * previous attempt went to. The search starts at the next member on every call so ties are
+   * spread.
+   */
+  private Member leastOutstanding(Attempts attempts) {
+    long now = System.nanoTime();
+    int start = Math.floorMod(next.getAndIncrement(), members.size());
+    Member best = null;
+    boolean bestAttempted = true;
+    for (int i = 0; i < members.size(); i++) {
+      Member member = members.get((start + i) % members.size());
+      if (!member.isAvailable(now)) {
+        continue;
+      }
+      boolean attempted = attempts != null && attempts.members.contains(member);
+      if (best == null || (bestAttempted && !attempted)
+          || (attempted == bestAttempted
+          && member.outstanding.get() < best.outstanding.get())) {
+        best = member;
+        bestAttempted = attempted;
+      }
+    }
+    return best != null ? best : members.get(start);
+  }
+
+  private void onHeader(ResponseHeader header) {
+    if (header != null && header.getRaftTerm() > raftTerm) {
+      refresh();
+    }
+  }
+
+  private void onUnavailable(Member member) {
+    member.unavailableUntil = System.nanoTime() + UNAVAILABLE_NANOS;
+    member.unavailable = true;
+    if (member == leader) {
+      leader = null;
+      refresh();
+    }
+  }
+
+  /**
+   * ask every member for its status and take the leader reported at the highest raft term.
+   */
+  private void refresh() {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    List<ListenableFuture<StatusResponse>> statuses = members.stream()
+        .map(member -> member.maintenance.status(StatusRequest.getDefaultInstance()))
+        .collect(Collectors.toList());
+    Futures.addCallback(Futures.successfulAsList(statuses),
+        new FutureCallback<List<StatusResponse>>() {
+          @Override
+          public void onSuccess(List<StatusResponse> responses) {
+            long term = -1;
+            long leaderId = 0;
+            for (int i = 0; i < responses.size(); i++) {
+              StatusResponse response = responses.get(i);
+              if (response == null) {
+                continue;
+              }
+              members.get(i).memberId = response.getHeader().getMemberId();
+              if (response.getRaftTerm() >= term) {
+                term = response.getRaftTerm();
+                leaderId = response.getLeader();
+              }
+            }
+            Member found = null;
+            for (Member member : members) {
+              if (leaderId != 0 && member.memberId == leaderId) {
+                found = member;
+              }
+            }
+            leader = found;
+            raftTerm = Math.max(raftTerm, term);
+            refreshing.set(false);
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            refreshing.set(false);
+          }
+        });
+  }
+
+  /**
+   * get the header of a KV response.
+   *
+   * @return the header, null if the message is not a KV response
+   */
+  private static ResponseHeader headerOf(Object message) {
+    if (message instanceof RangeResponse) {
+      return ((RangeResponse) message).getHeader();
+    } else if (message instanceof PutResponse) {
+      return ((PutResponse) message).getHeader();
+    } else if (message instanceof TxnResponse) {
+      return ((TxnResponse) message).getHeader();
+    } else if (message instanceof DeleteRangeResponse) {
+      return ((DeleteRangeResponse) message).getHeader();
+    } else if (message instanceof CompactionResponse) {
+      return ((CompactionResponse) message).getHeader();
+    }
+    return null;
+  }
+
+  /**
+   * The members the attempts of one call went to.
+   */
+  static final class Attempts {
+
+    private final Set<Member> members = ConcurrentHashMap.newKeySet();
+    private volatile long firstIssuedNanos;
+
+    /**
+     * get when the first attempt was issued, once its member channel had a stream ready for it.
+     *
+     * @return {@link System#nanoTime()} of the issue, 0 until then
+     */
+    long getFirstIssuedNanos() {
+      return firstIssuedNanos;
+    }
+  }
+
+  private static final class Member {
+
+    private final ManagedChannel channel;
+    private final MaintenanceGrpc.MaintenanceFutureStub maintenance;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile long memberId;
+    private volatile boolean unavailable;
+    private volatile long unavailableUntil;
+
+    private Member(ManagedChannel channel, Optional<String> token) {
+      this.channel = channel;
+      this.maintenance = ClientUtil.configureStub(MaintenanceGrpc.newFutureStub(channel), token);
+    }
+
+    private boolean isAvailable(long now) {
+      return !unavailable || now - unavailableUntil >= 0;
+    }
+  }
+
+  /**
+   * Call counting itself as outstanding on its member and watching the responses.
+   */
+  private final class RoutedCall<ReqT, RespT>
+      extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+    private final Member member;
+    // the attempts this call is the first of, null if it is not.
+    private final Attempts first;
+
+    private RoutedCall(Member member, Attempts first, ClientCall<ReqT, RespT> call) {
+      super(call);
+      this.member = member;
+      this.first = first;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      member.outstanding.incrementAndGet();
+      super.start(
+          new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+              responseListener) {
+            @Override
+            public void onReady() {
+              if (first != null && first.firstIssuedNanos == 0) {
+                first.firstIssuedNanos = System.nanoTime();
+              }
+              super.onReady();
+            }
+
+            @Override
+            public void onMessage(RespT message) {
+              onHeader(headerOf(message));
+              super.onMessage(message);
+            }
+
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+              member.outstanding.decrementAndGet();
+              if (status.getCode() == Status.Code.UNAVAILABLE) {
+                onUnavailable(member);
+              }
+              super.onClose(status, trailers);
+            }
+          }, headers);
+    }
+  }
+}
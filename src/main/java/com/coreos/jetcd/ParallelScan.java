@@ -0,0 +1,456 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.GetOption;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.ByteString;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Scans a key range with several concurrent range requests, all at one revision.
+ *
+ * <p>The range is split by bisecting its keys as unsigned numbers into several shards per worker,
+ * and each worker pages through shards taken from a shared queue. A worker finding the queue
+ * empty splits the widest shard still being scanned and takes its upper half, so a hot shard is
+ * spread over the idle workers instead of holding the scan up.
+ *
+ * <pre>
+ * {@code
+ * ParallelScan scan = ParallelScan.newBuilder(client.getKVClient())
+ *     .withPrefix(ByteString.copyFromUtf8("users/"))
+ *     .withParallelism(8)
+ *     .build();
+ * scan.forEach(page -> export(page)).get();
+ * }
+ * </pre>
+ */
+public final class ParallelScan {
+
+  private static final ByteString ZERO_BYTE = ByteString.copyFrom(new byte[]{0});
+  private static final int SHARDS_PER_WORKER = 4;
+
+  /**
+   * Create a builder to construct a parallel scan through the given KV client.
+   *
+   * @param kv kv client to send the range requests with
+   * @return builder
+   */
+  public static Builder newBuilder(KV kv) {
+    checkNotNull(kv, "kv should not be null");
+    return new Builder(kv);
+  }
+
+  public static class Builder {
+
+    private final KV kv;
+    private ByteString key;
+    private ByteString endKey;
+    private long revision = 0;
+    private int parallelism = 4;
+    private long pageSize = 1000;
+    private boolean keysOnly = false;
+    private boolean serializable = false;
+
+    private Builder(KV kv) {
+      this.kv = kv;
+    }
+
+    /**
+     * Scan the keys from <i>key</i> to <i>endKey</i> (exclusive), an end key of '\0' scans all
+     * keys >= key.
+     *
+     * @param key first key of the range
+     * @param endKey end key of the range
+     * @return builder
+     */
+    public Builder withRange(ByteString key, ByteString endKey) {
+      this.key = checkNotNull(key, "key should not be null");
+      this.endKey = checkNotNull(endKey, "endKey should not be null");
+      return this;
+    }
+
+    /**
+     * Scan all the keys with the given prefix.
+     *
+     * @param prefix the common prefix of the scanned keys
+     * @return builder
+     */
+    public Builder withPrefix(ByteString prefix) {
+      checkNotNull(prefix, "prefix should not be null");
+      return withRange(prefix, GetOption.newBuilder().withPrefix(prefix).build().getEndKey().get());
+    }
+
+    /**
+     * Scan at the given revision. By default the revision is fixed by a first request when the
+     * scan starts.
+     *
+     * @param revision revision to scan at
+     * @return builder
+     */
+    public Builder withRevision(long revision) {
+      this.revision = revision;
+      return this;
+    }
+
+    /**
+     * Set the number of concurrent range requests. By default is 4.
+     *
+     * @param parallelism number of workers
+     * @return builder
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public Builder withParallelism(int parallelism) {
+      checkArgument(parallelism > 0, "parallelism should be positive: parallelism=%s",
+          parallelism);
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Limit the number of keys per range request. By default is 1000.
+     *
+     * @param pageSize the maximum number of keys of a page
+     * @return builder
+     * @throws IllegalArgumentException if pageSize is not positive
+     */
+    public Builder withPageSize(long pageSize) {
+      checkArgument(pageSize > 0, "pageSize should be positive: pageSize=%s", pageSize);
+      this.pageSize = pageSize;
+      return this;
+    }
+
+    /**
+     * Set the scan to only return keys.
+     *
+     * @param keysOnly flag to only return keys
+     * @return builder
+     */
+    public Builder withKeysOnly(boolean keysOnly) {
+      this.keysOnly = keysOnly;
+      return this;
+    }
+
+    /**
+     * Set the range requests to be serializable.
+     *
+     * @param serializable whether the range requests are serializable
+     * @return builder
+     */
+    public Builder withSerializable(boolean serializable) {
+      this.serializable = serializable;
+      return this;
+    }
+
+    public ParallelScan build() {
+      checkArgument(key != null, "please configure the range to scan");
+      return new ParallelScan(this);
+    }
+  }
+
+  private final KV kv;
+  private final ByteString key;
+  private final ByteString endKey;
+  private final long revision;
+  private final int parallelism;
+  private final long pageSize;
+  private final boolean keysOnly;
+  private final boolean serializable;
+
+  private ParallelScan(Builder builder) {
+    this.kv = builder.kv;
+    this.key = builder.key;
+    this.endKey = builder.endKey;
+    this.revision = builder.revision;
+    this.parallelism = builder.parallelism;
+    this.pageSize = builder.pageSize;
+    this.keysOnly = builder.keysOnly;
+    this.serializable = builder.serializable;
+  }
+
+  /**
+   * Scan the range, handing each page over as it arrives. Pages come in no particular order and
+   * the consumer may be called from several threads at once.
+   *
+   * @param consumer consumer of the pages
+   * @return future completing with the revision the range was scanned at
+   */
+  public ListenableFuture<Long> forEach(Consumer<List<KeyValue>> consumer) {
+    checkNotNull(consumer, "consumer should not be null");
+    if (revision > 0) {
+      return new Run(revision, consumer).start();
+    }
+
+    GetOption first = GetOption.newBuilder()
+        .withRange(endKey)
+        .withLimit(1)
+        .withKeysOnly(true)
+        .withSerializable(serializable)
+        .build();
+    return Futures.transformAsync(kv.get(key, first), (RangeResponse response) ->
+            new Run(response.getHeader().getRevision(), consumer).start(),
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Scan the range into one list in key order.
+   *
+   * @return future completing with all key values of the range
+   */
+  public ListenableFuture<List<KeyValue>> collect() {
+    ConcurrentSkipListMap<ByteString, List<KeyValue>> pages =
+        new ConcurrentSkipListMap<>(KEY_COMPARATOR);
+    Function<Long, List<KeyValue>> concat = scanned -> {
+      List<KeyValue> keyValues = new ArrayList<>();
+      pages.values().forEach(keyValues::addAll);
+      return keyValues;
+    };
+    return Futures.transform(forEach(page -> {
+      if (!page.isEmpty()) {
+        pages.put(page.get(0).getKey(), page);
+      }
+    }), concat, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * one scan of the range, its shards and workers.
+   */
+  private final class Run {
+
+    private final long revision;
+    private final Consumer<List<KeyValue>> consumer;
+    private final SettableFuture<Long> result = SettableFuture.create();
+    private final Deque<Shard> queue = new ArrayDeque<>();
+    private final Set<Shard> active = new HashSet<>();
+    private int workers;
+
+    private Run(long revision, Consumer<List<KeyValue>> consumer) {
+      this.revision = revision;
+      this.consumer = consumer;
+    }
+
+    private ListenableFuture<Long> start() {
+      List<Shard> shards = new ArrayList<>();
+      shards.add(new Shard(key, endKey));
+      while (shards.size() < parallelism * SHARDS_PER_WORKER) {
+        List<Shard> halves = new ArrayList<>();
+        for (Shard shard : shards) {
+          halves.add(shard);
+          Shard upper = shard.split();
+          if (upper != null) {
+            halves.add(upper);
+          }
+        }
+        if (halves.size() == shards.size()) {
+          break;
+        }
+        shards = halves;
+      }
+
+      synchronized (this) {
+        queue.addAll(shards);
+        workers = parallelism;
+      }
+      for (int i = 0; i < parallelism; i++) {
+        nextShard();
+      }
+      return result;
+    }
+
+    private void nextShard() {
+      Shard shard;
+      synchronized (this) {
+        shard = queue.poll();
+        if (shard == null && !result.isDone()) {
+          shard = steal();
+        }
+        if (shard == null) {
+          if (--workers == 0) {
+            result.set(revision);
+          }
+          return;
+        }
+        active.add(shard);
+      }
+      fetch(shard);
+    }
+
+    /**
+     * split the widest shard known to hold more than a page, taking its upper half. A shard is
+     * split at most once per page it returns, so empty key space isn't split over and over.
+     */
+    private Shard steal() {
+      Shard widest = null;
+      BigInteger widestSize = BigInteger.ZERO;
+      int length = 0;
+      for (Shard shard : active) {
+        length = Math.max(length, Math.max(shard.next.size(), shard.end.size()) + 1);
+      }
+      for (Shard shard : active) {
+        BigInteger size = toInteger(shard.end, length).subtract(toInteger(shard.next, length));
+        if (shard.splittable && size.compareTo(widestSize) > 0) {
+          widest = shard;
+          widestSize = size;
+        }
+      }
+      return widest == null ? null : widest.split();
+    }
+
+    private void fetch(Shard shard) {
+      ByteString from;
+      GetOption option;
+      synchronized (this) {
+        from = shard.next;
+        option = GetOption.newBuilder()
+            .withRange(shard.end)
+            .withRevision(revision)
+            .withLimit(pageSize)
+            .withKeysOnly(keysOnly)
+            .withSerializable(serializable)
+            .build();
+      }
+
+      Futures.addCallback(kv.get(from, option), new FutureCallback<RangeResponse>() {
+        @Override
+        public void onSuccess(RangeResponse response) {
+          List<KeyValue> page = new ArrayList<>(response.getKvsCount());
+          boolean done;
+          synchronized (Run.this) {
+            // the shard may have been split while the page was on its way.
+            for (KeyValue keyValue : response.getKvsList()) {
+              if (shard.contains(keyValue.getKey())) {
+                page.add(keyValue);
+              }
+            }
+            done = !response.getMore() || page.isEmpty() || page.size() < response.getKvsCount();
+            if (done) {
+              active.remove(shard);
+            } else {
+              shard.next = page.get(page.size() - 1).getKey().concat(ZERO_BYTE);
+              shard.splittable = true;
+            }
+          }
+
+          try {
+            if (!page.isEmpty()) {
+              consumer.accept(page);
+            }
+          } catch (RuntimeException e) {
+            result.setException(e);
+            return;
+          }
+
+          if (result.isDone()) {
+            return;
+          }
+          if (done) {
+            nextShard();
+          } else {
+            fetch(shard);
+          }
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          result.setException(throwable);
+        }
+      }, MoreExecutors.directExecutor());
+    }
+  }
+
+  /**
+   * the part of the range from <i>next</i> to <i>end</i> left to scan.
+   */
+  private static final class Shard {
+
+    private ByteString next;
+    private ByteString end;
+    private boolean splittable = false;
+
+    private Shard(ByteString next, ByteString end) {
+      this.next = next;
+      this.end = end;
+    }
+
+    private boolean contains(ByteString key) {
+      return isOpenEnd(end) || KEY_COMPARATOR.compare(key, end) < 0;
+    }
+
+    /**
+     * cut the shard in two halves, keeping the lower one.
+     *
+     * @return the upper half, null if there is no key in between to split at
+     */
+    private Shard split() {
+      int length = Math.max(next.size(), end.size()) + 1;
+      BigInteger low = toInteger(next, length);
+      BigInteger mid = low.add(toInteger(end, length)).shiftRight(1);
+      if (mid.compareTo(low) <= 0) {
+        return null;
+      }
+
+      ByteString middle = fromInteger(mid, length);
+      Shard upper = new Shard(middle, end);
+      this.end = middle;
+      this.splittable = false;
+      return upper;
+    }
+  }
+
+  private static final Comparator<ByteString> KEY_COMPARATOR = (left, right) -> {
+    for (int i = 0; i < Math.min(left.size(), right.size()); i++) {
+      int diff = (left.byteAt(i) & 0xff) - (right.byteAt(i) & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return left.size() - right.size();
+  };
+
+  private static boolean isOpenEnd(ByteString end) {
+    return end.size() == 1 && end.byteAt(0) == 0;
+  }
+
+  /**
+   * read a key as an unsigned number of <i>length</i> bytes, padding it with zeros. The open end
+   * '\0' reads as the largest such number.
+   */
+  private static BigInteger toInteger(ByteString key, int length) {
+    if (isOpenEnd(key)) {
+      return BigInteger.ONE.shiftLeft(length * 8).subtract(BigInteger.ONE);
+    }
+    byte[] bytes = new byte[length];
+    key.copyTo(bytes, 0);
+    return new BigInteger(1, bytes);
+  }
+
+  private static ByteString fromInteger(BigInteger value, int length) {
+    byte[] raw = value.toByteArray();
+    byte[] bytes = new byte[length];
+    int copied = Math.min(raw.length, length);
+    System.arraycopy(raw, raw.length - copied, bytes, length - copied, copied);
+
+    int size = length;
+    while (size > 1 && bytes[size - 1] == 0) {
+      size--;
+    }
+    return ByteString.copyFrom(bytes, 0, size);
+  }
+}
@@ -0,0 +1,192 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.api.KVGrpc;
+import com.coreos.jetcd.api.PutRequest;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RequestOp;
+import com.coreos.jetcd.api.TxnRequest;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.options.PutBatchOption;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent puts into txn batches.
+ *
+ * <p>A batch is sent once it reaches the size or byte cap of the {@link PutBatchOption}, or when
+ * the window since its first put elapses. It goes out as one txn with only success ops and every
+ * caller's future is completed from its slot in the txn responses.
+ *
+ * <p>etcd rejects a txn writing the same key twice, so puts sharing a key within a batch are sent
+ * as single puts instead, one after another in submission order. If the server rejects the whole
+ * txn (e.g. a lease of one put doesn't exist) nothing was applied, so the puts are retried one by
+ * one and each caller gets its own outcome.
+ */
+class PutBatcher {
+
+  /**
+   * timer for batch windows, shared by all batchers as it only hands batches over to gRPC.
+   */
+  private static final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("jetcd-put-batcher-%d")
+          .setDaemon(true)
+          .build());
+
+  private final KVGrpc.KVFutureStub stub;
+  private final PutBatchOption option;
+
+  private List<PendingPut> batch = new ArrayList<>();
+  private long batchBytes = 0;
+  private ScheduledFuture<?> flushTask;
+
+  PutBatcher(KVGrpc.KVFutureStub stub, PutBatchOption option) {
+    this.stub = stub;
+    this.option = option;
+  }
+
+  ListenableFuture<PutResponse> submit(PutRequest request) {
+    PendingPut put = new PendingPut(request);
+    List<PendingPut> ready = null;
+    synchronized (this) {
+      batch.add(put);
+      batchBytes += request.getSerializedSize();
+      if (batch.size() >= option.getMaxBatchSize() || batchBytes >= option.getMaxBatchBytes()) {
+        ready = takeBatch();
+      } else if (flushTask == null) {
+        flushTask = scheduler.schedule(this::flush, option.getWindowNanos(),
+            TimeUnit.NANOSECONDS);
+      }
+    }
+    if (ready != null) {
+      send(ready);
+    }
+    return put.future;
+  }
+
+  /**
+   * send the pending batch right away.
+   */
+  void flush() {
+    List<PendingPut> ready;
+    synchronized (this) {
+      ready = batch.isEmpty() ? null : takeBatch();
+    }
+    if (ready != null) {
+      send(ready);
+    }
+  }
+
+  private List<PendingPut> takeBatch() {
+    List<PendingPut> ready = batch;
+    batch = new ArrayList<>();
+    batchBytes = 0;
+    if (flushTask != null) {
+      flushTask.cancel(false);
+      flushTask = null;
+    }
+    return ready;
+  }
+
+  private void send(List<PendingPut> puts) {
+    Map<ByteString, List<PendingPut>> byKey = new LinkedHashMap<>();
+    for (PendingPut put : puts) {
+      byKey.computeIfAbsent(put.request.getKey(), k -> new ArrayList<>()).add(put);
+    }
+
+    List<PendingPut> batched = new ArrayList<>(byKey.size());
+    for (List<PendingPut> sameKey : byKey.values()) {
+      if (sameKey.size() == 1) {
+        batched.add(sameKey.get(0));
+      } else {
+        sendInOrder(sameKey.iterator());
+      }
+    }
+
+    if (batched.size() == 1) {
+      sendSingle(batched.get(0));
+    } else if (batched.size() > 1) {
+      sendTxn(batched);
+    }
+  }
+
+  private void sendTxn(List<PendingPut> puts) {
+    TxnRequest.Builder builder = TxnRequest.newBuilder();
+    for (PendingPut put : puts) {
+      builder.addSuccess(RequestOp.newBuilder().setRequestPut(put.request));
+    }
+
+    Futures.addCallback(stub.txn(builder.build()), new FutureCallback<TxnResponse>() {
+      @Override
+      public void onSuccess(TxnResponse response) {
+        for (int i = 0; i < puts.size(); i++) {
+          // sub responses of a txn don't carry their own header.
+          puts.get(i).future.set(response.getResponses(i).getResponsePut().toBuilder()
+              .setHeader(response.getHeader())
+              .build());
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable throwable) {
+        if (isRejected(throwable)) {
+          puts.forEach(PutBatcher.this::sendSingle);
+        } else {
+          puts.forEach(put -> put.future.setException(throwable));
+        }
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  private void sendSingle(PendingPut put) {
+    put.future.setFuture(stub.put(put.request));
+  }
+
+  private void sendInOrder(Iterator<PendingPut> puts) {
+    if (puts.hasNext()) {
+      PendingPut put = puts.next();
+      sendSingle(put);
+      put.future.addListener(() -> sendInOrder(puts), MoreExecutors.directExecutor());
+    }
+  }
+
+  /**
+   * whether the server refused the txn as a whole, in which case none of its ops were applied.
+   */
+  private static boolean isRejected(Throwable throwable) {
+    switch (Status.fromThrowable(throwable).getCode()) {
+      case INVALID_ARGUMENT:
+      case NOT_FOUND:
+      case FAILED_PRECONDITION:
+      case OUT_OF_RANGE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static final class PendingPut {
+
+    private final PutRequest request;
+    private final SettableFuture<PutResponse> future = SettableFuture.create();
+
+    PendingPut(PutRequest request) {
+      this.request = request;
+    }
+  }
+}
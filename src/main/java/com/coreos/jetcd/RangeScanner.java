@@ -0,0 +1,140 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.GetOption;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.protobuf.ByteString;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Pages through a range with limited range requests, continuing each page from its last key
+ * followed by '\0' and pinning all pages to one revision.
+ */
+class RangeScanner implements KV.Scanner {
+
+  /**
+   * the page size of a scan whose option has no limit.
+   */
+  static final long DEFAULT_PAGE_SIZE = 1000;
+
+  private static final ByteString ZERO_BYTE = ByteString.copyFrom(new byte[]{0});
+
+  private final Function<RangeRequest, ListenableFuture<RangeResponse>> range;
+  private final RangeRequest.Builder request;
+  private ListenableFuture<RangeResponse> next;
+
+  /**
+   * start the scan, fetching the first page right away.
+   *
+   * @param range sends a range request
+   * @param request request for the first page, its limit is the page size
+   */
+  RangeScanner(Function<RangeRequest, ListenableFuture<RangeResponse>> range,
+      RangeRequest request) {
+    this.range = range;
+    this.request = request.toBuilder();
+    this.next = range.apply(request);
+  }
+
+  /**
+   * scan a range through the gets of a kv client, for the clients without a scan of their own.
+   *
+   * @param kv the kv client getting the pages
+   * @param key the first key of the range
+   * @param option the get option of the scan, its limit is the page size
+   * @return scanner over the pages of the range
+   */
+  static KV.Scanner scan(KV kv, ByteString key, GetOption option) {
+    checkOption(key, option);
+    RangeRequest request = RangeRequest.newBuilder()
+        .setKey(key)
+        .setLimit(option.getLimit() > 0 ? option.getLimit() : DEFAULT_PAGE_SIZE)
+        .setRevision(option.getRevision())
+        .build();
+    return new RangeScanner(page -> kv.get(page.getKey(), pageOption(option, page)), request);
+  }
+
+  /**
+   * check the key and option of a scan.
+   *
+   * @throws IllegalArgumentException if the option sorts the range or only counts it
+   */
+  static void checkOption(ByteString key, GetOption option) {
+    checkNotNull(key, "key should not be null");
+    checkNotNull(option, "option should not be null");
+    checkArgument(!option.isCountOnly(), "scan can't be count only");
+    checkArgument(option.getSortOrder() == RangeRequest.SortOrder.NONE
+            || (option.getSortOrder() == RangeRequest.SortOrder.ASCEND
+            && option.getSortField() == RangeRequest.SortTarget.KEY),
+        "scan can only sort ascending by key");
+  }
+
+  /**
+   * get the option of a page, the option of the scan with the limit and revision of the page.
+   */
+  private static GetOption pageOption(GetOption option, RangeRequest page) {
+    GetOption.Builder builder = GetOption.newBuilder()
+        .withLimit(page.getLimit())
+        .withRevision(page.getRevision())
+        .withSortOrder(option.getSortOrder())
+        .withSortField(option.getSortField())
+        .withSerializable(option.isSerializable())
+        .withKeysOnly(option.isKeysOnly());
+    option.getEndKey().ifPresent(builder::withRange);
+    option.getSingleFlight().ifPresent(builder::withSingleFlight);
+    option.getHedge().ifPresent(builder::withHedge);
+    return builder.build();
+  }
+
+  @Override
+  public long getRevision() {
+    return request.getRevision();
+  }
+
+  @Override
+  public synchronized boolean hasNext() {
+    return next != null;
+  }
+
+  @Override
+  public synchronized RangeResponse next() {
+    if (next == null) {
+      throw new NoSuchElementException();
+    }
+
+    RangeResponse page;
+    try {
+      page = Uninterruptibles.getUninterruptibly(next);
+    } catch (ExecutionException e) {
+      next = null;
+      throw Throwables.propagate(e.getCause());
+    }
+
+    if (request.getRevision() <= 0) {
+      request.setRevision(page.getHeader().getRevision());
+    }
+    if (page.getMore() && page.getKvsCount() > 0) {
+      ByteString lastKey = page.getKvs(page.getKvsCount() - 1).getKey();
+      next = range.apply(request.setKey(lastKey.concat(ZERO_BYTE)).build());
+    } else {
+      next = null;
+    }
+    return page;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (next != null) {
+      next.cancel(true);
+      next = null;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.coreos.jetcd;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent calls with equal requests into one call whose result they all share.
+ *
+ * <p>A request joins the call in flight for an equal request, if any; once that call completes the
+ * next request starts a new one. Each caller gets its own view of the shared result, so cancelling
+ * it doesn't cancel the call for the others.
+ */
+class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, ListenableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final SingleFlightStats stats;
+
+  SingleFlight(SingleFlightStats stats) {
+    this.stats = stats;
+  }
+
+  ListenableFuture<V> execute(K request, Function<K, ListenableFuture<V>> call) {
+    SettableFuture<V> future = SettableFuture.create();
+    ListenableFuture<V> shared = inFlight.putIfAbsent(request, future);
+    stats.record(shared != null);
+    if (shared != null) {
+      return Futures.nonCancellationPropagating(shared);
+    }
+
+    future.addListener(() -> inFlight.remove(request, future), MoreExecutors.directExecutor());
+    try {
+      future.setFuture(call.apply(request));
+    } catch (RuntimeException e) {
+      future.setException(e);
+    }
+    return Futures.nonCancellationPropagating(future);
+  }
+}
@@ -0,0 +1,56 @@
+package com.coreos.jetcd;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the single-flight gets of a client, see
+ * {@link ClientBuilder#setGetSingleFlight(boolean)}.
+ */
+public final class SingleFlightStats {
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder collapsed = new LongAdder();
+
+  SingleFlightStats() {
+  }
+
+  void record(boolean joined) {
+    calls.increment();
+    if (joined) {
+      collapsed.increment();
+    }
+  }
+
+  /**
+   * Get the number of gets issued with single-flight enabled.
+   *
+   * @return number of single-flight gets
+   */
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  /**
+   * Get the number of gets that shared the result of an identical get in flight.
+   *
+   * @return number of gets that didn't send a request of their own
+   */
+  public long getCollapsed() {
+    return collapsed.sum();
+  }
+
+  /**
+   * Get the share of single-flight gets that didn't send a request of their own.
+   *
+   * @return collapsed gets over single-flight gets, 0 if there was none
+   */
+  public double getCollapseRatio() {
+    long total = getCalls();
+    return total == 0 ? 0 : (double) getCollapsed() / total;
+  }
+
+  @Override
+  public String toString() {
+    return "SingleFlightStats{calls=" + getCalls() + ", collapsed=" + getCollapsed() + "}";
+  }
+}
@@ -5,10 +5,15 @@ import com.coreos.jetcd.api.ResponseHeader;
 import com.coreos.jetcd.data.ByteSequence;
 import com.coreos.jetcd.data.Header;
 import com.coreos.jetcd.data.KeyValue;
+import com.coreos.jetcd.watch.WatchCreateResult;
 import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchSpec;
 import com.google.protobuf.ByteString;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * This util is to convert api class to client class.
@@ -19,59 +24,72 @@ class Util {
   }
 
   /**
-   * convert ByteSequence to ByteString.
+   * convert ByteSequence to ByteString, both are immutable so the bytes are shared.
    */
   protected static ByteString byteStringFromByteSequence(ByteSequence byteSequence) {
-    return ByteString.copyFrom(byteSequence.getBytes());
+    return byteSequence.getByteString();
   }
 
   /**
-   * convert ByteString to ByteSequence.
+   * convert ByteString to ByteSequence, both are immutable so the bytes are shared.
    */
   protected static ByteSequence byteSequenceFromByteString(ByteString byteString) {
-    return ByteSequence.fromBytes(byteString.toByteArray());
+    return ByteSequence.fromByteString(byteString);
   }
 
   /**
-   * convert API KeyValue to etcd client KeyValue.
+   * convert API KeyValue to etcd client KeyValue, a view decoding fields as they are read.
    */
   protected static KeyValue apiToClientKV(com.coreos.jetcd.api.KeyValue keyValue) {
-    return new KeyValue(
-        byteSequenceFromByteString(keyValue.getKey()),
-        byteSequenceFromByteString(keyValue.getValue()),
-        keyValue.getCreateRevision(),
-        keyValue.getModRevision(),
-        keyValue.getVersion(),
-        keyValue.getLease());
+    return new KeyValue(keyValue);
   }
 
   /**
-   * convert API watch event to etcd client event.
+   * convert etcd client KeyValue to API KeyValue.
+   */
+  protected static com.coreos.jetcd.api.KeyValue clientToApiKV(KeyValue keyValue) {
+    return com.coreos.jetcd.api.KeyValue.newBuilder()
+        .setKey(byteStringFromByteSequence(keyValue.getKey()))
+        .setValue(byteStringFromByteSequence(keyValue.getValue()))
+        .setCreateRevision(keyValue.getCreateRevision())
+        .setModRevision(keyValue.getModRevision())
+        .setVersion(keyValue.getVersion())
+        .setLease(keyValue.getLease())
+        .build();
+  }
+
+  /**
+   * convert API watch event to etcd client event, a view creating key values as they are read.
    */
   protected static WatchEvent apiToClientEvent(Event event) {
-    WatchEvent.EventType eventType;
-    switch (event.getType()) {
-      case DELETE:
-        eventType = WatchEvent.EventType.DELETE;
-        break;
-      case PUT:
-        eventType = WatchEvent.EventType.PUT;
-        break;
-      default:
-        eventType = WatchEvent.EventType.UNRECOGNIZED;
-    }
-    return new WatchEvent(apiToClientKV(event.getKv()), apiToClientKV(event.getPrevKv()),
-        eventType);
+    return new WatchEvent(event);
   }
 
   protected static List<WatchEvent> apiToClientEvents(List<Event> events) {
-    List<WatchEvent> watchEvents = new ArrayList<>();
+    List<WatchEvent> watchEvents = new ArrayList<>(events.size());
     for (Event event : events) {
       watchEvents.add(apiToClientEvent(event));
     }
     return watchEvents;
   }
 
+  /**
+   * gather the create futures of watchAll, one result per spec whether it failed or not.
+   */
+  static CompletableFuture<List<WatchCreateResult>> gatherWatchers(List<WatchSpec> specs,
+      List<CompletableFuture<Watch.Watcher>> futures) {
+    List<CompletableFuture<WatchCreateResult>> results = new ArrayList<>(specs.size());
+    for (int i = 0; i < specs.size(); i++) {
+      WatchSpec spec = specs.get(i);
+      results.add(futures.get(i).handle((watcher, throwable) -> new WatchCreateResult(spec,
+          watcher, throwable instanceof CompletionException && throwable.getCause() != null
+          ? throwable.getCause() : throwable)));
+    }
+    return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+        .thenApply(done -> results.stream().map(CompletableFuture::join)
+            .collect(Collectors.toList()));
+  }
+
   /**
    * convert API response header to self defined header.
    */
@@ -0,0 +1,284 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.PutRequest;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.RequestOp;
+import com.coreos.jetcd.api.ResponseOp;
+import com.coreos.jetcd.api.TxnRequest;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.options.CompressionOption;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses values on their way to etcd and inflates them on their way back.
+ *
+ * <p>An encoded value starts with a {@value #HEADER_SIZE} byte header: the magic bytes
+ * {@code 0x00 'j' 'z'}, the codec, then the length of the plain value as a big endian int. A
+ * value is deflated when it reaches the threshold of the {@link CompressionOption} and deflating
+ * saves more than the header. A plain value starting with the magic bytes is stored behind a
+ * header too, so it reads back unchanged. A value with a header that doesn't decode, written by
+ * something else, is returned as is, as is one whose length is more than deflate could have
+ * compressed its body from, so that a corrupt header can't allocate an arbitrary buffer.
+ *
+ * <p>Messages without encoded values are returned as they are, without copying. Txn value
+ * compares are never encoded, so they only hold against values stored uncompressed.
+ */
+class ValueCodec {
+
+  static final int HEADER_SIZE = 8;
+
+  private static final byte[] MAGIC = {0x00, 'j', 'z'};
+  private static final byte STORED = 0;
+  private static final byte DEFLATE = 1;
+  // deflate compresses at most 1032 to 1.
+  private static final long MAX_DEFLATE_RATIO = 1032;
+
+  private final CompressionOption option;
+
+  ValueCodec(CompressionOption option) {
+    this.option = option;
+  }
+
+  /**
+   * whether the request messages should also be gzipped by gRPC.
+   */
+  boolean isMessageCompression() {
+    return option.isMessageCompression();
+  }
+
+  // ***************
+  // values
+  // ***************
+
+  ByteString encode(ByteString value) {
+    if (value.size() >= option.getThreshold() && value.size() > HEADER_SIZE) {
+      ByteString deflated = deflate(value);
+      if (deflated.size() + HEADER_SIZE < value.size()) {
+        return header(DEFLATE, value.size()).concat(deflated);
+      }
+    }
+    if (hasMagic(value)) {
+      return header(STORED, value.size()).concat(value);
+    }
+    return value;
+  }
+
+  ByteString decode(ByteString value) {
+    if (!hasMagic(value) || value.size() < HEADER_SIZE) {
+      return value;
+    }
+    int length = (value.byteAt(4) & 0xff) << 24 | (value.byteAt(5) & 0xff) << 16
+        | (value.byteAt(6) & 0xff) << 8 | (value.byteAt(7) & 0xff);
+    ByteString body = value.substring(HEADER_SIZE);
+    switch (value.byteAt(3)) {
+      case STORED:
+        return body.size() == length ? body : value;
+      case DEFLATE:
+        ByteString inflated = inflate(body, length);
+        return inflated != null ? inflated : value;
+      default:
+        return value;
+    }
+  }
+
+  private static boolean hasMagic(ByteString value) {
+    return value.size() >= MAGIC.length && value.byteAt(0) == MAGIC[0]
+        && value.byteAt(1) == MAGIC[1] && value.byteAt(2) == MAGIC[2];
+  }
+
+  private static ByteString header(byte codec, int length) {
+    return UnsafeByteOperations.unsafeWrap(new byte[]{MAGIC[0], MAGIC[1], MAGIC[2], codec,
+        (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+  }
+
+  private ByteString deflate(ByteString value) {
+    // ended right away, as the native memory of an unreachable deflater is only freed by gc.
+    Deflater deflater = new Deflater(option.getLevel());
+    try {
+      deflater.setInput(value.toByteArray());
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(value.size() / 4);
+      byte[] buffer = new byte[Math.min(value.size(), 64 * 1024)];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return UnsafeByteOperations.unsafeWrap(out.toByteArray());
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * inflate a value.
+   *
+   * @return the plain value, null if the body isn't a deflated value of the given length
+   */
+  private static ByteString inflate(ByteString body, int length) {
+    if (length < 0 || length > body.size() * MAX_DEFLATE_RATIO) {
+      return null;
+    }
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(body.toByteArray());
+      byte[] plain = new byte[length];
+      int read = 0;
+      while (read < length) {
+        int n = inflater.inflate(plain, read, length - read);
+        if (n == 0 && (inflater.finished() || inflater.needsInput()
+            || inflater.needsDictionary())) {
+          return null;
+        }
+        read += n;
+      }
+      return UnsafeByteOperations.unsafeWrap(plain);
+    } catch (DataFormatException e) {
+      return null;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  // ***************
+  // requests
+  // ***************
+
+  PutRequest encode(PutRequest request) {
+    ByteString value = encode(request.getValue());
+    return value == request.getValue() ? request : request.toBuilder().setValue(value).build();
+  }
+
+  /**
+   * encode the values put by a txn. Compares are left as they are: compressed bytes depend on
+   * the threshold and deflate level of the writer and don't order like the plain ones, so a value
+   * compare only holds against a value stored uncompressed.
+   */
+  TxnRequest encode(TxnRequest request) {
+    TxnRequest.Builder builder = null;
+    for (int i = 0; i < request.getSuccessCount(); i++) {
+      RequestOp op = encode(request.getSuccess(i));
+      if (op != request.getSuccess(i)) {
+        builder = builder != null ? builder : request.toBuilder();
+        builder.setSuccess(i, op);
+      }
+    }
+    for (int i = 0; i < request.getFailureCount(); i++) {
+      RequestOp op = encode(request.getFailure(i));
+      if (op != request.getFailure(i)) {
+        builder = builder != null ? builder : request.toBuilder();
+        builder.setFailure(i, op);
+      }
+    }
+    return builder != null ? builder.build() : request;
+  }
+
+  private RequestOp encode(RequestOp op) {
+    if (op.getRequestCase() != RequestOp.RequestCase.REQUEST_PUT) {
+      return op;
+    }
+    PutRequest put = encode(op.getRequestPut());
+    return put == op.getRequestPut() ? op : op.toBuilder().setRequestPut(put).build();
+  }
+
+  // ***************
+  // responses
+  // ***************
+
+  KeyValue decode(KeyValue kv) {
+    ByteString value = decode(kv.getValue());
+    return value == kv.getValue() ? kv : kv.toBuilder().setValue(value).build();
+  }
+
+  RangeResponse decode(RangeResponse response) {
+    List<KeyValue> kvs = decode(response.getKvsList());
+    return kvs == null ? response : response.toBuilder().clearKvs().addAllKvs(kvs).build();
+  }
+
+  PutResponse decode(PutResponse response) {
+    if (!response.hasPrevKv()) {
+      return response;
+    }
+    KeyValue prevKv = decode(response.getPrevKv());
+    return prevKv == response.getPrevKv()
+        ? response : response.toBuilder().setPrevKv(prevKv).build();
+  }
+
+  DeleteRangeResponse decode(DeleteRangeResponse response) {
+    List<KeyValue> prevKvs = decode(response.getPrevKvsList());
+    return prevKvs == null
+        ? response : response.toBuilder().clearPrevKvs().addAllPrevKvs(prevKvs).build();
+  }
+
+  TxnResponse decode(TxnResponse response) {
+    TxnResponse.Builder builder = null;
+    for (int i = 0; i < response.getResponsesCount(); i++) {
+      ResponseOp op = response.getResponses(i);
+      ResponseOp decoded;
+      switch (op.getResponseCase()) {
+        case RESPONSE_RANGE:
+          RangeResponse range = decode(op.getResponseRange());
+          decoded = range == op.getResponseRange()
+              ? op : op.toBuilder().setResponseRange(range).build();
+          break;
+        case RESPONSE_PUT:
+          PutResponse put = decode(op.getResponsePut());
+          decoded = put == op.getResponsePut() ? op : op.toBuilder().setResponsePut(put).build();
+          break;
+        case RESPONSE_DELETE_RANGE:
+          DeleteRangeResponse delete = decode(op.getResponseDeleteRange());
+          decoded = delete == op.getResponseDeleteRange()
+              ? op : op.toBuilder().setResponseDeleteRange(delete).build();
+          break;
+        default:
+          decoded = op;
+      }
+      if (decoded != op) {
+        builder = builder != null ? builder : response.toBuilder();
+        builder.setResponses(i, decoded);
+      }
+    }
+    return builder != null ? builder.build() : response;
+  }
+
+  Event decode(Event event) {
+    KeyValue kv = decode(event.getKv());
+    KeyValue prevKv = event.hasPrevKv() ? decode(event.getPrevKv()) : event.getPrevKv();
+    if (kv == event.getKv() && prevKv == event.getPrevKv()) {
+      return event;
+    }
+    Event.Builder builder = event.toBuilder().setKv(kv);
+    if (event.hasPrevKv()) {
+      builder.setPrevKv(prevKv);
+    }
+    return builder.build();
+  }
+
+  /**
+   * decode the values of key values.
+   *
+   * @return the decoded key values, null if none had to be decoded
+   */
+  private List<KeyValue> decode(List<KeyValue> kvs) {
+    List<KeyValue> decoded = null;
+    for (int i = 0; i < kvs.size(); i++) {
+      KeyValue kv = decode(kvs.get(i));
+      if (decoded == null && kv != kvs.get(i)) {
+        decoded = new ArrayList<>(kvs.subList(0, i));
+      }
+      if (decoded != null) {
+        decoded.add(kv);
+      }
+    }
+    return decoded;
+  }
+}
@@ -3,10 +3,13 @@ package com.coreos.jetcd;
 import com.coreos.jetcd.data.ByteSequence;
 import com.coreos.jetcd.data.Header;
 import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchCreateResult;
 import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchSpec;
 import java.io.Closeable;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * Interface of watch client.
@@ -27,6 +30,19 @@ public interface Watch {
   CompletableFuture<Watcher> watch(ByteSequence key, WatchOption watchOption,
       WatchCallback callback);
 
+  /**
+   * Watch many keys at once, sending all the create requests without waiting for the previous
+   * ones to be answered. A watch which fails to be created doesn't fail the others.
+   *
+   * @param specs the keys, options and callbacks of the watches
+   * @return future completing once every watch is created or failed, with one result per spec
+   */
+  default CompletableFuture<List<WatchCreateResult>> watchAll(List<WatchSpec> specs) {
+    return Util.gatherWatchers(specs, specs.stream()
+        .map(spec -> watch(spec.getKey(), spec.getWatchOption(), spec.getCallback()))
+        .collect(Collectors.toList()));
+  }
+
   interface Watcher extends Closeable {
 
     /**
@@ -70,5 +86,24 @@ public interface Watch {
      * onResuming will be called when the watcher is on resuming.
      */
     void onResuming();
+
+    /**
+     * onResumed will be called once the watch of a resuming watcher has been created again. The
+     * events missed while resuming follow, as of the revision after the last one received.
+     *
+     * @param header header of the created response
+     */
+    default void onResumed(Header header) {
+    }
+
+    /**
+     * onCanceled will be called when the server cancels the watcher, which gets no more events.
+     * The compact revision of the header is set when the start revision of the watcher had been
+     * compacted.
+     *
+     * @param header header of the cancel response
+     */
+    default void onCanceled(Header header) {
+    }
   }
 }
@@ -0,0 +1,118 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Gathers the events of a watcher and keeps the newest event of each key, see
+ * {@link com.coreos.jetcd.options.WatchOption.Builder#withCoalescing(long, TimeUnit)}.
+ *
+ * <p>The first event gathered schedules a flush on the dispatch queue of the watcher, after the
+ * window or right away, and the events coming in until it runs replace the older ones of their
+ * key. The flush hands the newest events, ordered by revision, to the callback in one call. The
+ * timer of the window only queues the flush, without waiting for room in the queue, so a slow
+ * callback never holds the timer shared by the watchers. The events are kept as they came from
+ * the stream and only converted when flushed, so a hot key costs one map entry instead of a
+ * callback per event.
+ */
+class WatchCoalescer {
+
+  /**
+   * timer of the windows, shared by all watchers as it only hands the flushes over.
+   */
+  private static final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("jetcd-watch-coalesce-%d")
+          .setDaemon(true)
+          .build());
+
+  private final long windowNanos;
+  private final WatchDispatcher.SerialQueue queue;
+  private final BiConsumer<ResponseHeader, List<Event>> sink;
+  // guarded by this coalescer.
+  private LinkedHashMap<ByteString, Event> pending = new LinkedHashMap<>();
+  private ResponseHeader header;
+  private boolean scheduled = false;
+  private boolean closed = false;
+
+  /**
+   * coalesce the events of a watcher.
+   *
+   * @param windowNanos window of the events, 0 to only gather them while the flush waits
+   * @param queue dispatch queue of the watcher, running the flush in order with its other
+   *     callbacks
+   * @param sink called by the flush with the newest header and events
+   */
+  WatchCoalescer(long windowNanos, WatchDispatcher.SerialQueue queue,
+      BiConsumer<ResponseHeader, List<Event>> sink) {
+    this.windowNanos = windowNanos;
+    this.queue = queue;
+    this.sink = sink;
+  }
+
+  /**
+   * gather the events of a response, scheduling a flush if there is none.
+   *
+   * @param header header of the response
+   * @param events events of the response
+   */
+  void add(ResponseHeader header, List<Event> events) {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      for (Event event : events) {
+        // removed first so that the entries stay ordered by their newest revision.
+        pending.remove(event.getKv().getKey());
+        pending.put(event.getKv().getKey(), event);
+      }
+      this.header = header;
+      if (scheduled || pending.isEmpty()) {
+        return;
+      }
+      scheduled = true;
+    }
+    if (windowNanos == 0) {
+      queue.execute(this::flush);
+    } else {
+      // a single flush is queued at a time, see scheduled.
+      scheduler.schedule(() -> queue.submit(this::flush), windowNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * hand the events gathered so far to the sink.
+   */
+  void flush() {
+    Map<ByteString, Event> events;
+    ResponseHeader header;
+    synchronized (this) {
+      scheduled = false;
+      if (pending.isEmpty()) {
+        return;
+      }
+      events = pending;
+      header = this.header;
+      pending = new LinkedHashMap<>();
+    }
+    sink.accept(header, new ArrayList<>(events.values()));
+  }
+
+  /**
+   * drop the events gathered and ignore the next ones, once the watcher is canceled.
+   */
+  synchronized void close() {
+    closed = true;
+    pending.clear();
+  }
+}
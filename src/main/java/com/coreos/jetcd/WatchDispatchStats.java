@@ -0,0 +1,167 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the watch callbacks of a client run off the gRPC threads, see
+ * {@link ClientBuilder#setWatchDispatchOption(com.coreos.jetcd.options.WatchDispatchOption)}.
+ */
+public final class WatchDispatchStats {
+
+  private final Set<WatcherStats> watchers = ConcurrentHashMap.newKeySet();
+
+  WatchDispatchStats() {
+  }
+
+  WatcherStats register(ByteSequence key) {
+    WatcherStats stats = new WatcherStats(key);
+    watchers.add(stats);
+    return stats;
+  }
+
+  void unregister(WatcherStats stats) {
+    watchers.remove(stats);
+  }
+
+  /**
+   * Get the counters of the watchers open.
+   *
+   * @return counters, one per watcher
+   */
+  public List<WatcherStats> getWatchers() {
+    return new ArrayList<>(watchers);
+  }
+
+  /**
+   * Get the number of responses queued for all the watchers.
+   *
+   * @return number of queued responses
+   */
+  public long getQueued() {
+    return watchers.stream().mapToLong(WatcherStats::getQueued).sum();
+  }
+
+  @Override
+  public String toString() {
+    return "WatchDispatchStats{watchers=" + watchers.size() + ", queued=" + getQueued() + "}";
+  }
+
+  /**
+   * Counters of the callback of one watcher, kept over resumes of its watch.
+   */
+  public static final class WatcherStats {
+
+    private final ByteSequence key;
+    private volatile int queued = 0;
+    private final LongAccumulator maxQueued = new LongAccumulator(Math::max, 0);
+    private final LongAdder callbacks = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder callbackNanos = new LongAdder();
+    private final LongAccumulator maxCallbackNanos = new LongAccumulator(Math::max, 0);
+
+    private WatcherStats(ByteSequence key) {
+      this.key = key;
+    }
+
+    void setQueued(int queued) {
+      this.queued = queued;
+      maxQueued.accumulate(queued);
+    }
+
+    void recordCallback(long nanos, boolean failed) {
+      callbacks.increment();
+      if (failed) {
+        failures.increment();
+      }
+      callbackNanos.add(nanos);
+      maxCallbackNanos.accumulate(nanos);
+    }
+
+    /**
+     * Get the watched key.
+     *
+     * @return key of the watcher
+     */
+    public ByteSequence getKey() {
+      return key;
+    }
+
+    /**
+     * Get the number of responses waiting for the callback.
+     *
+     * @return current queue depth
+     */
+    public int getQueued() {
+      return queued;
+    }
+
+    /**
+     * Get the largest number of responses which waited for the callback at once.
+     *
+     * @return highest queue depth
+     */
+    public long getMaxQueued() {
+      return maxQueued.get();
+    }
+
+    /**
+     * Get the number of callbacks run, responses and resumes.
+     *
+     * @return number of callbacks
+     */
+    public long getCallbacks() {
+      return callbacks.sum();
+    }
+
+    /**
+     * Get the number of callbacks which threw.
+     *
+     * @return number of failed callbacks
+     */
+    public long getFailures() {
+      return failures.sum();
+    }
+
+    /**
+     * Get the time spent in the callback.
+     *
+     * @return total callback duration in nanoseconds
+     */
+    public long getCallbackNanos() {
+      return callbackNanos.sum();
+    }
+
+    /**
+     * Get the longest callback.
+     *
+     * @return highest callback duration in nanoseconds
+     */
+    public long getMaxCallbackNanos() {
+      return maxCallbackNanos.get();
+    }
+
+    /**
+     * Get the mean callback duration.
+     *
+     * @return mean callback duration in nanoseconds, 0 if there was none
+     */
+    public double getMeanCallbackNanos() {
+      long total = getCallbacks();
+      return total == 0 ? 0 : (double) getCallbackNanos() / total;
+    }
+
+    @Override
+    public String toString() {
+      return "WatcherStats{key=" + key.toStringUtf8() + ", queued=" + getQueued()
+          + ", maxQueued=" + getMaxQueued() + ", callbacks=" + getCallbacks() + ", failures="
+          + getFailures() + ", callbackNanos=" + getCallbackNanos() + ", maxCallbackNanos="
+          + getMaxCallbackNanos() + "}";
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.options.WatchDispatchOption;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the callbacks of the watchers on an executor instead of the gRPC threads.
+ *
+ * <p>Each watcher has a serial queue: its callbacks run one at a time in the order they were
+ * queued, while the callbacks of different watchers run in parallel on the executor. A queue
+ * holds up to the maximum number of queued responses, then the thread queuing the next one
+ * waits for the callback to catch up.
+ */
+class WatchDispatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WatchDispatcher.class);
+
+  /**
+   * callbacks run in a row by a queue before it lets the other queues have the thread.
+   */
+  private static final int BATCH = 64;
+
+  /**
+   * default executor, shared by all clients as its threads are only created when needed.
+   */
+  private static final Executor defaultExecutor = Executors
+      .newCachedThreadPool(new ThreadFactoryBuilder()
+          .setNameFormat("jetcd-watch-dispatch-%d")
+          .setDaemon(true)
+          .build());
+
+  /**
+   * dispatcher of the coalescing watchers of clients without one, so that the windows don't
+   * run the callbacks on their timer.
+   */
+  static final WatchDispatcher COALESCING = new WatchDispatcher(WatchDispatchOption.DEFAULT,
+      new WatchDispatchStats());
+
+  private final Executor executor;
+  private final int maxQueued;
+  private final WatchDispatchStats stats;
+
+  WatchDispatcher(WatchDispatchOption option, WatchDispatchStats stats) {
+    this.executor = option.getExecutor().orElse(defaultExecutor);
+    this.maxQueued = option.getMaxQueued();
+    this.stats = stats;
+  }
+
+  /**
+   * create the queue of a new watcher.
+   *
+   * @param key the watched key
+   * @return serial queue of the watcher
+   */
+  SerialQueue newQueue(ByteSequence key) {
+    return new SerialQueue(stats.register(key));
+  }
+
+  /**
+   * the callbacks of one watcher, run one at a time.
+   */
+  final class SerialQueue {
+
+    private final WatchDispatchStats.WatcherStats watcherStats;
+    // guarded by this queue.
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running = false;
+
+    private SerialQueue(WatchDispatchStats.WatcherStats watcherStats) {
+      this.watcherStats = watcherStats;
+    }
+
+    /**
+     * queue a callback, waiting while the queue is full.
+     *
+     * @param task the callback
+     */
+    void execute(Runnable task) {
+      boolean interrupted = false;
+      boolean schedule;
+      synchronized (this) {
+        while (tasks.size() >= maxQueued) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            // the response can't be dropped, so keep waiting and interrupt later.
+            interrupted = true;
+          }
+        }
+        schedule = add(task);
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (schedule) {
+        schedule();
+      }
+    }
+
+    /**
+     * queue a callback without waiting for room. The queue stays bounded as long as such a
+     * callback is only queued once at a time, like the flush of a coalescer.
+     *
+     * @param task the callback
+     */
+    void submit(Runnable task) {
+      boolean schedule;
+      synchronized (this) {
+        schedule = add(task);
+      }
+      if (schedule) {
+        schedule();
+      }
+    }
+
+    /**
+     * add a callback under the lock of the queue.
+     *
+     * @return whether the queue is to be drained
+     */
+    private boolean add(Runnable task) {
+      tasks.add(task);
+      watcherStats.setQueued(tasks.size());
+      if (running) {
+        return false;
+      }
+      running = true;
+      return true;
+    }
+
+    /**
+     * stop counting the watcher, the callbacks already queued still run.
+     */
+    void close() {
+      stats.unregister(watcherStats);
+    }
+
+    private void schedule() {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        LOGGER.warn("watch callbacks of " + watcherStats.getKey().toStringUtf8() + " dropped", e);
+        synchronized (this) {
+          tasks.clear();
+          watcherStats.setQueued(0);
+          running = false;
+          notifyAll();
+        }
+      }
+    }
+
+    private void drain() {
+      for (int i = 0; i < BATCH; i++) {
+        Runnable task;
+        synchronized (this) {
+          task = tasks.poll();
+          if (task == null) {
+            running = false;
+            return;
+          }
+          watcherStats.setQueued(tasks.size());
+          notifyAll();
+        }
+        boolean failed = false;
+        long start = System.nanoTime();
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          failed = true;
+          LOGGER.warn("watch callback of " + watcherStats.getKey().toStringUtf8() + " failed", e);
+        }
+        watcherStats.recordCallback(System.nanoTime() - start, failed);
+      }
+      synchronized (this) {
+        if (tasks.isEmpty()) {
+          running = false;
+          return;
+        }
+      }
+      schedule();
+    }
+  }
+}
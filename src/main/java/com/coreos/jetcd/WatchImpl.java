@@ -10,12 +10,19 @@ import com.coreos.jetcd.api.WatchGrpc;
 import com.coreos.jetcd.api.WatchRequest;
 import com.coreos.jetcd.api.WatchResponse;
 import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
 import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.options.WatchStreamOption;
 import com.coreos.jetcd.watch.WatchCreateException;
+import com.coreos.jetcd.watch.WatchCreateResult;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchSpec;
 import com.google.protobuf.ByteString;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,24 +32,59 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 /**
  * etcd watcher Implementation.
+ *
+ * <p>Watchers are spread over one or more watch streams. Watch ids are only unique within a
+ * stream, so each stream keeps its own watchers, pending creates and cancels, and resumes its
+ * watchers on its own when it fails.
+ *
+ * <p>With a dispatcher, the callbacks run on its executor through a queue per watcher, which
+ * is kept when the watcher is resumed so its callbacks stay in order. So is the coalescer of a
+ * watcher coalescing the events of each key, which has a queue even without a dispatcher. With
+ * watch sharing, the queues belong to the watchers sharing a server watch instead.
+ *
+ * <p>A resumed watcher is replaced by a new one on the stream, which its cancel goes through.
+ * A stream is only resumed while it has watchers to resume and the client is open.
  */
 public class WatchImpl implements Watch {
 
-  private volatile StreamObserver<WatchRequest> requestStream;
+  private final ManagedChannel channel;
 
-  private ConcurrentHashMap<Long, WatcherImpl> watchers = new ConcurrentHashMap<>();
+  private volatile boolean closed = false;
 
-  private final WatchGrpc.WatchStub watchStub;
+  private final List<WatchStream> streams;
 
-  private ConcurrentLinkedQueue<Pair<WatcherImpl, CompletableFuture<Watcher>>>
-      pendingCreateWatchers = new ConcurrentLinkedQueue<>();
-  private Map<Long, CompletableFuture<Boolean>> pendingCancelFutures = new ConcurrentHashMap<>();
+  private final WatchStreamOption.Assignment assignment;
+
+  private final Optional<ValueCodec> codec;
+
+  private final Optional<WatchSharing> sharing;
+
+  private final Optional<WatchDispatcher> dispatcher;
 
   public WatchImpl(ManagedChannel channel, Optional<String> token) {
-    this.watchStub = ClientUtil.configureStub(WatchGrpc.newStub(channel), token);
+    this(channel, token, Optional.empty(), Optional.empty(), false, Optional.empty());
+  }
+
+  WatchImpl(ManagedChannel channel, Optional<String> token, Optional<ValueCodec> codec,
+      Optional<WatchStreamOption> streamOption, boolean watchSharing,
+      Optional<WatchDispatcher> dispatcher) {
+    this.channel = channel;
+    WatchGrpc.WatchStub watchStub = ClientUtil.configureStub(WatchGrpc.newStub(channel), token);
+    int count = streamOption.map(WatchStreamOption::getStreams).orElse(1);
+    this.streams = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      this.streams.add(new WatchStream(watchStub.withOption(ChannelPool.STREAM, i)));
+    }
+    this.assignment = streamOption.map(WatchStreamOption::getAssignment)
+        .orElse(WatchStreamOption.Assignment.KEY_HASH);
+    this.codec = codec;
+    this.sharing = watchSharing
+        ? Optional.of(new WatchSharing(this::watchOnStream, dispatcher)) : Optional.empty();
+    this.dispatcher = watchSharing ? Optional.empty() : dispatcher;
   }
 
   /**
@@ -58,207 +100,563 @@ public class WatchImpl implements Watch {
   @Override
   public CompletableFuture<Watcher> watch(ByteSequence key, WatchOption watchOption,
       WatchCallback callback) {
-    WatchRequest request = optionToWatchCreateRequest(Util.byteStringFromByteSequence(key),
-        watchOption);
-    WatcherImpl watcher = new WatcherImpl(key, watchOption, callback);
-    CompletableFuture<Watcher> waitFuture = new CompletableFuture();
-    this.pendingCreateWatchers.add(new Pair<>(watcher, waitFuture));
-    getRequestStream().onNext(request);
-    return waitFuture;
+    if (sharing.isPresent()) {
+      return sharing.get().watch(key, watchOption, callback);
+    }
+    return watchOnStream(key, watchOption, callback);
+  }
+
+  private CompletableFuture<Watcher> watchOnStream(ByteSequence key, WatchOption watchOption,
+      WatchCallback callback) {
+    return streams.get(assign(key, null)).watch(key, watchOption, callback);
   }
 
   /**
-   * Cancel the watch task with the watcher, the onCanceled will be called after successfully
-   * canceled.
+   * Watch many keys at once. The create requests of each stream are sent back to back, the
+   * responses being matched to the watchers in order.
    *
-   * @param id the watcher to be canceled
+   * @param specs the keys, options and callbacks of the watches
+   * @return future completing once every watch is created or failed, with one result per spec
    */
-  protected CompletableFuture<Boolean> cancelWatch(long id) {
-    WatcherImpl temp = watchers.get(id);
-    CompletableFuture<Boolean> completableFuture = null;
-    if (temp != null) {
-      synchronized (temp) {
-        if (this.watchers.containsKey(temp.getWatchID())) {
-          this.watchers.remove(temp.getWatchID());
-          completableFuture = new CompletableFuture<>();
-          this.pendingCancelFutures.put(id, completableFuture);
-        }
-      }
+  @Override
+  public CompletableFuture<List<WatchCreateResult>> watchAll(List<WatchSpec> specs) {
+    if (sharing.isPresent()) {
+      return Watch.super.watchAll(specs);
+    }
+    int[] planned = new int[streams.size()];
+    List<List<Integer>> indexes = new ArrayList<>(streams.size());
+    List<List<WatcherImpl>> created = new ArrayList<>(streams.size());
+    for (int i = 0; i < streams.size(); i++) {
+      indexes.add(new ArrayList<>());
+      created.add(new ArrayList<>());
+    }
+    for (int i = 0; i < specs.size(); i++) {
+      WatchSpec spec = specs.get(i);
+      int index = assign(spec.getKey(), planned);
+      planned[index]++;
+      indexes.get(index).add(i);
+      created.get(index).add(streams.get(index)
+          .newWatcher(spec.getKey(), spec.getWatchOption(), spec.getCallback()));
     }
 
-    WatchCancelRequest cancelRequest = WatchCancelRequest.newBuilder().setWatchId(id).build();
-    WatchRequest request = WatchRequest.newBuilder().setCancelRequest(cancelRequest).build();
-    getRequestStream().onNext(request);
-    return completableFuture;
+    List<CompletableFuture<Watcher>> futures = new ArrayList<>(
+        Collections.nCopies(specs.size(), null));
+    for (int i = 0; i < streams.size(); i++) {
+      if (created.get(i).isEmpty()) {
+        continue;
+      }
+      List<CompletableFuture<Watcher>> streamFutures = streams.get(i).create(created.get(i));
+      for (int j = 0; j < streamFutures.size(); j++) {
+        futures.set(indexes.get(i).get(j), streamFutures.get(j));
+      }
+    }
+    return Util.gatherWatchers(specs, futures);
   }
 
   /**
-   * empty the old request stream, watchers and resume the old watchers empty the
-   * pendingCancelFutures as there is no need to cancel, the old request stream has been dead.
+   * stop resuming the streams, once the channel is shut down by the client.
    */
-  private synchronized void resume() {
-    this.requestStream = null;
-    WatcherImpl[] resumeWatchers = watchers.values().toArray(new WatcherImpl[watchers.size()]);
-    this.watchers.clear();
-    for (CompletableFuture<Boolean> watcherCompletableFuture : pendingCancelFutures.values()) {
-      watcherCompletableFuture.complete(Boolean.TRUE);
-    }
-    this.pendingCancelFutures.clear();
-    resumeWatchers(resumeWatchers);
+  void close() {
+    closed = true;
+  }
+
+  private boolean isClosed() {
+    return closed || channel.isShutdown();
   }
 
   /**
-   * single instance method to get request stream, empty the old requestStream, so we will get a new
-   * requestStream automatically
+   * get the number of request streams opened, resumed ones included.
    *
-   * <p>the responseStream will distribute the create, cancel, normal
-   * response to processCreate, processCanceled and processEvents
-   *
-   * <p>if error happened, the
-   * requestStream will be closed by server side, so we call resume to resume all ongoing watchers.
+   * @return number of request streams opened by all the streams
    */
-  private StreamObserver<WatchRequest> getRequestStream() {
-    if (this.requestStream == null) {
-      synchronized (this) {
-        if (this.requestStream == null) {
-          StreamObserver<WatchResponse> watchResponseStreamObserver =
-              new StreamObserver<WatchResponse>() {
-                @Override
-                public void onNext(WatchResponse watchResponse) {
-                  if (watchResponse.getCreated()) {
-                    processCreate(watchResponse);
-                  } else if (watchResponse.getCanceled()) {
-                    processCanceled(watchResponse);
-                  } else {
-                    processEvents(watchResponse);
-                  }
-                }
+  int getOpenedStreamCount() {
+    return streams.stream().mapToInt(stream -> stream.opened).sum();
+  }
 
-                @Override
-                public void onError(Throwable throwable) {
-                  resume();
-                }
+  /**
+   * get the number of watchers of each stream.
+   *
+   * @return watcher counts, one per stream
+   */
+  List<Integer> getWatcherCounts() {
+    return streams.stream().map(stream -> stream.watchers.size()).collect(Collectors.toList());
+  }
 
-                @Override
-                public void onCompleted() {
+  /**
+   * get the number of server watches shared between watchers.
+   *
+   * @return number of shared watches, 0 without watch sharing
+   */
+  int getSharedWatchCount() {
+    return sharing.map(WatchSharing::getSharedWatchCount).orElse(0);
+  }
 
-                }
-              };
-          this.requestStream = this.watchStub.watch(watchResponseStreamObserver);
-        }
+  /**
+   * pick the stream of a new watcher.
+   *
+   * @param key the watched key
+   * @param planned watchers about to be created on each stream, null if none
+   * @return index of the stream
+   */
+  private int assign(ByteSequence key, int[] planned) {
+    if (streams.size() == 1) {
+      return 0;
+    }
+    if (assignment == WatchStreamOption.Assignment.KEY_HASH) {
+      return Math.floorMod(Util.byteStringFromByteSequence(key).hashCode(), streams.size());
+    }
+    int least = 0;
+    int leastLoad = Integer.MAX_VALUE;
+    for (int i = 0; i < streams.size(); i++) {
+      int load = streams.get(i).load() + (planned != null ? planned[i] : 0);
+      if (load < leastLoad) {
+        least = i;
+        leastLoad = load;
       }
     }
-    return this.requestStream;
+    return least;
   }
 
   /**
-   * Process create response from etcd server
-   *
-   * <p>If there is no pendingWatcher, ignore.
-   *
-   * <p>If cancel flag is true or CompactRevision not equal zero means the start revision
-   * has been compacted out of the store, call onCreateFailed.
-   *
-   * <p>If watchID = -1, complete future with WatchCreateException.
-   *
-   * <p>If everything is Ok, create watcher, complete CompletableFuture task and put the new watcher
-   * to the watchers map.
+   * one bidirectional watch stream and the watchers on it.
    */
-  private void processCreate(WatchResponse response) {
-    Pair<WatcherImpl, CompletableFuture<Watcher>> requestPair = pendingCreateWatchers.poll();
-    WatcherImpl watcher = requestPair.getKey();
-    if (response.getCreated()) {
-      if (response.getCanceled() || response.getCompactRevision() != 0) {
-        watcher.setCanceled(true);
-        requestPair.getValue().completeExceptionally(
-            new WatchCreateException("the start revision has been compacted",
-                apiToClientHeader(response.getHeader(), response.getCompactRevision())));
-        ;
+  private final class WatchStream {
+
+    private volatile StreamObserver<WatchRequest> requestStream;
+
+    // written under the lock of this stream.
+    private volatile int opened = 0;
+
+    private final ConcurrentHashMap<Long, WatcherImpl> watchers = new ConcurrentHashMap<>();
+
+    private final WatchGrpc.WatchStub watchStub;
+
+    private final ConcurrentLinkedQueue<Pair<WatcherImpl, CompletableFuture<Watcher>>>
+        pendingCreateWatchers = new ConcurrentLinkedQueue<>();
+    private final Map<Long, CompletableFuture<Boolean>> pendingCancelFutures =
+        new ConcurrentHashMap<>();
+
+    private WatchStream(WatchGrpc.WatchStub watchStub) {
+      this.watchStub = watchStub;
+    }
+
+    private int load() {
+      return watchers.size() + pendingCreateWatchers.size();
+    }
+
+    private CompletableFuture<Watcher> watch(ByteSequence key, WatchOption watchOption,
+        WatchCallback callback) {
+      return create(Collections.singletonList(newWatcher(key, watchOption, callback))).get(0);
+    }
+
+    private WatcherImpl newWatcher(ByteSequence key, WatchOption watchOption,
+        WatchCallback callback) {
+      boolean coalescing = watchOption.isCoalescing() && callback != null;
+      // the windows of a coalescer hand their flush to a queue, never run it on their timer.
+      Optional<WatchDispatcher> queueDispatcher = coalescing && !dispatcher.isPresent()
+          ? Optional.of(WatchDispatcher.COALESCING) : dispatcher;
+      WatchDispatcher.SerialQueue queue = queueDispatcher.map(d -> d.newQueue(key)).orElse(null);
+      WatchCoalescer coalescer = coalescing
+          ? new WatchCoalescer(watchOption.getCoalescingNanos(), queue,
+              (header, events) -> callback.onWatch(apiToClientHeader(header, 0),
+                  toClientEvents(events)))
+          : null;
+      return new WatcherImpl(this, key, watchOption, callback, queue, coalescer);
+    }
+
+    /**
+     * send the create requests of the watchers back to back. The watchers are queued and their
+     * requests sent under the lock of the stream, so that the create responses, which come in
+     * the order of the requests, find their watcher at the head of the queue even when watchers
+     * are created from several threads.
+     */
+    private List<CompletableFuture<Watcher>> create(List<WatcherImpl> created) {
+      List<Pair<WatcherImpl, CompletableFuture<Watcher>>> creates =
+          new ArrayList<>(created.size());
+      List<CompletableFuture<Watcher>> waitFutures = new ArrayList<>(created.size());
+      for (WatcherImpl watcher : created) {
+        CompletableFuture<Watcher> waitFuture = new CompletableFuture<>();
+        creates.add(new Pair<>(watcher, waitFuture));
+        waitFutures.add(waitFuture);
       }
+      send(creates);
+      return waitFutures;
+    }
 
-      if (response.getWatchId() == -1 && watcher.callback != null) {
-        requestPair.getValue().completeExceptionally(
-            new WatchCreateException("create watcher failed",
-                apiToClientHeader(response.getHeader(), response.getCompactRevision())));
-      } else {
-        this.watchers.put(watcher.getWatchID(), watcher);
-        watcher.setWatchID(response.getWatchId());
-        requestPair.getValue().complete(watcher);
+    /**
+     * send the create requests of the watchers, their futures completing with the responses.
+     */
+    private void send(List<Pair<WatcherImpl, CompletableFuture<Watcher>>> creates) {
+      if (creates.isEmpty()) {
+        return;
+      }
+      List<WatchRequest> requests = new ArrayList<>(creates.size());
+      for (Pair<WatcherImpl, CompletableFuture<Watcher>> create : creates) {
+        requests.add(optionToWatchCreateRequest(
+            Util.byteStringFromByteSequence(create.getKey().getKey()),
+            create.getKey().getWatchOption()));
+      }
+      synchronized (this) {
+        StreamObserver<WatchRequest> requestStream = getRequestStream();
+        for (int i = 0; i < creates.size(); i++) {
+          this.pendingCreateWatchers.add(creates.get(i));
+          requestStream.onNext(requests.get(i));
+        }
       }
+    }
 
-      //note the header revision so that put following a current watcher disconnect will arrive
-      //on watcher channel after reconnect
+    /**
+     * Cancel the watch task with the watcher, the future completes once the server has canceled
+     * it. A resumed watcher is canceled through the watcher resuming it, and a watcher not
+     * created yet once its watch id comes, so that a stale watch id never cancels another watch.
+     *
+     * @param watcher the watcher to be canceled
+     */
+    private CompletableFuture<Boolean> cancelWatch(WatcherImpl watcher) {
+      WatcherImpl resumedBy;
+      CompletableFuture<Boolean> completableFuture = null;
       synchronized (watcher) {
-        watcher.setLastRevision(response.getHeader().getRevision());
-        if (watcher.isResuming()) {
-          watcher.setResuming(false);
+        resumedBy = watcher.resumedBy;
+        if (resumedBy == null) {
+          if (watcher.cancelFuture != null) {
+            return watcher.cancelFuture;
+          }
+          if (watcher.isCanceled()) {
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+          }
+          completableFuture = new CompletableFuture<>();
+          watcher.cancelFuture = completableFuture;
+          watcher.closeDispatch();
+          if (watcher.getWatchID() == -1) {
+            // sent by processCreate.
+            return completableFuture;
+          }
+          if (!this.watchers.remove(watcher.getWatchID(), watcher)) {
+            // dropped by a resume, which won't resume it.
+            completableFuture.complete(Boolean.TRUE);
+            return completableFuture;
+          }
+          this.pendingCancelFutures.put(watcher.getWatchID(), completableFuture);
         }
       }
+      if (resumedBy != null) {
+        return cancelWatch(resumedBy);
+      }
+      sendCancel(watcher.getWatchID());
+      return completableFuture;
     }
-  }
 
-  /**
-   * Process subscribe watch events
-   *
-   * <p>If the watch id is not in the watchers map, scan it in the pendingCancelFutures map
-   * if exist, ignore, otherwise cancel it.
-   *
-   * <p>If the watcher exist, call the onWatch and set the last revision for resume.
-   */
-  private void processEvents(WatchResponse watchResponse) {
-    WatcherImpl watcher = watchers.get(watchResponse.getWatchId());
-    if (watcher != null) {
-      synchronized (watcher) {
-        if (watchResponse.getEventsCount() != 0) {
-          List<Event> events = watchResponse.getEventsList();
-          // if on resume process, filter processed events
+    private void sendCancel(long id) {
+      WatchCancelRequest cancelRequest = WatchCancelRequest.newBuilder().setWatchId(id).build();
+      WatchRequest request = WatchRequest.newBuilder().setCancelRequest(cancelRequest).build();
+      getRequestStream().onNext(request);
+    }
+
+    /**
+     * empty the old request stream, watchers and resume the old watchers empty the
+     * pendingCancelFutures as there is no need to cancel, the old request stream has been dead.
+     * The creates still waiting for their response on the old stream are sent again with the
+     * resumed watchers, keeping their futures.
+     *
+     * <p>The onResuming callbacks are dispatched out of the lock of the stream, since a full
+     * dispatch queue blocks and a callback may create a watcher on this stream.
+     *
+     * <p>Once the client is closed, nothing is resumed: the watchers are closed and the pending
+     * creates fail, so that a stream failing on the shut down channel doesn't open another one.
+     */
+    private void resume() {
+      List<WatcherImpl> resuming = new ArrayList<>();
+      List<Pair<WatcherImpl, CompletableFuture<Watcher>>> creates;
+      boolean clientClosed = isClosed();
+      synchronized (this) {
+        this.requestStream = null;
+        WatcherImpl[] resumeWatchers =
+            watchers.values().toArray(new WatcherImpl[watchers.size()]);
+        this.watchers.clear();
+        for (CompletableFuture<Boolean> watcherCompletableFuture : pendingCancelFutures.values()) {
+          watcherCompletableFuture.complete(Boolean.TRUE);
+        }
+        this.pendingCancelFutures.clear();
+        creates = clientClosed ? new ArrayList<>() : resumeWatchers(resumeWatchers, resuming);
+        Pair<WatcherImpl, CompletableFuture<Watcher>> pendingCreate;
+        while ((pendingCreate = pendingCreateWatchers.poll()) != null) {
+          creates.add(pendingCreate);
+        }
+        if (clientClosed) {
+          for (WatcherImpl watcher : resumeWatchers) {
+            synchronized (watcher) {
+              watcher.setCanceled(true);
+            }
+            watcher.closeDispatch();
+          }
+        }
+      }
+      if (clientClosed) {
+        for (Pair<WatcherImpl, CompletableFuture<Watcher>> create : creates) {
+          create.getKey().closeDispatch();
+          create.getValue().completeExceptionally(
+              new IllegalStateException("the watch client is closed"));
+        }
+        return;
+      }
+      for (WatcherImpl watcher : resuming) {
+        watcher.dispatch(watcher.callback::onResuming);
+      }
+      send(creates);
+    }
+
+    /**
+     * single instance method to get request stream, empty the old requestStream, so we will get a
+     * new requestStream automatically
+     *
+     * <p>the responseStream will distribute the create, cancel, normal
+     * response to processCreate, processCanceled and processEvents
+     *
+     * <p>if error happened, the
+     * requestStream will be closed by server side, so we call resume to resume all ongoing
+     * watchers.
+     */
+    private StreamObserver<WatchRequest> getRequestStream() {
+      if (this.requestStream == null) {
+        synchronized (this) {
+          if (this.requestStream == null) {
+            StreamObserver<WatchResponse> watchResponseStreamObserver =
+                new StreamObserver<WatchResponse>() {
+                  @Override
+                  public void onNext(WatchResponse watchResponse) {
+                    if (watchResponse.getCreated()) {
+                      processCreate(watchResponse);
+                    } else if (watchResponse.getCanceled()) {
+                      processCanceled(watchResponse);
+                    } else {
+                      processEvents(watchResponse);
+                    }
+                  }
+
+                  @Override
+                  public void onError(Throwable throwable) {
+                    resume();
+                  }
+
+                  @Override
+                  public void onCompleted() {
+
+                  }
+                };
+            this.requestStream = this.watchStub.watch(watchResponseStreamObserver);
+            this.opened++;
+          }
+        }
+      }
+      return this.requestStream;
+    }
+
+    /**
+     * Process create response from etcd server
+     *
+     * <p>If there is no pendingWatcher, ignore.
+     *
+     * <p>If CompactRevision not equal zero means the start revision has been compacted out of
+     * the store, complete future with WatchCreateException.
+     *
+     * <p>If watchID = -1, the server refused the watch, such as for an empty range, complete
+     * future with WatchCreateException. If cancel flag is true otherwise, complete future with
+     * WatchCreateException as well.
+     *
+     * <p>A failed watcher is closed and not put to the watchers map, so it is neither counted
+     * nor resumed.
+     *
+     * <p>If everything is Ok, create watcher, complete CompletableFuture task and put the new
+     * watcher to the watchers map.
+     */
+    private void processCreate(WatchResponse response) {
+      Pair<WatcherImpl, CompletableFuture<Watcher>> requestPair = pendingCreateWatchers.poll();
+      WatcherImpl watcher = requestPair.getKey();
+      if (response.getCreated()) {
+        if (response.getCompactRevision() != 0) {
+          failCreate(requestPair, "the start revision has been compacted", response);
+          return;
+        }
+        if (response.getWatchId() == -1 && (response.getCanceled() || watcher.callback != null)) {
+          failCreate(requestPair, "create watcher failed, the range may be empty or invalid",
+              response);
+          return;
+        }
+        if (response.getCanceled()) {
+          failCreate(requestPair, "the watch has been canceled by the server", response);
+          return;
+        }
+
+        //note the header revision so that put following a current watcher disconnect will arrive
+        //on watcher channel after reconnect, before the watcher is handed over
+        synchronized (watcher) {
+          watcher.setLastRevision(response.getHeader().getRevision());
           if (watcher.isResuming()) {
-            long lastRevision = watcher.getLastRevision();
-            events.removeIf((e) -> e.getKv().getModRevision() <= lastRevision);
+            watcher.setResuming(false);
           }
-          watcher.setLastRevision(
-              watchResponse
-                  .getEvents(watchResponse.getEventsCount() - 1)
-                  .getKv().getModRevision());
-
-          if (watcher.callback != null) {
-            watcher.callback.onWatch(
-                apiToClientHeader(watchResponse.getHeader(), watchResponse.getCompactRevision()),
-                apiToClientEvents(events));
+        }
+
+        // a watcher canceled while its create was pending is canceled now that its id is known.
+        CompletableFuture<Boolean> cancelFuture;
+        synchronized (watcher) {
+          watcher.setWatchID(response.getWatchId());
+          cancelFuture = watcher.cancelFuture;
+          if (cancelFuture == null) {
+            this.watchers.put(watcher.getWatchID(), watcher);
+          } else {
+            this.pendingCancelFutures.put(watcher.getWatchID(), cancelFuture);
           }
-        } else {
-          watcher.setLastRevision(watchResponse.getHeader().getRevision());
         }
+        requestPair.getValue().complete(watcher);
+        if (cancelFuture != null) {
+          sendCancel(watcher.getWatchID());
+        } else if (watcher.getWatchOption().isResuming() && watcher.callback != null) {
+          Header header = apiToClientHeader(response.getHeader(), 0);
+          watcher.dispatch(() -> watcher.callback.onResumed(header));
+        }
+      }
+    }
+
+    private void failCreate(Pair<WatcherImpl, CompletableFuture<Watcher>> requestPair,
+        String message, WatchResponse response) {
+      WatcherImpl watcher = requestPair.getKey();
+      CompletableFuture<Boolean> cancelFuture;
+      synchronized (watcher) {
+        watcher.setCanceled(true);
+        cancelFuture = watcher.cancelFuture;
       }
-    } else {
-      // if the watcher is not canceling, cancel it.
-      CompletableFuture<Boolean> completableFuture = this.pendingCancelFutures
-          .get(watchResponse.getWatchId());
-      if (this.pendingCancelFutures.putIfAbsent(watcher.getWatchID(), completableFuture) == null) {
-        cancelWatch(watchResponse.getWatchId());
+      watcher.closeDispatch();
+      if (cancelFuture != null) {
+        cancelFuture.complete(Boolean.TRUE);
       }
+      requestPair.getValue().completeExceptionally(new WatchCreateException(message,
+          apiToClientHeader(response.getHeader(), response.getCompactRevision())));
     }
-  }
 
-  /**
-   * resume all the watchers.
-   */
-  private void resumeWatchers(WatcherImpl[] watchers) {
-    for (WatcherImpl watcher : watchers) {
+    /**
+     * Process subscribe watch events
+     *
+     * <p>If the watch id is not in the watchers map, scan it in the pendingCancelFutures map
+     * if exist, ignore, otherwise cancel it.
+     *
+     * <p>If the watcher exist, call the onWatch and set the last revision for resume. The
+     * callback is called outside of the lock of the watcher, so that it may cancel the watcher
+     * while responses are waiting for it in a full dispatch queue.
+     */
+    private void processEvents(WatchResponse watchResponse) {
+      WatcherImpl watcher = watchers.get(watchResponse.getWatchId());
+      if (watcher != null) {
+        Header header = null;
+        List<WatchEvent> clientEvents = null;
+        List<Event> coalesced = null;
+        synchronized (watcher) {
+          if (watchResponse.getEventsCount() != 0) {
+            List<Event> events = watchResponse.getEventsList();
+            // if on resume process, filter processed events
+            if (watcher.isResuming()) {
+              long lastRevision = watcher.getLastRevision();
+              events = new ArrayList<>(events);
+              events.removeIf((e) -> e.getKv().getModRevision() <= lastRevision);
+            }
+            watcher.setLastRevision(
+                watchResponse
+                    .getEvents(watchResponse.getEventsCount() - 1)
+                    .getKv().getModRevision());
+
+            if (watcher.coalescer != null) {
+              coalesced = events;
+            } else if (watcher.callback != null) {
+              header = apiToClientHeader(watchResponse.getHeader(),
+                  watchResponse.getCompactRevision());
+              clientEvents = toClientEvents(events);
+            }
+          } else {
+            watcher.setLastRevision(watchResponse.getHeader().getRevision());
+          }
+        }
+        if (coalesced != null) {
+          watcher.coalescer.add(watchResponse.getHeader(), coalesced);
+        } else if (header != null) {
+          Header onWatchHeader = header;
+          List<WatchEvent> onWatchEvents = clientEvents;
+          watcher.dispatch(() -> watcher.callback.onWatch(onWatchHeader, onWatchEvents));
+        }
+      } else {
+        // if the watcher is not canceling, cancel it.
+        if (this.pendingCancelFutures
+            .putIfAbsent(watchResponse.getWatchId(), new CompletableFuture<>()) == null) {
+          sendCancel(watchResponse.getWatchId());
+        }
+      }
+    }
+
+    /**
+     * replace the watchers of the old stream by resumed ones, but the canceled ones.
+     *
+     * @param watchers the watchers of the old stream
+     * @param resuming gets the old watchers whose onResuming is to be called
+     * @return the creates of the resumed watchers
+     */
+    private List<Pair<WatcherImpl, CompletableFuture<Watcher>>> resumeWatchers(
+        WatcherImpl[] watchers, List<WatcherImpl> resuming) {
+      List<Pair<WatcherImpl, CompletableFuture<Watcher>>> creates =
+          new ArrayList<>(watchers.length);
+      for (WatcherImpl watcher : watchers) {
+        WatcherImpl resumed;
+        synchronized (watcher) {
+          if (watcher.cancelFuture != null) {
+            continue;
+          }
+          resumed = new WatcherImpl(this, watcher.getKey(),
+              getResumeWatchOptionWithWatcher(watcher), watcher.callback, watcher.queue,
+              watcher.coalescer);
+          watcher.resumedBy = resumed;
+        }
+        if (watcher.callback != null) {
+          resuming.add(watcher);
+        }
+        creates.add(new Pair<>(resumed, new CompletableFuture<>()));
+      }
+      return creates;
+    }
+
+    /**
+     * Process cancel response from etcd server.
+     */
+    private void processCanceled(WatchResponse response) {
+      CompletableFuture<Boolean> cancelFuture = this.pendingCancelFutures
+          .remove(response.getWatchId());
+      if (cancelFuture != null) {
+        cancelFuture.complete(Boolean.TRUE);
+        return;
+      }
+
+      // canceled by the server, such as right after the created response of a watcher whose
+      // start revision has been compacted.
+      WatcherImpl watcher = watchers.remove(response.getWatchId());
+      if (watcher == null) {
+        return;
+      }
+      synchronized (watcher) {
+        watcher.setCanceled(true);
+      }
       if (watcher.callback != null) {
-        watcher.callback.onResuming();
+        Header header = apiToClientHeader(response.getHeader(), response.getCompactRevision());
+        watcher.dispatch(() -> watcher.callback.onCanceled(header));
       }
-      watch(watcher.getKey(), getResumeWatchOptionWithWatcher(watcher), watcher.callback);
+      watcher.closeDispatch();
     }
   }
 
   /**
-   * Process cancel response from etcd server.
+   * decode the values of events and convert them to client events.
    */
-  private void processCanceled(WatchResponse response) {
-    CompletableFuture<Boolean> cancelFuture = this.pendingCancelFutures
-        .remove(response.getWatchId());
-    cancelFuture.complete(Boolean.TRUE);
+  private List<WatchEvent> toClientEvents(List<Event> events) {
+    if (codec.isPresent()) {
+      ValueCodec valueCodec = codec.get();
+      events = events.stream().map(valueCodec::decode).collect(Collectors.toList());
+    }
+    return apiToClientEvents(events);
   }
 
   /**
@@ -291,14 +689,17 @@ public class WatchImpl implements Watch {
    */
   private WatchOption getResumeWatchOptionWithWatcher(Watcher watcher) {
     WatchOption oldOption = watcher.getWatchOption();
-    return WatchOption.newBuilder().withNoDelete(oldOption.isNoDelete())
+    WatchOption.Builder builder = WatchOption.newBuilder().withNoDelete(oldOption.isNoDelete())
         .withNoPut(oldOption.isNoPut())
         .withPrevKV(oldOption.isPrevKV())
         .withProgressNotify(oldOption.isProgressNotify())
-        .withRange(oldOption.getEndKey().get())
         .withRevision(watcher.getLastRevision() + 1)
-        .withResuming(true)
-        .build();
+        .withResuming(true);
+    oldOption.getEndKey().ifPresent(builder::withRange);
+    if (oldOption.isCoalescing()) {
+      builder.withCoalescing(oldOption.getCoalescingNanos(), TimeUnit.NANOSECONDS);
+    }
+    return builder.build();
   }
 
 
@@ -307,27 +708,58 @@ public class WatchImpl implements Watch {
    */
   public class WatcherImpl implements Watcher {
 
+    private final WatchStream stream;
     private final WatchOption watchOption;
     private final ByteSequence key;
 
     public final WatchCallback callback;
-    private long watchID;
+    private final WatchDispatcher.SerialQueue queue;
+    private final WatchCoalescer coalescer;
+    private long watchID = -1;
 
     private long lastRevision = -1;
     private boolean canceled = false;
 
     private boolean resuming;
 
-    private WatcherImpl(ByteSequence key, WatchOption watchOption, WatchCallback callback) {
+    // guarded by this watcher, the watcher replacing it once resumed and the future of its cancel.
+    private WatcherImpl resumedBy;
+    private CompletableFuture<Boolean> cancelFuture;
+
+    private WatcherImpl(WatchStream stream, ByteSequence key, WatchOption watchOption,
+        WatchCallback callback, WatchDispatcher.SerialQueue queue, WatchCoalescer coalescer) {
+      this.stream = stream;
       this.key = key;
       this.watchOption = watchOption;
       this.callback = callback;
+      this.queue = queue;
+      this.coalescer = coalescer;
       this.resuming = watchOption.isResuming();
     }
 
+    /**
+     * run a callback through the dispatch queue of the watcher, or right away without one.
+     */
+    private void dispatch(Runnable task) {
+      if (queue != null) {
+        queue.execute(task);
+      } else {
+        task.run();
+      }
+    }
+
+    private void closeDispatch() {
+      if (queue != null) {
+        queue.close();
+      }
+      if (coalescer != null) {
+        coalescer.close();
+      }
+    }
+
     @Override
     public CompletableFuture<Boolean> cancel() {
-      return cancelWatch(watchID);
+      return stream.cancelWatch(this);
     }
 
     /**
@@ -348,7 +780,7 @@ public class WatchImpl implements Watch {
     }
 
     /**
-     * get the watch id of the watcher.
+     * get the watch id of the watcher, -1 until it is created.
      */
     public long getWatchID() {
       return watchID;
@@ -0,0 +1,417 @@
+package com.coreos.jetcd;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.Watch.Watcher;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchCreateException;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.common.annotations.Beta;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Reactive Streams publisher of the events of a watch.
+ *
+ * <p>Every subscription opens its own watch. The events received ahead of the demand of the
+ * subscriber are held in a buffer of bounded size, and once it is full the {@link OverflowPolicy}
+ * decides what happens to the next ones. Events are delivered on the thread signalling demand or
+ * on the gRPC thread receiving them.
+ *
+ * <p>The stream never completes. It ends when the subscription is cancelled, or with an error if
+ * the watch can't be created or is cancelled by the server. A watch whose start revision has been
+ * compacted is created then cancelled, failing the stream with a
+ * {@link com.coreos.jetcd.watch.WatchCreateException} whose header holds the compact revision.
+ */
+@Beta
+public final class WatchPublisher implements Publisher<WatchEvent> {
+
+  /**
+   * What to do with an event received while the buffer is full.
+   */
+  public enum OverflowPolicy {
+    /**
+     * hold the gRPC thread delivering the event until the subscriber makes room. All the watches
+     * of the client share a stream, so it stalls every one of them.
+     */
+    BLOCK,
+
+    /**
+     * drop the buffered event of the same key in favour of the newer one, so a subscriber falling
+     * behind sees the latest state of each key. Blocks as {@link #BLOCK} if no buffered event has
+     * the key.
+     */
+    COALESCE,
+
+    /**
+     * cancel the watch and create it again from the revision of the dropped event once the
+     * subscriber has consumed half the buffer. The stream fails if that revision has been
+     * compacted in between. Blocks as {@link #BLOCK} if a single revision holds more events than
+     * the buffer.
+     */
+    CANCEL_AND_RESUME
+  }
+
+  public static Builder newBuilder(Watch watch) {
+    return new Builder(watch);
+  }
+
+  public static final class Builder {
+
+    private final Watch watch;
+    private ByteSequence key;
+    private WatchOption option = WatchOption.DEFAULT;
+    private int bufferSize = 1024;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private Builder(Watch watch) {
+      this.watch = checkNotNull(watch, "watch should not be null");
+    }
+
+    /**
+     * the key to watch, or the first key of the range if the option has an end key.
+     *
+     * @param key key to watch
+     * @return builder
+     */
+    public Builder withKey(ByteSequence key) {
+      this.key = checkNotNull(key, "key should not be null");
+      return this;
+    }
+
+    /**
+     * the option of the watch, its revision is the one the first subscription starts from.
+     *
+     * @param option watch option
+     * @return builder
+     */
+    public Builder withOption(WatchOption option) {
+      this.option = checkNotNull(option, "option should not be null");
+      return this;
+    }
+
+    /**
+     * the number of events a subscription buffers ahead of demand, 1024 by default.
+     *
+     * @param bufferSize number of events
+     * @return builder
+     */
+    public Builder withBufferSize(int bufferSize) {
+      checkArgument(bufferSize > 0, "bufferSize should be positive");
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * what to do when the buffer is full, {@link OverflowPolicy#BLOCK} by default.
+     *
+     * @param overflowPolicy overflow policy
+     * @return builder
+     */
+    public Builder withOverflowPolicy(OverflowPolicy overflowPolicy) {
+      this.overflowPolicy = checkNotNull(overflowPolicy, "overflowPolicy should not be null");
+      return this;
+    }
+
+    public WatchPublisher build() {
+      checkNotNull(key, "key should be set");
+      return new WatchPublisher(watch, key, option, bufferSize, overflowPolicy);
+    }
+  }
+
+  private final Watch watch;
+  private final ByteSequence key;
+  private final WatchOption option;
+  private final int bufferSize;
+  private final OverflowPolicy overflowPolicy;
+
+  private WatchPublisher(Watch watch, ByteSequence key, WatchOption option, int bufferSize,
+      OverflowPolicy overflowPolicy) {
+    this.watch = watch;
+    this.key = key;
+    this.option = option;
+    this.bufferSize = bufferSize;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super WatchEvent> subscriber) {
+    checkNotNull(subscriber, "subscriber should not be null");
+    WatchSubscription subscription = new WatchSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    subscription.open(0, option.getRevision());
+  }
+
+  /**
+   * copy of the watch option starting at another revision.
+   */
+  private static WatchOption withRevision(WatchOption option, long revision) {
+    WatchOption.Builder builder = WatchOption.newBuilder()
+        .withNoDelete(option.isNoDelete())
+        .withNoPut(option.isNoPut())
+        .withPrevKV(option.isPrevKV())
+        .withProgressNotify(option.isProgressNotify())
+        .withRevision(revision);
+    option.getEndKey().ifPresent(builder::withRange);
+    return builder.build();
+  }
+
+  /**
+   * Subscription buffering the events of one watch.
+   *
+   * <p>The buffer, the watcher and the state of the watch are guarded by the subscription,
+   * events are handed to the subscriber by whichever thread wins {@link #drain()}.
+   */
+  final class WatchSubscription implements Subscription {
+
+    private final Subscriber<? super WatchEvent> subscriber;
+    private final ArrayDeque<WatchEvent> buffer = new ArrayDeque<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean cancelled;
+    private volatile Throwable error;
+    private volatile long receivedRevision;
+
+    // bumped on every resume, events and watchers of an older watch are dropped.
+    private int generation;
+    private Watcher watcher;
+    private boolean suspended;
+    private long resumeRevision;
+
+    private WatchSubscription(Subscriber<? super WatchEvent> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        error = new IllegalArgumentException("request should be positive, got " + n);
+      } else {
+        requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      Watcher current;
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        cancelled = true;
+        buffer.clear();
+        current = watcher;
+        watcher = null;
+        notifyAll();
+      }
+      if (current != null) {
+        current.cancel();
+      }
+    }
+
+    /**
+     * get the revision of the last event received.
+     */
+    long getReceivedRevision() {
+      return receivedRevision;
+    }
+
+    synchronized int getBuffered() {
+      return buffer.size();
+    }
+
+    private void open(int watchGeneration, long revision) {
+      WatchOption watchOption = revision == option.getRevision()
+          ? option : withRevision(option, revision);
+      watch.watch(key, watchOption, new Watch.WatchCallback() {
+        @Override
+        public void onWatch(Header header, List<WatchEvent> events) {
+          enqueue(watchGeneration, events);
+        }
+
+        @Override
+        public void onResuming() {
+        }
+
+        @Override
+        public void onCanceled(Header header) {
+          synchronized (WatchSubscription.this) {
+            if (watchGeneration == generation) {
+              error = new WatchCreateException(header.getCompactRevision() != 0
+                  ? "the start revision has been compacted, at " + header.getCompactRevision()
+                  : "the watch has been canceled by the server", header);
+            }
+          }
+          drain();
+        }
+      }).whenComplete((created, throwable) -> {
+        if (throwable != null) {
+          synchronized (this) {
+            if (watchGeneration == generation) {
+              error = throwable;
+            }
+          }
+          drain();
+          return;
+        }
+        boolean stale;
+        synchronized (this) {
+          stale = cancelled || suspended || watchGeneration != generation;
+          if (!stale) {
+            watcher = created;
+          }
+        }
+        if (stale) {
+          created.cancel();
+        }
+      });
+    }
+
+    private void enqueue(int watchGeneration, List<WatchEvent> events) {
+      for (WatchEvent event : events) {
+        if (!offer(watchGeneration, event)) {
+          break;
+        }
+      }
+      drain();
+    }
+
+    /**
+     * add an event to the buffer, applying the overflow policy when it is full.
+     *
+     * @return false if the event and the ones after it are not wanted
+     */
+    private boolean offer(int watchGeneration, WatchEvent event) {
+      long revision = event.getKeyValue().getModRevision();
+      for (boolean drained = false; ; drained = true) {
+        Watcher suspendedWatcher = null;
+        synchronized (this) {
+          while (true) {
+            if (cancelled || suspended || watchGeneration != generation) {
+              return false;
+            }
+            if (buffer.size() < bufferSize) {
+              buffer.addLast(event);
+              receivedRevision = revision;
+              return true;
+            }
+            if (overflowPolicy == OverflowPolicy.COALESCE && replace(event)) {
+              receivedRevision = revision;
+              return true;
+            }
+            if (overflowPolicy == OverflowPolicy.CANCEL_AND_RESUME
+                && buffer.peekFirst().getKeyValue().getModRevision() < revision) {
+              suspendedWatcher = suspend(revision);
+              break;
+            }
+            if (!drained) {
+              break;
+            }
+            try {
+              wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              error = e;
+              return false;
+            }
+          }
+        }
+        if (suspendedWatcher != null) {
+          suspendedWatcher.cancel();
+          return false;
+        }
+        // make room for the event if there is demand before waiting for more.
+        drain();
+      }
+    }
+
+    /**
+     * replace the newest buffered event of the same key, moving it to the end of the buffer so
+     * the events stay in revision order.
+     */
+    private boolean replace(WatchEvent event) {
+      ByteSequence eventKey = event.getKeyValue().getKey();
+      for (Iterator<WatchEvent> it = buffer.descendingIterator(); it.hasNext(); ) {
+        if (it.next().getKeyValue().getKey().equals(eventKey)) {
+          it.remove();
+          buffer.addLast(event);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * stop buffering from <i>revision</i>, dropping the buffered events of that revision as the
+     * resumed watch delivers the whole revision again.
+     *
+     * @return the watcher to cancel
+     */
+    private Watcher suspend(long revision) {
+      while (buffer.peekLast().getKeyValue().getModRevision() >= revision) {
+        buffer.removeLast();
+      }
+      suspended = true;
+      resumeRevision = revision;
+      Watcher current = watcher;
+      watcher = null;
+      return current;
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        while (true) {
+          if (cancelled) {
+            return;
+          }
+          Throwable throwable = error;
+          if (throwable != null) {
+            cancel();
+            subscriber.onError(throwable);
+            return;
+          }
+          WatchEvent event = null;
+          int resumeGeneration = -1;
+          long revision = 0;
+          synchronized (this) {
+            if (requested.get() > 0 && !buffer.isEmpty()) {
+              event = buffer.pollFirst();
+              notifyAll();
+            }
+            if (suspended && buffer.size() <= bufferSize / 2) {
+              suspended = false;
+              resumeGeneration = ++generation;
+              revision = resumeRevision;
+            }
+          }
+          if (resumeGeneration != -1) {
+            open(resumeGeneration, revision);
+          }
+          if (event == null) {
+            break;
+          }
+          if (requested.get() != Long.MAX_VALUE) {
+            requested.decrementAndGet();
+          }
+          subscriber.onNext(event);
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
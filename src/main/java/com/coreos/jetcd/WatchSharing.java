@@ -0,0 +1,666 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.Watch.Watcher;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchCreateException;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Shares one server watch between the watchers of the same key, range end, filters, prevKv and
+ * coalescing.
+ *
+ * <p>The first watcher opens the server watch at its start revision and the next ones join it,
+ * each event being handed to every watcher. The server watch is cancelled with its last watcher.
+ *
+ * <p>A watcher joining with a start revision the shared watch has already gone past first gets
+ * the events it missed from a watch of its own. The events of the shared watch are held back for
+ * it until its own watch delivers the first of them, then its own watch is cancelled and it goes
+ * on with the shared one. A watcher joining without a start revision gets the events after those
+ * already delivered. A watcher whose own watch fails is cancelled. One with more than
+ * {@link #MAX_HELD_BACK} shared events held back stays on its own watch instead.
+ *
+ * <p>When the server watch fails or is cancelled for a compacted revision, only the watchers
+ * still needing a compacted revision fail, the others go on with a new server watch opened at the
+ * first revision they need.
+ *
+ * <p>With a dispatcher, each watcher has its own dispatch queue, so that a slow callback only
+ * holds back the events of its watcher. The server watch is cancelled through its current
+ * watcher, even after it has been resumed.
+ */
+class WatchSharing {
+
+  /**
+   * the most shared events held back for a watcher catching up.
+   */
+  static final int MAX_HELD_BACK = 4096;
+
+  private final Watch watch;
+  private final Optional<WatchDispatcher> dispatcher;
+  private final Map<ShareKey, SharedWatch> sharedWatches = new HashMap<>();
+
+  /**
+   * share the watches of the given watch client.
+   *
+   * @param watch opens the server watches, calling back on the gRPC threads
+   * @param dispatcher runs the callbacks of each watcher on its own queue, if present
+   */
+  WatchSharing(Watch watch, Optional<WatchDispatcher> dispatcher) {
+    this.watch = watch;
+    this.dispatcher = dispatcher;
+  }
+
+  CompletableFuture<Watcher> watch(ByteSequence key, WatchOption option,
+      Watch.WatchCallback callback) {
+    ShareKey shareKey = new ShareKey(key, option);
+    SharedWatch shared;
+    Subscriber subscriber;
+    CompletableFuture<Watcher> opening;
+    synchronized (sharedWatches) {
+      shared = sharedWatches.get(shareKey);
+      boolean opener = shared == null;
+      if (opener) {
+        shared = new SharedWatch(shareKey, key);
+        sharedWatches.put(shareKey, shared);
+      }
+      subscriber = new Subscriber(shared, option, callback);
+      shared.subscribers.add(subscriber);
+      if (opener) {
+        subscriber.lastRevision = option.getRevision() - 1;
+        shared.open(option);
+      } else {
+        subscriber.joining = true;
+      }
+      opening = shared.created;
+    }
+    shared.attach(opening, subscriber);
+    return subscriber.created;
+  }
+
+  /**
+   * get the number of server watches.
+   *
+   * @return number of shared watches open or being opened
+   */
+  int getSharedWatchCount() {
+    synchronized (sharedWatches) {
+      return sharedWatches.size();
+    }
+  }
+
+  private CompletableFuture<Boolean> leave(Subscriber subscriber) {
+    SharedWatch shared = subscriber.shared;
+    boolean last;
+    CompletableFuture<Watcher> created;
+    synchronized (sharedWatches) {
+      if (!shared.subscribers.remove(subscriber)) {
+        return CompletableFuture.completedFuture(Boolean.FALSE);
+      }
+      last = shared.subscribers.isEmpty();
+      if (last) {
+        sharedWatches.remove(shared.shareKey, shared);
+      }
+      created = shared.created;
+    }
+    subscriber.stopCatchUp();
+    subscriber.closeDispatch();
+    return last ? created.thenCompose(WatchSharing::cancel)
+        : CompletableFuture.completedFuture(Boolean.TRUE);
+  }
+
+  private static CompletableFuture<Boolean> cancel(Watcher watcher) {
+    CompletableFuture<Boolean> canceled = watcher.cancel();
+    return canceled != null ? canceled : CompletableFuture.completedFuture(Boolean.FALSE);
+  }
+
+  private static WatchOption withRevision(WatchOption option, long revision) {
+    WatchOption.Builder builder = WatchOption.newBuilder()
+        .withNoDelete(option.isNoDelete())
+        .withNoPut(option.isNoPut())
+        .withPrevKV(option.isPrevKV())
+        .withProgressNotify(option.isProgressNotify())
+        .withCoalescing(option.getCoalescingNanos(), TimeUnit.NANOSECONDS)
+        .withRevision(revision);
+    option.getEndKey().ifPresent(builder::withRange);
+    return builder.build();
+  }
+
+  /**
+   * get the header of a failed watch, an empty one unless the server rejected it.
+   */
+  private static Header headerOf(Throwable throwable) {
+    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+        ? throwable.getCause() : throwable;
+    return cause instanceof WatchCreateException ? ((WatchCreateException) cause).header
+        : new Header(0, 0, 0, 0, 0);
+  }
+
+  /**
+   * one server watch and its subscribers, guarded by the lock of the shared watches.
+   */
+  private final class SharedWatch {
+
+    private final ShareKey shareKey;
+    private final ByteSequence key;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private CompletableFuture<Watcher> created;
+    // counts the server watches opened, only the current one settles the subscribers.
+    private int generation;
+    // the revision up to which all events have been handed to the subscribers.
+    private long delivered;
+
+    private SharedWatch(ShareKey shareKey, ByteSequence key) {
+      this.shareKey = shareKey;
+      this.key = key;
+    }
+
+    /**
+     * open the server watch at the given start revision, called under the lock of the shared
+     * watches.
+     */
+    private void open(WatchOption option) {
+      long start = option.getRevision();
+      int opened = ++generation;
+      delivered = start - 1;
+      CompletableFuture<Watcher> opening = new CompletableFuture<>();
+      created = opening.whenComplete((watcher, throwable) -> {
+        if (throwable != null) {
+          Header header = headerOf(throwable);
+          settle(opened, header.getCompactRevision(), header, throwable);
+        } else if (start <= 0) {
+          synchronized (sharedWatches) {
+            // the events come after the revision the watch was created at.
+            delivered = Math.max(delivered, watcher.getLastRevision());
+          }
+        }
+      });
+      watch.watch(key, option, new Watch.WatchCallback() {
+        @Override
+        public void onWatch(Header header, List<WatchEvent> events) {
+          dispatch(header, events);
+        }
+
+        @Override
+        public void onResuming() {
+          subscribers().forEach(subscriber -> subscriber.dispatch(subscriber.callback::onResuming));
+        }
+
+        @Override
+        public void onResumed(Header header) {
+          subscribers().forEach(
+              subscriber -> subscriber.dispatch(() -> subscriber.callback.onResumed(header)));
+        }
+
+        @Override
+        public void onCanceled(Header header) {
+          long compactRevision = header.getCompactRevision();
+          settle(opened, compactRevision, header, new WatchCreateException(compactRevision != 0
+              ? "the start revision has been compacted"
+              : "the watch has been canceled by the server", header));
+        }
+      }).whenComplete((watcher, throwable) -> {
+        if (throwable != null) {
+          opening.completeExceptionally(throwable);
+        } else {
+          opening.complete(watcher);
+        }
+      });
+    }
+
+    /**
+     * hand the subscriber to the caller once the server watch has been created, joining it if it
+     * did not open the server watch. A failed server watch settles its subscribers itself.
+     */
+    private void attach(CompletableFuture<Watcher> opening, Subscriber subscriber) {
+      opening.whenComplete((watcher, throwable) -> {
+        if (throwable != null || subscriber.created.isDone()) {
+          return;
+        }
+        if (subscriber.joining) {
+          join(subscriber);
+        }
+        subscriber.created.complete(subscriber);
+      });
+    }
+
+    /**
+     * settle the subscribers of a server watch which failed or was cancelled by the server.
+     *
+     * <p>For a compacted revision, the subscribers still needing a revision before it fail and
+     * the others go on with a new server watch, opened at the first revision they need. For any
+     * other reason, all of them fail.
+     */
+    private void settle(int opened, long compactRevision, Header header, Throwable cause) {
+      List<Subscriber> failed = new ArrayList<>();
+      List<Subscriber> pending = new ArrayList<>();
+      CompletableFuture<Watcher> reopened = null;
+      synchronized (sharedWatches) {
+        if (opened != generation) {
+          return;
+        }
+        long revision = Long.MAX_VALUE;
+        for (Iterator<Subscriber> it = subscribers.iterator(); it.hasNext(); ) {
+          Subscriber subscriber = it.next();
+          long next = subscriber.getNextRevision();
+          if (compactRevision == 0 || (next > 0 && next < compactRevision)) {
+            it.remove();
+            failed.add(subscriber);
+          } else if (next > 0) {
+            revision = Math.min(revision, next);
+          } else {
+            // without a start revision, the events come after the cancellation.
+            subscriber.skipTo(header.getRevision());
+          }
+        }
+        if (subscribers.isEmpty()) {
+          sharedWatches.remove(shareKey, this);
+        } else {
+          open(withRevision(subscribers.get(0).option,
+              revision == Long.MAX_VALUE ? 0 : revision));
+          reopened = created;
+          for (Subscriber subscriber : subscribers) {
+            if (!subscriber.created.isDone()) {
+              pending.add(subscriber);
+            }
+          }
+        }
+      }
+      failed.forEach(subscriber -> {
+        subscriber.fail(header, cause);
+        subscriber.stopCatchUp();
+        subscriber.closeDispatch();
+      });
+      for (Subscriber subscriber : pending) {
+        attach(reopened, subscriber);
+      }
+    }
+
+    private void join(Subscriber subscriber) {
+      long start = subscriber.option.getRevision();
+      boolean catchUp;
+      synchronized (sharedWatches) {
+        subscriber.lastRevision = start <= 0 ? delivered : start - 1;
+        catchUp = start > 0 && start <= delivered;
+        subscriber.joining = catchUp;
+      }
+      if (catchUp) {
+        // the shared events skipped until then come from the own watch as well.
+        subscriber.startCatchUp();
+        synchronized (sharedWatches) {
+          subscriber.joining = false;
+        }
+      }
+    }
+
+    private CompletableFuture<Watcher> created() {
+      synchronized (sharedWatches) {
+        return created;
+      }
+    }
+
+    private List<Subscriber> subscribers() {
+      synchronized (sharedWatches) {
+        return new ArrayList<>(subscribers);
+      }
+    }
+
+    private void dispatch(Header header, List<WatchEvent> events) {
+      List<Subscriber> receivers = new ArrayList<>();
+      synchronized (sharedWatches) {
+        for (Subscriber subscriber : subscribers) {
+          if (!subscriber.joining) {
+            receivers.add(subscriber);
+          }
+        }
+        delivered = Math.max(delivered, events.isEmpty() ? header.getRevision()
+            : events.get(events.size() - 1).getKeyValue().getModRevision());
+      }
+      receivers.forEach(subscriber -> subscriber.onShared(header, events));
+    }
+  }
+
+  /**
+   * a watcher sharing a server watch.
+   */
+  private final class Subscriber implements Watcher {
+
+    private final SharedWatch shared;
+    private final WatchOption option;
+    private final Watch.WatchCallback callback;
+    private final WatchDispatcher.SerialQueue queue;
+    private final CompletableFuture<Watcher> created = new CompletableFuture<>();
+    // held while events are picked and queued, so that they are queued in order, and not
+    // while waiting for room in the queue, which the callbacks may need to cancel.
+    private final Object delivering = new Object();
+    // guarded by the lock of the shared watches, set until the subscriber has joined.
+    private boolean joining = false;
+    private long lastRevision;
+    // set once events have been delivered, the next ones then come after the last revision.
+    private boolean received = false;
+    private CompletableFuture<Watcher> catchUp;
+    private List<WatchEvent> heldBack;
+    private Header heldBackHeader;
+    // set once too many shared events were held back, the own watch then delivers all events.
+    private boolean detached = false;
+    private boolean canceled = false;
+
+    private Subscriber(SharedWatch shared, WatchOption option, Watch.WatchCallback callback) {
+      this.shared = shared;
+      this.option = option;
+      this.callback = callback;
+      this.queue = dispatcher.map(d -> d.newQueue(shared.key)).orElse(null);
+    }
+
+    /**
+     * run a callback through the dispatch queue of the subscriber, or right away without one.
+     */
+    private void dispatch(Runnable task) {
+      if (task == null) {
+        return;
+      }
+      synchronized (delivering) {
+        if (queue != null) {
+          queue.execute(task);
+        } else {
+          task.run();
+        }
+      }
+    }
+
+    private void closeDispatch() {
+      if (queue != null) {
+        queue.close();
+      }
+    }
+
+    /**
+     * watch from the start revision on its own until the shared watch is reached.
+     */
+    private void startCatchUp() {
+      CompletableFuture<Watcher> catchUp;
+      synchronized (this) {
+        heldBack = new ArrayList<>();
+        catchUp = watch.watch(shared.key, option, new Watch.WatchCallback() {
+          @Override
+          public void onWatch(Header header, List<WatchEvent> events) {
+            onCatchUp(header, events);
+          }
+
+          @Override
+          public void onResuming() {
+            dispatch(callback::onResuming);
+          }
+
+          @Override
+          public void onResumed(Header header) {
+            dispatch(() -> callback.onResumed(header));
+          }
+
+          @Override
+          public void onCanceled(Header header) {
+            failCatchUp(header, new WatchCreateException(
+                "the catch-up watch has been canceled by the server", header));
+          }
+        });
+        this.catchUp = catchUp;
+      }
+      catchUp.whenComplete((watcher, throwable) -> {
+        if (throwable != null) {
+          failCatchUp(headerOf(throwable), throwable);
+        }
+      });
+    }
+
+    /**
+     * cancel the subscriber once its own watch failed, as the events it missed are lost.
+     */
+    private void failCatchUp(Header header, Throwable cause) {
+      synchronized (this) {
+        if (canceled || (heldBack == null && !detached)) {
+          return;
+        }
+      }
+      fail(header, cause);
+      leave(this);
+    }
+
+    /**
+     * fail the subscriber, through its future until it has been handed out, then through
+     * onCanceled.
+     */
+    private void fail(Header header, Throwable cause) {
+      synchronized (this) {
+        canceled = true;
+      }
+      if (!created.completeExceptionally(cause)) {
+        dispatch(() -> callback.onCanceled(header));
+      }
+    }
+
+    /**
+     * get the first revision the subscriber still needs, 0 if it has none.
+     */
+    private synchronized long getNextRevision() {
+      return received ? lastRevision + 1 : Math.max(option.getRevision(), 0);
+    }
+
+    private synchronized void skipTo(long revision) {
+      lastRevision = Math.max(lastRevision, revision);
+    }
+
+    private void stopCatchUp() {
+      CompletableFuture<Watcher> catchUp;
+      synchronized (this) {
+        catchUp = this.catchUp;
+        this.catchUp = null;
+        this.heldBack = null;
+        this.detached = false;
+      }
+      if (catchUp != null) {
+        catchUp.thenAccept(WatchSharing::cancel);
+      }
+    }
+
+    private void onShared(Header header, List<WatchEvent> events) {
+      synchronized (delivering) {
+        Runnable task;
+        synchronized (this) {
+          if (detached) {
+            return;
+          }
+          if (heldBack == null) {
+            task = deliver(header, events);
+          } else {
+            heldBack.addAll(events);
+            heldBackHeader = header;
+            if (heldBack.size() > MAX_HELD_BACK) {
+              heldBack = null;
+              heldBackHeader = null;
+              detached = true;
+              return;
+            }
+            if (!isCaughtUp()) {
+              return;
+            }
+            task = null;
+          }
+        }
+        if (task != null) {
+          dispatch(task);
+          return;
+        }
+        finishCatchUp();
+      }
+    }
+
+    private void onCatchUp(Header header, List<WatchEvent> events) {
+      synchronized (delivering) {
+        Runnable task;
+        boolean caughtUp;
+        synchronized (this) {
+          if (heldBack == null && !detached) {
+            return;
+          }
+          task = deliver(header, events);
+          caughtUp = !detached && isCaughtUp();
+        }
+        dispatch(task);
+        if (caughtUp) {
+          finishCatchUp();
+        }
+      }
+    }
+
+    /**
+     * whether the own watch has delivered the first event held back from the shared one.
+     */
+    private boolean isCaughtUp() {
+      return !heldBack.isEmpty()
+          && lastRevision >= heldBack.get(0).getKeyValue().getModRevision();
+    }
+
+    private void finishCatchUp() {
+      synchronized (delivering) {
+        Runnable task;
+        synchronized (this) {
+          if (heldBack == null) {
+            return;
+          }
+          task = deliver(heldBackHeader, heldBack);
+          heldBack = null;
+        }
+        dispatch(task);
+      }
+      stopCatchUp();
+    }
+
+    /**
+     * pick the events after the last revision delivered, called under the lock of the
+     * subscriber.
+     *
+     * @return the call of the callback with those events, null if there is none
+     */
+    private Runnable deliver(Header header, List<WatchEvent> events) {
+      if (canceled) {
+        return null;
+      }
+      if (events.isEmpty()) {
+        lastRevision = Math.max(lastRevision, header.getRevision());
+        received = true;
+        return () -> callback.onWatch(header, events);
+      }
+      List<WatchEvent> fresh = events.stream()
+          .filter(event -> event.getKeyValue().getModRevision() > lastRevision)
+          .collect(Collectors.toList());
+      if (fresh.isEmpty()) {
+        return null;
+      }
+      lastRevision = fresh.get(fresh.size() - 1).getKeyValue().getModRevision();
+      received = true;
+      return () -> callback.onWatch(header, fresh);
+    }
+
+    @Override
+    public long getWatchID() {
+      return shared.created().join().getWatchID();
+    }
+
+    @Override
+    public synchronized long getLastRevision() {
+      return lastRevision;
+    }
+
+    @Override
+    public ByteSequence getKey() {
+      return shared.key;
+    }
+
+    @Override
+    public boolean isResuming() {
+      return shared.created().join().isResuming();
+    }
+
+    @Override
+    public WatchOption getWatchOption() {
+      return option;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cancel() {
+      synchronized (this) {
+        canceled = true;
+      }
+      return leave(this);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        cancel().get(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IOException("Close was interrupted.", e);
+      } catch (ExecutionException e) {
+        throw new IOException("Exception during execute.", e);
+      } catch (TimeoutException e) {
+        throw new IOException("Close out of time.", e);
+      }
+    }
+  }
+
+  /**
+   * what makes two watches the same, all of the option but the start revision.
+   */
+  private static final class ShareKey {
+
+    private final ByteString key;
+    private final Optional<ByteString> endKey;
+    private final boolean prevKV;
+    private final boolean progressNotify;
+    private final boolean noPut;
+    private final boolean noDelete;
+    private final long coalescingNanos;
+
+    private ShareKey(ByteSequence key, WatchOption option) {
+      this.key = Util.byteStringFromByteSequence(key);
+      this.endKey = option.getEndKey().map(Util::byteStringFromByteSequence);
+      this.prevKV = option.isPrevKV();
+      this.progressNotify = option.isProgressNotify();
+      this.noPut = option.isNoPut();
+      this.noDelete = option.isNoDelete();
+      this.coalescingNanos = option.getCoalescingNanos();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof ShareKey)) {
+        return false;
+      }
+      ShareKey other = (ShareKey) obj;
+      return key.equals(other.key) && endKey.equals(other.endKey) && prevKV == other.prevKV
+          && progressNotify == other.progressNotify && noPut == other.noPut
+          && noDelete == other.noDelete && coalescingNanos == other.coalescingNanos;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(key, endKey, prevKV, progressNotify, noPut, noDelete,
+          coalescingNanos);
+    }
+  }
+}
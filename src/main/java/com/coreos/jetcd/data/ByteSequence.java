@@ -1,26 +1,33 @@
 package com.coreos.jetcd.data;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 
 /**
  * Etcd binary bytes, easy to convert between byte[], String and ByteString.
+ *
+ * <p>A ByteSequence is immutable. It wraps a {@link ByteString}, so creating one from a
+ * ByteString, a read-only ByteBuffer or another ByteSequence doesn't copy the bytes, and neither
+ * do {@link #substring(int, int)}, {@link #asReadOnlyByteBuffer()} or {@link #getByteString()}.
+ * Byte arrays are copied in and out, as the caller may modify them.
  */
 public class ByteSequence {
 
-  private final int hashVal;
   private final ByteString byteString;
 
-
   public ByteSequence(byte[] source) {
-    hashVal = calcHashCore(source);
-    byteString = toByteString(source);
+    this(ByteString.copyFrom(source));
   }
 
   protected ByteSequence(ByteString byteString) {
-    this(byteString.toByteArray());
+    this.byteString = checkNotNull(byteString, "byteString should not be null");
   }
 
   public ByteSequence(String string) {
@@ -51,25 +58,50 @@ public class ByteSequence {
     }
   }
 
-  protected ByteString getByteString() {
+  /**
+   * get the bytes as a ByteString, without copying.
+   *
+   * @return the underlying ByteString
+   */
+  public ByteString getByteString() {
     return this.byteString;
   }
 
-  private ByteString toByteString(byte[] bytes) {
-    return ByteString.copyFrom(bytes);
+  /**
+   * computed on first use and cached by the ByteString.
+   */
+  @Override
+  public int hashCode() {
+    return byteString.hashCode();
   }
 
-  private int calcHashCore(byte[] bytes) {
-    int result = 0;
-    for (int i = 0; i < bytes.length; ++i) {
-      result = 31 * result + bytes[i];
-    }
-    return result;
+  public int size() {
+    return byteString.size();
   }
 
-  @Override
-  public int hashCode() {
-    return hashVal;
+  public boolean isEmpty() {
+    return byteString.isEmpty();
+  }
+
+  /**
+   * get a sub sequence sharing the bytes of this one.
+   *
+   * @param beginIndex start index, inclusive
+   * @param endIndex end index, exclusive
+   * @return the sub sequence
+   * @throws IndexOutOfBoundsException if the indexes are out of range
+   */
+  public ByteSequence substring(int beginIndex, int endIndex) {
+    return new ByteSequence(byteString.substring(beginIndex, endIndex));
+  }
+
+  /**
+   * get a read-only view of the bytes, without copying.
+   *
+   * @return read-only buffer positioned at the first byte
+   */
+  public ByteBuffer asReadOnlyByteBuffer() {
+    return byteString.asReadOnlyByteBuffer();
   }
 
   public String toStringUtf8() {
@@ -84,6 +116,11 @@ public class ByteSequence {
     return byteString.toString(charsetName);
   }
 
+  /**
+   * get a copy of the bytes.
+   *
+   * @return a new array holding the bytes
+   */
   public byte[] getBytes() {
     return byteString.toByteArray();
   }
@@ -100,10 +137,30 @@ public class ByteSequence {
     return new ByteSequence(charBuffer);
   }
 
-  protected static ByteSequence fromByteString(ByteString byteString) {
+  /**
+   * wrap a ByteString, without copying as it is immutable.
+   *
+   * @param byteString the bytes
+   * @return ByteSequence over the ByteString
+   */
+  public static ByteSequence fromByteString(ByteString byteString) {
     return new ByteSequence(byteString);
   }
 
+  /**
+   * wrap the remaining bytes of a read-only buffer without copying. Whoever holds a writable view
+   * of the same memory must not modify it afterwards.
+   *
+   * @param buffer read-only buffer, its position and limit are left untouched
+   * @return ByteSequence over the buffer
+   * @throws IllegalArgumentException if the buffer is not read-only
+   */
+  public static ByteSequence wrap(ByteBuffer buffer) {
+    checkNotNull(buffer, "buffer should not be null");
+    checkArgument(buffer.isReadOnly(), "buffer should be read-only");
+    return new ByteSequence(UnsafeByteOperations.unsafeWrap(buffer.slice()));
+  }
+
   public static ByteSequence fromBytes(byte[] bytes) {
     return new ByteSequence(bytes);
   }
@@ -1,48 +1,80 @@
 package com.coreos.jetcd.data;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.protobuf.ByteString;
+
 /**
  * Etcd key value pair.
+ *
+ * <p>It is a view over the key value message received from etcd, fields are only read from the
+ * message when asked for and keys and values share its bytes. The key and value sequences are
+ * created on first access and kept.
  */
 public class KeyValue {
 
-  private final ByteSequence key;
-  private final ByteSequence value;
-  private long createRevision = 0L;
-  private long modRevision = 0L;
-  private long version = 0L;
-  private long lease = 0L;
+  private static final ByteSequence EMPTY = ByteSequence.fromByteString(ByteString.EMPTY);
+
+  private final com.coreos.jetcd.api.KeyValue kv;
+  // created on first access, racing threads create equal sequences.
+  private ByteSequence key;
+  private ByteSequence value;
 
+  /**
+   * create a key value, a null key or value is empty.
+   */
   public KeyValue(ByteSequence key, ByteSequence value, long createRevision, long modRevision,
       long version, long lease) {
-    this.key = key;
-    this.value = value;
-    this.createRevision = createRevision;
-    this.modRevision = modRevision;
-    this.version = version;
-    this.lease = lease;
+    this(com.coreos.jetcd.api.KeyValue.newBuilder()
+        .setKey((key != null ? key : EMPTY).getByteString())
+        .setValue((value != null ? value : EMPTY).getByteString())
+        .setCreateRevision(createRevision)
+        .setModRevision(modRevision)
+        .setVersion(version)
+        .setLease(lease)
+        .build());
+  }
+
+  /**
+   * wrap a key value message, without copying it.
+   *
+   * @param kv key value message
+   */
+  public KeyValue(com.coreos.jetcd.api.KeyValue kv) {
+    this.kv = checkNotNull(kv, "kv should not be null");
   }
 
   public ByteSequence getKey() {
+    ByteSequence key = this.key;
+    if (key == null) {
+      key = ByteSequence.fromByteString(kv.getKey());
+      this.key = key;
+    }
     return key;
   }
 
   public ByteSequence getValue() {
+    ByteSequence value = this.value;
+    if (value == null) {
+      value = ByteSequence.fromByteString(kv.getValue());
+      this.value = value;
+    }
     return value;
   }
 
   public long getCreateRevision() {
-    return createRevision;
+    return kv.getCreateRevision();
   }
 
   public long getModRevision() {
-    return modRevision;
+    return kv.getModRevision();
   }
 
   public long getVersion() {
-    return version;
+    return kv.getVersion();
   }
 
   public long getLease() {
-    return lease;
+    return kv.getLease();
   }
 }
@@ -0,0 +1,344 @@
+package com.coreos.jetcd.op;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.coreos.jetcd.api.Compare;
+import com.coreos.jetcd.api.PutRequest;
+import com.coreos.jetcd.api.RequestOp;
+import com.coreos.jetcd.api.TxnRequest;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A transaction built once from a template {@link Txn}, with some of its keys and values left as
+ * parameters bound on each commit.
+ *
+ * <p>The request of the template is built once. Binding reuses its compares and ops as they are
+ * and only rebuilds those holding a parameter, so a CAS loop committing the same shape over and
+ * over doesn't redo the conversion of the whole txn each time.
+ *
+ * <p>Parameters are numbered from 0 in the order they are declared. The range end of gets and
+ * deletes stays the one of the template when their key is a parameter.
+ *
+ * <pre>
+ * {@code
+ * PreparedTxn cas = PreparedTxn.newBuilder(Txn.newBuilder()
+ *     .If(new Cmp(key, Cmp.Op.EQUAL, CmpTarget.modRevision(0)))
+ *     .Then(Op.put(key, ByteString.EMPTY, PutOption.DEFAULT))
+ *     .build())
+ *     .withCompareTarget(0)
+ *     .withSuccessValue(0)
+ *     .build();
+ * kv.commit(cas.bind().set(0, revision).set(1, value).toTxn());
+ * }
+ * </pre>
+ */
+public final class PreparedTxn {
+
+  /**
+   * Create a builder to prepare the given template.
+   *
+   * @param template txn giving the shape and fixed parts of the prepared txn
+   * @return builder
+   */
+  public static Builder newBuilder(Txn template) {
+    checkNotNull(template, "template should not be null");
+    return new Builder(template.toTxnRequest());
+  }
+
+  public static class Builder {
+
+    private final TxnRequest template;
+    private final int[] compareKeys;
+    private final int[] compareTargets;
+    private final int[] successKeys;
+    private final int[] successValues;
+    private final int[] failureKeys;
+    private final int[] failureValues;
+    private final List<Boolean> longs = new ArrayList<>();
+
+    private Builder(TxnRequest template) {
+      this.template = template;
+      this.compareKeys = unbound(template.getCompareCount());
+      this.compareTargets = unbound(template.getCompareCount());
+      this.successKeys = unbound(template.getSuccessCount());
+      this.successValues = unbound(template.getSuccessCount());
+      this.failureKeys = unbound(template.getFailureCount());
+      this.failureValues = unbound(template.getFailureCount());
+    }
+
+    /**
+     * Make the key of a compare a parameter.
+     *
+     * @param index index of the compare in the template
+     * @return builder
+     * @throws IllegalArgumentException if the key is a parameter already
+     */
+    public Builder withCompareKey(int index) {
+      return declare(compareKeys, index, false);
+    }
+
+    /**
+     * Make what a compare compares to a parameter, a value for value compares, a number for
+     * version and revision compares.
+     *
+     * @param index index of the compare in the template
+     * @return builder
+     * @throws IllegalArgumentException if the target is a parameter already
+     */
+    public Builder withCompareTarget(int index) {
+      checkElementIndex(index, compareTargets.length, "compare index");
+      return declare(compareTargets, index,
+          template.getCompare(index).getTarget() != Compare.CompareTarget.VALUE);
+    }
+
+    /**
+     * Make the key of an op of the success branch a parameter.
+     *
+     * @param index index of the op in the success branch of the template
+     * @return builder
+     * @throws IllegalArgumentException if the key is a parameter already
+     */
+    public Builder withSuccessKey(int index) {
+      return declare(successKeys, index, false);
+    }
+
+    /**
+     * Make the value of a put of the success branch a parameter.
+     *
+     * @param index index of the put in the success branch of the template
+     * @return builder
+     * @throws IllegalArgumentException if the op isn't a put or its value is a parameter already
+     */
+    public Builder withSuccessValue(int index) {
+      checkElementIndex(index, successValues.length, "success index");
+      checkPut(template.getSuccess(index), index);
+      return declare(successValues, index, false);
+    }
+
+    /**
+     * Make the key of an op of the failure branch a parameter.
+     *
+     * @param index index of the op in the failure branch of the template
+     * @return builder
+     * @throws IllegalArgumentException if the key is a parameter already
+     */
+    public Builder withFailureKey(int index) {
+      return declare(failureKeys, index, false);
+    }
+
+    /**
+     * Make the value of a put of the failure branch a parameter.
+     *
+     * @param index index of the put in the failure branch of the template
+     * @return builder
+     * @throws IllegalArgumentException if the op isn't a put or its value is a parameter already
+     */
+    public Builder withFailureValue(int index) {
+      checkElementIndex(index, failureValues.length, "failure index");
+      checkPut(template.getFailure(index), index);
+      return declare(failureValues, index, false);
+    }
+
+    public PreparedTxn build() {
+      boolean[] types = new boolean[longs.size()];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = longs.get(i);
+      }
+      return new PreparedTxn(this, types);
+    }
+
+    private Builder declare(int[] params, int index, boolean isLong) {
+      checkElementIndex(index, params.length, "index");
+      checkArgument(params[index] < 0, "parameter declared twice: index=%s", index);
+      params[index] = longs.size();
+      longs.add(isLong);
+      return this;
+    }
+
+    private static void checkPut(RequestOp op, int index) {
+      checkArgument(op.getRequestCase() == RequestOp.RequestCase.REQUEST_PUT,
+          "only the value of a put can be a parameter: index=%s", index);
+    }
+
+    private static int[] unbound(int size) {
+      int[] params = new int[size];
+      Arrays.fill(params, -1);
+      return params;
+    }
+  }
+
+  private final TxnRequest template;
+  private final int[] compareKeys;
+  private final int[] compareTargets;
+  private final int[] successKeys;
+  private final int[] successValues;
+  private final int[] failureKeys;
+  private final int[] failureValues;
+  private final boolean[] longs;
+
+  private PreparedTxn(Builder builder, boolean[] longs) {
+    this.template = builder.template;
+    this.compareKeys = builder.compareKeys.clone();
+    this.compareTargets = builder.compareTargets.clone();
+    this.successKeys = builder.successKeys.clone();
+    this.successValues = builder.successValues.clone();
+    this.failureKeys = builder.failureKeys.clone();
+    this.failureValues = builder.failureValues.clone();
+    this.longs = longs;
+  }
+
+  /**
+   * Get the number of parameters.
+   *
+   * @return the number of parameters to bind
+   */
+  public int getParameterCount() {
+    return longs.length;
+  }
+
+  /**
+   * Start binding the parameters of a txn to commit.
+   *
+   * @return binding with no parameter bound
+   */
+  public Binding bind() {
+    return new Binding();
+  }
+
+  /**
+   * The parameters of one txn to commit.
+   */
+  public final class Binding {
+
+    private final ByteString[] bytes = new ByteString[longs.length];
+    private final long[] numbers = new long[longs.length];
+    private final boolean[] bound = new boolean[longs.length];
+
+    private Binding() {
+    }
+
+    /**
+     * Bind a key or value parameter.
+     *
+     * @param index index of the parameter
+     * @param value key or value to bind
+     * @return this binding
+     * @throws IllegalArgumentException if the parameter is a number
+     */
+    public Binding set(int index, ByteString value) {
+      checkElementIndex(index, longs.length, "parameter index");
+      checkArgument(!longs[index], "parameter is a number: index=%s", index);
+      bytes[index] = checkNotNull(value, "value should not be null");
+      bound[index] = true;
+      return this;
+    }
+
+    /**
+     * Bind a version or revision parameter.
+     *
+     * @param index index of the parameter
+     * @param value version or revision to bind
+     * @return this binding
+     * @throws IllegalArgumentException if the parameter is a key or value
+     */
+    public Binding set(int index, long value) {
+      checkElementIndex(index, longs.length, "parameter index");
+      checkArgument(longs[index], "parameter is a key or value: index=%s", index);
+      numbers[index] = value;
+      bound[index] = true;
+      return this;
+    }
+
+    /**
+     * Build the txn of the bound parameters.
+     *
+     * @return txn to commit
+     * @throws IllegalStateException if a parameter isn't bound
+     */
+    public Txn toTxn() {
+      for (int i = 0; i < bound.length; i++) {
+        checkState(bound[i], "parameter not bound: index=%s", i);
+      }
+
+      TxnRequest.Builder request = TxnRequest.newBuilder();
+      for (int i = 0; i < compareKeys.length; i++) {
+        request.addCompare(compare(i));
+      }
+      for (int i = 0; i < successKeys.length; i++) {
+        request.addSuccess(op(template.getSuccess(i), successKeys[i], successValues[i]));
+      }
+      for (int i = 0; i < failureKeys.length; i++) {
+        request.addFailure(op(template.getFailure(i), failureKeys[i], failureValues[i]));
+      }
+      return new Txn(request.build());
+    }
+
+    private Compare compare(int i) {
+      Compare compare = template.getCompare(i);
+      if (compareKeys[i] < 0 && compareTargets[i] < 0) {
+        return compare;
+      }
+
+      Compare.Builder builder = compare.toBuilder();
+      if (compareKeys[i] >= 0) {
+        builder.setKey(bytes[compareKeys[i]]);
+      }
+      int target = compareTargets[i];
+      if (target >= 0) {
+        switch (compare.getTarget()) {
+          case VALUE:
+            builder.setValue(bytes[target]);
+            break;
+          case VERSION:
+            builder.setVersion(numbers[target]);
+            break;
+          case CREATE:
+            builder.setCreateRevision(numbers[target]);
+            break;
+          case MOD:
+            builder.setModRevision(numbers[target]);
+            break;
+          default:
+            throw new IllegalArgumentException(
+                "Unexpected target type (" + compare.getTarget() + ")");
+        }
+      }
+      return builder.build();
+    }
+
+    private RequestOp op(RequestOp op, int key, int value) {
+      if (key < 0 && value < 0) {
+        return op;
+      }
+
+      switch (op.getRequestCase()) {
+        case REQUEST_PUT:
+          PutRequest.Builder put = op.getRequestPut().toBuilder();
+          if (key >= 0) {
+            put.setKey(bytes[key]);
+          }
+          if (value >= 0) {
+            put.setValue(bytes[value]);
+          }
+          return RequestOp.newBuilder().setRequestPut(put).build();
+        case REQUEST_RANGE:
+          return RequestOp.newBuilder()
+              .setRequestRange(op.getRequestRange().toBuilder().setKey(bytes[key]))
+              .build();
+        case REQUEST_DELETE_RANGE:
+          return RequestOp.newBuilder()
+              .setRequestDeleteRange(op.getRequestDeleteRange().toBuilder().setKey(bytes[key]))
+              .build();
+        default:
+          throw new IllegalArgumentException(
+              "Unexpected request type (" + op.getRequestCase() + ")");
+      }
+    }
+  }
+}
@@ -88,8 +88,13 @@ public class Txn {
   private final List<Cmp> cmpList;
   private final List<Op> successOpList;
   private final List<Op> failureOpList;
+  private final TxnRequest request;
 
   public TxnRequest toTxnRequest() {
+    if (this.request != null) {
+      return this.request;
+    }
+
     TxnRequest.Builder requestBuilder = TxnRequest.newBuilder();
 
     for (Cmp c : this.cmpList) {
@@ -111,5 +116,16 @@ public class Txn {
     this.cmpList = cmpList;
     this.successOpList = successOpList;
     this.failureOpList = failureOpList;
+    this.request = null;
+  }
+
+  /**
+   * a txn of an already built request, as bound by a {@link PreparedTxn}.
+   */
+  Txn(TxnRequest request) {
+    this.cmpList = ImmutableList.of();
+    this.successOpList = ImmutableList.of();
+    this.failureOpList = ImmutableList.of();
+    this.request = request;
   }
 }
@@ -0,0 +1,210 @@
+package com.coreos.jetcd.op;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.DeleteRangeRequest;
+import com.coreos.jetcd.api.RequestOp;
+import com.coreos.jetcd.api.TxnRequest;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits a list of ops too long or too large for one txn into several unconditional txns, each
+ * within the max-txn-ops and max-request-bytes limits of the server. An op writing a key already
+ * written in the txn, a put of the same key or a put and a delete range holding it, starts a
+ * new txn too, since etcd refuses such txns.
+ *
+ * <p>The txns are committed one by one, so the ops are no longer applied atomically: a reader
+ * may see the effects of the first txns and not of the others, and a failure leaves the ops of
+ * the txns committed before it applied.
+ *
+ * <pre>
+ * {@code
+ * TxnSplitter splitter = TxnSplitter.newBuilder().build();
+ * for (Txn txn : splitter.split(ops)) {
+ *   kv.commit(txn).get();
+ * }
+ * }
+ * </pre>
+ */
+public final class TxnSplitter {
+
+  /**
+   * the size of the header of an op in the txn request, tag and length.
+   */
+  private static final int OP_OVERHEAD = 8;
+
+  private static final ByteString NUL = ByteString.copyFrom(new byte[]{0});
+
+  /**
+   * Create a builder to construct a txn splitter.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private int maxOps = 128;
+    private int maxBytes = 1024 * 1024;
+
+    private Builder() {
+    }
+
+    /**
+     * Limit the number of ops in one txn. It should not exceed the max-txn-ops setting of the
+     * etcd server, which defaults to 128.
+     *
+     * @param maxOps the maximum number of ops per txn
+     * @return builder
+     * @throws IllegalArgumentException if maxOps is not positive
+     */
+    public Builder withMaxOps(int maxOps) {
+      checkArgument(maxOps > 0, "maxOps should be positive: maxOps=%s", maxOps);
+      this.maxOps = maxOps;
+      return this;
+    }
+
+    /**
+     * Limit the encoded size of the ops in one txn. It should stay below the max-request-bytes
+     * setting of the etcd server, 1.5 MiB by default. An op larger than that goes alone in its
+     * txn. By default is 1 MiB.
+     *
+     * @param maxBytes the maximum number of bytes per txn
+     * @return builder
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public Builder withMaxBytes(int maxBytes) {
+      checkArgument(maxBytes > 0, "maxBytes should be positive: maxBytes=%s", maxBytes);
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    public TxnSplitter build() {
+      return new TxnSplitter(maxOps, maxBytes);
+    }
+  }
+
+  private final int maxOps;
+  private final int maxBytes;
+
+  private TxnSplitter(int maxOps, int maxBytes) {
+    this.maxOps = maxOps;
+    this.maxBytes = maxBytes;
+  }
+
+  public int getMaxOps() {
+    return maxOps;
+  }
+
+  public int getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Split ops into txns, keeping their order.
+   *
+   * @param ops ops to split
+   * @return txns applying the ops in order when committed in order, none if there is no op
+   */
+  public List<Txn> split(List<Op> ops) {
+    checkNotNull(ops, "ops should not be null");
+
+    List<Txn> txns = new ArrayList<>();
+    TxnRequest.Builder batch = TxnRequest.newBuilder();
+    Writes writes = new Writes();
+    int bytes = 0;
+    for (Op op : ops) {
+      RequestOp request = op.toRequestOp();
+      int size = request.getSerializedSize() + OP_OVERHEAD;
+      if (batch.getSuccessCount() > 0
+          && (batch.getSuccessCount() == maxOps || bytes + size > maxBytes
+          || writes.overlaps(request))) {
+        txns.add(new Txn(batch.build()));
+        batch = TxnRequest.newBuilder();
+        writes = new Writes();
+        bytes = 0;
+      }
+      batch.addSuccess(request);
+      writes.add(request);
+      bytes += size;
+    }
+    if (batch.getSuccessCount() > 0) {
+      txns.add(new Txn(batch.build()));
+    }
+    return txns;
+  }
+
+  /**
+   * the keys put and the ranges deleted by the ops of a txn, checked like etcd does: a put may
+   * not write a key put before, and a put and a delete range may not hold the same key.
+   */
+  private static class Writes {
+
+    private final Set<ByteString> puts = new HashSet<>();
+    private final List<DeleteRangeRequest> deletes = new ArrayList<>();
+
+    boolean overlaps(RequestOp op) {
+      switch (op.getRequestCase()) {
+        case REQUEST_PUT:
+          ByteString key = op.getRequestPut().getKey();
+          if (puts.contains(key)) {
+            return true;
+          }
+          for (DeleteRangeRequest delete : deletes) {
+            if (contains(delete, key)) {
+              return true;
+            }
+          }
+          return false;
+        case REQUEST_DELETE_RANGE:
+          for (ByteString put : puts) {
+            if (contains(op.getRequestDeleteRange(), put)) {
+              return true;
+            }
+          }
+          return false;
+        default:
+          return false;
+      }
+    }
+
+    void add(RequestOp op) {
+      switch (op.getRequestCase()) {
+        case REQUEST_PUT:
+          puts.add(op.getRequestPut().getKey());
+          break;
+        case REQUEST_DELETE_RANGE:
+          deletes.add(op.getRequestDeleteRange());
+          break;
+        default:
+          break;
+      }
+    }
+
+    private static boolean contains(DeleteRangeRequest delete, ByteString key) {
+      ByteString end = delete.getRangeEnd();
+      if (end.isEmpty()) {
+        return key.equals(delete.getKey());
+      }
+      return compare(key, delete.getKey()) >= 0 && (end.equals(NUL) || compare(key, end) < 0);
+    }
+
+    private static int compare(ByteString left, ByteString right) {
+      int size = Math.min(left.size(), right.size());
+      for (int i = 0; i < size; i++) {
+        int cmp = (left.byteAt(i) & 0xff) - (right.byteAt(i) & 0xff);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return left.size() - right.size();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.coreos.jetcd.options;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.zip.Deflater;
+
+/**
+ * The option for compressing large values.
+ *
+ * <p>When set on the {@link com.coreos.jetcd.ClientBuilder}, values of puts, including those in
+ * txns, at or above the threshold are deflated and stored behind a small header. Values read by
+ * gets, scans, txns and watches are inflated when they carry the header, whatever the threshold,
+ * so clients with different thresholds share keys. A client without the option reads the
+ * compressed bytes.
+ *
+ * <p>Txn compares against a value are sent as they are and compared with the stored bytes, so a
+ * value compare, a compare-and-swap on the value included, needs the value to be stored
+ * uncompressed: below the threshold, or written by a client without the option. Compare the
+ * version or mod revision of a compressed value instead.
+ *
+ * <p>Independently, gRPC can gzip the request messages on the wire, which only saves bandwidth.
+ */
+public final class CompressionOption {
+
+  public static final CompressionOption DEFAULT = newBuilder().build();
+
+  /**
+   * Create a builder to construct option for value compression.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private int threshold = 1024;
+    private int level = Deflater.BEST_SPEED;
+    private boolean messageCompression = false;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the size from which values are compressed. By default is 1 KiB.
+     *
+     * @param threshold the smallest value size in bytes to compress
+     * @return builder
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public Builder withThreshold(int threshold) {
+      checkArgument(threshold >= 0, "threshold should not be negative: threshold=%s",
+          threshold);
+      this.threshold = threshold;
+      return this;
+    }
+
+    /**
+     * Set the deflate level, from 1 for the fastest to 9 for the smallest output. By default is
+     * 1.
+     *
+     * @param level the compression level, in [1, 9]
+     * @return builder
+     * @throws IllegalArgumentException if level is not in [1, 9]
+     */
+    public Builder withLevel(int level) {
+      checkArgument(level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION,
+          "level should be in [1, 9]: level=%s", level);
+      this.level = level;
+      return this;
+    }
+
+    /**
+     * Gzip the KV request messages on the wire, on top of value compression. The server needs to
+     * accept gzip encoded messages. Off by default.
+     *
+     * @param messageCompression whether to gzip the request messages
+     * @return builder
+     */
+    public Builder withMessageCompression(boolean messageCompression) {
+      this.messageCompression = messageCompression;
+      return this;
+    }
+
+    public CompressionOption build() {
+      return new CompressionOption(threshold, level, messageCompression);
+    }
+  }
+
+  private final int threshold;
+  private final int level;
+  private final boolean messageCompression;
+
+  private CompressionOption(int threshold, int level, boolean messageCompression) {
+    this.threshold = threshold;
+    this.level = level;
+    this.messageCompression = messageCompression;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public boolean isMessageCompression() {
+    return messageCompression;
+  }
+}
@@ -0,0 +1,178 @@
+package com.coreos.jetcd.options;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The option for limiting the number of outstanding KV calls of one class.
+ *
+ * <p>When set on the {@link com.coreos.jetcd.ClientBuilder}, calls beyond the current limit wait
+ * in a bounded queue and calls beyond the queue fail right away with RESOURCE_EXHAUSTED. The
+ * limit adapts between its bounds: it grows by one while calls answer quickly and is cut by the
+ * backoff ratio when a call fails with UNAVAILABLE or RESOURCE_EXHAUSTED, or takes longer than
+ * the tolerance times the lowest latency seen recently.
+ */
+public final class ConcurrencyLimitOption {
+
+  public static final ConcurrencyLimitOption DEFAULT = newBuilder().build();
+
+  /**
+   * Create a builder to construct option for concurrency limiting.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private int maxQueueSize = 100;
+    private double backoffRatio = 0.9;
+    private double rttTolerance = 2.0;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the limit calls start with. By default is 20.
+     *
+     * @param initialLimit the initial number of outstanding calls
+     * @return builder
+     * @throws IllegalArgumentException if initialLimit is not positive
+     */
+    public Builder withInitialLimit(int initialLimit) {
+      checkArgument(initialLimit > 0, "initialLimit should be positive: initialLimit=%s",
+          initialLimit);
+      this.initialLimit = initialLimit;
+      return this;
+    }
+
+    /**
+     * Set the lowest the limit goes. By default is 1.
+     *
+     * @param minLimit the minimum number of outstanding calls
+     * @return builder
+     * @throws IllegalArgumentException if minLimit is not positive
+     */
+    public Builder withMinLimit(int minLimit) {
+      checkArgument(minLimit > 0, "minLimit should be positive: minLimit=%s", minLimit);
+      this.minLimit = minLimit;
+      return this;
+    }
+
+    /**
+     * Set the highest the limit goes. By default is 200.
+     *
+     * @param maxLimit the maximum number of outstanding calls
+     * @return builder
+     * @throws IllegalArgumentException if maxLimit is not positive
+     */
+    public Builder withMaxLimit(int maxLimit) {
+      checkArgument(maxLimit > 0, "maxLimit should be positive: maxLimit=%s", maxLimit);
+      this.maxLimit = maxLimit;
+      return this;
+    }
+
+    /**
+     * Set how many calls may wait for the limit, the next ones are rejected. By default is 100.
+     *
+     * @param maxQueueSize the maximum number of waiting calls, 0 to reject right away
+     * @return builder
+     * @throws IllegalArgumentException if maxQueueSize is negative
+     */
+    public Builder withMaxQueueSize(int maxQueueSize) {
+      checkArgument(maxQueueSize >= 0, "maxQueueSize should not be negative: maxQueueSize=%s",
+          maxQueueSize);
+      this.maxQueueSize = maxQueueSize;
+      return this;
+    }
+
+    /**
+     * Set the ratio the limit is multiplied by when the cluster shows overload. By default is
+     * 0.9.
+     *
+     * @param backoffRatio the ratio, in [0.5, 1)
+     * @return builder
+     * @throws IllegalArgumentException if backoffRatio is not in [0.5, 1)
+     */
+    public Builder withBackoffRatio(double backoffRatio) {
+      checkArgument(backoffRatio >= 0.5 && backoffRatio < 1,
+          "backoffRatio should be in [0.5, 1): backoffRatio=%s", backoffRatio);
+      this.backoffRatio = backoffRatio;
+      return this;
+    }
+
+    /**
+     * Set how many times the lowest recent latency a call may take before the limit is cut.
+     * By default is 2.
+     *
+     * @param rttTolerance the tolerance, at least 1
+     * @return builder
+     * @throws IllegalArgumentException if rttTolerance is less than 1
+     */
+    public Builder withRttTolerance(double rttTolerance) {
+      checkArgument(rttTolerance >= 1, "rttTolerance should be at least 1: rttTolerance=%s",
+          rttTolerance);
+      this.rttTolerance = rttTolerance;
+      return this;
+    }
+
+    /**
+     * build the option.
+     *
+     * @return the option
+     * @throws IllegalArgumentException if the initial limit is not within the limits
+     */
+    public ConcurrencyLimitOption build() {
+      checkArgument(minLimit <= initialLimit && initialLimit <= maxLimit,
+          "initialLimit should be in [minLimit, maxLimit]: initialLimit=%s, minLimit=%s, "
+              + "maxLimit=%s", initialLimit, minLimit, maxLimit);
+      return new ConcurrencyLimitOption(initialLimit, minLimit, maxLimit, maxQueueSize,
+          backoffRatio, rttTolerance);
+    }
+  }
+
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueueSize;
+  private final double backoffRatio;
+  private final double rttTolerance;
+
+  private ConcurrencyLimitOption(int initialLimit, int minLimit, int maxLimit, int maxQueueSize,
+      double backoffRatio, double rttTolerance) {
+    this.initialLimit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxQueueSize = maxQueueSize;
+    this.backoffRatio = backoffRatio;
+    this.rttTolerance = rttTolerance;
+  }
+
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public int getMaxQueueSize() {
+    return maxQueueSize;
+  }
+
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  public double getRttTolerance() {
+    return rttTolerance;
+  }
+}
@@ -33,6 +33,8 @@ public final class GetOption {
     private boolean keysOnly = false;
     private boolean countOnly = false;
     private Optional<ByteString> endKey = Optional.empty();
+    private Optional<Boolean> singleFlight = Optional.empty();
+    private Optional<Boolean> hedge = Optional.empty();
 
     private Builder() {
     }
@@ -159,9 +161,39 @@ public final class GetOption {
       return this;
     }
 
+    /**
+     * Let this get share the result of an identical get already in flight instead of sending its
+     * own request, overriding the client wide setting of
+     * {@link com.coreos.jetcd.ClientBuilder#setGetSingleFlight(boolean)}.
+     *
+     * <p>A shared result may have been read before this get was issued, so a linearizable get
+     * joining an in-flight one can miss a write that completed in between.
+     *
+     * @param singleFlight whether to share an identical in-flight get
+     * @return builder
+     */
+    public Builder withSingleFlight(boolean singleFlight) {
+      this.singleFlight = Optional.of(singleFlight);
+      return this;
+    }
+
+    /**
+     * Let this get be sent a second time if it is slow to answer, overriding whether the client
+     * hedges gets as set by
+     * {@link com.coreos.jetcd.ClientBuilder#setHedgeOption(HedgeOption)}. Only serializable gets
+     * are hedged.
+     *
+     * @param hedge whether to hedge this get
+     * @return builder
+     */
+    public Builder withHedge(boolean hedge) {
+      this.hedge = Optional.of(hedge);
+      return this;
+    }
+
     public GetOption build() {
       return new GetOption(endKey, limit, revision, sortOrder, sortTarget, serializable, keysOnly,
-          countOnly);
+          countOnly, singleFlight, hedge);
     }
 
   }
@@ -174,11 +206,13 @@ public final class GetOption {
   private final boolean serializable;
   private final boolean keysOnly;
   private final boolean countOnly;
+  private final Optional<Boolean> singleFlight;
+  private final Optional<Boolean> hedge;
 
   private GetOption(Optional<ByteString> endKey, long limit, long revision,
       RangeRequest.SortOrder sortOrder,
       RangeRequest.SortTarget sortTarget, boolean serializable, boolean keysOnly,
-      boolean countOnly) {
+      boolean countOnly, Optional<Boolean> singleFlight, Optional<Boolean> hedge) {
     this.endKey = endKey;
     this.limit = limit;
     this.revision = revision;
@@ -187,6 +221,8 @@ public final class GetOption {
     this.serializable = serializable;
     this.keysOnly = keysOnly;
     this.countOnly = countOnly;
+    this.singleFlight = singleFlight;
+    this.hedge = hedge;
   }
 
   /**
@@ -225,4 +261,22 @@ public final class GetOption {
   public boolean isCountOnly() {
     return countOnly;
   }
+
+  /**
+   * Get whether this get shares an identical in-flight get.
+   *
+   * @return the per call setting, empty to follow the client wide setting
+   */
+  public Optional<Boolean> getSingleFlight() {
+    return singleFlight;
+  }
+
+  /**
+   * Get whether this get is hedged, see {@link Builder#withHedge(boolean)}.
+   *
+   * @return the per call setting, empty to follow the client wide setting
+   */
+  public Optional<Boolean> getHedge() {
+    return hedge;
+  }
 }
@@ -0,0 +1,115 @@
+package com.coreos.jetcd.options;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The option for hedging serializable gets.
+ *
+ * <p>When set on the {@link com.coreos.jetcd.ClientBuilder}, a serializable get which hasn't been
+ * answered once the given percentile of recent get latencies has elapsed is sent a second time,
+ * to another member if the client routes by member, and the first answer wins. The number of
+ * second requests is bounded by a budget, a share of the gets sent.
+ */
+public final class HedgeOption {
+
+  public static final HedgeOption DEFAULT = newBuilder().build();
+
+  /**
+   * Create a builder to construct option for hedging.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private double percentile = 95;
+    private long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    private double budget = 0.1;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the percentile of recent latencies a get waits for before it is hedged. By default is
+     * 95.
+     *
+     * @param percentile the percentile, in (0, 100]
+     * @return builder
+     * @throws IllegalArgumentException if percentile is not in (0, 100]
+     */
+    public Builder withPercentile(double percentile) {
+      checkArgument(percentile > 0 && percentile <= 100,
+          "percentile should be in (0, 100]: percentile=%s", percentile);
+      this.percentile = percentile;
+      return this;
+    }
+
+    /**
+     * Set the minimum time a get waits for before it is hedged, whatever the recent latencies.
+     * By default is 1ms.
+     *
+     * @param minDelay the minimum delay
+     * @param unit the unit of the delay
+     * @return builder
+     * @throws IllegalArgumentException if minDelay is negative
+     */
+    public Builder withMinDelay(long minDelay, TimeUnit unit) {
+      checkArgument(minDelay >= 0, "minDelay should not be negative: minDelay=%s", minDelay);
+      checkNotNull(unit, "unit should not be null");
+      this.minDelayNanos = unit.toNanos(minDelay);
+      return this;
+    }
+
+    /**
+     * Set the share of gets which may be hedged, unused budget accumulates up to ten hedges.
+     * By default is 0.1, at most one hedge per ten gets.
+     *
+     * @param budget hedges per get, in [0, 1]
+     * @return builder
+     * @throws IllegalArgumentException if budget is not in [0, 1]
+     */
+    public Builder withBudget(double budget) {
+      checkArgument(budget >= 0 && budget <= 1, "budget should be in [0, 1]: budget=%s",
+          budget);
+      this.budget = budget;
+      return this;
+    }
+
+    public HedgeOption build() {
+      return new HedgeOption(percentile, minDelayNanos, budget);
+    }
+  }
+
+  private final double percentile;
+  private final long minDelayNanos;
+  private final double budget;
+
+  private HedgeOption(double percentile, long minDelayNanos, double budget) {
+    this.percentile = percentile;
+    this.minDelayNanos = minDelayNanos;
+    this.budget = budget;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+
+  /**
+   * Get the minimum hedge delay.
+   *
+   * @return the minimum delay in nanoseconds
+   */
+  public long getMinDelayNanos() {
+    return minDelayNanos;
+  }
+
+  public double getBudget() {
+    return budget;
+  }
+}
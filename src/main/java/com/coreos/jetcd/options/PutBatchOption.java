@@ -0,0 +1,113 @@
+package com.coreos.jetcd.options;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The option for coalescing concurrent put operations into txn batches.
+ *
+ * <p>When set on the {@link com.coreos.jetcd.ClientBuilder}, puts arriving within the batch
+ * window are sent together as a single txn, hence a single raft proposal, instead of one request
+ * each.
+ */
+public final class PutBatchOption {
+
+  public static final PutBatchOption DEFAULT = newBuilder().build();
+
+  /**
+   * Create a builder to construct option for put batching.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private int maxBatchSize = 128;
+    private int maxBatchBytes = 1024 * 1024;
+    private long windowNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private Builder() {
+    }
+
+    /**
+     * Limit the number of puts in one batch. It should not exceed the max-txn-ops setting of the
+     * etcd server, which defaults to 128.
+     *
+     * @param maxBatchSize the maximum number of puts per txn
+     * @return builder
+     * @throws IllegalArgumentException if maxBatchSize is not positive
+     */
+    public Builder withMaxBatchSize(int maxBatchSize) {
+      checkArgument(maxBatchSize > 0, "maxBatchSize should be positive: maxBatchSize=%s",
+          maxBatchSize);
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * Limit the encoded size of the puts in one batch, a batch reaching it is sent right away.
+     * It should stay below the max-request-bytes setting of the etcd server, 1.5 MiB by default.
+     *
+     * @param maxBatchBytes the maximum number of bytes per txn
+     * @return builder
+     * @throws IllegalArgumentException if maxBatchBytes is not positive
+     */
+    public Builder withMaxBatchBytes(int maxBatchBytes) {
+      checkArgument(maxBatchBytes > 0, "maxBatchBytes should be positive: maxBatchBytes=%s",
+          maxBatchBytes);
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
+    /**
+     * Set how long a batch waits for more puts after the first one arrived. By default is 1ms.
+     *
+     * @param window the batch window
+     * @param unit the unit of the window
+     * @return builder
+     * @throws IllegalArgumentException if window is negative
+     */
+    public Builder withWindow(long window, TimeUnit unit) {
+      checkArgument(window >= 0, "window should not be negative: window=%s", window);
+      checkNotNull(unit, "unit should not be null");
+      this.windowNanos = unit.toNanos(window);
+      return this;
+    }
+
+    public PutBatchOption build() {
+      return new PutBatchOption(maxBatchSize, maxBatchBytes, windowNanos);
+    }
+  }
+
+  private final int maxBatchSize;
+  private final int maxBatchBytes;
+  private final long windowNanos;
+
+  private PutBatchOption(int maxBatchSize, int maxBatchBytes, long windowNanos) {
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchBytes = maxBatchBytes;
+    this.windowNanos = windowNanos;
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public int getMaxBatchBytes() {
+    return maxBatchBytes;
+  }
+
+  /**
+   * Get the batch window.
+   *
+   * @return the batch window in nanoseconds
+   */
+  public long getWindowNanos() {
+    return windowNanos;
+  }
+}
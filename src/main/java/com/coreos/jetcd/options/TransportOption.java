@@ -0,0 +1,197 @@
+package com.coreos.jetcd.options;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.netty.channel.EventLoopGroup;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The option for tuning the Netty transport of the client connections.
+ *
+ * <p>When set on the {@link com.coreos.jetcd.ClientBuilder}, the channels are built with a
+ * {@link io.grpc.netty.NettyChannelBuilder} configured from it instead of the defaults of gRPC.
+ * Large ranges and snapshots mostly gain from a bigger flow control window, which lets more
+ * bytes be in flight before the server waits for a window update.
+ */
+public final class TransportOption {
+
+  public static final TransportOption DEFAULT = newBuilder().build();
+
+  /**
+   * Create a builder to construct option for the transport.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private boolean nativeTransport = false;
+    private Optional<EventLoopGroup> eventLoopGroup = Optional.empty();
+    private boolean pooledAllocator = false;
+    private int flowControlWindow = 1024 * 1024;
+    private int maxInboundMessageSize = 4 * 1024 * 1024;
+    private long keepAliveTimeNanos = -1;
+    private long keepAliveTimeoutNanos = -1;
+
+    private Builder() {
+    }
+
+    /**
+     * Use the native epoll transport when netty-transport-native-epoll is on the classpath and
+     * the platform supports it, NIO otherwise. Off by default.
+     *
+     * @param nativeTransport whether to prefer the native transport
+     * @return builder
+     */
+    public Builder withNativeTransport(boolean nativeTransport) {
+      this.nativeTransport = nativeTransport;
+      return this;
+    }
+
+    /**
+     * Run the connections on the given event loop group, which the caller shuts down after the
+     * clients using it are closed. The channels are epoll ones for an EpollEventLoopGroup and NIO
+     * ones otherwise, whatever the native transport setting. By default the clients share a group
+     * of the chosen transport.
+     *
+     * @param eventLoopGroup the event loop group
+     * @return builder
+     * @throws NullPointerException if eventLoopGroup is null
+     */
+    public Builder withEventLoopGroup(EventLoopGroup eventLoopGroup) {
+      checkNotNull(eventLoopGroup, "eventLoopGroup should not be null");
+      this.eventLoopGroup = Optional.of(eventLoopGroup);
+      return this;
+    }
+
+    /**
+     * Allocate the buffers of the connections from the pooled allocator of Netty instead of its
+     * default one. Off by default.
+     *
+     * @param pooledAllocator whether to use pooled buffers
+     * @return builder
+     */
+    public Builder withPooledAllocator(boolean pooledAllocator) {
+      this.pooledAllocator = pooledAllocator;
+      return this;
+    }
+
+    /**
+     * Set the initial HTTP/2 flow control window of the connections. By default is 1 MiB.
+     *
+     * @param flowControlWindow window in bytes
+     * @return builder
+     * @throws IllegalArgumentException if flowControlWindow is not positive
+     */
+    public Builder withFlowControlWindow(int flowControlWindow) {
+      checkArgument(flowControlWindow > 0,
+          "flowControlWindow should be positive: flowControlWindow=%s", flowControlWindow);
+      this.flowControlWindow = flowControlWindow;
+      return this;
+    }
+
+    /**
+     * Set the largest response the client accepts. By default is 4 MiB.
+     *
+     * @param maxInboundMessageSize size in bytes
+     * @return builder
+     * @throws IllegalArgumentException if maxInboundMessageSize is not positive
+     */
+    public Builder withMaxInboundMessageSize(int maxInboundMessageSize) {
+      checkArgument(maxInboundMessageSize > 0,
+          "maxInboundMessageSize should be positive: maxInboundMessageSize=%s",
+          maxInboundMessageSize);
+      this.maxInboundMessageSize = maxInboundMessageSize;
+      return this;
+    }
+
+    /**
+     * Send an HTTP/2 ping on a connection idle for keepAliveTime and close it if the ping is not
+     * answered within keepAliveTimeout. Off by default.
+     *
+     * @param keepAliveTime time between pings
+     * @param keepAliveTimeout time to wait for a ping answer
+     * @param unit the unit of the times
+     * @return builder
+     * @throws IllegalArgumentException if a time is not positive
+     */
+    public Builder withKeepAlive(long keepAliveTime, long keepAliveTimeout, TimeUnit unit) {
+      checkArgument(keepAliveTime > 0, "keepAliveTime should be positive: keepAliveTime=%s",
+          keepAliveTime);
+      checkArgument(keepAliveTimeout > 0,
+          "keepAliveTimeout should be positive: keepAliveTimeout=%s", keepAliveTimeout);
+      checkNotNull(unit, "unit should not be null");
+      this.keepAliveTimeNanos = unit.toNanos(keepAliveTime);
+      this.keepAliveTimeoutNanos = unit.toNanos(keepAliveTimeout);
+      return this;
+    }
+
+    public TransportOption build() {
+      return new TransportOption(nativeTransport, eventLoopGroup, pooledAllocator,
+          flowControlWindow, maxInboundMessageSize, keepAliveTimeNanos, keepAliveTimeoutNanos);
+    }
+  }
+
+  private final boolean nativeTransport;
+  private final Optional<EventLoopGroup> eventLoopGroup;
+  private final boolean pooledAllocator;
+  private final int flowControlWindow;
+  private final int maxInboundMessageSize;
+  private final long keepAliveTimeNanos;
+  private final long keepAliveTimeoutNanos;
+
+  private TransportOption(boolean nativeTransport, Optional<EventLoopGroup> eventLoopGroup,
+      boolean pooledAllocator, int flowControlWindow, int maxInboundMessageSize,
+      long keepAliveTimeNanos, long keepAliveTimeoutNanos) {
+    this.nativeTransport = nativeTransport;
+    this.eventLoopGroup = eventLoopGroup;
+    this.pooledAllocator = pooledAllocator;
+    this.flowControlWindow = flowControlWindow;
+    this.maxInboundMessageSize = maxInboundMessageSize;
+    this.keepAliveTimeNanos = keepAliveTimeNanos;
+    this.keepAliveTimeoutNanos = keepAliveTimeoutNanos;
+  }
+
+  public boolean isNativeTransport() {
+    return nativeTransport;
+  }
+
+  public Optional<EventLoopGroup> getEventLoopGroup() {
+    return eventLoopGroup;
+  }
+
+  public boolean isPooledAllocator() {
+    return pooledAllocator;
+  }
+
+  public int getFlowControlWindow() {
+    return flowControlWindow;
+  }
+
+  public int getMaxInboundMessageSize() {
+    return maxInboundMessageSize;
+  }
+
+  /**
+   * Get the time between keep alive pings.
+   *
+   * @return the time in nanoseconds, -1 if keep alive is off
+   */
+  public long getKeepAliveTimeNanos() {
+    return keepAliveTimeNanos;
+  }
+
+  /**
+   * Get the time to wait for a keep alive ping answer.
+   *
+   * @return the time in nanoseconds, -1 if keep alive is off
+   */
+  public long getKeepAliveTimeoutNanos() {
+    return keepAliveTimeoutNanos;
+  }
+}
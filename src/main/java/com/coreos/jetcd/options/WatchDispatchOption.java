@@ -0,0 +1,84 @@
+package com.coreos.jetcd.options;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * The option for running watch callbacks off the gRPC threads.
+ *
+ * <p>When set on the {@link com.coreos.jetcd.ClientBuilder}, the callbacks of each watcher are
+ * queued and run one at a time, in order, on an executor shared by all watchers, so a slow
+ * callback only holds up its own watcher. A watcher has a bounded number of responses queued;
+ * once it is full, the gRPC thread waits for the callback to catch up, which holds up every
+ * watcher of its stream as without the option.
+ */
+public final class WatchDispatchOption {
+
+  public static final WatchDispatchOption DEFAULT = newBuilder().build();
+
+  /**
+   * Create a builder to construct option for watch dispatch.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private Optional<Executor> executor = Optional.empty();
+    private int maxQueued = 1024;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the executor running the callbacks. By default a shared pool of daemon threads,
+     * growing with the number of watchers running a callback at once.
+     *
+     * @param executor executor of the callbacks
+     * @return builder
+     */
+    public Builder withExecutor(Executor executor) {
+      this.executor = Optional.of(checkNotNull(executor, "executor should not be null"));
+      return this;
+    }
+
+    /**
+     * Limit the number of responses queued for the callback of one watcher. By default is 1024.
+     *
+     * @param maxQueued the maximum number of queued responses per watcher
+     * @return builder
+     * @throws IllegalArgumentException if maxQueued is not positive
+     */
+    public Builder withMaxQueued(int maxQueued) {
+      checkArgument(maxQueued > 0, "maxQueued should be positive: maxQueued=%s", maxQueued);
+      this.maxQueued = maxQueued;
+      return this;
+    }
+
+    public WatchDispatchOption build() {
+      return new WatchDispatchOption(executor, maxQueued);
+    }
+  }
+
+  private final Optional<Executor> executor;
+  private final int maxQueued;
+
+  private WatchDispatchOption(Optional<Executor> executor, int maxQueued) {
+    this.executor = executor;
+    this.maxQueued = maxQueued;
+  }
+
+  public Optional<Executor> getExecutor() {
+    return executor;
+  }
+
+  public int getMaxQueued() {
+    return maxQueued;
+  }
+}
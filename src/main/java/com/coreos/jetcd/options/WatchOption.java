@@ -1,7 +1,11 @@
 package com.coreos.jetcd.options;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.coreos.jetcd.data.ByteSequence;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The option for watch operation.
@@ -28,6 +32,7 @@ public final class WatchOption {
     private boolean noPut = false;
     private boolean noDelete = false;
     private boolean resuming = false;
+    private long coalescingNanos = -1;
 
     private Builder() {
     }
@@ -109,6 +114,31 @@ public final class WatchOption {
       return this;
     }
 
+    /**
+     * Coalesce the events of each key and only deliver the newest one, with its revision, for
+     * keys rewritten faster than they are consumed. The events are gathered for the given window
+     * after the first of them, then delivered at once. With a window of 0, the events are only
+     * gathered while earlier ones wait for the callback.
+     *
+     * <p>The callbacks of a coalescing watcher run off the gRPC threads, through the dispatch
+     * queue of the watcher. Without a {@link WatchDispatchOption}, the queue runs on the
+     * default dispatch executor.
+     *
+     * <p>The intermediate values of a key are lost, so a put followed by a delete within the
+     * window only delivers the delete.
+     *
+     * @param window how long the events are gathered
+     * @param unit unit of the window
+     * @return builder
+     * @throws IllegalArgumentException if window is negative
+     */
+    public Builder withCoalescing(long window, TimeUnit unit) {
+      checkArgument(window >= 0, "window should not be negative: window=%s", window);
+      checkNotNull(unit, "unit should not be null");
+      this.coalescingNanos = unit.toNanos(window);
+      return this;
+    }
+
     public WatchOption build() {
       return new WatchOption(
           endKey,
@@ -117,7 +147,8 @@ public final class WatchOption {
           progressNotify,
           noPut,
           noDelete,
-          resuming);
+          resuming,
+          coalescingNanos);
     }
 
   }
@@ -129,6 +160,7 @@ public final class WatchOption {
   private final boolean noPut;
   private final boolean noDelete;
   private final boolean resuming;
+  private final long coalescingNanos;
 
   private WatchOption(Optional<ByteSequence> endKey,
       long revision,
@@ -136,7 +168,8 @@ public final class WatchOption {
       boolean progressNotify,
       boolean noPut,
       boolean noDelete,
-      boolean resuming) {
+      boolean resuming,
+      long coalescingNanos) {
     this.endKey = endKey;
     this.revision = revision;
     this.prevKV = prevKV;
@@ -144,6 +177,7 @@ public final class WatchOption {
     this.noPut = noPut;
     this.noDelete = noDelete;
     this.resuming = resuming;
+    this.coalescingNanos = coalescingNanos;
   }
 
   public Optional<ByteSequence> getEndKey() {
@@ -191,4 +225,23 @@ public final class WatchOption {
   public boolean isResuming() {
     return resuming;
   }
+
+  /**
+   * Whether the events of each key are coalesced to the newest one.
+   *
+   * @return if true, only the newest event of a key is delivered
+   */
+  public boolean isCoalescing() {
+    return coalescingNanos >= 0;
+  }
+
+  /**
+   * Get the window over which events are coalesced.
+   *
+   * @return window in nanoseconds, 0 to only coalesce the events waiting for the callback, -1
+   *     if events are not coalesced
+   */
+  public long getCoalescingNanos() {
+    return coalescingNanos;
+  }
 }
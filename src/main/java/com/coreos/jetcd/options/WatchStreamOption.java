@@ -0,0 +1,94 @@
+package com.coreos.jetcd.options;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The option for spreading watchers over several watch streams.
+ *
+ * <p>When set on the {@link com.coreos.jetcd.ClientBuilder}, the watch client opens up to the
+ * given number of bidirectional watch streams, each with its own create and cancel bookkeeping
+ * and resumed on its own when it fails. With a channel pool, each stream also gets a connection
+ * of its own, so the events of many watchers are decoded by several event loop threads.
+ */
+public final class WatchStreamOption {
+
+  /**
+   * How a new watcher picks its stream.
+   */
+  public enum Assignment {
+    /**
+     * by the hash of the watched key, so the watchers of a key share a stream and see its events
+     * in the same order.
+     */
+    KEY_HASH,
+    /**
+     * the stream with the fewest watchers.
+     */
+    LEAST_LOADED,
+  }
+
+  public static final WatchStreamOption DEFAULT = newBuilder().build();
+
+  /**
+   * Create a builder to construct option for watch streams.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private int streams = 4;
+    private Assignment assignment = Assignment.KEY_HASH;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the number of watch streams. By default is 4.
+     *
+     * @param streams number of watch streams
+     * @return builder
+     * @throws IllegalArgumentException if streams is not positive
+     */
+    public Builder withStreams(int streams) {
+      checkArgument(streams > 0, "streams should be positive: streams=%s", streams);
+      this.streams = streams;
+      return this;
+    }
+
+    /**
+     * Set how watchers are assigned to streams. By default by key hash.
+     *
+     * @param assignment assignment of the watchers
+     * @return builder
+     */
+    public Builder withAssignment(Assignment assignment) {
+      this.assignment = checkNotNull(assignment, "assignment should not be null");
+      return this;
+    }
+
+    public WatchStreamOption build() {
+      return new WatchStreamOption(streams, assignment);
+    }
+  }
+
+  private final int streams;
+  private final Assignment assignment;
+
+  private WatchStreamOption(int streams, Assignment assignment) {
+    this.streams = streams;
+    this.assignment = assignment;
+  }
+
+  public int getStreams() {
+    return streams;
+  }
+
+  public Assignment getAssignment() {
+    return assignment;
+  }
+}
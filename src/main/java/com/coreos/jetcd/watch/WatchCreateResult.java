@@ -0,0 +1,52 @@
+package com.coreos.jetcd.watch;
+
+import com.coreos.jetcd.Watch;
+import java.util.Optional;
+
+/**
+ * The outcome of one of the watches created by {@link Watch#watchAll(java.util.List)}, either
+ * its watcher or the reason it was not created.
+ */
+public class WatchCreateResult {
+
+  private final WatchSpec spec;
+  private final Optional<Watch.Watcher> watcher;
+  private final Optional<Throwable> error;
+
+  public WatchCreateResult(WatchSpec spec, Watch.Watcher watcher, Throwable error) {
+    this.spec = spec;
+    this.watcher = Optional.ofNullable(watcher);
+    this.error = Optional.ofNullable(error);
+  }
+
+  public WatchSpec getSpec() {
+    return spec;
+  }
+
+  /**
+   * Whether the watcher was created.
+   *
+   * @return if true, the watcher is present
+   */
+  public boolean isCreated() {
+    return watcher.isPresent();
+  }
+
+  /**
+   * Get the watcher, if created.
+   *
+   * @return the created watcher
+   */
+  public Optional<Watch.Watcher> getWatcher() {
+    return watcher;
+  }
+
+  /**
+   * Get why the watcher was not created, such as a {@link WatchCreateException}.
+   *
+   * @return the create failure
+   */
+  public Optional<Throwable> getError() {
+    return error;
+  }
+}
@@ -1,9 +1,15 @@
 package com.coreos.jetcd.watch;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.api.Event;
 import com.coreos.jetcd.data.KeyValue;
 
 /**
  * Watch event, return by watch, contain put, delete event.
+ *
+ * <p>Events received from etcd are views over the event message, their key values are only
+ * created when first asked for and then kept.
  */
 public class WatchEvent {
 
@@ -13,27 +19,63 @@ public class WatchEvent {
     UNRECOGNIZED,
   }
 
-  private final KeyValue keyValue;
+  private final Event event;
+
+  // created on first access for an event message, racing threads create equal views.
+  private KeyValue keyValue;
 
-  private final KeyValue prevKV;
+  private KeyValue prevKV;
 
   private final EventType eventType;
 
   public WatchEvent(KeyValue keyValue, KeyValue prevKV, EventType eventType) {
+    this.event = null;
     this.keyValue = keyValue;
     this.prevKV = prevKV;
     this.eventType = eventType;
   }
 
+  /**
+   * wrap an event message, without copying it.
+   *
+   * @param event event message
+   */
+  public WatchEvent(Event event) {
+    this.event = checkNotNull(event, "event should not be null");
+    this.keyValue = null;
+    this.prevKV = null;
+    this.eventType = null;
+  }
+
   public KeyValue getKeyValue() {
+    KeyValue keyValue = this.keyValue;
+    if (keyValue == null && event != null) {
+      keyValue = new KeyValue(event.getKv());
+      this.keyValue = keyValue;
+    }
     return keyValue;
   }
 
   public KeyValue getPrevKV() {
+    KeyValue prevKV = this.prevKV;
+    if (prevKV == null && event != null) {
+      prevKV = new KeyValue(event.getPrevKv());
+      this.prevKV = prevKV;
+    }
     return prevKV;
   }
 
   public EventType getEventType() {
-    return eventType;
+    if (event == null) {
+      return eventType;
+    }
+    switch (event.getType()) {
+      case PUT:
+        return EventType.PUT;
+      case DELETE:
+        return EventType.DELETE;
+      default:
+        return EventType.UNRECOGNIZED;
+    }
   }
 }
@@ -0,0 +1,36 @@
+package com.coreos.jetcd.watch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.coreos.jetcd.Watch;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.options.WatchOption;
+
+/**
+ * The key, option and callback of one of the watches created by
+ * {@link Watch#watchAll(java.util.List)}.
+ */
+public class WatchSpec {
+
+  private final ByteSequence key;
+  private final WatchOption watchOption;
+  private final Watch.WatchCallback callback;
+
+  public WatchSpec(ByteSequence key, WatchOption watchOption, Watch.WatchCallback callback) {
+    this.key = checkNotNull(key, "key should not be null");
+    this.watchOption = checkNotNull(watchOption, "watchOption should not be null");
+    this.callback = callback;
+  }
+
+  public ByteSequence getKey() {
+    return key;
+  }
+
+  public WatchOption getWatchOption() {
+    return watchOption;
+  }
+
+  public Watch.WatchCallback getCallback() {
+    return callback;
+  }
+}
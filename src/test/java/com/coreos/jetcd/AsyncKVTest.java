@@ -0,0 +1,104 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class AsyncKVTest {
+
+  private static final ByteString KEY = ByteString.copyFromUtf8("async");
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private ExecutorService executor;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    client = server.newClient();
+    executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "async-kv-test"));
+  }
+
+  @AfterClass
+  public void tearDown() {
+    executor.shutdownNow();
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testCompletesOnGivenExecutor() throws Exception {
+    AsyncKV kv = AsyncKV.of(client.getKVClient(), executor);
+    kv.put(KEY, ByteString.copyFromUtf8("v")).get(5, TimeUnit.SECONDS);
+
+    String thread = kv.get(KEY)
+        .thenApply(response -> Thread.currentThread().getName())
+        .get(5, TimeUnit.SECONDS);
+
+    assertThat(thread).isEqualTo("async-kv-test");
+  }
+
+  @Test
+  public void testCompletesOnCallbackThread() throws Exception {
+    AsyncKV kv = AsyncKV.of(client.getKVClient());
+    kv.put(KEY, ByteString.copyFromUtf8("v")).get(5, TimeUnit.SECONDS);
+
+    RangeResponse response = kv.get(KEY).get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getKvs(0).getValue().toStringUtf8()).isEqualTo("v");
+  }
+
+  @Test
+  public void testFailsWithCause() {
+    AsyncKV kv = AsyncKV.of(client.getKVClient());
+    CompletableFuture<RangeResponse> future = kv.get(KEY,
+        GetOption.newBuilder().withRevision(Long.MAX_VALUE).build());
+
+    assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(StatusRuntimeException.class);
+    assertThat(Status.fromThrowable(future.handle((r, t) -> t).join()).getCode())
+        .isEqualTo(Status.Code.OUT_OF_RANGE);
+  }
+
+  @Test
+  public void testCancelPropagatesToSource() {
+    SettableFuture<String> source = SettableFuture.create();
+    CompletableFuture<String> future = ClientUtil
+        .toCompletableFuture(source, MoreExecutors.directExecutor());
+
+    future.cancel(true);
+
+    assertThat(source.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testRejectedCompletionFails() {
+    SettableFuture<String> source = SettableFuture.create();
+    CompletableFuture<String> future = ClientUtil.toCompletableFuture(source, runnable -> {
+      throw new RejectedExecutionException("shut down");
+    });
+
+    source.set("done");
+
+    assertThat(future.isCompletedExceptionally()).isTrue();
+    assertThatThrownBy(future::join).hasCauseInstanceOf(RejectedExecutionException.class);
+  }
+}
@@ -0,0 +1,98 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.op.TxnSplitter;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BulkDeleteTest {
+
+  private static final ByteString PREFIX = ByteString.copyFromUtf8("bulk/");
+  private static final ByteString VALUE = ByteString.copyFromUtf8("v");
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    client = server.newClient();
+    kvClient = client.getKVClient();
+    for (int i = 0; i < 500; i++) {
+      kvClient.put(ByteString.copyFromUtf8(String.format("bulk/%04d", i)), VALUE).get();
+    }
+    kvClient.put(ByteString.copyFromUtf8("bulk"), VALUE).get();
+    kvClient.put(ByteString.copyFromUtf8("bulk0"), VALUE).get();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  private long count(ByteString prefix) throws Exception {
+    return kvClient.get(prefix, GetOption.newBuilder().withPrefix(prefix).withCountOnly(true)
+        .build()).get().getCount();
+  }
+
+  @Test
+  public void testDeletePrefixInBatches() throws Exception {
+    List<Long> progress = new CopyOnWriteArrayList<>();
+
+    long deleted = BulkDelete.newBuilder(kvClient)
+        .withPrefix(PREFIX)
+        .withPageSize(100)
+        .withSplitter(TxnSplitter.newBuilder().withMaxOps(30).build())
+        .withProgress(progress::add)
+        .build()
+        .run()
+        .get(10, TimeUnit.SECONDS);
+
+    assertThat(deleted).isEqualTo(500);
+    assertThat(count(PREFIX)).isZero();
+    assertThat(count(ByteString.copyFromUtf8("bulk"))).isEqualTo(2);
+    // 3 txns of 30 and one of 10 per page.
+    assertThat(progress).hasSize(20);
+    assertThat(progress).isSorted();
+    assertThat(progress.get(progress.size() - 1)).isEqualTo(500);
+  }
+
+  @Test
+  public void testEmptyRange() throws Exception {
+    long deleted = BulkDelete.newBuilder(kvClient)
+        .withPrefix(ByteString.copyFromUtf8("none/"))
+        .build()
+        .run()
+        .get(10, TimeUnit.SECONDS);
+
+    assertThat(deleted).isZero();
+  }
+
+  @Test
+  public void testRateIsHonoured() throws Exception {
+    long start = System.nanoTime();
+
+    long deleted = BulkDelete.newBuilder(kvClient)
+        .withPrefix(PREFIX)
+        .withPageSize(50)
+        .withRate(1000)
+        .build()
+        .run()
+        .get(10, TimeUnit.SECONDS);
+
+    assertThat(deleted).isEqualTo(500);
+    // the last page waits for the 450 keys before it.
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(
+        TimeUnit.MILLISECONDS.toNanos(450));
+  }
+}
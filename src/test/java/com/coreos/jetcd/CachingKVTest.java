@@ -0,0 +1,166 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CachingKVTest {
+
+  private static final ByteString PREFIX = ByteString.copyFromUtf8("config/");
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV writer;
+  private CachingKV cachingKV;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    client = server.newClient();
+    writer = client.getKVClient();
+    for (int i = 0; i < 5; i++) {
+      writer.put(key(i), ByteString.copyFromUtf8("v" + i)).get();
+    }
+    cachingKV = CachingKV.newBuilder(client)
+        .withPrefix(PREFIX)
+        .withMaximumSize(100)
+        .build();
+    cachingKV.start().get(5, TimeUnit.SECONDS);
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    cachingKV.close();
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testServesFromCacheAndFallsBackOnMiss() throws Exception {
+    assertThat(cachingKV.getRevision()).isEqualTo(server.getStore().getRevision());
+
+    for (int i = 0; i < 5; i++) {
+      ListenableFuture<RangeResponse> cached = cachingKV.get(key(i));
+      assertThat(cached.isDone()).isTrue();
+      assertThat(value(cached.get())).isEqualTo("v" + i);
+      assertThat(cached.get().getHeader().getRevision()).isEqualTo(cachingKV.getRevision());
+    }
+    assertThat(cachingKV.getHitCount()).isEqualTo(5);
+
+    assertThat(cachingKV.get(ByteString.copyFromUtf8("config/absent")).get().getCount()).isZero();
+    assertThat(cachingKV.get(ByteString.copyFromUtf8("config/absent")).isDone()).isTrue();
+    assertThat(cachingKV.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testEvictedKeysAreReadFromServer() throws Exception {
+    try (CachingKV small = CachingKV.newBuilder(client)
+        .withPrefix(PREFIX)
+        .withMaximumSize(1)
+        .build()) {
+      small.start().get(5, TimeUnit.SECONDS);
+      for (int i = 0; i < 5; i++) {
+        assertThat(value(small.get(key(i)).get())).isEqualTo("v" + i);
+      }
+      assertThat(small.getMissCount()).isPositive();
+    }
+  }
+
+  @Test
+  public void testFollowsWatch() throws Exception {
+    assertThat(value(cachingKV.get(key(4)).get())).isEqualTo("v4");
+
+    long revision = writer.put(key(4), ByteString.copyFromUtf8("changed")).get()
+        .getHeader().getRevision();
+    writer.delete(key(3)).get();
+    awaitRevision(revision + 1);
+
+    assertThat(value(cachingKV.get(key(4)).get())).isEqualTo("changed");
+    assertThat(cachingKV.get(key(3)).get().getCount()).isZero();
+    assertThat(cachingKV.getMissCount()).isZero();
+  }
+
+  @Test
+  public void testReadsOwnWrites() throws Exception {
+    cachingKV.put(key(4), ByteString.copyFromUtf8("mine")).get();
+    assertThat(value(cachingKV.get(key(4)).get())).isEqualTo("mine");
+
+    cachingKV.delete(key(4)).get();
+    assertThat(cachingKV.get(key(4)).get().getCount()).isZero();
+  }
+
+  @Test
+  public void testRangeGetGoesToServer() throws Exception {
+    RangeResponse response = cachingKV.get(PREFIX,
+        GetOption.newBuilder().withPrefix(PREFIX).withCountOnly(true).build()).get();
+
+    assertThat(response.getCount()).isEqualTo(5);
+    assertThat(cachingKV.getHitCount() + cachingKV.getMissCount()).isZero();
+  }
+
+  private void awaitRevision(long revision) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cachingKV.getRevision() < revision && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(cachingKV.getRevision()).isGreaterThanOrEqualTo(revision);
+  }
+
+  private static ByteString key(int i) {
+    return PREFIX.concat(ByteString.copyFromUtf8("k" + i));
+  }
+
+  private static String value(RangeResponse response) {
+    return response.getKvs(0).getValue().toStringUtf8();
+  }
+
+  @Test
+  public void testReloadsOnceTheWatchRevisionIsCompacted() throws Exception {
+    Watch watch = client.getWatchClient();
+    AtomicBoolean compacted = new AtomicBoolean();
+    Watch compacting = (key, option, callback) -> {
+      if (compacted.compareAndSet(false, true)) {
+        // the prefix changes, then the revision the first watch starts at is compacted.
+        Futures.getUnchecked(writer.put(key(0), ByteString.copyFromUtf8("changed")));
+        long revision = Futures.getUnchecked(writer.put(key(1), ByteString.copyFromUtf8("v1")))
+            .getHeader().getRevision();
+        Futures.getUnchecked(writer.compact(
+            CompactOption.newBuilder().withRevision(revision).build()));
+      }
+      return watch.watch(key, option, callback);
+    };
+
+    try (CachingKV reloading = CachingKV.newBuilder(writer, compacting)
+        .withPrefix(PREFIX)
+        .build()) {
+      reloading.start().get(5, TimeUnit.SECONDS);
+      long current = server.getStore().getRevision();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (reloading.getRevision() < current && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(reloading.getRevision()).isEqualTo(current);
+      assertThat(value(reloading.get(key(0)).get())).isEqualTo("changed");
+      assertThat(reloading.getHitCount()).isEqualTo(1);
+
+      // and followed by the new watch.
+      writer.put(key(0), ByteString.copyFromUtf8("again")).get();
+      while (!value(reloading.get(key(0)).get()).equals("again")
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(value(reloading.get(key(0)).get())).isEqualTo("again");
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.api.LeaseGrpc;
+import com.coreos.jetcd.api.WatchGrpc;
+import com.coreos.jetcd.api.WatchResponse;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import io.grpc.stub.StreamObserver;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ChannelPoolTest {
+
+  private static final ByteString KEY = ByteString.copyFromUtf8("pool");
+
+  private EtcdInProcessServer server;
+  private ChannelPool pool;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    pool = new ChannelPool(server.channelBuilder(), 3);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    pool.shutdownNow();
+    server.close();
+  }
+
+  @Test
+  public void testUnaryCallsUsePooledChannels() throws Exception {
+    KV kvClient = new KVImpl(pool, Optional.empty());
+    for (int i = 0; i < 10; i++) {
+      kvClient.put(KEY, ByteString.copyFromUtf8("v" + i)).get();
+    }
+
+    assertThat(kvClient.get(KEY).get().getKvs(0).getValue().toStringUtf8()).isEqualTo("v9");
+    assertThat(pool.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void testStreamsGetAChannelPerService() throws Exception {
+    WatchGrpc.newStub(pool).watch(new NoopObserver<>());
+    WatchGrpc.newStub(pool).watch(new NoopObserver<>());
+    assertThat(pool.size()).isEqualTo(4);
+
+    LeaseGrpc.newStub(pool).leaseKeepAlive(new NoopObserver<>());
+    assertThat(pool.size()).isEqualTo(5);
+  }
+
+  @Test
+  public void testIndexedStreamsGetAChannelEach() throws Exception {
+    WatchGrpc.newStub(pool).watch(new NoopObserver<>());
+    WatchGrpc.newStub(pool).withOption(ChannelPool.STREAM, 1).watch(new NoopObserver<>());
+    WatchGrpc.newStub(pool).withOption(ChannelPool.STREAM, 2).watch(new NoopObserver<>());
+    WatchGrpc.newStub(pool).withOption(ChannelPool.STREAM, 2).watch(new NoopObserver<>());
+
+    assertThat(pool.size()).isEqualTo(6);
+  }
+
+  @Test
+  public void testShutdownTerminatesEveryChannel() throws Exception {
+    WatchGrpc.newStub(pool).watch(new NoopObserver<WatchResponse>());
+
+    pool.shutdownNow();
+
+    assertThat(pool.isShutdown()).isTrue();
+    assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(pool.isTerminated()).isTrue();
+  }
+
+  private static final class NoopObserver<T> implements StreamObserver<T> {
+
+    @Override
+    public void onNext(T value) {
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+    }
+
+    @Override
+    public void onCompleted() {
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.options.ConcurrencyLimitOption;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ConcurrencyLimiterTest {
+
+  private ConcurrencyLimiter limiter;
+  private List<SettableFuture<String>> sent;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    limiter = new ConcurrencyLimiter(ConcurrencyLimitOption.newBuilder()
+        .withInitialLimit(2)
+        .withMinLimit(1)
+        .withMaxLimit(4)
+        .withMaxQueueSize(1)
+        .withBackoffRatio(0.5)
+        .withRttTolerance(1_000_000)
+        .build());
+    sent = new ArrayList<>();
+  }
+
+  @Test
+  public void testQueuesBeyondLimit() throws Exception {
+    ListenableFuture<String> first = execute();
+    execute();
+    ListenableFuture<String> queued = execute();
+
+    assertThat(sent).hasSize(2);
+    assertThat(limiter.getQueued()).isEqualTo(1);
+
+    sent.get(0).set("first");
+
+    assertThat(first.get()).isEqualTo("first");
+    assertThat(sent).hasSize(3);
+    sent.get(2).set("queued");
+    assertThat(queued.get()).isEqualTo("queued");
+  }
+
+  @Test
+  public void testRejectsBeyondQueue() throws Exception {
+    execute();
+    execute();
+    execute();
+    ListenableFuture<String> rejected = execute();
+
+    assertThat(sent).hasSize(2);
+    assertThatThrownBy(rejected::get)
+        .isInstanceOf(ExecutionException.class)
+        .satisfies(e -> assertThat(Status.fromThrowable(e.getCause()).getCode())
+            .isEqualTo(Status.Code.RESOURCE_EXHAUSTED));
+  }
+
+  @Test
+  public void testCancelledWhileQueuedIsNotSent() throws Exception {
+    execute();
+    execute();
+    ListenableFuture<String> queued = execute();
+
+    queued.cancel(false);
+    sent.get(0).set("first");
+
+    assertThat(limiter.getQueued()).isEqualTo(0);
+    assertThat(sent).hasSize(2);
+    assertThat(limiter.getInflight()).isEqualTo(1);
+  }
+
+  @Test
+  public void testOverloadShrinksLimit() throws Exception {
+    execute();
+    execute();
+
+    sent.get(0).setException(Status.UNAVAILABLE.asRuntimeException());
+
+    assertThat(limiter.getLimit()).isEqualTo(1);
+    sent.get(1).setException(Status.RESOURCE_EXHAUSTED.asRuntimeException());
+    assertThat(limiter.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  public void testOtherFailuresKeepLimit() throws Exception {
+    execute();
+
+    sent.get(0).setException(Status.NOT_FOUND.asRuntimeException());
+
+    assertThat(limiter.getLimit()).isEqualTo(2);
+    assertThat(limiter.getInflight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBusySuccessesGrowLimitUpToMax() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      execute();
+      execute();
+      sent.get(sent.size() - 2).set("a");
+      sent.get(sent.size() - 1).set("b");
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(4);
+  }
+
+  private ListenableFuture<String> execute() {
+    return limiter.execute(() -> {
+      SettableFuture<String> future = SettableFuture.create();
+      sent.add(future);
+      return future;
+    });
+  }
+}
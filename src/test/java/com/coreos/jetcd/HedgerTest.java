@@ -0,0 +1,132 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.options.HedgeOption;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class HedgerTest {
+
+  private HedgeStats stats;
+  private Hedger hedger;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    stats = new HedgeStats();
+    hedger = new Hedger(HedgeOption.newBuilder()
+        .withPercentile(50)
+        .withMinDelay(5, TimeUnit.MILLISECONDS)
+        .withBudget(0.5)
+        .build(), stats);
+    for (int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+      hedger.execute(() -> Futures.immediateFuture("warm")).get();
+    }
+  }
+
+  @Test
+  public void testNoHedgeUntilLatenciesAreKnown() throws Exception {
+    Hedger cold = new Hedger(HedgeOption.DEFAULT, new HedgeStats());
+    SettableFuture<String> slow = SettableFuture.create();
+    AtomicInteger attempts = new AtomicInteger();
+
+    ListenableFuture<String> result = cold.execute(() -> {
+      attempts.incrementAndGet();
+      return slow;
+    });
+    Thread.sleep(50);
+    slow.set("slow");
+
+    assertThat(result.get()).isEqualTo("slow");
+    assertThat(attempts.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testHedgeWinsOverSlowAttempt() throws Exception {
+    SettableFuture<String> slow = SettableFuture.create();
+    SettableFuture<String> fast = SettableFuture.create();
+    List<SettableFuture<String>> attempts = attempts(slow, fast);
+    fast.set("fast");
+
+    String value = hedger.execute(() -> attempts.remove(0)).get(5, TimeUnit.SECONDS);
+
+    assertThat(value).isEqualTo("fast");
+    assertThat(slow.isCancelled()).isTrue();
+    assertThat(stats.getDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+    assertThat(stats.getHedges()).isEqualTo(1);
+    assertThat(stats.getWins()).isEqualTo(1);
+    assertThat(stats.getWinRatio()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void testBudgetLimitsHedges() throws Exception {
+    // the warm up saved up the maximum of 10 hedges, then every get earns half a hedge.
+    for (int i = 0; i < 30; i++) {
+      SettableFuture<String> slow = SettableFuture.create();
+      SettableFuture<String> fast = SettableFuture.create();
+      fast.set("fast");
+      List<SettableFuture<String>> attempts = attempts(slow, fast);
+      ListenableFuture<String> result = hedger.execute(() -> attempts.remove(0));
+      while (stats.getHedges() + stats.getThrottled() == i) {
+        Thread.sleep(1);
+      }
+      slow.set("slow");
+      result.get();
+    }
+
+    assertThat(stats.getHedges()).isEqualTo(24);
+    assertThat(stats.getThrottled()).isEqualTo(6);
+  }
+
+  @Test
+  public void testFailsWhenEveryAttemptFailed() throws Exception {
+    SettableFuture<String> first = SettableFuture.create();
+    SettableFuture<String> second = SettableFuture.create();
+    List<SettableFuture<String>> attempts = attempts(first, second);
+
+    ListenableFuture<String> result = hedger.execute(() -> attempts.remove(0));
+    Thread.sleep(20);
+    first.setException(new IllegalStateException("first"));
+    assertThat(result.isDone()).isFalse();
+    second.setException(new IllegalStateException("second"));
+
+    assertThatThrownBy(result::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasMessageContaining("second");
+  }
+
+  @Test
+  public void testLatencyIsSampledFromTheIssueOfTheFirstAttempt() throws Exception {
+    HedgeStats issuedStats = new HedgeStats();
+    Hedger issuedHedger = new Hedger(HedgeOption.newBuilder()
+        .withPercentile(50)
+        .withMinDelay(1, TimeUnit.MILLISECONDS)
+        .build(), issuedStats);
+    // issued 50ms before the answer, as when the request waited for the member channel.
+    long issued = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+    for (int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+      issuedHedger.execute(() -> Futures.immediateFuture("warm"), () -> issued).get();
+    }
+
+    assertThat(issuedStats.getDelayNanos())
+        .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @SafeVarargs
+  private static List<SettableFuture<String>> attempts(SettableFuture<String>... futures) {
+    List<SettableFuture<String>> attempts = new ArrayList<>();
+    for (SettableFuture<String> future : futures) {
+      attempts.add(future);
+    }
+    return attempts;
+  }
+}
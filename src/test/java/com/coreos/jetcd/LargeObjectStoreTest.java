@@ -0,0 +1,133 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LargeObjectStoreTest {
+
+  private static final ByteString KEY = ByteString.copyFromUtf8("objects/model");
+  private static final ByteString CHUNKS = ByteString.copyFromUtf8("chunks/");
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV kvClient;
+  private LargeObjectStore store;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withMaxRequestBytes(64 * 1024)
+        .build()
+        .start();
+    client = server.newClient();
+    kvClient = client.getKVClient();
+    store = LargeObjectStore.newBuilder(kvClient)
+        .withChunkSize(16 * 1024)
+        .withParallelism(3)
+        .withChunkPrefix(CHUNKS)
+        .build();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  private static byte[] randomBytes(int size, long seed) {
+    byte[] bytes = new byte[size];
+    new Random(seed).nextBytes(bytes);
+    return bytes;
+  }
+
+  private byte[] read(ByteString key) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(store.get(key, out)).isTrue();
+    return out.toByteArray();
+  }
+
+  private long chunkCount() throws Exception {
+    return kvClient.get(CHUNKS, GetOption.newBuilder().withPrefix(CHUNKS).withCountOnly(true)
+        .build()).get().getCount();
+  }
+
+  @Test
+  public void testValueOverRequestLimitRoundTrips() throws Exception {
+    byte[] value = randomBytes(200 * 1024 + 123, 0);
+
+    store.put(KEY, new ByteArrayInputStream(value));
+
+    assertThat(read(KEY)).isEqualTo(value);
+    assertThat(chunkCount()).isEqualTo(13);
+  }
+
+  @Test
+  public void testEmptyAndExactMultipleSizes() throws Exception {
+    store.put(KEY, new ByteArrayInputStream(new byte[0]));
+    assertThat(read(KEY)).isEmpty();
+
+    byte[] value = randomBytes(32 * 1024, 1);
+    store.put(KEY, new ByteArrayInputStream(value));
+    assertThat(read(KEY)).isEqualTo(value);
+    assertThat(chunkCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testOverwriteDeletesOldChunks() throws Exception {
+    byte[] first = randomBytes(100 * 1024, 2);
+    long revision = store.put(KEY, new ByteArrayInputStream(first));
+    byte[] second = randomBytes(40 * 1024, 3);
+    store.put(KEY, new ByteArrayInputStream(second));
+
+    assertThat(read(KEY)).isEqualTo(second);
+    assertThat(chunkCount()).isEqualTo(3);
+    // the old chunks are still there at the revision of the old manifest.
+    assertThat(kvClient.get(CHUNKS, GetOption.newBuilder().withPrefix(CHUNKS)
+        .withRevision(revision).withCountOnly(true).build()).get().getCount()).isEqualTo(7);
+  }
+
+  @Test
+  public void testDelete() throws Exception {
+    store.put(KEY, new ByteArrayInputStream(randomBytes(50 * 1024, 4)));
+
+    assertThat(store.delete(KEY)).isTrue();
+    assertThat(store.delete(KEY)).isFalse();
+    assertThat(store.get(KEY, new ByteArrayOutputStream())).isFalse();
+    assertThat(chunkCount()).isZero();
+  }
+
+  @Test
+  public void testPlainValueIsRejected() throws Exception {
+    kvClient.put(KEY, ByteString.copyFromUtf8("plain")).get();
+
+    assertThatThrownBy(() -> store.get(KEY, new ByteArrayOutputStream()))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("not a large object");
+  }
+
+  @Test
+  public void testFailedPutLeavesNoChunks() throws Exception {
+    LargeObjectStore tooLarge = LargeObjectStore.newBuilder(kvClient)
+        .withChunkSize(128 * 1024)
+        .withChunkPrefix(CHUNKS)
+        .build();
+
+    assertThatThrownBy(() -> tooLarge.put(KEY, new ByteArrayInputStream(randomBytes(
+        300 * 1024, 5)))).isInstanceOf(IOException.class);
+
+    assertThat(kvClient.get(KEY).get().getKvsCount()).isZero();
+    Thread.sleep(100);
+    assertThat(chunkCount()).isZero();
+  }
+}
@@ -0,0 +1,128 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.api.KVGrpc;
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MemberRouterTest {
+
+  private static final ByteString KEY = ByteString.copyFromUtf8("member");
+  private static final GetOption SERIALIZABLE = GetOption.newBuilder()
+      .withSerializable(true)
+      .build();
+
+  private List<EtcdInProcessServer> servers = new ArrayList<>();
+  private MemberRouter router;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    for (long id = 1; id <= 3; id++) {
+      EtcdInProcessServer server = EtcdInProcessServer.newBuilder().withMemberId(id).build()
+          .start();
+      server.getStore().setLeaderId(2);
+      servers.add(server);
+    }
+    List<ManagedChannel> channels = servers.stream()
+        .map(server -> server.channelBuilder().build())
+        .collect(Collectors.toList());
+    router = new MemberRouter(channels, Optional.empty());
+    kvClient = new KVImpl(router, Optional.empty());
+    awaitLeader(2);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    router.close();
+    servers.forEach(EtcdInProcessServer::close);
+    servers.clear();
+  }
+
+  @Test
+  public void testWritesAndLinearizableReadsGoToLeader() throws Exception {
+    long before = servers.get(0).getStore().getRevision();
+    for (int i = 0; i < 5; i++) {
+      kvClient.put(KEY, ByteString.copyFromUtf8("v" + i)).get();
+    }
+
+    assertThat(servers.get(0).getStore().getRevision()).isEqualTo(before);
+    assertThat(servers.get(2).getStore().getRevision()).isEqualTo(before);
+    assertThat(kvClient.get(KEY).get().getHeader().getMemberId()).isEqualTo(2);
+  }
+
+  @Test
+  public void testSerializableReadsAreSpread() throws Exception {
+    Set<Long> memberIds = new HashSet<>();
+    for (int i = 0; i < 6; i++) {
+      memberIds.add(kvClient.get(KEY, SERIALIZABLE).get().getHeader().getMemberId());
+    }
+
+    assertThat(memberIds).containsOnly(1L, 2L, 3L);
+  }
+
+  @Test
+  public void testAttemptsGoToDifferentMembers() throws Exception {
+    MemberRouter.Attempts attempts = new MemberRouter.Attempts();
+    KVGrpc.KVFutureStub stub = KVGrpc.newFutureStub(router)
+        .withOption(MemberRouter.SERIALIZABLE, Boolean.TRUE)
+        .withOption(MemberRouter.ATTEMPTS, attempts);
+    RangeRequest request = RangeRequest.newBuilder().setKey(KEY).setSerializable(true).build();
+
+    Set<Long> memberIds = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      memberIds.add(stub.range(request).get().getHeader().getMemberId());
+    }
+
+    assertThat(memberIds).containsOnly(1L, 2L, 3L);
+  }
+
+  @Test
+  public void testNewTermMovesLeader() throws Exception {
+    for (EtcdInProcessServer server : servers) {
+      server.getStore().setLeaderId(3);
+      server.getStore().setRaftTerm(2);
+    }
+
+    kvClient.get(KEY, SERIALIZABLE).get();
+    awaitLeader(3);
+
+    assertThat(kvClient.put(KEY, ByteString.copyFromUtf8("v")).get().getHeader().getMemberId())
+        .isEqualTo(3);
+  }
+
+  @Test
+  public void testUnavailableLeaderIsSkipped() throws Exception {
+    servers.get(1).close();
+
+    assertThatThrownBy(() -> kvClient.put(KEY, ByteString.copyFromUtf8("v")).get())
+        .hasCauseInstanceOf(StatusRuntimeException.class);
+
+    assertThat(kvClient.put(KEY, ByteString.copyFromUtf8("v")).get().getHeader().getMemberId())
+        .isIn(1L, 3L);
+  }
+
+  private void awaitLeader(long memberId) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!router.getLeaderId().equals(Optional.of(memberId))) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class ParallelScanTest {
+
+  private static final ByteString PREFIX = ByteString.copyFromUtf8("scan/");
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV kvClient;
+  private List<String> keys = new ArrayList<>();
+  private long revision;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    client = server.newClient();
+    kvClient = client.getKVClient();
+    for (int i = 0; i < 100; i++) {
+      keys.add("scan/" + Integer.toHexString(i * 40503));
+    }
+    // a hot spot of keys sharing a long prefix.
+    for (int i = 0; i < 100; i++) {
+      keys.add(String.format("scan/hot/%03d", i));
+    }
+    for (String key : keys) {
+      revision = kvClient.put(ByteString.copyFromUtf8(key), ByteString.copyFromUtf8("v")).get()
+          .getHeader().getRevision();
+    }
+    kvClient.put(ByteString.copyFromUtf8("scan0"), ByteString.copyFromUtf8("outside")).get();
+    Collections.sort(keys);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testCollectInKeyOrder() throws Exception {
+    List<KeyValue> keyValues = ParallelScan.newBuilder(kvClient)
+        .withPrefix(PREFIX)
+        .withParallelism(4)
+        .withPageSize(7)
+        .build()
+        .collect()
+        .get(5, TimeUnit.SECONDS);
+
+    assertThat(keyValues).extracting(kv -> kv.getKey().toStringUtf8()).isEqualTo(keys);
+  }
+
+  @Test
+  public void testForEachAtPinnedRevision() throws Exception {
+    kvClient.delete(ByteString.copyFromUtf8(keys.get(0))).get();
+    kvClient.put(ByteString.copyFromUtf8("scan/late"), ByteString.copyFromUtf8("v")).get();
+
+    List<String> scanned = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger pages = new AtomicInteger();
+    long scannedAt = ParallelScan.newBuilder(kvClient)
+        .withRange(PREFIX, ByteString.copyFrom(new byte[]{0}))
+        .withRevision(revision)
+        .withParallelism(3)
+        .withPageSize(10)
+        .withKeysOnly(true)
+        .build()
+        .forEach(page -> {
+          pages.incrementAndGet();
+          page.forEach(kv -> scanned.add(kv.getKey().toStringUtf8()));
+        })
+        .get(5, TimeUnit.SECONDS);
+
+    assertThat(scannedAt).isEqualTo(revision);
+    assertThat(scanned).containsOnlyElementsOf(keys).hasSameSizeAs(keys).doesNotHaveDuplicates();
+    assertThat(pages.get()).isGreaterThanOrEqualTo(keys.size() / 10);
+
+    kvClient.put(ByteString.copyFromUtf8(keys.get(0)), ByteString.copyFromUtf8("v")).get();
+    kvClient.delete(ByteString.copyFromUtf8("scan/late")).get();
+  }
+
+  @Test
+  public void testSingleWorkerMatchesSequentialGet() throws Exception {
+    List<String> scanned = ParallelScan.newBuilder(kvClient)
+        .withPrefix(ByteString.copyFromUtf8("scan/hot/"))
+        .withParallelism(1)
+        .build()
+        .collect()
+        .get(5, TimeUnit.SECONDS)
+        .stream()
+        .map(kv -> kv.getKey().toStringUtf8())
+        .collect(Collectors.toList());
+
+    assertThat(scanned).hasSize(100).isSorted();
+  }
+}
@@ -0,0 +1,116 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.options.PutBatchOption;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PutBatcherTest {
+
+  private static final int MAX_TXN_OPS = 8;
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withMaxTxnOps(MAX_TXN_OPS)
+        .build()
+        .start();
+    client = server.newClient(ClientBuilder.newBuilder()
+        .setPutBatchOption(PutBatchOption.newBuilder()
+            .withMaxBatchSize(MAX_TXN_OPS)
+            .withWindow(100, TimeUnit.MILLISECONDS)
+            .build()));
+    kvClient = client.getKVClient();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testPutsShareOneRevision() throws Exception {
+    long start = server.getStore().getRevision();
+
+    List<ListenableFuture<PutResponse>> futures = new ArrayList<>();
+    for (int i = 0; i < MAX_TXN_OPS; i++) {
+      futures.add(kvClient.put(ByteString.copyFromUtf8("k" + i), ByteString.copyFromUtf8("v" + i),
+          PutOption.newBuilder().withPrevKV().build()));
+    }
+
+    for (ListenableFuture<PutResponse> future : futures) {
+      PutResponse response = future.get(5, TimeUnit.SECONDS);
+      assertThat(response.getHeader().getRevision()).isEqualTo(start + 1);
+      assertThat(response.hasPrevKv()).isFalse();
+    }
+    assertThat(kvClient.get(ByteString.copyFromUtf8("k3")).get().getKvs(0).getValue()
+        .toStringUtf8()).isEqualTo("v3");
+  }
+
+  @Test
+  public void testBatchSizeIsCapped() throws Exception {
+    long start = server.getStore().getRevision();
+
+    List<ListenableFuture<PutResponse>> futures = new ArrayList<>();
+    for (int i = 0; i < MAX_TXN_OPS * 2 + 1; i++) {
+      futures.add(kvClient.put(ByteString.copyFromUtf8("k" + i), ByteString.copyFromUtf8("v")));
+    }
+    for (ListenableFuture<PutResponse> future : futures) {
+      future.get(5, TimeUnit.SECONDS);
+    }
+
+    assertThat(server.getStore().getRevision()).isEqualTo(start + 3);
+  }
+
+  @Test
+  public void testSameKeyFallsBackToSinglePuts() throws Exception {
+    ByteString key = ByteString.copyFromUtf8("dup");
+    PutOption prevKv = PutOption.newBuilder().withPrevKV().build();
+
+    ListenableFuture<PutResponse> first = kvClient.put(key, ByteString.copyFromUtf8("v1"), prevKv);
+    ListenableFuture<PutResponse> other = kvClient.put(ByteString.copyFromUtf8("other"),
+        ByteString.copyFromUtf8("v"));
+    ListenableFuture<PutResponse> second = kvClient.put(key, ByteString.copyFromUtf8("v2"),
+        prevKv);
+
+    assertThat(second.get(5, TimeUnit.SECONDS).getPrevKv().getValue().toStringUtf8())
+        .isEqualTo("v1");
+    assertThat(first.get().getHeader().getRevision())
+        .isLessThan(second.get().getHeader().getRevision());
+    other.get(5, TimeUnit.SECONDS);
+    assertThat(kvClient.get(key).get().getKvs(0).getValue().toStringUtf8()).isEqualTo("v2");
+  }
+
+  @Test
+  public void testRejectedBatchFailsOnlyOffendingPut() throws Exception {
+    ListenableFuture<PutResponse> good = kvClient.put(ByteString.copyFromUtf8("good"),
+        ByteString.copyFromUtf8("v"));
+    ListenableFuture<PutResponse> bad = kvClient.put(ByteString.copyFromUtf8("bad"),
+        ByteString.copyFromUtf8("v"), PutOption.newBuilder().withLeaseId(42).build());
+
+    assertThat(good.get(5, TimeUnit.SECONDS).getHeader().getRevision()).isPositive();
+    assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .satisfies(e -> assertThat(Status.fromThrowable(e).getCode())
+            .isEqualTo(Status.Code.NOT_FOUND));
+    assertThat(kvClient.get(ByteString.copyFromUtf8("good")).get().getCount()).isEqualTo(1);
+  }
+}
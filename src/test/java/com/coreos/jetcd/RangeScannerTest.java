@@ -0,0 +1,112 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RangeScannerTest {
+
+  private static final ByteString PREFIX = ByteString.copyFromUtf8("scan/");
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    client = server.newClient();
+    kvClient = client.getKVClient();
+    for (int i = 0; i < 25; i++) {
+      kvClient.put(key(i), ByteString.copyFromUtf8("v" + i)).get();
+    }
+    kvClient.put(ByteString.copyFromUtf8("scan0"), ByteString.copyFromUtf8("outside")).get();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testScanInPagesAtPinnedRevision() throws Exception {
+    List<String> keys = new ArrayList<>();
+    List<Integer> pageSizes = new ArrayList<>();
+    try (KV.Scanner scanner = kvClient.scan(PREFIX,
+        GetOption.newBuilder().withPrefix(PREFIX).withLimit(10).build())) {
+      while (scanner.hasNext()) {
+        RangeResponse page = scanner.next();
+        if (pageSizes.isEmpty()) {
+          // changes after the first page must not show up in the scan.
+          kvClient.put(key(99), ByteString.copyFromUtf8("late")).get();
+          kvClient.delete(key(24)).get();
+        }
+        pageSizes.add(page.getKvsCount());
+        for (KeyValue kv : page.getKvsList()) {
+          keys.add(kv.getKey().toStringUtf8());
+        }
+      }
+      assertThat(scanner.getRevision()).isEqualTo(server.getStore().getRevision() - 2);
+    }
+
+    assertThat(pageSizes).containsExactly(10, 10, 5);
+    assertThat(keys).hasSize(25).doesNotHaveDuplicates().isSorted().contains("scan/24")
+        .doesNotContain("scan/99", "scan0");
+  }
+
+  @Test
+  public void testScanThroughGets() throws Exception {
+    // the default scan of the kv clients without a scan of their own.
+    List<Integer> pageSizes = new ArrayList<>();
+    List<String> keys = new ArrayList<>();
+    try (KV.Scanner scanner = RangeScanner.scan(kvClient, PREFIX,
+        GetOption.newBuilder().withPrefix(PREFIX).withLimit(10).build())) {
+      while (scanner.hasNext()) {
+        RangeResponse page = scanner.next();
+        if (pageSizes.isEmpty()) {
+          kvClient.delete(key(24)).get();
+        }
+        pageSizes.add(page.getKvsCount());
+        for (KeyValue kv : page.getKvsList()) {
+          keys.add(kv.getKey().toStringUtf8());
+        }
+      }
+    }
+
+    assertThat(pageSizes).containsExactly(10, 10, 5);
+    assertThat(keys).hasSize(25).doesNotHaveDuplicates().isSorted().contains("scan/24");
+  }
+
+  @Test
+  public void testScanSingleKey() throws Exception {
+    try (KV.Scanner scanner = kvClient.scan(key(3), GetOption.DEFAULT)) {
+      assertThat(scanner.next().getKvs(0).getValue().toStringUtf8()).isEqualTo("v3");
+      assertThat(scanner.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void testScanRejectsSortedOption() {
+    assertThatThrownBy(() -> kvClient.scan(PREFIX, GetOption.newBuilder()
+        .withPrefix(PREFIX)
+        .withSortOrder(RangeRequest.SortOrder.DESCEND)
+        .build()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static ByteString key(int i) {
+    return PREFIX.concat(ByteString.copyFromUtf8(String.format("%02d", i)));
+  }
+}
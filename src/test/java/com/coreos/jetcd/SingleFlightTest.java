@@ -0,0 +1,78 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+public class SingleFlightTest {
+
+  @Test
+  public void testIdenticalCallsShareOneResult() throws Exception {
+    SingleFlightStats stats = new SingleFlightStats();
+    SingleFlight<String, String> singleFlight = new SingleFlight<>(stats);
+    AtomicInteger calls = new AtomicInteger();
+    SettableFuture<String> rpc = SettableFuture.create();
+
+    ListenableFuture<String> first = singleFlight.execute("a", k -> {
+      calls.incrementAndGet();
+      return rpc;
+    });
+    ListenableFuture<String> second = singleFlight.execute("a", k -> {
+      calls.incrementAndGet();
+      return SettableFuture.create();
+    });
+
+    // cancelling one caller's view must not cancel the shared call.
+    first.cancel(true);
+    rpc.set("result");
+
+    assertThat(second.get()).isEqualTo("result");
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(stats.getCalls()).isEqualTo(2);
+    assertThat(stats.getCollapsed()).isEqualTo(1);
+    assertThat(stats.getCollapseRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void testCompletedCallIsNotShared() throws Exception {
+    SingleFlight<String, String> singleFlight = new SingleFlight<>(new SingleFlightStats());
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      SettableFuture<String> rpc = SettableFuture.create();
+      ListenableFuture<String> future = singleFlight.execute("a", k -> {
+        calls.incrementAndGet();
+        return rpc;
+      });
+      rpc.set("v" + i);
+      assertThat(future.get()).isEqualTo("v" + i);
+    }
+    assertThat(calls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testPerCallOverride() throws Exception {
+    try (EtcdInProcessServer server = EtcdInProcessServer.newBuilder().build().start()) {
+      Client client = server.newClient(ClientBuilder.newBuilder().setGetSingleFlight(true));
+      try {
+        ByteString key = ByteString.copyFromUtf8("key");
+        client.getKVClient().put(key, ByteString.copyFromUtf8("v")).get();
+
+        assertThat(client.getKVClient().get(key).get().getKvs(0).getValue().toStringUtf8())
+            .isEqualTo("v");
+        client.getKVClient().get(key, GetOption.newBuilder().withSingleFlight(false).build())
+            .get();
+
+        assertThat(client.getSingleFlightStats().getCalls()).isEqualTo(1);
+      } finally {
+        client.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.TransportOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.google.protobuf.ByteString;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.util.concurrent.TimeUnit;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TransportOptionTest {
+
+  private static final ByteString PREFIX = ByteString.copyFromUtf8("transport/");
+  private static final ByteString VALUE = ByteString.copyFrom(new byte[64 * 1024]);
+
+  private EtcdInProcessServer server;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().withPort(0).build().start();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void testTunedTransport() throws Exception {
+    TransportOption option = TransportOption.newBuilder()
+        .withNativeTransport(true)
+        .withPooledAllocator(true)
+        .withFlowControlWindow(8 * 1024 * 1024)
+        .withMaxInboundMessageSize(16 * 1024 * 1024)
+        .withKeepAlive(10, 5, TimeUnit.SECONDS)
+        .build();
+
+    assertThat(rangeOf(option, 1).getKvsCount()).isEqualTo(100);
+  }
+
+  @Test
+  public void testSharedEventLoopGroup() throws Exception {
+    NioEventLoopGroup group = new NioEventLoopGroup(1);
+    try {
+      TransportOption option = TransportOption.newBuilder()
+          .withEventLoopGroup(group)
+          .withMaxInboundMessageSize(16 * 1024 * 1024)
+          .build();
+
+      assertThat(rangeOf(option, 1).getKvsCount()).isEqualTo(100);
+      assertThat(rangeOf(option, 2).getKvsCount()).isEqualTo(100);
+      assertThat(group.isShutdown()).isFalse();
+    } finally {
+      group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testGivenEpollGroupGetsEpollChannels() throws Exception {
+    if (!Epoll.isAvailable()) {
+      throw new SkipException("epoll is not available on this platform");
+    }
+    EpollEventLoopGroup group = new EpollEventLoopGroup(1);
+    try {
+      // the group decides the channel type, even without asking for the native transport.
+      TransportOption option = TransportOption.newBuilder()
+          .withEventLoopGroup(group)
+          .withNativeTransport(false)
+          .withMaxInboundMessageSize(16 * 1024 * 1024)
+          .build();
+
+      assertThat(rangeOf(option, 1).getKvsCount()).isEqualTo(100);
+    } finally {
+      group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * write 100 values of 64 KiB and read them back in one range, larger than the default max
+   * inbound message size.
+   */
+  private RangeResponse rangeOf(TransportOption option, int channelPoolSize) throws Exception {
+    Client client = ClientBuilder.newBuilder()
+        .endpoints(server.getEndpoint())
+        .setTransportOption(option)
+        .setChannelPoolSize(channelPoolSize)
+        .build();
+    try {
+      KV kv = client.getKVClient();
+      for (int i = 0; i < 100; i++) {
+        kv.put(PREFIX.concat(ByteString.copyFromUtf8(String.format("%03d", i))), VALUE).get();
+      }
+      return kv.get(PREFIX, GetOption.newBuilder()
+          .withPrefix(PREFIX)
+          .build()).get(10, TimeUnit.SECONDS);
+    } finally {
+      client.close();
+    }
+  }
+}
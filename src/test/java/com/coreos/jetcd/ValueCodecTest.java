@@ -0,0 +1,171 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.op.Cmp;
+import com.coreos.jetcd.op.CmpTarget;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.CompressionOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.common.base.Strings;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ValueCodecTest {
+
+  private static final ByteString KEY = ByteString.copyFromUtf8("codec");
+  private static final ByteString LARGE = ByteString.copyFromUtf8(
+      Strings.repeat("{\"name\":\"jetcd\",\"value\":42},", 1000));
+  private static final ByteString SMALL = ByteString.copyFromUtf8("small");
+
+  private final ValueCodec codec = new ValueCodec(CompressionOption.newBuilder()
+      .withThreshold(64)
+      .build());
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private Client plainClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    client = server.newClient(ClientBuilder.newBuilder()
+        .setCompressionOption(CompressionOption.newBuilder().withThreshold(64).build()));
+    plainClient = server.newClient();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    client.close();
+    plainClient.close();
+    server.close();
+  }
+
+  @Test
+  public void testLargeValueIsCompressed() {
+    ByteString encoded = codec.encode(LARGE);
+
+    assertThat(encoded.size()).isLessThan(LARGE.size() / 10);
+    assertThat(codec.decode(encoded)).isEqualTo(LARGE);
+  }
+
+  @Test
+  public void testSmallValueIsUnchanged() {
+    assertThat(codec.encode(SMALL)).isSameAs(SMALL);
+    assertThat(codec.decode(SMALL)).isSameAs(SMALL);
+  }
+
+  @Test
+  public void testValueStartingWithMagicRoundTrips() {
+    ByteString value = ByteString.copyFrom(new byte[]{0x00, 'j', 'z', 1, 0, 0, 0, 9, 1});
+
+    ByteString encoded = codec.encode(value);
+
+    assertThat(encoded).isNotEqualTo(value);
+    assertThat(codec.decode(encoded)).isEqualTo(value);
+  }
+
+  @Test
+  public void testCorruptValueIsReturnedAsIs() {
+    ByteString value = ByteString.copyFrom(new byte[]{0x00, 'j', 'z', 1, 0, 0, 0, 9, 1, 2, 3});
+
+    assertThat(codec.decode(value)).isSameAs(value);
+  }
+
+  @Test
+  public void testImplausibleLengthIsReturnedAsIs() {
+    // a length of 2^31 - 1 for a 3 byte body, or a negative one, is not inflated.
+    ByteString huge = ByteString.copyFrom(
+        new byte[]{0x00, 'j', 'z', 1, 0x7f, -1, -1, -1, 1, 2, 3});
+    ByteString negative = ByteString.copyFrom(
+        new byte[]{0x00, 'j', 'z', 1, -1, -1, -1, -1, 1, 2, 3});
+
+    assertThat(codec.decode(huge)).isSameAs(huge);
+    assertThat(codec.decode(negative)).isSameAs(negative);
+  }
+
+  @Test
+  public void testPutAndGet() throws Exception {
+    client.getKVClient().put(KEY, LARGE).get();
+
+    assertThat(client.getKVClient().get(KEY).get().getKvs(0).getValue()).isEqualTo(LARGE);
+    ByteString stored = plainClient.getKVClient().get(KEY).get().getKvs(0).getValue();
+    assertThat(stored.size()).isLessThan(LARGE.size() / 10);
+  }
+
+  @Test
+  public void testTxnComparesAndReadsPlainValues() throws Exception {
+    KV kv = client.getKVClient();
+    // stored uncompressed by a client without the option.
+    plainClient.getKVClient().put(KEY, LARGE).get();
+
+    Txn txn = Txn.newBuilder()
+        .If(new Cmp(KEY, Cmp.Op.EQUAL, CmpTarget.value(LARGE)))
+        .Then(Op.get(KEY, GetOption.DEFAULT))
+        .build();
+
+    TxnResponse response = kv.commit(txn).get();
+    assertThat(response.getSucceeded()).isTrue();
+    assertThat(response.getResponses(0).getResponseRange().getKvs(0).getValue())
+        .isEqualTo(LARGE);
+  }
+
+  @Test
+  public void testTxnValueCompareDoesNotMatchCompressedValue() throws Exception {
+    KV kv = client.getKVClient();
+    kv.put(KEY, LARGE).get();
+
+    Txn txn = Txn.newBuilder()
+        .If(new Cmp(KEY, Cmp.Op.EQUAL, CmpTarget.value(LARGE)))
+        .build();
+
+    assertThat(kv.commit(txn).get().getSucceeded()).isFalse();
+  }
+
+  @Test
+  public void testPrevKvIsDecoded() throws Exception {
+    KV kv = client.getKVClient();
+    kv.put(KEY, LARGE).get();
+
+    ByteString prev = kv.put(KEY, SMALL, PutOption.newBuilder().withPrevKV().build()).get()
+        .getPrevKv().getValue();
+
+    assertThat(prev).isEqualTo(LARGE);
+  }
+
+  @Test
+  public void testWatchEventsAreDecoded() throws Exception {
+    BlockingQueue<WatchEvent> events = new LinkedBlockingQueue<>();
+    client.getWatchClient().watch(ByteSequence.fromByteString(KEY), WatchOption.DEFAULT,
+        new Watch.WatchCallback() {
+          @Override
+          public void onWatch(Header header, List<WatchEvent> watchEvents) {
+            events.addAll(watchEvents);
+          }
+
+          @Override
+          public void onResuming() {
+          }
+        }).get(5, TimeUnit.SECONDS);
+
+    client.getKVClient().put(KEY, LARGE).get();
+
+    WatchEvent event = events.poll(5, TimeUnit.SECONDS);
+    assertThat(event).isNotNull();
+    assertThat(event.getKeyValue().getValue().getByteString()).isEqualTo(LARGE);
+  }
+}
@@ -0,0 +1,166 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.options.WatchStreamOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchCreateException;
+import com.coreos.jetcd.watch.WatchCreateResult;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchSpec;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WatchAllTest {
+
+  private static final int WATCHES = 100;
+
+  private EtcdInProcessServer server;
+  private ManagedChannel channel;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    channel = server.channelBuilder().build();
+    kvClient = new KVImpl(channel, Optional.empty());
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    channel.shutdownNow();
+    server.close();
+  }
+
+  private static ByteSequence key(int i) {
+    return ByteSequence.fromString("all/" + i);
+  }
+
+  private static Watch.WatchCallback countDown(CountDownLatch latch) {
+    return new Watch.WatchCallback() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+        events.forEach(event -> latch.countDown());
+      }
+
+      @Override
+      public void onResuming() {
+      }
+    };
+  }
+
+  @Test
+  public void testFailedWatchDoesNotFailTheOthers() throws Exception {
+    WatchImpl watch = new WatchImpl(channel, Optional.empty());
+    CountDownLatch latch = new CountDownLatch(WATCHES);
+    List<WatchSpec> specs = new ArrayList<>();
+    for (int i = 0; i < WATCHES; i++) {
+      specs.add(new WatchSpec(key(i), WatchOption.DEFAULT, countDown(latch)));
+      if (i == WATCHES / 2) {
+        // an empty range is refused by the server.
+        specs.add(new WatchSpec(key(i), WatchOption.newBuilder().withRange(key(i)).build(),
+            countDown(new CountDownLatch(1))));
+      }
+    }
+
+    List<WatchCreateResult> results = watch.watchAll(specs).get(10, TimeUnit.SECONDS);
+    assertThat(results).hasSize(WATCHES + 1);
+    for (int i = 0; i < results.size(); i++) {
+      WatchCreateResult result = results.get(i);
+      assertThat(result.getSpec()).isSameAs(specs.get(i));
+      if (i == WATCHES / 2 + 1) {
+        assertThat(result.isCreated()).isFalse();
+        assertThat(result.getError().get()).isInstanceOf(WatchCreateException.class)
+            .hasMessageContaining("empty or invalid");
+      } else {
+        assertThat(result.isCreated()).isTrue();
+        assertThat(result.getWatcher().get().getKey()).isEqualTo(specs.get(i).getKey());
+      }
+    }
+    // the failed watcher is not kept.
+    assertThat(watch.getWatcherCounts()).containsExactly(WATCHES);
+
+    for (int i = 0; i < WATCHES; i++) {
+      kvClient.put(key(i).getByteString(), ByteString.copyFromUtf8("event"));
+    }
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void testCompactedWatchIsCanceledAfterCreated() throws Exception {
+    long compacted = 0;
+    for (int i = 0; i < 3; i++) {
+      compacted = kvClient.put(key(0).getByteString(), ByteString.copyFromUtf8("v" + i)).get()
+          .getHeader().getRevision();
+    }
+    kvClient.compact(CompactOption.newBuilder().withRevision(compacted).build()).get();
+
+    WatchImpl watch = new WatchImpl(channel, Optional.empty());
+    BlockingQueue<Header> canceled = new LinkedBlockingQueue<>();
+    List<WatchSpec> specs = new ArrayList<>();
+    specs.add(new WatchSpec(key(0), WatchOption.newBuilder().withRevision(1).build(),
+        new Watch.WatchCallback() {
+          @Override
+          public void onWatch(Header header, List<WatchEvent> events) {
+          }
+
+          @Override
+          public void onResuming() {
+          }
+
+          @Override
+          public void onCanceled(Header header) {
+            canceled.add(header);
+          }
+        }));
+    specs.add(new WatchSpec(key(1), WatchOption.DEFAULT, countDown(new CountDownLatch(1))));
+
+    List<WatchCreateResult> results = watch.watchAll(specs).get(10, TimeUnit.SECONDS);
+    assertThat(results.get(0).isCreated()).isTrue();
+    assertThat(results.get(1).isCreated()).isTrue();
+
+    Header header = canceled.poll(5, TimeUnit.SECONDS);
+    assertThat(header).isNotNull();
+    assertThat(header.getCompactRevision()).isEqualTo(compacted);
+    assertThat(watch.getWatcherCounts()).containsExactly(1);
+  }
+
+  @Test
+  public void testWatchersAreSpreadOverTheStreams() throws Exception {
+    WatchImpl watch = new WatchImpl(channel, Optional.empty(), Optional.empty(),
+        Optional.of(WatchStreamOption.newBuilder()
+            .withStreams(4)
+            .withAssignment(WatchStreamOption.Assignment.LEAST_LOADED)
+            .build()), false, Optional.empty());
+    CountDownLatch latch = new CountDownLatch(WATCHES);
+    List<WatchSpec> specs = new ArrayList<>();
+    for (int i = 0; i < WATCHES; i++) {
+      specs.add(new WatchSpec(key(i), WatchOption.DEFAULT, countDown(latch)));
+    }
+
+    List<WatchCreateResult> results = watch.watchAll(specs).get(10, TimeUnit.SECONDS);
+    for (WatchCreateResult result : results) {
+      assertThat(result.isCreated()).isTrue();
+    }
+    assertThat(watch.getWatcherCounts()).containsExactly(25, 25, 25, 25);
+
+    for (int i = 0; i < WATCHES; i++) {
+      kvClient.put(key(i).getByteString(), ByteString.copyFromUtf8("event"));
+    }
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+  }
+}
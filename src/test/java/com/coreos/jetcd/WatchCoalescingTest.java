@@ -0,0 +1,167 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.WatchDispatchOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WatchCoalescingTest {
+
+  private static final ByteSequence PREFIX = ByteSequence.fromString("hot/");
+  private static final ByteSequence HEARTBEAT = ByteSequence.fromString("hot/heartbeat");
+  private static final ByteSequence STATUS = ByteSequence.fromString("hot/status");
+
+  private EtcdInProcessServer server;
+  private ManagedChannel channel;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    channel = server.channelBuilder().build();
+    kvClient = new KVImpl(channel, Optional.empty());
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    channel.shutdownNow();
+    server.close();
+  }
+
+  private long put(ByteSequence key, String value) throws Exception {
+    return kvClient.put(key.getByteString(), ByteString.copyFromUtf8(value)).get()
+        .getHeader().getRevision();
+  }
+
+  private static WatchOption coalescing(long window, TimeUnit unit) {
+    return WatchOption.newBuilder()
+        .withRange(ByteSequence.fromString("hot0"))
+        .withCoalescing(window, unit)
+        .build();
+  }
+
+  private static class Recorder implements Watch.WatchCallback {
+
+    private final BlockingQueue<List<WatchEvent>> calls = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onWatch(Header header, List<WatchEvent> events) {
+      calls.add(events);
+    }
+
+    @Override
+    public void onResuming() {
+    }
+
+    /**
+     * take the events of the calls until the given value of the key is seen.
+     */
+    List<WatchEvent> takeUntil(ByteSequence key, String value) throws InterruptedException {
+      List<WatchEvent> taken = new ArrayList<>();
+      while (true) {
+        List<WatchEvent> events = calls.poll(5, TimeUnit.SECONDS);
+        assertThat(events).isNotNull();
+        taken.addAll(events);
+        for (WatchEvent event : events) {
+          if (event.getKeyValue().getKey().equals(key)
+              && event.getKeyValue().getValue().toStringUtf8().equals(value)) {
+            return taken;
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testWindowDeliversTheNewestEventOfEachKey() throws Exception {
+    WatchImpl watch = new WatchImpl(channel, Optional.empty());
+    Recorder recorder = new Recorder();
+    Watch.Watcher watcher = watch.watch(PREFIX, coalescing(500, TimeUnit.MILLISECONDS), recorder)
+        .get(5, TimeUnit.SECONDS);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 100; i++) {
+      put(HEARTBEAT, "beat" + i);
+    }
+    long status = put(STATUS, "up");
+    long heartbeat = put(HEARTBEAT, "beat100");
+    List<WatchEvent> events = recorder.takeUntil(HEARTBEAT, "beat100");
+    long puts = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    // one call per window at most, with a single event for each key.
+    assertThat(events.size()).isLessThanOrEqualTo(2 * (int) (puts / 500 + 2));
+    WatchEvent last = events.get(events.size() - 1);
+    assertThat(last.getKeyValue().getModRevision()).isEqualTo(heartbeat);
+    assertThat(events.stream().anyMatch(event -> event.getKeyValue().getKey().equals(STATUS)
+        && event.getKeyValue().getModRevision() == status)).isTrue();
+    assertThat(watcher.getLastRevision()).isEqualTo(heartbeat);
+  }
+
+  @Test
+  public void testEventsWaitingForTheCallbackAreCoalesced() throws Exception {
+    WatchImpl watch = new WatchImpl(channel, Optional.empty(), Optional.empty(),
+        Optional.empty(), false,
+        Optional.of(new WatchDispatcher(WatchDispatchOption.DEFAULT, new WatchDispatchStats())));
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch gate = new CountDownLatch(1);
+    Recorder recorder = new Recorder() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+        entered.countDown();
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.onWatch(header, events);
+      }
+    };
+    watch.watch(PREFIX, coalescing(0, TimeUnit.MILLISECONDS), recorder).get(5, TimeUnit.SECONDS);
+
+    put(HEARTBEAT, "beat0");
+    assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+    long heartbeat = 0;
+    for (int i = 1; i <= 50; i++) {
+      heartbeat = put(HEARTBEAT, "beat" + i);
+    }
+    gate.countDown();
+
+    List<WatchEvent> events = recorder.takeUntil(HEARTBEAT, "beat50");
+    // the first call, then the newest of the events queued meanwhile.
+    assertThat(events).hasSize(2);
+    assertThat(events.get(0).getKeyValue().getValue().toStringUtf8()).isEqualTo("beat0");
+    assertThat(events.get(1).getKeyValue().getModRevision()).isEqualTo(heartbeat);
+  }
+
+  @Test
+  public void testWindowDoesNotRunTheCallbackOnItsTimer() throws Exception {
+    WatchImpl watch = new WatchImpl(channel, Optional.empty());
+    BlockingQueue<String> threads = new LinkedBlockingQueue<>();
+    watch.watch(PREFIX, coalescing(10, TimeUnit.MILLISECONDS), new Recorder() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+        threads.add(Thread.currentThread().getName());
+      }
+    }).get(5, TimeUnit.SECONDS);
+
+    put(HEARTBEAT, "beat0");
+    String thread = threads.poll(5, TimeUnit.SECONDS);
+    assertThat(thread).isNotNull().startsWith("jetcd-watch-dispatch-");
+  }
+}
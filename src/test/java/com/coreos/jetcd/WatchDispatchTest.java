@@ -0,0 +1,182 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.WatchDispatchOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WatchDispatchTest {
+
+  private static final ByteSequence SLOW = ByteSequence.fromString("dispatch/slow");
+  private static final ByteSequence FAST = ByteSequence.fromString("dispatch/fast");
+
+  private EtcdInProcessServer server;
+  private ManagedChannel channel;
+  private KV kvClient;
+  private WatchDispatchStats stats;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    channel = server.channelBuilder().build();
+    kvClient = new KVImpl(channel, Optional.empty());
+    stats = new WatchDispatchStats();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    channel.shutdownNow();
+    server.close();
+  }
+
+  private WatchImpl newWatch(WatchDispatchOption option) {
+    return new WatchImpl(channel, Optional.empty(), Optional.empty(), Optional.empty(), false,
+        Optional.of(new WatchDispatcher(option, stats)));
+  }
+
+  private void put(ByteSequence key, String value) throws Exception {
+    kvClient.put(key.getByteString(), ByteString.copyFromUtf8(value)).get();
+  }
+
+  private static class Recorder implements Watch.WatchCallback {
+
+    private final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onWatch(Header header, List<WatchEvent> events) {
+      events.forEach(event -> values.add(event.getKeyValue().getValue().toStringUtf8()));
+    }
+
+    @Override
+    public void onResuming() {
+    }
+
+    List<String> take(int count) throws InterruptedException {
+      List<String> taken = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        String value = values.poll(5, TimeUnit.SECONDS);
+        assertThat(value).isNotNull();
+        taken.add(value);
+      }
+      return taken;
+    }
+  }
+
+  /**
+   * records the events once the gate is open.
+   */
+  private static final class GatedRecorder extends Recorder {
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    @Override
+    public void onWatch(Header header, List<WatchEvent> events) {
+      entered.countDown();
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      super.onWatch(header, events);
+    }
+  }
+
+  @Test
+  public void testSlowCallbackDoesNotHoldUpOtherWatchers() throws Exception {
+    WatchImpl watch = newWatch(WatchDispatchOption.DEFAULT);
+    GatedRecorder slow = new GatedRecorder();
+    Recorder fast = new Recorder();
+    watch.watch(SLOW, WatchOption.DEFAULT, slow).get(5, TimeUnit.SECONDS);
+    watch.watch(FAST, WatchOption.DEFAULT, fast).get(5, TimeUnit.SECONDS);
+
+    put(SLOW, "s0");
+    assertThat(slow.entered.await(5, TimeUnit.SECONDS)).isTrue();
+    put(FAST, "f0");
+    put(FAST, "f1");
+    assertThat(fast.take(2)).containsExactly("f0", "f1");
+
+    slow.gate.countDown();
+    assertThat(slow.take(1)).containsExactly("s0");
+  }
+
+  @Test
+  public void testCallbacksOfAWatcherStayInOrder() throws Exception {
+    WatchImpl watch = newWatch(WatchDispatchOption.newBuilder().withMaxQueued(2).build());
+    GatedRecorder recorder = new GatedRecorder();
+    watch.watch(SLOW, WatchOption.DEFAULT, recorder).get(5, TimeUnit.SECONDS);
+
+    put(SLOW, "v0");
+    assertThat(recorder.entered.await(5, TimeUnit.SECONDS)).isTrue();
+    List<String> expected = new ArrayList<>();
+    expected.add("v0");
+    for (int i = 1; i < 20; i++) {
+      // with a full queue the puts go on, the responses wait on the stream.
+      put(SLOW, "v" + i);
+      expected.add("v" + i);
+    }
+    recorder.gate.countDown();
+
+    assertThat(recorder.take(20)).containsExactlyElementsOf(expected);
+    WatchDispatchStats.WatcherStats watcherStats = stats.getWatchers().get(0);
+    assertThat(watcherStats.getMaxQueued()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  public void testStatsRecordCallbacksAndFailures() throws Exception {
+    WatchImpl watch = newWatch(WatchDispatchOption.DEFAULT);
+    AtomicInteger calls = new AtomicInteger();
+    Recorder recorder = new Recorder() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+        calls.incrementAndGet();
+        super.onWatch(header, events);
+        if (events.stream().anyMatch(
+            event -> event.getKeyValue().getValue().toStringUtf8().equals("boom"))) {
+          throw new IllegalStateException("boom");
+        }
+      }
+    };
+    Watch.Watcher watcher = watch.watch(SLOW, WatchOption.DEFAULT, recorder)
+        .get(5, TimeUnit.SECONDS);
+
+    put(SLOW, "boom");
+    put(SLOW, "after");
+    assertThat(recorder.take(2)).containsExactly("boom", "after");
+
+    assertThat(stats.getWatchers()).hasSize(1);
+    WatchDispatchStats.WatcherStats watcherStats = stats.getWatchers().get(0);
+    assertThat(watcherStats.getKey()).isEqualTo(SLOW);
+    // the callback is counted once it has returned.
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (watcherStats.getCallbacks() < calls.get() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(watcherStats.getCallbacks()).isEqualTo(calls.get());
+    assertThat(watcherStats.getQueued()).isZero();
+    assertThat(watcherStats.getFailures()).isEqualTo(1);
+    assertThat(watcherStats.getCallbackNanos()).isPositive();
+    assertThat(watcherStats.getMaxCallbackNanos())
+        .isLessThanOrEqualTo(watcherStats.getCallbackNanos());
+
+    watcher.cancel().get(5, TimeUnit.SECONDS);
+    assertThat(stats.getWatchers()).isEmpty();
+  }
+}
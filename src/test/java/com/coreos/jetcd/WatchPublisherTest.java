@@ -0,0 +1,206 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.WatchPublisher.OverflowPolicy;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchCreateException;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WatchPublisherTest {
+
+  private static final ByteSequence PREFIX = ByteSequence.fromString("pub/");
+  private static final WatchOption PREFIX_OPTION = WatchOption.newBuilder()
+      .withRange(ByteSequence.fromString("pub0"))
+      .build();
+
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    client = server.newClient();
+    kvClient = client.getKVClient();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testDeliversOnDemand() throws Exception {
+    TestSubscriber subscriber = subscribe(OverflowPolicy.BLOCK, 16);
+    long revision = putAll("a", "b", "c");
+    await(() -> subscriber.subscription().getReceivedRevision() == revision);
+
+    subscriber.subscription.request(2);
+    assertThat(subscriber.take(2)).containsExactly("a=a", "b=b");
+    assertThat(subscriber.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+
+    subscriber.subscription.request(1);
+    assertThat(subscriber.take(1)).containsExactly("c=c");
+    subscriber.subscription.cancel();
+  }
+
+  @Test
+  public void testBlockKeepsEveryEvent() throws Exception {
+    TestSubscriber subscriber = subscribe(OverflowPolicy.BLOCK, 2);
+    putAll("a", "b", "c", "d", "e");
+    await(() -> subscriber.subscription().getBuffered() == 2);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertThat(subscriber.take(5)).containsExactly("a=a", "b=b", "c=c", "d=d", "e=e");
+    subscriber.subscription.cancel();
+  }
+
+  @Test
+  public void testCoalesceByKey() throws Exception {
+    TestSubscriber subscriber = subscribe(OverflowPolicy.COALESCE, 2);
+    putAll("a", "b");
+    put("a", "a2");
+    long revision = put("a", "a3");
+    await(() -> subscriber.subscription().getReceivedRevision() == revision);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertThat(subscriber.take(2)).containsExactly("b=b", "a=a3");
+    assertThat(subscriber.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    subscriber.subscription.cancel();
+  }
+
+  @Test
+  public void testCancelAndResume() throws Exception {
+    TestSubscriber subscriber = subscribe(OverflowPolicy.CANCEL_AND_RESUME, 4);
+    putAll("a", "b", "c", "d", "e", "f", "g", "h");
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertThat(subscriber.take(8))
+        .containsExactly("a=a", "b=b", "c=c", "d=d", "e=e", "f=f", "g=g", "h=h");
+    assertThat(subscriber.events.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    subscriber.subscription.cancel();
+  }
+
+  @Test
+  public void testCompactedStartFailsTheStream() throws Exception {
+    putAll("a", "b");
+    long compacted = putAll("c");
+    kvClient.compact(CompactOption.newBuilder().withRevision(compacted).build()).get();
+
+    TestSubscriber subscriber = new TestSubscriber();
+    WatchPublisher.newBuilder(client.getWatchClient())
+        .withKey(PREFIX)
+        .withOption(WatchOption.newBuilder()
+            .withRange(ByteSequence.fromString("pub0"))
+            .withRevision(1)
+            .build())
+        .build()
+        .subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    assertThat(subscriber.take(1).get(0))
+        .startsWith("error " + WatchCreateException.class.getName())
+        .endsWith("compacted, at " + compacted);
+  }
+
+  private TestSubscriber subscribe(OverflowPolicy policy, int bufferSize) throws Exception {
+    TestSubscriber subscriber = new TestSubscriber();
+    WatchPublisher.newBuilder(client.getWatchClient())
+        .withKey(PREFIX)
+        .withOption(PREFIX_OPTION)
+        .withBufferSize(bufferSize)
+        .withOverflowPolicy(policy)
+        .build()
+        .subscribe(subscriber);
+    // the watch is created asynchronously, a put and delete mark the moment it is live.
+    long revision = put("ready", "");
+    await(() -> subscriber.subscription().getReceivedRevision() >= revision);
+    kvClient.delete(ByteString.copyFromUtf8("pub/ready")).get();
+    subscriber.subscription.request(2);
+    subscriber.take(2);
+    return subscriber;
+  }
+
+  private long putAll(String... keys) throws Exception {
+    long revision = 0;
+    for (String key : keys) {
+      revision = put(key, key);
+    }
+    return revision;
+  }
+
+  private long put(String key, String value) throws Exception {
+    return kvClient.put(ByteString.copyFromUtf8("pub/" + key), ByteString.copyFromUtf8(value))
+        .get().getHeader().getRevision();
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  private static class TestSubscriber implements Subscriber<WatchEvent> {
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private volatile Subscription subscription;
+
+    WatchPublisher.WatchSubscription subscription() {
+      return (WatchPublisher.WatchSubscription) subscription;
+    }
+
+    List<String> take(int count) throws InterruptedException {
+      List<String> taken = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        String event = events.poll(5, TimeUnit.SECONDS);
+        assertThat(event).isNotNull();
+        taken.add(event);
+      }
+      return taken;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(WatchEvent event) {
+      String key = event.getKeyValue().getKey().toStringUtf8().substring("pub/".length());
+      events.add(event.getEventType() == WatchEvent.EventType.DELETE
+          ? key + " deleted" : key + "=" + event.getKeyValue().getValue().toStringUtf8());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      events.add("error " + throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      events.add("complete");
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.WatchDispatchOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchCreateException;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WatchSharingTest {
+
+  private static final ByteSequence KEY = ByteSequence.fromString("shared");
+
+  private EtcdInProcessServer server;
+  private ManagedChannel channel;
+  private KV kvClient;
+  private WatchImpl watch;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    channel = server.channelBuilder().build();
+    kvClient = new KVImpl(channel, Optional.empty());
+    watch = new WatchImpl(channel, Optional.empty(), Optional.empty(), Optional.empty(), true,
+        Optional.empty());
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    channel.shutdownNow();
+    server.close();
+  }
+
+  private long put(String value) throws Exception {
+    return kvClient.put(KEY.getByteString(), ByteString.copyFromUtf8(value)).get()
+        .getHeader().getRevision();
+  }
+
+  private static final class Recorder implements Watch.WatchCallback {
+
+    private final BlockingQueue<String> values = new LinkedBlockingQueue<>();
+    private final CountDownLatch canceled = new CountDownLatch(1);
+
+    @Override
+    public void onWatch(Header header, List<WatchEvent> events) {
+      events.forEach(event -> values.add(event.getKeyValue().getValue().toStringUtf8()));
+    }
+
+    @Override
+    public void onResuming() {
+    }
+
+    @Override
+    public void onCanceled(Header header) {
+      canceled.countDown();
+    }
+
+    private List<String> take(int count) throws InterruptedException {
+      List<String> taken = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        String value = values.poll(5, TimeUnit.SECONDS);
+        assertThat(value).isNotNull();
+        taken.add(value);
+      }
+      return taken;
+    }
+  }
+
+  @Test
+  public void testIdenticalWatchesShareOneServerWatch() throws Exception {
+    Recorder[] recorders = {new Recorder(), new Recorder(), new Recorder()};
+    List<Watch.Watcher> watchers = new ArrayList<>();
+    for (Recorder recorder : recorders) {
+      watchers.add(watch.watch(KEY, WatchOption.DEFAULT, recorder).get(5, TimeUnit.SECONDS));
+    }
+    assertThat(watch.getSharedWatchCount()).isEqualTo(1);
+    assertThat(watch.getWatcherCounts()).containsExactly(1);
+
+    put("a");
+    for (Recorder recorder : recorders) {
+      assertThat(recorder.take(1)).containsExactly("a");
+    }
+
+    assertThat(watchers.get(0).cancel().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(watchers.get(1).cancel().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(watch.getSharedWatchCount()).isEqualTo(1);
+    put("b");
+    assertThat(recorders[2].take(1)).containsExactly("b");
+    assertThat(recorders[0].values.poll(100, TimeUnit.MILLISECONDS)).isNull();
+
+    assertThat(watchers.get(2).cancel().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(watch.getSharedWatchCount()).isZero();
+    assertThat(watch.getWatcherCounts()).containsExactly(0);
+  }
+
+  @Test
+  public void testDifferentOptionsDontShare() throws Exception {
+    watch.watch(KEY, WatchOption.DEFAULT, new Recorder()).get(5, TimeUnit.SECONDS);
+    watch.watch(KEY, WatchOption.newBuilder().withPrevKV(true).build(), new Recorder())
+        .get(5, TimeUnit.SECONDS);
+    watch.watch(ByteSequence.fromString("other"), WatchOption.DEFAULT, new Recorder())
+        .get(5, TimeUnit.SECONDS);
+
+    assertThat(watch.getSharedWatchCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void testLateWatcherCatchesUpThenJoins() throws Exception {
+    long first = put("a");
+    put("b");
+    Recorder early = new Recorder();
+    watch.watch(KEY, WatchOption.DEFAULT, early).get(5, TimeUnit.SECONDS);
+    put("c");
+    assertThat(early.take(1)).containsExactly("c");
+
+    Recorder late = new Recorder();
+    watch.watch(KEY, WatchOption.newBuilder().withRevision(first).build(), late)
+        .get(5, TimeUnit.SECONDS);
+    assertThat(late.take(3)).containsExactly("a", "b", "c");
+
+    put("d");
+    put("e");
+    assertThat(early.take(2)).containsExactly("d", "e");
+    assertThat(late.take(2)).containsExactly("d", "e");
+    assertThat(late.values.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    // the own watch of the late watcher is gone once it joined.
+    assertThat(watch.getWatcherCounts()).containsExactly(1);
+    assertThat(watch.getSharedWatchCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testSlowWatcherDoesNotHoldBackTheOthers() throws Exception {
+    WatchDispatchStats stats = new WatchDispatchStats();
+    watch = new WatchImpl(channel, Optional.empty(), Optional.empty(), Optional.empty(), true,
+        Optional.of(new WatchDispatcher(WatchDispatchOption.DEFAULT, stats)));
+    CountDownLatch gate = new CountDownLatch(1);
+    Recorder slow = new Recorder();
+    watch.watch(KEY, WatchOption.DEFAULT, new Watch.WatchCallback() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        slow.onWatch(header, events);
+      }
+
+      @Override
+      public void onResuming() {
+      }
+    }).get(5, TimeUnit.SECONDS);
+    Recorder fast = new Recorder();
+    watch.watch(KEY, WatchOption.DEFAULT, fast).get(5, TimeUnit.SECONDS);
+    assertThat(watch.getSharedWatchCount()).isEqualTo(1);
+    assertThat(stats.getWatchers()).hasSize(2);
+
+    put("a");
+    put("b");
+    assertThat(fast.take(2)).containsExactly("a", "b");
+
+    gate.countDown();
+    assertThat(slow.take(2)).containsExactly("a", "b");
+  }
+
+  @Test
+  public void testCompactedStartOnlyFailsItsWatcher() throws Exception {
+    long first = put("a");
+    long compacted = put("b");
+    kvClient.compact(CompactOption.newBuilder().withRevision(compacted).build()).get();
+
+    CompletableFuture<Watch.Watcher> stale = watch.watch(KEY,
+        WatchOption.newBuilder().withRevision(first).build(), new Recorder());
+    Recorder current = new Recorder();
+    CompletableFuture<Watch.Watcher> joined = watch.watch(KEY, WatchOption.DEFAULT, current);
+
+    assertThatThrownBy(() -> stale.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(WatchCreateException.class);
+    joined.get(5, TimeUnit.SECONDS);
+    put("c");
+    assertThat(current.take(1)).containsExactly("c");
+    assertThat(watch.getSharedWatchCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailedCatchUpFailsTheLateWatcher() throws Exception {
+    long first = put("a");
+    long compacted = put("b");
+    kvClient.compact(CompactOption.newBuilder().withRevision(compacted).build()).get();
+    Recorder early = new Recorder();
+    watch.watch(KEY, WatchOption.DEFAULT, early).get(5, TimeUnit.SECONDS);
+
+    Recorder late = new Recorder();
+    watch.watch(KEY, WatchOption.newBuilder().withRevision(first).build(), late)
+        .get(5, TimeUnit.SECONDS);
+    assertThat(late.canceled.await(5, TimeUnit.SECONDS)).isTrue();
+
+    put("c");
+    assertThat(early.take(1)).containsExactly("c");
+    assertThat(late.values.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    // the late watcher left, and its own watch failed to be created.
+    assertThat(watch.getWatcherCounts()).containsExactly(1);
+    assertThat(watch.getSharedWatchCount()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,134 @@
+package com.coreos.jetcd;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.options.WatchStreamOption;
+import com.coreos.jetcd.server.EtcdInProcessServer;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WatchStreamTest {
+
+  private EtcdInProcessServer server;
+  private ChannelPool pool;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder().build().start();
+    pool = new ChannelPool(server.channelBuilder(), 2);
+    kvClient = new KVImpl(pool, Optional.empty());
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    pool.shutdownNow();
+    server.close();
+  }
+
+  private WatchImpl newWatch(int streams, WatchStreamOption.Assignment assignment) {
+    return new WatchImpl(pool, Optional.empty(), Optional.empty(),
+        Optional.of(WatchStreamOption.newBuilder()
+            .withStreams(streams)
+            .withAssignment(assignment)
+            .build()), false, Optional.empty());
+  }
+
+  private static ByteSequence key(int i) {
+    return ByteSequence.fromString("stream/" + i);
+  }
+
+  private static Watch.WatchCallback countDown(CountDownLatch latch) {
+    return new Watch.WatchCallback() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+        events.forEach(event -> latch.countDown());
+      }
+
+      @Override
+      public void onResuming() {
+      }
+    };
+  }
+
+  @Test
+  public void testLeastLoadedSpreadsWatchers() throws Exception {
+    WatchImpl watch = newWatch(4, WatchStreamOption.Assignment.LEAST_LOADED);
+    CountDownLatch events = new CountDownLatch(20);
+    for (int i = 0; i < 20; i++) {
+      watch.watch(key(i), WatchOption.DEFAULT, countDown(events)).get(5, TimeUnit.SECONDS);
+    }
+
+    assertThat(watch.getWatcherCounts()).containsExactly(5, 5, 5, 5);
+    // one channel per stream on top of the pooled ones.
+    assertThat(pool.size()).isEqualTo(6);
+
+    for (int i = 0; i < 20; i++) {
+      kvClient.put(key(i).getByteString(), ByteString.copyFromUtf8("v")).get();
+    }
+    assertThat(events.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void testKeyHashKeepsWatchersOfAKeyTogether() throws Exception {
+    WatchImpl watch = newWatch(8, WatchStreamOption.Assignment.KEY_HASH);
+    CountDownLatch events = new CountDownLatch(3);
+    for (int i = 0; i < 3; i++) {
+      watch.watch(key(42), WatchOption.DEFAULT, countDown(events)).get(5, TimeUnit.SECONDS);
+    }
+
+    assertThat(watch.getWatcherCounts()).contains(3).containsOnly(0, 3);
+
+    kvClient.put(key(42).getByteString(), ByteString.copyFromUtf8("v")).get();
+    assertThat(events.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void testCancelGoesToTheWatcherStream() throws Exception {
+    WatchImpl watch = newWatch(2, WatchStreamOption.Assignment.LEAST_LOADED);
+    Watch.Watcher first = watch.watch(key(0), WatchOption.DEFAULT, countDown(
+        new CountDownLatch(1))).get(5, TimeUnit.SECONDS);
+    Watch.Watcher second = watch.watch(key(1), WatchOption.DEFAULT, countDown(
+        new CountDownLatch(1))).get(5, TimeUnit.SECONDS);
+
+    // both watchers have id 0 on their own stream.
+    assertThat(second.cancel().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(watch.getWatcherCounts()).containsExactly(1, 0);
+    assertThat(first.cancel().get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(watch.getWatcherCounts()).containsExactly(0, 0);
+  }
+
+  @Test
+  public void testClosedClientDoesNotReopenStreams() throws Exception {
+    Client client = server.newClient();
+    WatchImpl watch = (WatchImpl) client.getWatchClient();
+    CountDownLatch resuming = new CountDownLatch(1);
+    watch.watch(key(0), WatchOption.DEFAULT, new Watch.WatchCallback() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+      }
+
+      @Override
+      public void onResuming() {
+        resuming.countDown();
+      }
+    }).get(5, TimeUnit.SECONDS);
+    assertThat(watch.getOpenedStreamCount()).isEqualTo(1);
+
+    client.close();
+
+    assertThat(resuming.await(500, TimeUnit.MILLISECONDS)).isFalse();
+    assertThat(watch.getOpenedStreamCount()).isEqualTo(1);
+    assertThat(watch.getWatcherCounts()).containsExactly(0);
+  }
+}
@@ -0,0 +1,54 @@
+package com.coreos.jetcd.data;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.testng.annotations.Test;
+
+public class ByteSequenceTest {
+
+  @Test
+  public void testBytesAreCopiedInAndOut() {
+    byte[] bytes = "abc".getBytes(StandardCharsets.UTF_8);
+    ByteSequence sequence = ByteSequence.fromBytes(bytes);
+    bytes[0] = 'x';
+    sequence.getBytes()[1] = 'x';
+
+    assertThat(sequence.toStringUtf8()).isEqualTo("abc");
+  }
+
+  @Test
+  public void testByteStringIsShared() {
+    ByteString byteString = ByteString.copyFromUtf8("shared");
+    ByteSequence sequence = ByteSequence.fromByteString(byteString);
+
+    assertThat(sequence.getByteString()).isSameAs(byteString);
+    assertThat(sequence).isEqualTo(ByteSequence.fromString("shared"));
+    assertThat(sequence.hashCode()).isEqualTo(ByteSequence.fromString("shared").hashCode());
+  }
+
+  @Test
+  public void testWrapReadOnlyBuffer() {
+    ByteBuffer buffer = ByteBuffer.wrap("xkeyx".getBytes(StandardCharsets.UTF_8));
+    buffer.position(1).limit(4);
+    ByteSequence sequence = ByteSequence.wrap(buffer.asReadOnlyBuffer());
+
+    assertThat(sequence.toStringUtf8()).isEqualTo("key");
+    assertThat(sequence.size()).isEqualTo(3);
+    assertThatThrownBy(() -> ByteSequence.wrap(buffer))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testViews() {
+    ByteSequence sequence = ByteSequence.fromString("prefix/key");
+
+    assertThat(sequence.substring(7, 10)).isEqualTo(ByteSequence.fromString("key"));
+    ByteBuffer view = sequence.asReadOnlyByteBuffer();
+    assertThat(view.isReadOnly()).isTrue();
+    assertThat(view.remaining()).isEqualTo(10);
+  }
+}
@@ -0,0 +1,112 @@
+package com.coreos.jetcd.op;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.options.DeleteOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import com.google.protobuf.ByteString;
+import org.testng.annotations.Test;
+
+public class PreparedTxnTest {
+
+  private static final ByteString KEY = ByteString.copyFromUtf8("key");
+  private static final ByteString OTHER = ByteString.copyFromUtf8("other");
+  private static final ByteString VALUE = ByteString.copyFromUtf8("value");
+  private static final PutOption LEASED = PutOption.newBuilder().withLeaseId(7).build();
+
+  private static Txn cas(ByteString key, long revision, ByteString value) {
+    return Txn.newBuilder()
+        .If(new Cmp(key, Cmp.Op.EQUAL, CmpTarget.modRevision(revision)))
+        .Then(Op.put(key, value, LEASED))
+        .Else(Op.get(key, GetOption.DEFAULT))
+        .build();
+  }
+
+  private static PreparedTxn preparedCas() {
+    return PreparedTxn.newBuilder(cas(ByteString.EMPTY, 0, ByteString.EMPTY))
+        .withCompareKey(0)
+        .withCompareTarget(0)
+        .withSuccessKey(0)
+        .withSuccessValue(0)
+        .withFailureKey(0)
+        .build();
+  }
+
+  @Test
+  public void testBoundTxnEqualsBuiltTxn() {
+    PreparedTxn prepared = preparedCas();
+
+    Txn txn = prepared.bind()
+        .set(0, KEY)
+        .set(1, 42)
+        .set(2, KEY)
+        .set(3, VALUE)
+        .set(4, KEY)
+        .toTxn();
+
+    assertThat(prepared.getParameterCount()).isEqualTo(5);
+    assertThat(txn.toTxnRequest()).isEqualTo(cas(KEY, 42, VALUE).toTxnRequest());
+  }
+
+  @Test
+  public void testFixedPartsAreShared() {
+    Txn template = Txn.newBuilder()
+        .If(new Cmp(KEY, Cmp.Op.EQUAL, CmpTarget.value(VALUE)))
+        .Then(Op.put(KEY, VALUE, PutOption.DEFAULT), Op.delete(OTHER, DeleteOption.DEFAULT))
+        .build();
+    PreparedTxn prepared = PreparedTxn.newBuilder(template).withSuccessValue(0).build();
+
+    Txn first = prepared.bind().set(0, OTHER).toTxn();
+    Txn second = prepared.bind().set(0, VALUE).toTxn();
+
+    assertThat(first.toTxnRequest().getCompare(0))
+        .isSameAs(second.toTxnRequest().getCompare(0));
+    assertThat(first.toTxnRequest().getSuccess(1))
+        .isSameAs(second.toTxnRequest().getSuccess(1));
+    assertThat(first.toTxnRequest().getSuccess(0).getRequestPut().getValue()).isEqualTo(OTHER);
+    assertThat(second.toTxnRequest()).isEqualTo(template.toTxnRequest());
+  }
+
+  @Test
+  public void testValueCompareTakesBytes() {
+    PreparedTxn prepared = PreparedTxn.newBuilder(Txn.newBuilder()
+        .If(new Cmp(KEY, Cmp.Op.GREATER, CmpTarget.value(ByteString.EMPTY)))
+        .build())
+        .withCompareTarget(0)
+        .build();
+
+    assertThat(prepared.bind().set(0, VALUE).toTxn().toTxnRequest().getCompare(0).getValue())
+        .isEqualTo(VALUE);
+    assertThatThrownBy(() -> prepared.bind().set(0, 1L))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testUnboundParameter() {
+    assertThatThrownBy(() -> preparedCas().bind().set(0, KEY).toTxn())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("index=1");
+  }
+
+  @Test
+  public void testWrongParameterType() {
+    assertThatThrownBy(() -> preparedCas().bind().set(0, 1L))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> preparedCas().bind().set(1, KEY))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testDeclarationErrors() {
+    PreparedTxn.Builder builder = PreparedTxn.newBuilder(cas(KEY, 0, VALUE)).withSuccessValue(0);
+
+    assertThatThrownBy(() -> builder.withSuccessValue(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> builder.withFailureValue(0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> builder.withCompareKey(1))
+        .isInstanceOf(IndexOutOfBoundsException.class);
+  }
+}
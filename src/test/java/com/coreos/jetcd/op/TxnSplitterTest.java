@@ -0,0 +1,111 @@
+package com.coreos.jetcd.op;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.api.RequestOp;
+import com.coreos.jetcd.options.DeleteOption;
+import com.coreos.jetcd.options.PutOption;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class TxnSplitterTest {
+
+  private static List<Op> puts(int count, int valueSize) {
+    List<Op> ops = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      ops.add(Op.put(ByteString.copyFromUtf8("key" + i), ByteString.copyFrom(new byte[valueSize]),
+          PutOption.DEFAULT));
+    }
+    return ops;
+  }
+
+  private static List<RequestOp> requestOps(List<Txn> txns) {
+    List<RequestOp> ops = new ArrayList<>();
+    for (Txn txn : txns) {
+      assertThat(txn.toTxnRequest().getCompareCount()).isZero();
+      assertThat(txn.toTxnRequest().getFailureCount()).isZero();
+      ops.addAll(txn.toTxnRequest().getSuccessList());
+    }
+    return ops;
+  }
+
+  @Test
+  public void testSplitByCount() {
+    List<Op> ops = puts(300, 1);
+
+    List<Txn> txns = TxnSplitter.newBuilder().withMaxOps(128).build().split(ops);
+
+    assertThat(txns).hasSize(3);
+    assertThat(txns.get(0).toTxnRequest().getSuccessCount()).isEqualTo(128);
+    assertThat(txns.get(2).toTxnRequest().getSuccessCount()).isEqualTo(44);
+    assertThat(requestOps(txns))
+        .isEqualTo(Txn.newBuilder().Then(ops).build().toTxnRequest().getSuccessList());
+  }
+
+  @Test
+  public void testSplitBySize() {
+    List<Txn> txns = TxnSplitter.newBuilder().withMaxBytes(10 * 1024).build()
+        .split(puts(10, 3000));
+
+    assertThat(txns).hasSize(4);
+    for (Txn txn : txns) {
+      assertThat(txn.toTxnRequest().getSerializedSize()).isLessThanOrEqualTo(10 * 1024);
+    }
+    assertThat(requestOps(txns)).hasSize(10);
+  }
+
+  @Test
+  public void testOversizedOpGoesAlone() {
+    List<Op> ops = new ArrayList<>(puts(1, 1));
+    ops.addAll(puts(1, 4096));
+    ops.add(Op.delete(ByteString.copyFromUtf8("key"), DeleteOption.DEFAULT));
+
+    List<Txn> txns = TxnSplitter.newBuilder().withMaxBytes(1024).build().split(ops);
+
+    assertThat(txns).hasSize(3);
+    assertThat(txns.get(1).toTxnRequest().getSuccessCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testSameKeyStartsANewTxn() {
+    List<Op> ops = new ArrayList<>(puts(3, 1));
+    ops.addAll(puts(2, 1));
+
+    List<Txn> txns = TxnSplitter.newBuilder().build().split(ops);
+
+    assertThat(txns).hasSize(2);
+    assertThat(txns.get(0).toTxnRequest().getSuccessCount()).isEqualTo(3);
+    assertThat(requestOps(txns))
+        .isEqualTo(Txn.newBuilder().Then(ops).build().toTxnRequest().getSuccessList());
+  }
+
+  @Test
+  public void testDeleteRangeHoldingAPutStartsANewTxn() {
+    List<Op> ops = new ArrayList<>(puts(2, 1));
+    // holds key1, put in the first txn.
+    ops.add(Op.delete(ByteString.copyFromUtf8("key1"), DeleteOption.newBuilder()
+        .withRange(ByteString.copyFromUtf8("key2")).build()));
+    // within the range deleted above.
+    ops.addAll(puts(2, 1).subList(1, 2));
+    // holds none of the keys put.
+    ops.add(Op.delete(ByteString.copyFromUtf8("other"), DeleteOption.newBuilder()
+        .withPrefix(ByteString.copyFromUtf8("other")).build()));
+
+    List<Txn> txns = TxnSplitter.newBuilder().build().split(ops);
+
+    assertThat(txns).hasSize(3);
+    assertThat(txns.get(0).toTxnRequest().getSuccessCount()).isEqualTo(2);
+    assertThat(txns.get(1).toTxnRequest().getSuccessCount()).isEqualTo(1);
+    assertThat(txns.get(2).toTxnRequest().getSuccessCount()).isEqualTo(2);
+    assertThat(requestOps(txns))
+        .isEqualTo(Txn.newBuilder().Then(ops).build().toTxnRequest().getSuccessList());
+  }
+
+  @Test
+  public void testNoOps() {
+    assertThat(TxnSplitter.newBuilder().build().split(Collections.emptyList())).isEmpty();
+  }
+}
@@ -0,0 +1,39 @@
+package com.coreos.jetcd.server;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * The gRPC errors returned by the in-process server, codes and descriptions mirror the ones etcd
+ * sends (see etcdserver/api/v3rpc/rpctypes) so client code can be exercised against them.
+ */
+final class EtcdErrors {
+
+  static final Status EMPTY_KEY = Status.INVALID_ARGUMENT
+      .withDescription("etcdserver: key is not provided");
+  static final Status KEY_NOT_FOUND = Status.INVALID_ARGUMENT
+      .withDescription("etcdserver: key not found");
+  static final Status TOO_MANY_OPS = Status.INVALID_ARGUMENT
+      .withDescription("etcdserver: too many operations in txn request");
+  static final Status DUPLICATE_KEY = Status.INVALID_ARGUMENT
+      .withDescription("etcdserver: duplicate key given in txn request");
+  static final Status REQUEST_TOO_LARGE = Status.INVALID_ARGUMENT
+      .withDescription("etcdserver: request is too large");
+  static final Status COMPACTED = Status.OUT_OF_RANGE
+      .withDescription("etcdserver: mvcc: required revision has been compacted");
+  static final Status FUTURE_REV = Status.OUT_OF_RANGE
+      .withDescription("etcdserver: mvcc: required revision is a future revision");
+  static final Status LEASE_NOT_FOUND = Status.NOT_FOUND
+      .withDescription("etcdserver: requested lease not found");
+  static final Status LEASE_EXIST = Status.FAILED_PRECONDITION
+      .withDescription("etcdserver: lease already exists");
+  static final Status LEASE_TTL_TOO_LARGE = Status.OUT_OF_RANGE
+      .withDescription("etcdserver: too large lease TTL");
+
+  private EtcdErrors() {
+  }
+
+  static StatusRuntimeException error(Status status) {
+    return status.asRuntimeException();
+  }
+}
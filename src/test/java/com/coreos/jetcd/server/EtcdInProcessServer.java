@@ -0,0 +1,293 @@
+package com.coreos.jetcd.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.ClientBuilder;
+import com.coreos.jetcd.exception.AuthFailedException;
+import com.coreos.jetcd.exception.ConnectException;
+import com.google.common.base.Ticker;
+import io.grpc.BindableService;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An etcd stand-in serving the KV, Watch, Lease and Maintenance services from an in-memory
+ * {@link MvccStore} over the gRPC in-process transport.
+ *
+ * <p>It lets tests and benchmarks drive the real client without a running cluster:
+ *
+ * <pre>
+ * {@code
+ * try (EtcdInProcessServer server = EtcdInProcessServer.newBuilder().build().start()) {
+ *   Client client = server.newClient();
+ *   client.getKVClient().put(key, value).get();
+ * }
+ * }
+ * </pre>
+ */
+public final class EtcdInProcessServer implements Closeable {
+
+  public static final long CLUSTER_ID = 0x1000L;
+  public static final long MEMBER_ID = 0x2000L;
+
+  /**
+   * Create a builder to construct an in-process server.
+   *
+   * @return builder
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private String name = "etcd-inprocess-" + UUID.randomUUID();
+    private long memberId = MEMBER_ID;
+    private int maxTxnOps = 128;
+    private int maxRequestBytes = 1536 * 1024;
+    private long autoCompactRetention = 0;
+    private long leaseCheckPeriodMillis = 500;
+    private Ticker ticker = Ticker.systemTicker();
+    private int port = -1;
+
+    private Builder() {
+    }
+
+    /**
+     * set the in-process transport name, clients connect by this name.
+     *
+     * @param name server name
+     * @return builder
+     */
+    public Builder withName(String name) {
+      this.name = checkNotNull(name, "name should not be null");
+      return this;
+    }
+
+    /**
+     * set the member id reported in response headers.
+     *
+     * @param memberId member id
+     * @return builder
+     */
+    public Builder withMemberId(long memberId) {
+      this.memberId = memberId;
+      return this;
+    }
+
+    /**
+     * set the maximum number of operations per txn, etcd defaults to 128.
+     *
+     * @param maxTxnOps maximum number of operations per txn
+     * @return builder
+     */
+    public Builder withMaxTxnOps(int maxTxnOps) {
+      checkArgument(maxTxnOps > 0, "maxTxnOps should be positive: maxTxnOps=%s", maxTxnOps);
+      this.maxTxnOps = maxTxnOps;
+      return this;
+    }
+
+    /**
+     * set the maximum request size in bytes, etcd defaults to 1.5 MiB.
+     *
+     * @param maxRequestBytes maximum request size
+     * @return builder
+     */
+    public Builder withMaxRequestBytes(int maxRequestBytes) {
+      checkArgument(maxRequestBytes > 0,
+          "maxRequestBytes should be positive: maxRequestBytes=%s", maxRequestBytes);
+      this.maxRequestBytes = maxRequestBytes;
+      return this;
+    }
+
+    /**
+     * keep only the last <i>retention</i> revisions of history, compacting as writes come in.
+     * Zero, the default, keeps everything until an explicit compaction.
+     *
+     * @param retention number of revisions to retain
+     * @return builder
+     */
+    public Builder withAutoCompaction(long retention) {
+      checkArgument(retention >= 0, "retention should not be negative: retention=%s", retention);
+      this.autoCompactRetention = retention;
+      return this;
+    }
+
+    /**
+     * set how often expired leases are revoked, zero disables the background check and leaves
+     * expiry to {@link MvccStore#expireLeases()}.
+     *
+     * @param period check period
+     * @param unit unit of the period
+     * @return builder
+     */
+    public Builder withLeaseCheckPeriod(long period, TimeUnit unit) {
+      checkArgument(period >= 0, "period should not be negative: period=%s", period);
+      this.leaseCheckPeriodMillis = unit.toMillis(period);
+      return this;
+    }
+
+    /**
+     * set the time source lease deadlines are computed from.
+     *
+     * @param ticker time source
+     * @return builder
+     */
+    public Builder withTicker(Ticker ticker) {
+      this.ticker = checkNotNull(ticker, "ticker should not be null");
+      return this;
+    }
+
+    /**
+     * also serve over TCP with Netty on the given local port, so the client transport can be
+     * exercised. Off by default.
+     *
+     * @param port the port, 0 to pick a free one
+     * @return builder
+     */
+    public Builder withPort(int port) {
+      checkArgument(port >= 0, "port should not be negative: port=%s", port);
+      this.port = port;
+      return this;
+    }
+
+    public EtcdInProcessServer build() {
+      return new EtcdInProcessServer(this);
+    }
+  }
+
+  private final String name;
+  private final MvccStore store;
+  private final long leaseCheckPeriodMillis;
+  private final ExecutorService watchExecutor;
+  private final int port;
+  private Server server;
+  private Server tcpServer;
+  private ScheduledExecutorService leaseExpiry;
+
+  private EtcdInProcessServer(Builder builder) {
+    this.name = builder.name;
+    this.store = new MvccStore(CLUSTER_ID, builder.memberId, builder.maxTxnOps,
+        builder.maxRequestBytes, builder.autoCompactRetention, builder.ticker);
+    this.leaseCheckPeriodMillis = builder.leaseCheckPeriodMillis;
+    this.watchExecutor = Executors.newCachedThreadPool();
+    this.port = builder.port;
+  }
+
+  /**
+   * start serving.
+   *
+   * @return this server
+   * @throws IOException if the transport can not be started
+   */
+  public synchronized EtcdInProcessServer start() throws IOException {
+    List<BindableService> services = Arrays.asList(
+        new KVService(store),
+        new WatchService(store, watchExecutor),
+        new LeaseService(store),
+        new MaintenanceService(store));
+    this.server = addServices(InProcessServerBuilder.forName(name), services)
+        .directExecutor()
+        .build()
+        .start();
+    if (port >= 0) {
+      this.tcpServer = addServices(NettyServerBuilder.forAddress(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), port)), services)
+          .directExecutor()
+          .build()
+          .start();
+    }
+    if (leaseCheckPeriodMillis > 0) {
+      this.leaseExpiry = Executors.newSingleThreadScheduledExecutor();
+      this.leaseExpiry.scheduleAtFixedRate(store::expireLeases, leaseCheckPeriodMillis,
+          leaseCheckPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+    return this;
+  }
+
+  private static ServerBuilder<?> addServices(ServerBuilder<?> builder,
+      List<BindableService> services) {
+    services.forEach(builder::addService);
+    return builder;
+  }
+
+  /**
+   * get the endpoint of the TCP transport, see {@link Builder#withPort(int)}.
+   *
+   * @return endpoint in host:port format
+   * @throws IllegalStateException if the server doesn't serve over TCP
+   */
+  public synchronized String getEndpoint() {
+    checkState(tcpServer != null, "server is not serving over TCP");
+    return InetAddress.getLoopbackAddress().getHostAddress() + ":" + tcpServer.getPort();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public MvccStore getStore() {
+    return store;
+  }
+
+  /**
+   * get a channel builder connected to this server.
+   *
+   * @return channel builder
+   */
+  public ManagedChannelBuilder<?> channelBuilder() {
+    return InProcessChannelBuilder.forName(name);
+  }
+
+  /**
+   * create a client connected to this server.
+   *
+   * @return client instance
+   */
+  public Client newClient() throws ConnectException, AuthFailedException {
+    return newClient(ClientBuilder.newBuilder());
+  }
+
+  /**
+   * create a client connected to this server with the given client configuration.
+   *
+   * @param clientBuilder client configuration, its endpoints are ignored
+   * @return client instance
+   */
+  public Client newClient(ClientBuilder clientBuilder)
+      throws ConnectException, AuthFailedException {
+    return new Client(channelBuilder(), clientBuilder);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (leaseExpiry != null) {
+      leaseExpiry.shutdownNow();
+    }
+    if (server != null) {
+      server.shutdownNow();
+    }
+    if (tcpServer != null) {
+      tcpServer.shutdownNow();
+    }
+    watchExecutor.shutdownNow();
+  }
+}
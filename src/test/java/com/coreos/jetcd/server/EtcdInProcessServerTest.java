@@ -0,0 +1,197 @@
+package com.coreos.jetcd.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.coreos.jetcd.Client;
+import com.coreos.jetcd.KV;
+import com.coreos.jetcd.Watch;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.Header;
+import com.coreos.jetcd.op.Cmp;
+import com.coreos.jetcd.op.CmpTarget;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.google.common.base.Ticker;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EtcdInProcessServerTest {
+
+  private final FakeTicker ticker = new FakeTicker();
+  private EtcdInProcessServer server;
+  private Client client;
+  private KV kvClient;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = EtcdInProcessServer.newBuilder()
+        .withTicker(ticker)
+        .withLeaseCheckPeriod(0, TimeUnit.MILLISECONDS)
+        .build()
+        .start();
+    client = server.newClient();
+    kvClient = client.getKVClient();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testPutGetWithRevision() throws Exception {
+    ByteString key = ByteString.copyFromUtf8("key");
+    PutResponse first = kvClient.put(key, ByteString.copyFromUtf8("v1")).get();
+    PutResponse second = kvClient.put(key, ByteString.copyFromUtf8("v2"),
+        PutOption.newBuilder().withPrevKV().build()).get();
+
+    assertThat(second.getHeader().getRevision()).isEqualTo(first.getHeader().getRevision() + 1);
+    assertThat(second.getPrevKv().getValue().toStringUtf8()).isEqualTo("v1");
+
+    RangeResponse latest = kvClient.get(key).get();
+    assertThat(latest.getKvs(0).getValue().toStringUtf8()).isEqualTo("v2");
+    assertThat(latest.getKvs(0).getVersion()).isEqualTo(2);
+
+    RangeResponse old = kvClient.get(key, GetOption.newBuilder()
+        .withRevision(first.getHeader().getRevision()).build()).get();
+    assertThat(old.getKvs(0).getValue().toStringUtf8()).isEqualTo("v1");
+  }
+
+  @Test
+  public void testPrefixLimit() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      kvClient.put(ByteString.copyFromUtf8("p/" + i), ByteString.copyFromUtf8("v")).get();
+    }
+    kvClient.put(ByteString.copyFromUtf8("q"), ByteString.copyFromUtf8("v")).get();
+
+    ByteString prefix = ByteString.copyFromUtf8("p/");
+    RangeResponse response = kvClient.get(prefix,
+        GetOption.newBuilder().withPrefix(prefix).withLimit(2).build()).get();
+    assertThat(response.getCount()).isEqualTo(5);
+    assertThat(response.getMore()).isTrue();
+    assertThat(response.getKvsList()).extracting(kv -> kv.getKey().toStringUtf8())
+        .containsExactly("p/0", "p/1");
+  }
+
+  @Test
+  public void testCompaction() throws Exception {
+    ByteString key = ByteString.copyFromUtf8("key");
+    long rev = kvClient.put(key, ByteString.copyFromUtf8("v1")).get().getHeader().getRevision();
+    long last = kvClient.put(key, ByteString.copyFromUtf8("v2")).get().getHeader().getRevision();
+
+    kvClient.compact(CompactOption.newBuilder().withRevision(last).build()).get();
+
+    assertThatThrownBy(() -> kvClient.get(key, GetOption.newBuilder().withRevision(rev).build())
+        .get())
+        .isInstanceOf(ExecutionException.class)
+        .satisfies(e -> assertThat(Status.fromThrowable(e).getCode())
+            .isEqualTo(Status.Code.OUT_OF_RANGE));
+    assertThat(kvClient.get(key).get().getKvs(0).getValue().toStringUtf8()).isEqualTo("v2");
+  }
+
+  @Test
+  public void testTxn() throws Exception {
+    ByteString key = ByteString.copyFromUtf8("txn");
+    kvClient.put(key, ByteString.copyFromUtf8("abc")).get();
+
+    Txn txn = Txn.newBuilder()
+        .If(new Cmp(key, Cmp.Op.EQUAL, CmpTarget.value(ByteString.copyFromUtf8("abc"))))
+        .Then(Op.put(key, ByteString.copyFromUtf8("xyz"), PutOption.DEFAULT))
+        .Else(Op.put(key, ByteString.copyFromUtf8("nope"), PutOption.DEFAULT))
+        .build();
+    TxnResponse response = kvClient.commit(txn).get();
+
+    assertThat(response.getSucceeded()).isTrue();
+    assertThat(response.getResponsesCount()).isEqualTo(1);
+    assertThat(kvClient.get(key).get().getKvs(0).getValue().toStringUtf8()).isEqualTo("xyz");
+  }
+
+  @Test
+  public void testWatchFanOutAndReplay() throws Exception {
+    ByteSequence key = ByteSequence.fromString("watched");
+    long rev = kvClient.put(ByteString.copyFromUtf8("watched"), ByteString.copyFromUtf8("v1"))
+        .get().getHeader().getRevision();
+
+    Client other = server.newClient();
+    try {
+      BlockingQueue<WatchEvent> live = new LinkedBlockingQueue<>();
+      BlockingQueue<WatchEvent> replay = new LinkedBlockingQueue<>();
+      client.getWatchClient().watch(key, WatchOption.DEFAULT, callback(live)).get();
+      other.getWatchClient().watch(key, WatchOption.newBuilder().withRevision(rev).build(),
+          callback(replay)).get();
+
+      kvClient.put(ByteString.copyFromUtf8("watched"), ByteString.copyFromUtf8("v2")).get();
+
+      assertThat(live.poll(5, TimeUnit.SECONDS).getKeyValue().getValue().toStringUtf8())
+          .isEqualTo("v2");
+      assertThat(replay.poll(5, TimeUnit.SECONDS).getKeyValue().getValue().toStringUtf8())
+          .isEqualTo("v1");
+      assertThat(replay.poll(5, TimeUnit.SECONDS).getKeyValue().getValue().toStringUtf8())
+          .isEqualTo("v2");
+    } finally {
+      other.close();
+    }
+  }
+
+  @Test
+  public void testLeaseExpiry() throws Exception {
+    long leaseId = client.getLeaseClient().grant(5).get().getID();
+    ByteString key = ByteString.copyFromUtf8("leased");
+    kvClient.put(key, ByteString.copyFromUtf8("v"),
+        PutOption.newBuilder().withLeaseId(leaseId).build()).get();
+
+    ticker.advance(4, TimeUnit.SECONDS);
+    assertThat(server.getStore().expireLeases()).isEqualTo(0);
+    assertThat(kvClient.get(key).get().getCount()).isEqualTo(1);
+
+    ticker.advance(1, TimeUnit.SECONDS);
+    assertThat(server.getStore().expireLeases()).isEqualTo(1);
+    assertThat(kvClient.get(key).get().getCount()).isEqualTo(0);
+  }
+
+  private static Watch.WatchCallback callback(BlockingQueue<WatchEvent> queue) {
+    return new Watch.WatchCallback() {
+      @Override
+      public void onWatch(Header header, List<WatchEvent> events) {
+        queue.addAll(events);
+      }
+
+      @Override
+      public void onResuming() {
+      }
+    };
+  }
+
+  private static final class FakeTicker extends Ticker {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+
+    void advance(long time, TimeUnit unit) {
+      nanos.addAndGet(unit.toNanos(time));
+    }
+  }
+}
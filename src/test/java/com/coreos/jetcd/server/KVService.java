@@ -0,0 +1,70 @@
+package com.coreos.jetcd.server;
+
+import com.coreos.jetcd.api.CompactionRequest;
+import com.coreos.jetcd.api.CompactionResponse;
+import com.coreos.jetcd.api.DeleteRangeRequest;
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.KVGrpc;
+import com.coreos.jetcd.api.PutRequest;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.TxnRequest;
+import com.coreos.jetcd.api.TxnResponse;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import java.util.function.Supplier;
+
+/**
+ * KV service of the in-process server.
+ */
+class KVService extends KVGrpc.KVImplBase {
+
+  private final MvccStore store;
+
+  KVService(MvccStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void range(RangeRequest request, StreamObserver<RangeResponse> responseObserver) {
+    unary(() -> store.range(request), responseObserver);
+  }
+
+  @Override
+  public void put(PutRequest request, StreamObserver<PutResponse> responseObserver) {
+    unary(() -> store.put(request), responseObserver);
+  }
+
+  @Override
+  public void deleteRange(DeleteRangeRequest request,
+      StreamObserver<DeleteRangeResponse> responseObserver) {
+    unary(() -> store.deleteRange(request), responseObserver);
+  }
+
+  @Override
+  public void txn(TxnRequest request, StreamObserver<TxnResponse> responseObserver) {
+    unary(() -> store.txn(request), responseObserver);
+  }
+
+  @Override
+  public void compact(CompactionRequest request,
+      StreamObserver<CompactionResponse> responseObserver) {
+    unary(() -> store.compact(request), responseObserver);
+  }
+
+  /**
+   * complete an unary call, store errors are sent back as the call status.
+   */
+  static <T> void unary(Supplier<T> call, StreamObserver<T> responseObserver) {
+    T response;
+    try {
+      response = call.get();
+    } catch (StatusRuntimeException e) {
+      responseObserver.onError(e);
+      return;
+    }
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+}
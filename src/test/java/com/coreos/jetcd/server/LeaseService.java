@@ -0,0 +1,70 @@
+package com.coreos.jetcd.server;
+
+import static com.coreos.jetcd.server.KVService.unary;
+
+import com.coreos.jetcd.api.LeaseGrantRequest;
+import com.coreos.jetcd.api.LeaseGrantResponse;
+import com.coreos.jetcd.api.LeaseGrpc;
+import com.coreos.jetcd.api.LeaseKeepAliveRequest;
+import com.coreos.jetcd.api.LeaseKeepAliveResponse;
+import com.coreos.jetcd.api.LeaseRevokeRequest;
+import com.coreos.jetcd.api.LeaseRevokeResponse;
+import com.coreos.jetcd.api.LeaseTimeToLiveRequest;
+import com.coreos.jetcd.api.LeaseTimeToLiveResponse;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Lease service of the in-process server, leases expire when
+ * {@link MvccStore#expireLeases()} runs.
+ */
+class LeaseService extends LeaseGrpc.LeaseImplBase {
+
+  private final MvccStore store;
+
+  LeaseService(MvccStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void leaseGrant(LeaseGrantRequest request,
+      StreamObserver<LeaseGrantResponse> responseObserver) {
+    unary(() -> store.grant(request), responseObserver);
+  }
+
+  @Override
+  public void leaseRevoke(LeaseRevokeRequest request,
+      StreamObserver<LeaseRevokeResponse> responseObserver) {
+    unary(() -> store.revoke(request.getID()), responseObserver);
+  }
+
+  @Override
+  public void leaseTimeToLive(LeaseTimeToLiveRequest request,
+      StreamObserver<LeaseTimeToLiveResponse> responseObserver) {
+    unary(() -> store.timeToLive(request), responseObserver);
+  }
+
+  @Override
+  public StreamObserver<LeaseKeepAliveRequest> leaseKeepAlive(
+      StreamObserver<LeaseKeepAliveResponse> responseObserver) {
+    return new StreamObserver<LeaseKeepAliveRequest>() {
+      @Override
+      public void onNext(LeaseKeepAliveRequest request) {
+        LeaseKeepAliveResponse response = store.keepAlive(request.getID());
+        synchronized (responseObserver) {
+          responseObserver.onNext(response);
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onCompleted() {
+        synchronized (responseObserver) {
+          responseObserver.onCompleted();
+        }
+      }
+    };
+  }
+}
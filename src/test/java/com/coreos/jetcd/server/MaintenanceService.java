@@ -0,0 +1,105 @@
+package com.coreos.jetcd.server;
+
+import com.coreos.jetcd.api.AlarmRequest;
+import com.coreos.jetcd.api.AlarmResponse;
+import com.coreos.jetcd.api.DefragmentRequest;
+import com.coreos.jetcd.api.DefragmentResponse;
+import com.coreos.jetcd.api.HashRequest;
+import com.coreos.jetcd.api.HashResponse;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.MaintenanceGrpc;
+import com.coreos.jetcd.api.SnapshotRequest;
+import com.coreos.jetcd.api.SnapshotResponse;
+import com.coreos.jetcd.api.StatusRequest;
+import com.coreos.jetcd.api.StatusResponse;
+import com.google.protobuf.ByteString;
+import io.grpc.stub.StreamObserver;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Maintenance service of the in-process server, the member leads itself unless
+ * {@link MvccStore#setLeaderId(long)} says otherwise.
+ *
+ * <p>A snapshot is the live keyspace written as length-delimited {@link KeyValue} messages.
+ */
+class MaintenanceService extends MaintenanceGrpc.MaintenanceImplBase {
+
+  static final String VERSION = "3.1.0-inprocess";
+
+  private static final int SNAPSHOT_CHUNK_SIZE = 32 * 1024;
+
+  private final MvccStore store;
+
+  MaintenanceService(MvccStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public void status(StatusRequest request, StreamObserver<StatusResponse> responseObserver) {
+    KVService.unary(() -> StatusResponse.newBuilder()
+        .setHeader(store.header())
+        .setVersion(VERSION)
+        .setDbSize(dump().size())
+        .setLeader(store.getLeaderId())
+        .setRaftIndex(store.getRevision())
+        .setRaftTerm(store.getRaftTerm())
+        .build(), responseObserver);
+  }
+
+  @Override
+  public void alarm(AlarmRequest request, StreamObserver<AlarmResponse> responseObserver) {
+    KVService.unary(() -> AlarmResponse.newBuilder().setHeader(store.header()).build(),
+        responseObserver);
+  }
+
+  @Override
+  public void defragment(DefragmentRequest request,
+      StreamObserver<DefragmentResponse> responseObserver) {
+    KVService.unary(() -> DefragmentResponse.newBuilder().setHeader(store.header()).build(),
+        responseObserver);
+  }
+
+  @Override
+  public void hash(HashRequest request, StreamObserver<HashResponse> responseObserver) {
+    KVService.unary(() -> {
+      CRC32 crc = new CRC32();
+      crc.update(dump().toByteArray());
+      return HashResponse.newBuilder()
+          .setHeader(store.header())
+          .setHash((int) crc.getValue())
+          .build();
+    }, responseObserver);
+  }
+
+  @Override
+  public void snapshot(SnapshotRequest request,
+      StreamObserver<SnapshotResponse> responseObserver) {
+    ByteString data = dump();
+    for (int offset = 0; offset < data.size(); offset += SNAPSHOT_CHUNK_SIZE) {
+      int end = Math.min(offset + SNAPSHOT_CHUNK_SIZE, data.size());
+      responseObserver.onNext(SnapshotResponse.newBuilder()
+          .setHeader(store.header())
+          .setRemainingBytes(data.size() - end)
+          .setBlob(data.substring(offset, end))
+          .build());
+    }
+    responseObserver.onCompleted();
+  }
+
+  private ByteString dump() {
+    List<KeyValue> kvs = store.snapshot();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      for (KeyValue kv : kvs) {
+        kv.writeDelimitedTo(out);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return ByteString.copyFrom(out.toByteArray());
+  }
+}
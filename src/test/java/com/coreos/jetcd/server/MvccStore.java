@@ -0,0 +1,800 @@
+package com.coreos.jetcd.server;
+
+import static com.coreos.jetcd.server.EtcdErrors.error;
+
+import com.coreos.jetcd.api.CompactionRequest;
+import com.coreos.jetcd.api.CompactionResponse;
+import com.coreos.jetcd.api.Compare;
+import com.coreos.jetcd.api.DeleteRangeRequest;
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.LeaseGrantRequest;
+import com.coreos.jetcd.api.LeaseGrantResponse;
+import com.coreos.jetcd.api.LeaseKeepAliveResponse;
+import com.coreos.jetcd.api.LeaseRevokeResponse;
+import com.coreos.jetcd.api.LeaseTimeToLiveRequest;
+import com.coreos.jetcd.api.LeaseTimeToLiveResponse;
+import com.coreos.jetcd.api.PutRequest;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.RequestOp;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.api.ResponseOp;
+import com.coreos.jetcd.api.TxnRequest;
+import com.coreos.jetcd.api.TxnResponse;
+import com.google.common.base.Ticker;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory multi-version key-value store backing {@link EtcdInProcessServer}.
+ *
+ * <p>Every request that changes the keyspace bumps the store revision by one, a txn counts as a
+ * single change however many ops it carries. All methods are serialized on the store monitor,
+ * which keeps the model simple: this is a test double, not a database.
+ */
+public final class MvccStore {
+
+  /**
+   * Orders keys the way etcd does, unsigned byte-wise lexicographic.
+   */
+  public static final Comparator<ByteString> KEY_COMPARATOR = (left, right) -> {
+    int size = Math.min(left.size(), right.size());
+    for (int i = 0; i < size; i++) {
+      int cmp = (left.byteAt(i) & 0xff) - (right.byteAt(i) & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return left.size() - right.size();
+  };
+
+  private static final ByteString NUL = ByteString.copyFrom(new byte[]{0});
+
+  /**
+   * Listener of committed changes, invoked with the store monitor held so it must not block.
+   */
+  interface EventListener {
+
+    /**
+     * called once before any replayed or live event is delivered.
+     *
+     * @param revision the store revision the listener was registered at
+     */
+    void onRegistered(long revision);
+
+    void onEvents(long revision, List<Event> events);
+  }
+
+  private final long clusterId;
+  private final long memberId;
+  private final int maxTxnOps;
+  private final int maxRequestBytes;
+  private final long autoCompactRetention;
+  private final Ticker ticker;
+
+  /**
+   * key -> versions of the key in revision order, a version of zero marks a tombstone.
+   */
+  private final NavigableMap<ByteString, List<KeyValue>> index = new TreeMap<>(KEY_COMPARATOR);
+  private final Map<Long, LeaseEntry> leases = new HashMap<>();
+  private final Map<EventListener, KeyRange> listeners = new LinkedHashMap<>();
+
+  private long revision = 1;
+  private long compactRevision = 0;
+  private long raftTerm = 1;
+  private long leaderId;
+  private long nextLeaseId = 1;
+
+  MvccStore(long clusterId, long memberId, int maxTxnOps, int maxRequestBytes,
+      long autoCompactRetention, Ticker ticker) {
+    this.clusterId = clusterId;
+    this.memberId = memberId;
+    this.leaderId = memberId;
+    this.maxTxnOps = maxTxnOps;
+    this.maxRequestBytes = maxRequestBytes;
+    this.autoCompactRetention = autoCompactRetention;
+    this.ticker = ticker;
+  }
+
+  // ***************
+  // state
+  // ***************
+
+  public synchronized long getRevision() {
+    return revision;
+  }
+
+  public synchronized long getCompactRevision() {
+    return compactRevision;
+  }
+
+  public synchronized long getRaftTerm() {
+    return raftTerm;
+  }
+
+  /**
+   * Simulate a leader election, following responses carry the new raft term.
+   */
+  public synchronized void setRaftTerm(long raftTerm) {
+    this.raftTerm = raftTerm;
+  }
+
+  public synchronized long getLeaderId() {
+    return leaderId;
+  }
+
+  /**
+   * Simulate this member being part of a cluster led by another member, reported by the status
+   * of the maintenance service.
+   */
+  public synchronized void setLeaderId(long leaderId) {
+    this.leaderId = leaderId;
+  }
+
+  /**
+   * get the number of live keys at the current revision.
+   */
+  public synchronized int size() {
+    int size = 0;
+    for (List<KeyValue> versions : index.values()) {
+      if (isLive(last(versions))) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  synchronized ResponseHeader header() {
+    return ResponseHeader.newBuilder()
+        .setClusterId(clusterId)
+        .setMemberId(memberId)
+        .setRevision(revision)
+        .setRaftTerm(raftTerm)
+        .build();
+  }
+
+  long getMemberId() {
+    return memberId;
+  }
+
+  /**
+   * get the live key-values at the current revision, in key order.
+   */
+  synchronized List<KeyValue> snapshot() {
+    List<KeyValue> kvs = new ArrayList<>();
+    for (List<KeyValue> versions : index.values()) {
+      KeyValue kv = last(versions);
+      if (isLive(kv)) {
+        kvs.add(kv);
+      }
+    }
+    return kvs;
+  }
+
+  // ***************
+  // KV
+  // ***************
+
+  synchronized RangeResponse range(RangeRequest request) {
+    checkSize(request);
+    return range(request, revision);
+  }
+
+  synchronized PutResponse put(PutRequest request) {
+    checkSize(request);
+    Change change = new Change();
+    PutResponse response = put(request, change);
+    commit(change);
+    return response.toBuilder().setHeader(header()).build();
+  }
+
+  synchronized DeleteRangeResponse deleteRange(DeleteRangeRequest request) {
+    checkSize(request);
+    Change change = new Change();
+    DeleteRangeResponse response = deleteRange(request, change);
+    commit(change);
+    return response.toBuilder().setHeader(header()).build();
+  }
+
+  synchronized TxnResponse txn(TxnRequest request) {
+    checkSize(request);
+    if (request.getCompareCount() > maxTxnOps
+        || request.getSuccessCount() > maxTxnOps
+        || request.getFailureCount() > maxTxnOps) {
+      throw error(EtcdErrors.TOO_MANY_OPS);
+    }
+    checkIntervals(request.getSuccessList());
+    checkIntervals(request.getFailureList());
+
+    boolean succeeded = true;
+    for (Compare compare : request.getCompareList()) {
+      if (!evaluate(compare)) {
+        succeeded = false;
+        break;
+      }
+    }
+
+    // validate leases up front so a failing op can't leave the txn half applied.
+    List<RequestOp> ops = succeeded ? request.getSuccessList() : request.getFailureList();
+    for (RequestOp op : ops) {
+      if (op.getRequestCase() == RequestOp.RequestCase.REQUEST_PUT) {
+        checkLease(op.getRequestPut().getLease());
+      }
+    }
+
+    Change change = new Change();
+    TxnResponse.Builder builder = TxnResponse.newBuilder().setSucceeded(succeeded);
+    for (RequestOp op : ops) {
+      ResponseOp.Builder responseOp = ResponseOp.newBuilder();
+      switch (op.getRequestCase()) {
+        case REQUEST_RANGE:
+          responseOp.setResponseRange(range(op.getRequestRange(), change.readRevision()));
+          break;
+        case REQUEST_PUT:
+          responseOp.setResponsePut(put(op.getRequestPut(), change));
+          break;
+        case REQUEST_DELETE_RANGE:
+          responseOp.setResponseDeleteRange(deleteRange(op.getRequestDeleteRange(), change));
+          break;
+        default:
+          break;
+      }
+      builder.addResponses(responseOp);
+    }
+    commit(change);
+
+    // etcd stamps every sub response with the txn header.
+    ResponseHeader header = header();
+    for (ResponseOp.Builder responseOp : builder.getResponsesBuilderList()) {
+      switch (responseOp.getResponseCase()) {
+        case RESPONSE_RANGE:
+          responseOp.getResponseRangeBuilder().setHeader(header);
+          break;
+        case RESPONSE_PUT:
+          responseOp.getResponsePutBuilder().setHeader(header);
+          break;
+        case RESPONSE_DELETE_RANGE:
+          responseOp.getResponseDeleteRangeBuilder().setHeader(header);
+          break;
+        default:
+          break;
+      }
+    }
+    return builder.setHeader(header).build();
+  }
+
+  synchronized CompactionResponse compact(CompactionRequest request) {
+    long rev = request.getRevision();
+    if (rev <= compactRevision) {
+      throw error(EtcdErrors.COMPACTED);
+    }
+    if (rev > revision) {
+      throw error(EtcdErrors.FUTURE_REV);
+    }
+    compact(rev);
+    return CompactionResponse.newBuilder().setHeader(header()).build();
+  }
+
+  private void compact(long rev) {
+    index.values().removeIf(versions -> {
+      int keep = -1;
+      for (int i = 0; i < versions.size() && versions.get(i).getModRevision() <= rev; i++) {
+        keep = i;
+      }
+      if (keep > 0) {
+        versions.subList(0, keep).clear();
+      }
+      if (keep >= 0 && !isLive(versions.get(0))) {
+        versions.remove(0);
+      }
+      return versions.isEmpty();
+    });
+    compactRevision = rev;
+  }
+
+  private RangeResponse range(RangeRequest request, long currentRevision) {
+    long rev = request.getRevision() > 0 ? request.getRevision() : currentRevision;
+    if (rev > currentRevision) {
+      throw error(EtcdErrors.FUTURE_REV);
+    }
+    if (rev < compactRevision) {
+      throw error(EtcdErrors.COMPACTED);
+    }
+
+    List<KeyValue> kvs = new ArrayList<>();
+    for (List<KeyValue> versions : versionsIn(request.getKey(), request.getRangeEnd())) {
+      KeyValue kv = at(versions, rev);
+      if (kv == null || !matches(request, kv)) {
+        continue;
+      }
+      kvs.add(kv);
+    }
+
+    sort(kvs, request.getSortOrder(), request.getSortTarget());
+
+    RangeResponse.Builder builder = RangeResponse.newBuilder()
+        .setHeader(header())
+        .setCount(kvs.size());
+    if (request.getCountOnly()) {
+      return builder.build();
+    }
+    if (request.getLimit() > 0 && kvs.size() > request.getLimit()) {
+      kvs = kvs.subList(0, (int) request.getLimit());
+      builder.setMore(true);
+    }
+    for (KeyValue kv : kvs) {
+      builder.addKvs(request.getKeysOnly() ? kv.toBuilder().clearValue().build() : kv);
+    }
+    return builder.build();
+  }
+
+  private PutResponse put(PutRequest request, Change change) {
+    if (request.getKey().isEmpty()) {
+      throw error(EtcdErrors.EMPTY_KEY);
+    }
+    KeyValue prev = live(request.getKey());
+    if ((request.getIgnoreValue() || request.getIgnoreLease()) && prev == null) {
+      throw error(EtcdErrors.KEY_NOT_FOUND);
+    }
+    long lease = request.getIgnoreLease() ? prev.getLease() : request.getLease();
+    checkLease(lease);
+
+    KeyValue kv = KeyValue.newBuilder()
+        .setKey(request.getKey())
+        .setValue(request.getIgnoreValue() ? prev.getValue() : request.getValue())
+        .setCreateRevision(prev != null ? prev.getCreateRevision() : change.revision)
+        .setModRevision(change.revision)
+        .setVersion(prev != null ? prev.getVersion() + 1 : 1)
+        .setLease(lease)
+        .build();
+    append(kv);
+    detach(prev);
+    if (lease != 0) {
+      leases.get(lease).keys.add(kv.getKey());
+    }
+
+    Event.Builder event = Event.newBuilder().setType(Event.EventType.PUT).setKv(kv);
+    if (prev != null) {
+      event.setPrevKv(prev);
+    }
+    change.events.add(event.build());
+
+    PutResponse.Builder builder = PutResponse.newBuilder();
+    if (request.getPrevKv() && prev != null) {
+      builder.setPrevKv(prev);
+    }
+    return builder.build();
+  }
+
+  private DeleteRangeResponse deleteRange(DeleteRangeRequest request, Change change) {
+    if (request.getKey().isEmpty()) {
+      throw error(EtcdErrors.EMPTY_KEY);
+    }
+    DeleteRangeResponse.Builder builder = DeleteRangeResponse.newBuilder();
+    for (List<KeyValue> versions : new ArrayList<>(
+        versionsIn(request.getKey(), request.getRangeEnd()))) {
+      KeyValue prev = last(versions);
+      if (!isLive(prev)) {
+        continue;
+      }
+      KeyValue tombstone = KeyValue.newBuilder()
+          .setKey(prev.getKey())
+          .setModRevision(change.revision)
+          .build();
+      versions.add(tombstone);
+      detach(prev);
+      change.events.add(Event.newBuilder()
+          .setType(Event.EventType.DELETE)
+          .setKv(tombstone)
+          .setPrevKv(prev)
+          .build());
+
+      builder.setDeleted(builder.getDeleted() + 1);
+      if (request.getPrevKv()) {
+        builder.addPrevKvs(prev);
+      }
+    }
+    return builder.build();
+  }
+
+  // ***************
+  // Lease
+  // ***************
+
+  synchronized LeaseGrantResponse grant(LeaseGrantRequest request) {
+    long id = request.getID();
+    if (id == 0) {
+      while (leases.containsKey(nextLeaseId)) {
+        nextLeaseId++;
+      }
+      id = nextLeaseId++;
+    } else if (leases.containsKey(id)) {
+      throw error(EtcdErrors.LEASE_EXIST);
+    }
+    if (request.getTTL() > TimeUnit.DAYS.toSeconds(365 * 10)) {
+      throw error(EtcdErrors.LEASE_TTL_TOO_LARGE);
+    }
+
+    LeaseEntry lease = new LeaseEntry(id, request.getTTL());
+    lease.refresh(ticker.read());
+    leases.put(id, lease);
+    return LeaseGrantResponse.newBuilder()
+        .setHeader(header())
+        .setID(id)
+        .setTTL(lease.ttl)
+        .build();
+  }
+
+  synchronized LeaseRevokeResponse revoke(long id) {
+    checkLease(id);
+    revokeLease(id);
+    return LeaseRevokeResponse.newBuilder().setHeader(header()).build();
+  }
+
+  /**
+   * renew the lease, a TTL of zero in the response means the lease is gone.
+   */
+  synchronized LeaseKeepAliveResponse keepAlive(long id) {
+    LeaseKeepAliveResponse.Builder builder = LeaseKeepAliveResponse.newBuilder().setID(id);
+    LeaseEntry lease = leases.get(id);
+    if (lease != null) {
+      lease.refresh(ticker.read());
+      builder.setTTL(lease.ttl);
+    }
+    return builder.setHeader(header()).build();
+  }
+
+  synchronized LeaseTimeToLiveResponse timeToLive(LeaseTimeToLiveRequest request) {
+    LeaseTimeToLiveResponse.Builder builder = LeaseTimeToLiveResponse.newBuilder()
+        .setID(request.getID())
+        .setTTL(-1);
+    LeaseEntry lease = leases.get(request.getID());
+    if (lease != null) {
+      long remaining = TimeUnit.NANOSECONDS.toSeconds(lease.deadline - ticker.read());
+      builder.setTTL(Math.max(remaining, 0)).setGrantedTTL(lease.ttl);
+      if (request.getKeys()) {
+        builder.addAllKeys(lease.keys);
+      }
+    }
+    return builder.setHeader(header()).build();
+  }
+
+  /**
+   * revoke every lease whose deadline has passed, deleting the keys attached to it.
+   *
+   * @return the number of expired leases
+   */
+  public synchronized int expireLeases() {
+    long now = ticker.read();
+    List<Long> expired = new ArrayList<>();
+    for (LeaseEntry lease : leases.values()) {
+      if (now - lease.deadline >= 0) {
+        expired.add(lease.id);
+      }
+    }
+    for (Long id : expired) {
+      revokeLease(id);
+    }
+    return expired.size();
+  }
+
+  private void revokeLease(long id) {
+    LeaseEntry lease = leases.remove(id);
+    if (lease.keys.isEmpty()) {
+      return;
+    }
+    Change change = new Change();
+    for (ByteString key : lease.keys) {
+      deleteRange(DeleteRangeRequest.newBuilder().setKey(key).build(), change);
+    }
+    commit(change);
+  }
+
+  private void checkLease(long id) {
+    if (id != 0 && !leases.containsKey(id)) {
+      throw error(EtcdErrors.LEASE_NOT_FOUND);
+    }
+  }
+
+  private void detach(KeyValue kv) {
+    if (kv != null && kv.getLease() != 0) {
+      LeaseEntry lease = leases.get(kv.getLease());
+      if (lease != null) {
+        lease.keys.remove(kv.getKey());
+      }
+    }
+  }
+
+  // ***************
+  // Watch
+  // ***************
+
+  /**
+   * register a listener for changes on [key, rangeEnd).
+   *
+   * <p>If startRevision is set, the listener is first replayed the stored history from that
+   * revision on, registration and replay happen atomically so no change can slip in between.
+   */
+  synchronized void watch(ByteString key, ByteString rangeEnd, long startRevision,
+      EventListener listener) {
+    if (startRevision > 0 && startRevision < compactRevision) {
+      throw error(EtcdErrors.COMPACTED);
+    }
+    listener.onRegistered(revision);
+    if (startRevision > 0 && startRevision <= revision) {
+      TreeMap<Long, List<Event>> history = new TreeMap<>();
+      for (List<KeyValue> versions : versionsIn(key, rangeEnd)) {
+        for (int i = 0; i < versions.size(); i++) {
+          KeyValue kv = versions.get(i);
+          if (kv.getModRevision() < startRevision) {
+            continue;
+          }
+          Event.Builder event = Event.newBuilder()
+              .setType(isLive(kv) ? Event.EventType.PUT : Event.EventType.DELETE)
+              .setKv(kv);
+          if (i > 0 && isLive(versions.get(i - 1))) {
+            event.setPrevKv(versions.get(i - 1));
+          }
+          history.computeIfAbsent(kv.getModRevision(), r -> new ArrayList<>()).add(event.build());
+        }
+      }
+      for (Map.Entry<Long, List<Event>> entry : history.entrySet()) {
+        listener.onEvents(entry.getKey(), entry.getValue());
+      }
+    }
+    listeners.put(listener, new KeyRange(key, rangeEnd));
+  }
+
+  synchronized void unwatch(EventListener listener) {
+    listeners.remove(listener);
+  }
+
+  // ***************
+  // helpers
+  // ***************
+
+  private void commit(Change change) {
+    if (change.events.isEmpty()) {
+      return;
+    }
+    revision = change.revision;
+    for (Map.Entry<EventListener, KeyRange> entry : listeners.entrySet()) {
+      List<Event> events = new ArrayList<>();
+      for (Event event : change.events) {
+        if (entry.getValue().contains(event.getKv().getKey())) {
+          events.add(event);
+        }
+      }
+      if (!events.isEmpty()) {
+        entry.getKey().onEvents(revision, events);
+      }
+    }
+    if (autoCompactRetention > 0 && revision - compactRevision >= 2 * autoCompactRetention) {
+      compact(revision - autoCompactRetention);
+    }
+  }
+
+  private void checkSize(Message request) {
+    if (request.getSerializedSize() > maxRequestBytes) {
+      throw error(EtcdErrors.REQUEST_TOO_LARGE);
+    }
+  }
+
+  /**
+   * reject txn branches that write the same key twice, like etcd does.
+   */
+  private void checkIntervals(List<RequestOp> ops) {
+    Set<ByteString> puts = new HashSet<>();
+    for (RequestOp op : ops) {
+      if (op.getRequestCase() == RequestOp.RequestCase.REQUEST_PUT
+          && !puts.add(op.getRequestPut().getKey())) {
+        throw error(EtcdErrors.DUPLICATE_KEY);
+      }
+    }
+    for (RequestOp op : ops) {
+      if (op.getRequestCase() == RequestOp.RequestCase.REQUEST_DELETE_RANGE) {
+        DeleteRangeRequest delete = op.getRequestDeleteRange();
+        KeyRange range = new KeyRange(delete.getKey(), delete.getRangeEnd());
+        for (ByteString key : puts) {
+          if (range.contains(key)) {
+            throw error(EtcdErrors.DUPLICATE_KEY);
+          }
+        }
+      }
+    }
+  }
+
+  private boolean evaluate(Compare compare) {
+    KeyValue kv = live(compare.getKey());
+    int result;
+    switch (compare.getTarget()) {
+      case VERSION:
+        result = Long.compare(kv != null ? kv.getVersion() : 0, compare.getVersion());
+        break;
+      case CREATE:
+        result = Long.compare(kv != null ? kv.getCreateRevision() : 0,
+            compare.getCreateRevision());
+        break;
+      case MOD:
+        result = Long.compare(kv != null ? kv.getModRevision() : 0, compare.getModRevision());
+        break;
+      case VALUE:
+        if (kv == null) {
+          return false;
+        }
+        result = KEY_COMPARATOR.compare(kv.getValue(), compare.getValue());
+        break;
+      default:
+        return false;
+    }
+
+    switch (compare.getResult()) {
+      case EQUAL:
+        return result == 0;
+      case NOT_EQUAL:
+        return result != 0;
+      case GREATER:
+        return result > 0;
+      case LESS:
+        return result < 0;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean matches(RangeRequest request, KeyValue kv) {
+    return (request.getMinModRevision() == 0 || kv.getModRevision() >= request.getMinModRevision())
+        && (request.getMaxModRevision() == 0 || kv.getModRevision() <= request.getMaxModRevision())
+        && (request.getMinCreateRevision() == 0
+        || kv.getCreateRevision() >= request.getMinCreateRevision())
+        && (request.getMaxCreateRevision() == 0
+        || kv.getCreateRevision() <= request.getMaxCreateRevision());
+  }
+
+  private static void sort(List<KeyValue> kvs, RangeRequest.SortOrder order,
+      RangeRequest.SortTarget target) {
+    if (order == RangeRequest.SortOrder.NONE || order == RangeRequest.SortOrder.UNRECOGNIZED) {
+      // kvs come out of the index in key order already.
+      return;
+    }
+    Comparator<KeyValue> comparator;
+    switch (target) {
+      case VERSION:
+        comparator = Comparator.comparingLong(KeyValue::getVersion);
+        break;
+      case CREATE:
+        comparator = Comparator.comparingLong(KeyValue::getCreateRevision);
+        break;
+      case MOD:
+        comparator = Comparator.comparingLong(KeyValue::getModRevision);
+        break;
+      case VALUE:
+        comparator = (left, right) -> KEY_COMPARATOR.compare(left.getValue(), right.getValue());
+        break;
+      default:
+        comparator = (left, right) -> KEY_COMPARATOR.compare(left.getKey(), right.getKey());
+        break;
+    }
+    Collections.sort(kvs, order == RangeRequest.SortOrder.DESCEND
+        ? comparator.reversed() : comparator);
+  }
+
+  private Collection<List<KeyValue>> versionsIn(ByteString key, ByteString rangeEnd) {
+    if (rangeEnd.isEmpty()) {
+      List<KeyValue> versions = index.get(key);
+      return versions == null ? Collections.emptyList() : Collections.singletonList(versions);
+    }
+    if (rangeEnd.equals(NUL)) {
+      return key.equals(NUL) ? index.values() : index.tailMap(key, true).values();
+    }
+    if (KEY_COMPARATOR.compare(key, rangeEnd) >= 0) {
+      return Collections.emptyList();
+    }
+    return index.subMap(key, true, rangeEnd, false).values();
+  }
+
+  private void append(KeyValue kv) {
+    index.computeIfAbsent(kv.getKey(), k -> new ArrayList<>()).add(kv);
+  }
+
+  private KeyValue live(ByteString key) {
+    List<KeyValue> versions = index.get(key);
+    if (versions == null) {
+      return null;
+    }
+    KeyValue kv = last(versions);
+    return isLive(kv) ? kv : null;
+  }
+
+  private static KeyValue at(List<KeyValue> versions, long rev) {
+    for (int i = versions.size() - 1; i >= 0; i--) {
+      KeyValue kv = versions.get(i);
+      if (kv.getModRevision() <= rev) {
+        return isLive(kv) ? kv : null;
+      }
+    }
+    return null;
+  }
+
+  private static KeyValue last(List<KeyValue> versions) {
+    return versions.isEmpty() ? null : versions.get(versions.size() - 1);
+  }
+
+  private static boolean isLive(KeyValue kv) {
+    return kv != null && kv.getVersion() > 0;
+  }
+
+  /**
+   * the pending change of one request, all its events share the next revision.
+   */
+  private final class Change {
+
+    private final long revision = MvccStore.this.revision + 1;
+    private final List<Event> events = new ArrayList<>();
+
+    /**
+     * reads inside a txn observe the writes the txn made before them.
+     */
+    long readRevision() {
+      return events.isEmpty() ? MvccStore.this.revision : revision;
+    }
+  }
+
+  /**
+   * A [key, rangeEnd) interval using the etcd conventions for an empty and a '\0' range end.
+   */
+  static final class KeyRange {
+
+    private final ByteString key;
+    private final ByteString rangeEnd;
+
+    KeyRange(ByteString key, ByteString rangeEnd) {
+      this.key = key;
+      this.rangeEnd = rangeEnd;
+    }
+
+    boolean contains(ByteString candidate) {
+      if (rangeEnd.isEmpty()) {
+        return key.equals(candidate);
+      }
+      if (rangeEnd.equals(NUL)) {
+        return key.equals(NUL) || KEY_COMPARATOR.compare(candidate, key) >= 0;
+      }
+      return KEY_COMPARATOR.compare(candidate, key) >= 0
+          && KEY_COMPARATOR.compare(candidate, rangeEnd) < 0;
+    }
+  }
+
+  private static final class LeaseEntry {
+
+    private final long id;
+    private final long ttl;
+    private final Set<ByteString> keys = new HashSet<>();
+    private long deadline;
+
+    LeaseEntry(long id, long ttl) {
+      this.id = id;
+      this.ttl = ttl;
+    }
+
+    void refresh(long now) {
+      this.deadline = now + TimeUnit.SECONDS.toNanos(ttl);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package com.coreos.jetcd.server;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.api.WatchCreateRequest;
+import com.coreos.jetcd.api.WatchGrpc;
+import com.coreos.jetcd.api.WatchRequest;
+import com.coreos.jetcd.api.WatchResponse;
+import com.google.protobuf.ByteString;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Watch service of the in-process server.
+ *
+ * <p>Every watcher registers its own listener on the {@link MvccStore}. Responses of one stream
+ * are queued and written by a single drainer at a time, so writers never block on a slow stream
+ * and the stream sees them in commit order.
+ */
+class WatchService extends WatchGrpc.WatchImplBase {
+
+  private static final ByteString NUL = ByteString.copyFrom(new byte[]{0});
+
+  private static final WatchResponse COMPLETED = WatchResponse.newBuilder()
+      .setWatchId(Long.MIN_VALUE)
+      .build();
+
+  private final MvccStore store;
+  private final Executor executor;
+
+  WatchService(MvccStore store, Executor executor) {
+    this.store = store;
+    this.executor = executor;
+  }
+
+  @Override
+  public StreamObserver<WatchRequest> watch(StreamObserver<WatchResponse> responseObserver) {
+    return new WatchStream(responseObserver);
+  }
+
+  private final class WatchStream implements StreamObserver<WatchRequest> {
+
+    private final StreamObserver<WatchResponse> responseObserver;
+    private final Map<Long, StreamWatcher> watchers = new ConcurrentHashMap<>();
+    private final Queue<WatchResponse> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // grpc delivers the requests of a stream serially.
+    private long nextWatchId = 0;
+    private volatile boolean closed = false;
+
+    WatchStream(StreamObserver<WatchResponse> responseObserver) {
+      this.responseObserver = responseObserver;
+    }
+
+    @Override
+    public void onNext(WatchRequest request) {
+      switch (request.getRequestUnionCase()) {
+        case CREATE_REQUEST:
+          create(request.getCreateRequest());
+          break;
+        case CANCEL_REQUEST:
+          cancel(request.getCancelRequest().getWatchId());
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      close();
+    }
+
+    @Override
+    public void onCompleted() {
+      close();
+      send(COMPLETED);
+    }
+
+    /**
+     * create a watcher, answered like etcd: an empty range is refused with a single created and
+     * canceled response of watch id -1, while a compacted start revision gets a created response
+     * then a canceled one carrying the compact revision.
+     */
+    private void create(WatchCreateRequest request) {
+      if (isEmptyRange(request)) {
+        send(WatchResponse.newBuilder()
+            .setHeader(store.header())
+            .setWatchId(-1)
+            .setCreated(true)
+            .setCanceled(true)
+            .build());
+        return;
+      }
+      StreamWatcher watcher = new StreamWatcher(nextWatchId++, request);
+      try {
+        store.watch(request.getKey(), request.getRangeEnd(), request.getStartRevision(), watcher);
+      } catch (StatusRuntimeException e) {
+        send(WatchResponse.newBuilder()
+            .setHeader(store.header())
+            .setWatchId(watcher.id)
+            .setCreated(true)
+            .build());
+        send(WatchResponse.newBuilder()
+            .setHeader(store.header())
+            .setWatchId(watcher.id)
+            .setCanceled(true)
+            .setCompactRevision(store.getCompactRevision())
+            .build());
+        return;
+      }
+      watchers.put(watcher.id, watcher);
+    }
+
+    private boolean isEmptyRange(WatchCreateRequest request) {
+      ByteString rangeEnd = request.getRangeEnd();
+      return !rangeEnd.isEmpty() && !rangeEnd.equals(NUL)
+          && MvccStore.KEY_COMPARATOR.compare(request.getKey(), rangeEnd) >= 0;
+    }
+
+    private void cancel(long watchId) {
+      StreamWatcher watcher = watchers.remove(watchId);
+      if (watcher != null) {
+        store.unwatch(watcher);
+        send(WatchResponse.newBuilder()
+            .setHeader(store.header())
+            .setWatchId(watchId)
+            .setCanceled(true)
+            .build());
+      }
+    }
+
+    private void close() {
+      closed = true;
+      for (StreamWatcher watcher : watchers.values()) {
+        store.unwatch(watcher);
+      }
+      watchers.clear();
+    }
+
+    /**
+     * queue a response, {@link #COMPLETED} completes the stream.
+     */
+    private void send(WatchResponse response) {
+      outbound.add(response);
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      do {
+        WatchResponse response = outbound.poll();
+        try {
+          if (response == COMPLETED) {
+            responseObserver.onCompleted();
+          } else if (!closed || response.getCanceled()) {
+            responseObserver.onNext(response);
+          }
+        } catch (RuntimeException e) {
+          // the call is gone, stop watching on its behalf.
+          close();
+        }
+      } while (pending.decrementAndGet() != 0);
+    }
+
+    private final class StreamWatcher implements MvccStore.EventListener {
+
+      private final long id;
+      private final WatchCreateRequest request;
+
+      StreamWatcher(long id, WatchCreateRequest request) {
+        this.id = id;
+        this.request = request;
+      }
+
+      @Override
+      public void onRegistered(long revision) {
+        send(WatchResponse.newBuilder()
+            .setHeader(store.header())
+            .setWatchId(id)
+            .setCreated(true)
+            .build());
+      }
+
+      @Override
+      public void onEvents(long revision, List<Event> events) {
+        WatchResponse.Builder builder = WatchResponse.newBuilder().setWatchId(id);
+        for (Event event : events) {
+          if (isFiltered(event)) {
+            continue;
+          }
+          builder.addEvents(request.getPrevKv() ? event : event.toBuilder().clearPrevKv().build());
+        }
+        if (builder.getEventsCount() > 0) {
+          ResponseHeader header = store.header().toBuilder().setRevision(revision).build();
+          send(builder.setHeader(header).build());
+        }
+      }
+
+      private boolean isFiltered(Event event) {
+        for (WatchCreateRequest.FilterType filter : request.getFiltersList()) {
+          if (filter == WatchCreateRequest.FilterType.NOPUT
+              && event.getType() == Event.EventType.PUT) {
+            return true;
+          }
+          if (filter == WatchCreateRequest.FilterType.NODELETE
+              && event.getType() == Event.EventType.DELETE) {
+            return true;
+          }
+        }
+        return false;
+      }
+    }
+  }
+}
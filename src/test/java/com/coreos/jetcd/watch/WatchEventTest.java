@@ -0,0 +1,72 @@
+package com.coreos.jetcd.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.data.ByteSequence;
+import com.google.protobuf.ByteString;
+import org.testng.annotations.Test;
+
+public class WatchEventTest {
+
+  private static final ByteString KEY = ByteString.copyFromUtf8("key");
+
+  @Test
+  public void testViewOverEventMessage() {
+    Event event = Event.newBuilder()
+        .setType(Event.EventType.PUT)
+        .setKv(KeyValue.newBuilder()
+            .setKey(KEY)
+            .setValue(ByteString.copyFromUtf8("v2"))
+            .setCreateRevision(3)
+            .setModRevision(5)
+            .setVersion(2))
+        .setPrevKv(KeyValue.newBuilder().setKey(KEY).setValue(ByteString.copyFromUtf8("v1")))
+        .build();
+
+    WatchEvent watchEvent = new WatchEvent(event);
+
+    assertThat(watchEvent.getEventType()).isEqualTo(WatchEvent.EventType.PUT);
+    assertThat(watchEvent.getKeyValue().getKey().getByteString()).isSameAs(KEY);
+    assertThat(watchEvent.getKeyValue().getValue().toStringUtf8()).isEqualTo("v2");
+    assertThat(watchEvent.getKeyValue().getModRevision()).isEqualTo(5);
+    assertThat(watchEvent.getKeyValue().getVersion()).isEqualTo(2);
+    assertThat(watchEvent.getPrevKV().getValue().toStringUtf8()).isEqualTo("v1");
+    // the views are created once.
+    assertThat(watchEvent.getKeyValue()).isSameAs(watchEvent.getKeyValue());
+    assertThat(watchEvent.getKeyValue().getValue()).isSameAs(watchEvent.getKeyValue().getValue());
+  }
+
+  @Test
+  public void testDeleteWithoutPrevKv() {
+    WatchEvent watchEvent = new WatchEvent(Event.newBuilder()
+        .setType(Event.EventType.DELETE)
+        .setKv(KeyValue.newBuilder().setKey(KEY).setModRevision(7))
+        .build());
+
+    assertThat(watchEvent.getEventType()).isEqualTo(WatchEvent.EventType.DELETE);
+    assertThat(watchEvent.getKeyValue().getValue().isEmpty()).isTrue();
+    assertThat(watchEvent.getPrevKV().getKey().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testEagerEvent() {
+    com.coreos.jetcd.data.KeyValue keyValue = new com.coreos.jetcd.data.KeyValue(
+        ByteSequence.fromString("key"), ByteSequence.fromString("v"), 1, 1, 1, 0);
+    WatchEvent watchEvent = new WatchEvent(keyValue, null, WatchEvent.EventType.PUT);
+
+    assertThat(watchEvent.getKeyValue()).isSameAs(keyValue);
+    assertThat(watchEvent.getPrevKV()).isNull();
+    assertThat(keyValue.getKey()).isEqualTo(ByteSequence.fromString("key"));
+  }
+
+  @Test
+  public void testKeyValueWithoutValue() {
+    com.coreos.jetcd.data.KeyValue keyValue = new com.coreos.jetcd.data.KeyValue(
+        ByteSequence.fromString("key"), null, 1, 2, 1, 0);
+
+    assertThat(keyValue.getValue().isEmpty()).isTrue();
+    assertThat(keyValue.getModRevision()).isEqualTo(2);
+  }
+}